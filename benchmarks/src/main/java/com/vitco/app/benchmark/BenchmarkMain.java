@@ -0,0 +1,30 @@
+package com.vitco.app.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks (same options as the JMH runner).
+ *
+ * The results are written as JSON so that they can be compared between releases. Use
+ * "-rff file.json" to change the result file or "-rf text" for a different format.
+ */
+public class BenchmarkMain {
+
+    // default result file
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, "-rff");
+            options.add(1, RESULT_FILE);
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
@@ -0,0 +1,59 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.low.CubeIndexer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of voxel positions (per 1024 positions).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class CubeIndexerBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final short[][] positions = new short[COUNT][];
+    private final int[] ids = new int[COUNT];
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(1);
+        for (int i = 0; i < COUNT; i++) {
+            positions[i] = new short[] {
+                    (short) (rand.nextInt(512) - 256), (short) (rand.nextInt(512) - 256), (short) (rand.nextInt(512) - 256)
+            };
+            ids[i] = CubeIndexer.getId(positions[i]);
+        }
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (short[] pos : positions) {
+            blackhole.consume(CubeIndexer.getId(pos));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(CubeIndexer.getPos(id));
+        }
+    }
+
+    @Benchmark
+    public void neighbours(Blackhole blackhole) {
+        for (int id : ids) {
+            for (int orientation = 0; orientation < 6; orientation++) {
+                blackhole.consume(CubeIndexer.change(id, orientation));
+            }
+        }
+    }
+}
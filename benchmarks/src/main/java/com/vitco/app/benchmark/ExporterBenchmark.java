@@ -0,0 +1,57 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.convert.BatchConverter;
+import com.vitco.app.core.data.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing generated models with every exporter.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ExporterBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int voxels;
+
+    @Param({"vsd", "vox", "voxlap", "qb", "kv6", "pnx", "slices", "collada"})
+    public String format;
+
+    private Data data;
+    private File folder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = Models.createData(Models.generate(voxels, 1));
+        folder = Files.createTempDirectory("benchmark").toFile();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFiles() {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFolder() {
+        folder.delete();
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        BatchConverter.exportFile(data, new File(folder, BatchConverter.getOutputName("model", format)), format);
+    }
+}
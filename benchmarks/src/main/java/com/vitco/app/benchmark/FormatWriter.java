@@ -0,0 +1,298 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.util.file.FileOut;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes generated models in the formats that can be imported, but not exported
+ * (binvox, rawvox, kvx and vxl), so that their importers can be benchmarked.
+ *
+ * The models are written as simple as the formats allow (no compression beyond what
+ * the format requires). The positions are shifted so that the model starts at zero.
+ */
+final class FormatWriter {
+
+    // the formats that can be written
+    static final String[] FORMATS = new String[] {"binvox", "rawvox", "kvx", "vxl"};
+
+    private FormatWriter() {}
+
+    // the colors of a model as grid (0 = empty)
+    private static final class Grid {
+        private final int sx, sy, sz;
+        private final int[] colors;
+
+        private Grid(int[] voxels) {
+            int[] min = new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+            int[] max = new int[] {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+            for (int i = 0; i < voxels.length; i += 4) {
+                for (int j = 0; j < 3; j++) {
+                    min[j] = Math.min(min[j], voxels[i + j]);
+                    max[j] = Math.max(max[j], voxels[i + j]);
+                }
+            }
+            sx = max[0] - min[0] + 1;
+            sy = max[1] - min[1] + 1;
+            sz = max[2] - min[2] + 1;
+            colors = new int[sx * sy * sz];
+            for (int i = 0; i < voxels.length; i += 4) {
+                // the alpha marks the position as used (also for black voxels)
+                colors[index(voxels[i] - min[0], voxels[i + 1] - min[1], voxels[i + 2] - min[2])] =
+                        voxels[i + 3] | 0xFF000000;
+            }
+        }
+
+        private int index(int x, int y, int z) {
+            return x + sx * (y + sy * z);
+        }
+
+        private int get(int x, int y, int z) {
+            return colors[index(x, y, z)];
+        }
+    }
+
+    // write the voxels (packed x, y, z, rgb) into a file
+    static void write(int[] voxels, File file, String format) throws IOException {
+        Grid grid = new Grid(voxels);
+        FileOut out = new FileOut(file.getAbsolutePath());
+        try {
+            if (format.equals("binvox")) {
+                writeBinvox(grid, out);
+            } else if (format.equals("rawvox")) {
+                writeRawVox(grid, out);
+            } else if (format.equals("kvx")) {
+                writeKvx(grid, out);
+            } else if (format.equals("vxl")) {
+                writeVxl(grid, out);
+            } else {
+                throw new IOException("Unsupported format: " + format);
+            }
+        } finally {
+            out.finish();
+        }
+    }
+
+    // binvox: text header and run length encoded occupancy (cubic grid, x fastest)
+    private static void writeBinvox(Grid grid, FileOut out) throws IOException {
+        int size = Math.max(grid.sx, Math.max(grid.sy, grid.sz));
+        out.writeASCIIString("#binvox 1\n");
+        out.writeASCIIString("dim " + size + " " + size + " " + size + "\n");
+        out.writeASCIIString("translate 0 0 0\n");
+        out.writeASCIIString("scale 1\n");
+        out.writeASCIIString("data\n");
+        int value = -1;
+        int count = 0;
+        for (int z = 0; z < size; z++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int used = x < grid.sx && y < grid.sy && z < grid.sz && grid.get(x, y, z) != 0 ? 1 : 0;
+                    if (used != value || count == 255) {
+                        if (count > 0) {
+                            out.writeByte((byte) value);
+                            out.writeByte((byte) count);
+                        }
+                        value = used;
+                        count = 0;
+                    }
+                    count++;
+                }
+            }
+        }
+        out.writeByte((byte) value);
+        out.writeByte((byte) count);
+    }
+
+    // rawvox: header and one byte per position (x fastest)
+    private static void writeRawVox(Grid grid, FileOut out) throws IOException {
+        out.writeASCIIString("XOVR");
+        out.writeIntRev(grid.sx);
+        out.writeIntRev(grid.sy);
+        out.writeIntRev(grid.sz);
+        out.writeIntRev(8);
+        byte[] row = new byte[grid.sx];
+        for (int z = 0; z < grid.sz; z++) {
+            for (int y = 0; y < grid.sy; y++) {
+                for (int x = 0; x < grid.sx; x++) {
+                    row[x] = (byte) (grid.get(x, y, z) != 0 ? 1 : 0);
+                }
+                out.writeBytes(row);
+            }
+        }
+    }
+
+    // helper - the palette index of every color (at most 256 colors)
+    private static TIntIntHashMap createPalette(Grid grid) throws IOException {
+        TIntIntHashMap palette = new TIntIntHashMap();
+        for (int color : grid.colors) {
+            if (color != 0 && !palette.containsKey(color)) {
+                if (palette.size() == 256) {
+                    throw new IOException("The model has more than 256 colors.");
+                }
+                palette.put(color, palette.size());
+            }
+        }
+        return palette;
+    }
+
+    // kvx: columns along z as slabs (every slab is stored with all its voxels)
+    private static void writeKvx(Grid grid, FileOut out) throws IOException {
+        if (grid.sz > 255) {
+            throw new IOException("The model is too high for the kvx format.");
+        }
+        TIntIntHashMap palette = createPalette(grid);
+        // the slabs of every column and the offsets
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] xoffset = new int[grid.sx + 1];
+        short[] xyoffset = new short[grid.sx * (grid.sy + 1)];
+        xoffset[0] = (grid.sx + 1) * 4 + grid.sx * (grid.sy + 1) * 2;
+        for (int x = 0; x < grid.sx; x++) {
+            int sliceStart = data.size();
+            for (int y = 0; y < grid.sy; y++) {
+                int offset = data.size() - sliceStart;
+                if (offset > 0xFFFF) {
+                    throw new IOException("The model is too large for the kvx format.");
+                }
+                xyoffset[x * (grid.sy + 1) + y] = (short) offset;
+                int z = 0;
+                while (z < grid.sz) {
+                    if (grid.get(x, y, z) == 0) {
+                        z++;
+                        continue;
+                    }
+                    int start = z;
+                    while (z < grid.sz && grid.get(x, y, z) != 0) {
+                        z++;
+                    }
+                    data.write(start);
+                    data.write(z - start);
+                    // all faces visible and no voxels are filled in
+                    data.write(16 | 32);
+                    for (int i = start; i < z; i++) {
+                        data.write(palette.get(grid.get(x, y, i)));
+                    }
+                }
+            }
+            int sliceSize = data.size() - sliceStart;
+            if (sliceSize > 0xFFFF) {
+                throw new IOException("The model is too large for the kvx format.");
+            }
+            xyoffset[x * (grid.sy + 1) + grid.sy] = (short) sliceSize;
+            xoffset[x + 1] = xoffset[x] + sliceSize;
+        }
+        out.writeIntRev(24 + xoffset[grid.sx]);
+        out.writeIntRev(grid.sx);
+        out.writeIntRev(grid.sy);
+        out.writeIntRev(grid.sz);
+        // pivot (center of the model)
+        out.writeIntRev(grid.sx / 2 * 256);
+        out.writeIntRev(grid.sy / 2 * 256);
+        out.writeIntRev(grid.sz / 2 * 256);
+        out.writeIntsRev(xoffset, 0, xoffset.length);
+        out.writeShortsRev(xyoffset, 0, xyoffset.length);
+        out.writeBytes(data.toByteArray());
+        writePalette(palette, out);
+    }
+
+    // helper - write a 6 bit palette (768 byte)
+    private static void writePalette(TIntIntHashMap palette, FileOut out) throws IOException {
+        byte[] bytes = new byte[768];
+        for (int color : palette.keys()) {
+            int index = palette.get(color) * 3;
+            bytes[index] = (byte) (((color >> 16) & 0xFF) >> 2);
+            bytes[index + 1] = (byte) (((color >> 8) & 0xFF) >> 2);
+            bytes[index + 2] = (byte) ((color & 0xFF) >> 2);
+        }
+        out.writeBytes(bytes);
+    }
+
+    // helper - write a big endian float
+    private static void writeFloat(FileOut out, float value) throws IOException {
+        out.writeIntRev(Integer.reverseBytes(Float.floatToIntBits(value)));
+    }
+
+    // vxl (C&C): one limb, columns along z as spans of (color, normal) pairs
+    private static void writeVxl(Grid grid, FileOut out) throws IOException {
+        if (grid.sx > 255 || grid.sy > 255 || grid.sz > 255) {
+            throw new IOException("The model is too large for the vxl format.");
+        }
+        TIntIntHashMap palette = createPalette(grid);
+        int baseSize = grid.sx * grid.sy;
+        int[] colStart = new int[baseSize];
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int i = 0; i < baseSize; i++) {
+            int x = i % grid.sx;
+            int y = i / grid.sx;
+            colStart[i] = -1;
+            int z = 0;
+            while (z < grid.sz) {
+                // skip the empty voxels
+                int skip = 0;
+                while (z < grid.sz && grid.get(x, y, z) == 0) {
+                    z++;
+                    skip++;
+                }
+                if (z == grid.sz && colStart[i] == -1) {
+                    // empty column
+                    break;
+                }
+                if (colStart[i] == -1) {
+                    colStart[i] = data.size();
+                }
+                int count = 0;
+                int start = z;
+                while (z < grid.sz && grid.get(x, y, z) != 0) {
+                    z++;
+                    count++;
+                }
+                data.write(skip);
+                data.write(count);
+                for (int j = start; j < z; j++) {
+                    data.write(palette.get(grid.get(x, y, j)));
+                    data.write(0);
+                }
+                data.write(count);
+            }
+        }
+        // the offsets are read as 24 bit values
+        int bodySize = baseSize * 8 + data.size();
+        if (bodySize > 0xFFFFFF) {
+            throw new IOException("The model is too large for the vxl format.");
+        }
+
+        // header
+        out.writeASCIIString("Voxel Animation");
+        out.writeByte((byte) 0);
+        out.writeIntRev(1); // palette count
+        out.writeIntRev(1); // limb count
+        out.writeIntRev(1); // tailer count
+        out.writeIntRev(bodySize);
+        out.writeBytes(new byte[770]); // palette (colors are predefined)
+        // limb header
+        out.writeASCIIString("Generated");
+        out.writeBytes(new byte[16 - "Generated".length() + 12]);
+        // limb body
+        out.writeIntsRev(colStart, 0, colStart.length);
+        int[] colEnd = new int[baseSize];
+        out.writeIntsRev(colEnd, 0, colEnd.length);
+        out.writeBytes(data.toByteArray());
+        // limb tailer
+        out.writeIntRev(0); // data offset
+        out.writeBytes(new byte[8]);
+        writeFloat(out, 1);
+        out.writeBytes(new byte[48]);
+        writeFloat(out, 0);
+        writeFloat(out, 0);
+        writeFloat(out, 0);
+        writeFloat(out, grid.sx);
+        writeFloat(out, grid.sy);
+        writeFloat(out, grid.sz);
+        out.writeByte((byte) grid.sx);
+        out.writeByte((byte) grid.sy);
+        out.writeByte((byte) grid.sz);
+        out.writeByte((byte) 2);
+    }
+}
@@ -0,0 +1,104 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.low.CubeIndexer;
+import com.vitco.app.low.hull.HullManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hull computation for generated models (the voxel objects are the position ids).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class HullManagerBenchmark {
+
+    // amount of voxels that are changed per operation
+    private static final int CHANGES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int voxels;
+
+    private int[] posIds;
+    private Integer[] objects;
+    private int[] changed;
+
+    // manager that contains the model
+    private HullManager<Integer> filled;
+
+    @Setup
+    public void setup() {
+        int[] model = Models.generate(voxels, 1);
+        posIds = new int[voxels];
+        objects = new Integer[voxels];
+        for (int i = 0; i < voxels; i++) {
+            posIds[i] = CubeIndexer.getId(model[i * 4], model[i * 4 + 1], model[i * 4 + 2]);
+            objects[i] = posIds[i];
+        }
+        Random rand = new Random(1);
+        changed = new int[CHANGES];
+        for (int i = 0; i < CHANGES; i++) {
+            changed[i] = posIds[rand.nextInt(voxels)];
+        }
+        filled = new HullManager<Integer>();
+        filled.update(posIds, objects);
+        consumeChanges(filled, null);
+    }
+
+    // helper - retrieve (and reset) the hull changes
+    private static void consumeChanges(HullManager<Integer> manager, Blackhole blackhole) {
+        for (int side = 0; side < 6; side++) {
+            Object additions = manager.getHullAdditions(side);
+            Object removals = manager.getHullRemovals(side);
+            if (blackhole != null) {
+                blackhole.consume(additions);
+                blackhole.consume(removals);
+            }
+        }
+    }
+
+    // add all voxels at once (empty manager)
+    @Benchmark
+    public void bulkUpdate(Blackhole blackhole) {
+        HullManager<Integer> manager = new HullManager<Integer>();
+        manager.update(posIds, objects);
+        consumeChanges(manager, blackhole);
+    }
+
+    // add the voxels one by one
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        HullManager<Integer> manager = new HullManager<Integer>();
+        for (int i = 0; i < posIds.length; i++) {
+            manager.update(posIds[i], objects[i]);
+        }
+        consumeChanges(manager, blackhole);
+    }
+
+    // remove and restore voxels of the model
+    @Benchmark
+    public void clearPosition(Blackhole blackhole) {
+        for (int posId : changed) {
+            filled.clearPosition(posId);
+        }
+        consumeChanges(filled, blackhole);
+        for (int posId : changed) {
+            filled.update(posId, posId);
+        }
+        consumeChanges(filled, blackhole);
+    }
+
+    // extract the hull of the model
+    @Benchmark
+    public void getHull(Blackhole blackhole) {
+        for (int side = 0; side < 6; side++) {
+            blackhole.consume(filled.getHull(side));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.convert.BatchConverter;
+import com.vitco.app.core.data.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading generated models with every importer (the files are written once per trial).
+ *
+ * Formats without exporter are written by the FormatWriter. The vxl importer reads the
+ * offsets as 24 bit values, which the largest model exceeds, so it runs in VxlImporterBenchmark.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ImporterBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int voxels;
+
+    @Param({"vsd", "vox", "qb", "kv6", "pnx", "binvox", "rawvox", "kvx"})
+    public String format;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = writeModel(voxels, format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        file.getParentFile().delete();
+    }
+
+    @Benchmark
+    public Data load() throws IOException {
+        return load(file);
+    }
+
+    // write a generated model into a temporary folder
+    static File writeModel(int voxels, String format) throws IOException {
+        File folder = Files.createTempDirectory("benchmark").toFile();
+        int[] model = Models.generate(voxels, 1);
+        if (Arrays.asList(FormatWriter.FORMATS).contains(format)) {
+            File file = new File(folder, "model." + format);
+            FormatWriter.write(model, file, format);
+            return file;
+        }
+        File file = new File(folder, BatchConverter.getOutputName("model", format));
+        BatchConverter.exportFile(Models.createData(model), file, format);
+        return file;
+    }
+
+    // load a file with the importer of its format
+    static Data load(File file) throws IOException {
+        Data data = new Data();
+        BatchConverter.importFile(file, data);
+        return data;
+    }
+}
@@ -0,0 +1,127 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.convert.BatchConverter;
+import com.vitco.app.core.data.Data;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.low.hull.HullManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated and loaded models that are used by the benchmarks.
+ */
+final class Models {
+
+    // folder that contains the test models (relative to the benchmark module)
+    static final File RESOURCES = new File(System.getProperty("benchmark.resources", "../src/test/resources/formats"));
+
+    // the colors of the generated models
+    private static final int[] PALETTE = new int[] {
+            0x7a5c3e, 0x5d8a3a, 0x8c8c8c, 0x3a6d8a, 0xc9b37a, 0x6b3a3a, 0xe0e0e0, 0x2f2f2f
+    };
+
+    private Models() {}
+
+    // generate a model with the given amount of voxels as packed (x, y, z, rgb) array. The voxels
+    // fill a cube with small gaps and areas of the same color, similar to a drawn model.
+    static int[] generate(int count, long seed) {
+        Random rand = new Random(seed);
+        int size = (int) Math.ceil(Math.cbrt(count / 0.8));
+        int offset = size / 2;
+        int[] result = new int[count * 4];
+        // the gaps are filled in a second pass if there are not enough voxels
+        BitSet used = new BitSet(size * size * size);
+        int i = 0;
+        for (int pass = 0; pass < 2 && i < count; pass++) {
+            for (int pos = 0, len = size * size * size; pos < len && i < count; pos++) {
+                if (!used.get(pos) && (pass == 1 || rand.nextFloat() < 0.85f)) {
+                    used.set(pos);
+                    int x = pos % size;
+                    int y = (pos / size) % size;
+                    int z = pos / (size * size);
+                    result[i * 4] = x - offset;
+                    result[i * 4 + 1] = -y;
+                    result[i * 4 + 2] = z - offset;
+                    result[i * 4 + 3] = rand.nextInt(20) == 0
+                            ? PALETTE[rand.nextInt(PALETTE.length)]
+                            : PALETTE[(x / 6 + y / 6 + z / 6) % PALETTE.length];
+                    i++;
+                }
+            }
+        }
+        return result;
+    }
+
+    // create a data object that contains the voxels as one layer
+    static Data createData(int[] voxels) {
+        Data data = new Data();
+        data.deleteLayer(data.getLayers()[0]);
+        data.importLayer("Generated", true, voxels);
+        return data;
+    }
+
+    // load a test model (path relative to the resource folder)
+    static Data load(String path) throws IOException {
+        Data data = new Data();
+        BatchConverter.importFile(new File(RESOURCES, path), data);
+        return data;
+    }
+
+    // extract the visible faces of a model as planes (one plane per side and depth)
+    static List<boolean[][]> extractPlanes(Voxel[] voxels) {
+        HullManager<Voxel> hullManager = new HullManager<Voxel>();
+        for (Voxel voxel : voxels) {
+            hullManager.update(voxel.posId, voxel);
+        }
+        List<boolean[][]> result = new ArrayList<boolean[][]>();
+        for (int side = 0; side < 6; side++) {
+            int axis = side / 2;
+            int id1 = axis == 0 ? 1 : 0;
+            int id2 = axis == 2 ? 1 : 2;
+            // group the faces by depth
+            HashMap<Short, List<short[]>> planes = new HashMap<Short, List<short[]>>();
+            for (short[] face : hullManager.getHull(side)) {
+                List<short[]> plane = planes.get(face[axis]);
+                if (plane == null) {
+                    plane = new ArrayList<short[]>();
+                    planes.put(face[axis], plane);
+                }
+                plane.add(face);
+            }
+            for (List<short[]> plane : planes.values()) {
+                int min1 = Integer.MAX_VALUE, min2 = Integer.MAX_VALUE;
+                int max1 = Integer.MIN_VALUE, max2 = Integer.MIN_VALUE;
+                for (short[] face : plane) {
+                    min1 = Math.min(min1, face[id1]);
+                    min2 = Math.min(min2, face[id2]);
+                    max1 = Math.max(max1, face[id1]);
+                    max2 = Math.max(max2, face[id2]);
+                }
+                boolean[][] bits = new boolean[max1 - min1 + 1][max2 - min2 + 1];
+                for (short[] face : plane) {
+                    bits[face[id1] - min1][face[id2] - min2] = true;
+                }
+                result.add(bits);
+            }
+        }
+        return result;
+    }
+
+    // create a random plane
+    static boolean[][] randomPlane(int width, int height, float density, long seed) {
+        Random rand = new Random(seed);
+        boolean[][] result = new boolean[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                result[x][y] = rand.nextFloat() < density;
+            }
+        }
+        return result;
+    }
+}
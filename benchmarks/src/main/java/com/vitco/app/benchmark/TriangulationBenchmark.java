@@ -0,0 +1,90 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.low.triangulate.*;
+import com.vitco.app.low.triangulate.util.Grid2PolyHelper;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
+import org.jaitools.imageutils.ImageUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.media.jai.TiledImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triangulation of all planes of a model with the different algorithms. The
+ * synthetic planes are random, the other planes are the faces of test models.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class TriangulationBenchmark {
+
+    @Param({"random_sparse", "random_dense", "chr_knight", "castle", "dragon"})
+    public String planes;
+
+    @Param({"PolyFast", "PolySlow", "Mono", "MonoSave", "Naive", "NaiveGreedy", "GreedyOptimal"})
+    public String algorithm;
+
+    private final List<boolean[][]> data = new ArrayList<boolean[][]>();
+
+    // buffer for the fast triangulation
+    private final TriangleBuffer buffer = new TriangleBuffer();
+
+    @Setup
+    public void setup() throws IOException {
+        if (planes.startsWith("random_")) {
+            float density = planes.equals("random_sparse") ? 0.3f : 0.8f;
+            for (int i = 0; i < 20; i++) {
+                data.add(Models.randomPlane(64, 64, density, i));
+            }
+        } else {
+            data.addAll(Models.extractPlanes(
+                    Models.load("magica_vox/fit_to_size/" + planes + ".vox").getVisibleLayerVoxel()));
+        }
+    }
+
+    @Benchmark
+    public void triangulate(Blackhole blackhole) {
+        for (boolean[][] plane : data) {
+            switch (algorithm) {
+                case "PolyFast":
+                    buffer.clear();
+                    Grid2TriPolyFast.triangulate(Grid2PolyHelper.convert(plane), buffer);
+                    blackhole.consume(buffer.size());
+                    break;
+                case "PolySlow":
+                    TiledImage src = ImageUtils.createConstantImage(plane.length, plane[0].length, 0);
+                    for (int x = 0; x < plane.length; x++) {
+                        for (int y = 0; y < plane[0].length; y++) {
+                            if (plane[x][y]) {
+                                src.setSample(x, y, 0, 1);
+                            }
+                        }
+                    }
+                    blackhole.consume(Grid2TriPolySlow.triangulate(Grid2TriPolySlow.doVectorize(src), false));
+                    break;
+                case "Mono":
+                    blackhole.consume(Grid2TriMono.triangulate(plane, false));
+                    break;
+                case "MonoSave":
+                    blackhole.consume(Grid2TriMono.triangulate(plane, true));
+                    break;
+                case "Naive":
+                    blackhole.consume(Grid2TriNaive.triangulate(plane));
+                    break;
+                case "NaiveGreedy":
+                    blackhole.consume(Grid2TriNaiveGreedy.triangulate(plane));
+                    break;
+                default:
+                    blackhole.consume(Grid2TriGreedyOptimal.triangulate(plane));
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.core.data.Data;
+import com.vitco.app.core.data.container.Voxel;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Voxel operations of the data object, including the history (undo/redo).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+@State(Scope.Thread)
+public class VoxelDataBenchmark {
+
+    // Note: The mass operations are limited by the voxel count per layer
+    @Param({"1000", "10000", "100000"})
+    public int voxels;
+
+    private int[] model;
+    private Voxel[] toAdd;
+    private Integer[] toRemove;
+
+    // empty layer (for adding) and filled layer (for removing)
+    private Data empty;
+    private Data filled;
+
+    @Setup(Level.Trial)
+    public void setupModel() {
+        model = Models.generate(voxels, 1);
+        toAdd = new Voxel[voxels];
+        for (int i = 0; i < voxels; i++) {
+            toAdd[i] = new Voxel(-1, new int[] {model[i * 4], model[i * 4 + 1], model[i * 4 + 2]},
+                    new Color(model[i * 4 + 3]), false, null, 0);
+        }
+    }
+
+    // the history grows with every operation, so the data is created again for every iteration
+    @Setup(Level.Iteration)
+    public void setupData() {
+        empty = new Data();
+        filled = new Data();
+        filled.massAddVoxel(toAdd);
+        Voxel[] voxels = filled.getLayerVoxels(filled.getSelectedLayer());
+        toRemove = new Integer[voxels.length];
+        for (int i = 0; i < voxels.length; i++) {
+            toRemove[i] = voxels[i].id;
+        }
+        // prepare the redo
+        filled.massRemoveVoxel(toRemove);
+        filled.undoV();
+    }
+
+    // add and remove single voxels (1000 each)
+    @Benchmark
+    public int addRemove() {
+        int result = 0;
+        for (int i = 0, len = Math.min(1000, voxels); i < len; i++) {
+            int id = empty.addVoxel(toAdd[i].getColor(), null, toAdd[i].getPosAsInt());
+            result += empty.removeVoxel(id) ? 1 : 0;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean massAddUndo() {
+        boolean result = empty.massAddVoxel(toAdd);
+        empty.undoV();
+        return result;
+    }
+
+    @Benchmark
+    public boolean massRemoveUndo() {
+        boolean result = filled.massRemoveVoxel(toRemove);
+        filled.undoV();
+        return result;
+    }
+
+    @Benchmark
+    public boolean massColorUndo() {
+        boolean result = filled.massSetColor(toRemove, Color.RED);
+        filled.undoV();
+        return result;
+    }
+
+    @Benchmark
+    public boolean massMoveUndo() {
+        boolean result = filled.massMoveVoxel(filled.getLayerVoxels(filled.getSelectedLayer()), new int[] {1, 0, 0});
+        filled.undoV();
+        return result;
+    }
+
+    @Benchmark
+    public boolean undoRedo() {
+        filled.redoV();
+        filled.undoV();
+        return filled.canRedoV();
+    }
+
+    // creating a layer from imported voxels
+    @Benchmark
+    public int importLayer() {
+        return new Data().importLayer("Imported", true, model);
+    }
+}
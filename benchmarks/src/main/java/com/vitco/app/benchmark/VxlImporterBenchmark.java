@@ -0,0 +1,42 @@
+package com.vitco.app.benchmark;
+
+import com.vitco.app.core.data.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading generated models with the vxl importer (up to 10^6 voxels, since the
+ * importer reads the offsets as 24 bit values and larger models do not fit).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class VxlImporterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int voxels;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = ImporterBenchmark.writeModel(voxels, "vxl");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        file.getParentFile().delete();
+    }
+
+    @Benchmark
+    public Data load() throws IOException {
+        return ImporterBenchmark.load(file);
+    }
+}
@@ -1,5 +1,6 @@
 package com.vitco.app;
 
+import com.vitco.app.convert.ConvertCommand;
 import com.vitco.app.layout.content.menu.MainMenuLogic;
 import com.vitco.app.layout.content.shortcut.ShortcutManager;
 import com.vitco.app.manager.action.ActionManager;
@@ -13,6 +14,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 import java.awt.*;
 import java.io.File;
+import java.util.Arrays;
 
 /**
  * Initially executed class
@@ -28,6 +30,12 @@ public class App {
     }
 
     public static void main(String[] args) throws Exception {
+        // batch conversion (without user interface)
+        if ((args.length > 0) && args[0].equals("convert")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(ConvertCommand.run(Arrays.copyOfRange(args, 1, args.length), System.out));
+        }
+
         // display version number on splash screen
         final SplashScreen splash = SplashScreen.getSplashScreen();
         if (splash != null) {
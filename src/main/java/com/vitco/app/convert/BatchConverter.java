@@ -0,0 +1,505 @@
+package com.vitco.app.convert;
+
+import com.vitco.app.core.data.Data;
+import com.vitco.app.core.data.container.DataContainer;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.core.data.container.VoxelLayer;
+import com.vitco.app.export.*;
+import com.vitco.app.export.collada.ColladaExportWrapper;
+import com.vitco.app.importer.*;
+import com.vitco.app.layout.content.console.ConsoleInterface;
+import com.vitco.app.layout.content.console.ConsoleListener;
+import com.vitco.app.manager.error.ErrorHandlerInterface;
+import com.vitco.app.manager.lang.LangSelectorInterface;
+import com.vitco.app.util.file.FileTools;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Converts voxel files into other formats without user interface.
+ *
+ * The files are converted concurrently by a fixed amount of workers. Every file reserves
+ * an estimate of the memory it needs from a shared budget before it is loaded, so that
+ * large files do not run at the same time if the memory is not sufficient. Files that
+ * exceed the memory limit per file are not converted (checked by the file size before
+ * the file is read and by the voxel count before the voxels are added to the data).
+ *
+ * Note: The data access is synchronized globally, so only the decoding and encoding
+ * of the files runs in parallel.
+ */
+public class BatchConverter {
+
+    // the supported input formats (file extension)
+    public static final List<String> INPUT_FORMATS = Collections.unmodifiableList(Arrays.asList(
+            "vsd", "binvox", "kv6", "kvx", "pnx", "qb", "vox", "rawvox", "vxl"
+    ));
+
+    // the supported output formats ("vox" is MagicaVoxel, "voxlap" is the VoxLap Engine vox format)
+    public static final List<String> OUTPUT_FORMATS = Collections.unmodifiableList(Arrays.asList(
+            "vsd", "vox", "voxlap", "qb", "kv6", "pnx", "slices", "collada"
+    ));
+
+    // estimated memory that is needed per byte of the input file and per voxel
+    private static final long MEMORY_PER_FILE_BYTE = 64;
+    private static final long MEMORY_PER_VOXEL = 256;
+
+    // the result of the conversion of one file into one format
+    public static final class Result {
+        public final File input;
+        public final File output;
+        public final String format;
+        public final boolean success;
+        public final String message;
+        public final int voxelCount;
+        public final long inputBytes;
+        public final long importTime;
+        public final long exportTime;
+
+        private Result(File input, File output, String format, boolean success, String message,
+                       int voxelCount, long importTime, long exportTime) {
+            this.input = input;
+            this.output = output;
+            this.format = format;
+            this.success = success;
+            this.message = message;
+            this.voxelCount = voxelCount;
+            this.inputBytes = input.length();
+            this.importTime = importTime;
+            this.exportTime = exportTime;
+        }
+
+        // processed voxels per second
+        public final long getVoxelsPerSecond() {
+            return voxelCount * 1000L / Math.max(1, importTime + exportTime);
+        }
+
+        @Override
+        public String toString() {
+            if (!success) {
+                return String.format("FAILED %s -> %s: %s", input.getPath(), format, message);
+            }
+            return String.format("OK %s -> %s (%d voxels, import %d ms at %.2f MB/s, export %d ms, %d voxels/s)",
+                    input.getPath(), output.getPath(), voxelCount, importTime,
+                    inputBytes / 1048576.0 * 1000 / Math.max(1, importTime), exportTime, getVoxelsPerSecond());
+        }
+    }
+
+    // listener that is notified when a result is available (called from the worker threads)
+    public interface ResultListener {
+        void onResult(Result result);
+    }
+
+    // ---------------
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    public final void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    // memory budget shared by all workers (bytes)
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4 * 3;
+    public final void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = Math.max(1, memoryBudget);
+    }
+
+    // memory limit per file (bytes)
+    private long fileMemoryLimit = Long.MAX_VALUE;
+    public final void setFileMemoryLimit(long fileMemoryLimit) {
+        this.fileMemoryLimit = fileMemoryLimit;
+    }
+
+    // output folder (null to write next to the input file)
+    private File outputFolder = null;
+    public final void setOutputFolder(File outputFolder) {
+        this.outputFolder = outputFolder;
+    }
+
+    private boolean overwrite = false;
+    public final void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    // the input that writes an output file (the first input in order, others are not written)
+    private final HashMap<File, File> outputOwner = new HashMap<File, File>();
+
+    // ---------------
+
+    // the file extension of a file (lower case)
+    private static String getExtension(File file) {
+        String name = file.getName();
+        int pos = name.lastIndexOf('.');
+        return pos == -1 ? "" : name.substring(pos + 1).toLowerCase(Locale.ENGLISH);
+    }
+
+    // true if the file can be converted
+    public static boolean isSupportedInput(File file) {
+        return INPUT_FORMATS.contains(getExtension(file));
+    }
+
+    // the file name that a format is written to
+    public static String getOutputName(String name, String format) {
+        if (format.equals("collada")) {
+            return name + ".dae";
+        } else if (format.equals("voxlap")) {
+            return name + "_voxlap.vox";
+        } else if (format.equals("slices")) {
+            return name;
+        }
+        return name + "." + format;
+    }
+
+    // the file that a format is written to
+    private File getOutputFile(File input, String format) {
+        File folder = outputFolder != null ? outputFolder : input.getAbsoluteFile().getParentFile();
+        return new File(folder, getOutputName(FileTools.extractNameWithoutExtension(input), format));
+    }
+
+    // load a file into the data object
+    public static void importFile(File input, Data data) throws IOException {
+        AbstractImporter importer = decodeFile(input);
+        if (importer == null) {
+            loadFile(input, data);
+        } else {
+            loadInto(importer, data, getExtension(input));
+        }
+    }
+
+    // decode a file (returns null for vsd files, they are loaded directly)
+    private static AbstractImporter decodeFile(File input) throws IOException {
+        String ext = getExtension(input);
+        if (ext.equals("vsd")) {
+            return null;
+        }
+        String name = FileTools.extractNameWithoutExtension(input);
+        AbstractImporter importer;
+        if (ext.equals("binvox")) {
+            importer = new BinVoxImporter(input, name);
+        } else if (ext.equals("kv6")) {
+            importer = new Kv6Importer(input, name);
+        } else if (ext.equals("kvx")) {
+            importer = new KvxImporter(input, name);
+        } else if (ext.equals("pnx")) {
+            importer = new PnxImporter(input, name);
+        } else if (ext.equals("qb")) {
+            importer = new QbImporter(input, name);
+        } else if (ext.equals("vox")) {
+            importer = new VoxImporter(input, name);
+        } else if (ext.equals("rawvox")) {
+            importer = new RawVoxImporter(input, name);
+        } else if (ext.equals("vxl")) {
+            importer = new CCVxlImporter(input, name);
+        } else {
+            throw new IOException("Unsupported input format: " + ext);
+        }
+        if (!importer.hasLoaded()) {
+            throw new IOException("Unable to read file.");
+        }
+        return importer;
+    }
+
+    // read the visible voxels of a file (topmost voxel per position), this does not use
+    // a data object, so the global lock is not taken
+    public static Voxel[] readVisibleVoxels(File input) throws IOException {
+        VoxelLayer composite = new VoxelLayer(-1, "composite");
+        AbstractImporter importer = decodeFile(input);
+        if (importer == null) {
+            Messages messages = new Messages();
+            DataContainer container = new DataContainer(input, messages);
+            if (!container.hasLoaded) {
+                // old file format
+                container = (DataContainer) FileTools.loadFromFile(input, messages);
+                if (container == null) {
+                    throw new IOException("Unable to load file.");
+                }
+            }
+            // the first layer is on top
+            for (Integer layerId : container.layerOrder) {
+                VoxelLayer layer = container.layers.get(layerId);
+                if (layer.isVisible()) {
+                    composite.addVoxels(layer.getVoxels());
+                }
+            }
+        } else {
+            // the last layer is on top
+            ArrayList<AbstractImporter.Layer> layers = importer.getVoxel();
+            TIntObjectHashMap<Color> colors = new TIntObjectHashMap<Color>();
+            int[] pos = new int[3];
+            int id = 0;
+            for (int i = layers.size() - 1; i >= 0; i--) {
+                AbstractImporter.Layer layer = layers.get(i);
+                if (!layer.isVisible()) {
+                    continue;
+                }
+                int[] values = layer.toArray();
+                Voxel[] voxels = new Voxel[values.length / 4];
+                for (int j = 0, k = 0; j < voxels.length; j++) {
+                    pos[0] = values[k++];
+                    pos[1] = values[k++];
+                    pos[2] = values[k++];
+                    int rgb = values[k++];
+                    Color color = colors.get(rgb);
+                    if (color == null) {
+                        color = new Color(rgb);
+                        colors.put(rgb, color);
+                    }
+                    voxels[j] = new Voxel(id++, pos, color, false, null, i);
+                }
+                composite.addVoxels(voxels);
+            }
+        }
+        return composite.getVoxels();
+    }
+
+    // load a vsd file into the data object
+    private static void loadFile(File input, Data data) throws IOException {
+        if (!data.loadFromFile(input)) {
+            throw new IOException("Unable to load file.");
+        }
+    }
+
+    // load the decoded voxels into the data object
+    private static void loadInto(AbstractImporter importer, Data data, String ext) {
+        // remove the initial layer
+        data.deleteLayer(data.getLayers()[0]);
+        importer.loadInto(data, ext.equals("binvox"));
+    }
+
+    // write the data into a format, throws if the export fails
+    public static void exportFile(Data data, File output, String format) throws IOException {
+        Messages messages = new Messages();
+        if (!exportFile(data, output, format, messages, messages)) {
+            throw new IOException(messages.toString());
+        }
+    }
+
+    // write the data into a format
+    private static boolean exportFile(Data data, File output, String format, ConsoleInterface console,
+                                      ErrorHandlerInterface errorHandler) throws IOException {
+        if (format.equals("vsd")) {
+            return data.saveToFile(output);
+        } else if (format.equals("vox")) {
+            return new MagicaVoxelExporter(output, data, null, console, false).writeData();
+        } else if (format.equals("voxlap")) {
+            return new VoxVoxLapExporter(output, data, null, console).writeData();
+        } else if (format.equals("qb")) {
+            return new QbExporter(output, data, null, console).writeData();
+        } else if (format.equals("kv6")) {
+            return new Kv6Exporter(output, data, null, console).writeData();
+        } else if (format.equals("pnx")) {
+            return new PnxExporter(output, data, null, console).writeData();
+        } else if (format.equals("slices")) {
+            SlicesExporter exporter = new SlicesExporter(output, data, null, console);
+            exporter.setSliceDirection("z");
+            return exporter.generateImages();
+        } else if (format.equals("collada")) {
+            ColladaExportWrapper colladaExportWrapper = new ColladaExportWrapper(null, console);
+            colladaExportWrapper.setObjectName(FileTools.extractNameWithoutExtension(output));
+            return colladaExportWrapper.export(data, errorHandler, output);
+        }
+        throw new IOException("Unsupported output format: " + format);
+    }
+
+    // helper - the result for every format if a file can not be converted
+    private static List<Result> fail(File input, List<String> formats, String message,
+                                     int voxelCount, long importTime) {
+        List<Result> results = new ArrayList<Result>();
+        for (String format : formats) {
+            results.add(new Result(input, null, format, false, message, voxelCount, importTime, 0));
+        }
+        return results;
+    }
+
+    // convert one file into all formats (the memory is reserved already)
+    private List<Result> convertFile(File input, List<String> formats) {
+        List<Result> results = new ArrayList<Result>();
+        Messages messages = new Messages();
+        Data data = new Data();
+        data.setErrorHandler(messages);
+        long time = System.currentTimeMillis();
+        int voxelCount;
+        try {
+            AbstractImporter importer = decodeFile(input);
+            if (importer == null) {
+                loadFile(input, data);
+                voxelCount = 0;
+                for (int layerId : data.getLayers()) {
+                    voxelCount += data.getLayerVoxels(layerId).length;
+                }
+            } else {
+                // check the limit before the voxels are added to the data object (which needs
+                // far more memory than the decoded voxels)
+                voxelCount = importer.getVoxelCount();
+                if (voxelCount * MEMORY_PER_VOXEL <= fileMemoryLimit) {
+                    loadInto(importer, data, getExtension(input));
+                }
+            }
+        } catch (Exception e) {
+            return fail(input, formats, "Import failed: " + e.getMessage(), 0, 0);
+        }
+        long importTime = System.currentTimeMillis() - time;
+        if (voxelCount * MEMORY_PER_VOXEL > fileMemoryLimit) {
+            return fail(input, formats, "Memory limit per file exceeded (" + voxelCount + " voxels).",
+                    voxelCount, importTime);
+        }
+        for (String format : formats) {
+            File output = getOutputFile(input, format);
+            if (outputOwner.get(output.getAbsoluteFile()) != input) {
+                results.add(new Result(input, output, format, false, "Output file is written by another input.",
+                        voxelCount, importTime, 0));
+                continue;
+            }
+            if (!overwrite && output.exists()) {
+                results.add(new Result(input, output, format, false, "Output file exists.", voxelCount, importTime, 0));
+                continue;
+            }
+            messages.clear();
+            time = System.currentTimeMillis();
+            boolean success;
+            try {
+                success = exportFile(data, output, format, messages, messages);
+            } catch (Exception e) {
+                messages.addLine(e.getMessage());
+                success = false;
+            }
+            results.add(new Result(input, output, format, success, success ? null : messages.toString(),
+                    voxelCount, importTime, System.currentTimeMillis() - time));
+        }
+        return results;
+    }
+
+    // convert all files into all formats, the results are in the order of the input files
+    public final List<Result> convert(List<File> inputs, final List<String> formats, final ResultListener listener)
+            throws InterruptedException {
+        for (String format : formats) {
+            if (!OUTPUT_FORMATS.contains(format)) {
+                throw new IllegalArgumentException("Unsupported output format: " + format);
+            }
+        }
+        if (outputFolder != null && !outputFolder.isDirectory() && !outputFolder.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create folder: " + outputFolder.getPath());
+        }
+        // the memory budget in kilobytes (permits)
+        final int budget = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget >> 10));
+        final Semaphore memory = new Semaphore(budget, true);
+        outputOwner.clear();
+        for (File input : inputs) {
+            for (String format : formats) {
+                File output = getOutputFile(input, format).getAbsoluteFile();
+                if (!outputOwner.containsKey(output)) {
+                    outputOwner.put(output, input);
+                }
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<List<Result>>> futures = new ArrayList<Future<List<Result>>>();
+        try {
+            for (final File input : inputs) {
+                futures.add(executor.submit(new Callable<List<Result>>() {
+                    @Override
+                    public List<Result> call() throws Exception {
+                        List<Result> results;
+                        long estimate = input.length() * MEMORY_PER_FILE_BYTE;
+                        if (estimate > fileMemoryLimit) {
+                            results = fail(input, formats,
+                                    "Memory limit per file exceeded (" + input.length() + " bytes).", 0, 0);
+                        } else {
+                            // files that are larger than the budget run alone
+                            int permits = (int) Math.min(budget, Math.max(1, estimate >> 10));
+                            memory.acquire(permits);
+                            try {
+                                results = convertFile(input, formats);
+                            } finally {
+                                memory.release(permits);
+                            }
+                        }
+                        if (listener != null) {
+                            for (Result result : results) {
+                                listener.onResult(result);
+                            }
+                        }
+                        return results;
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<Result>();
+            for (Future<List<Result>> future : futures) {
+                try {
+                    results.addAll(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // collects the console output and errors of a conversion
+    private static final class Messages implements ConsoleInterface, ErrorHandlerInterface {
+        private final ArrayList<String> lines = new ArrayList<String>();
+
+        @Override
+        public synchronized void addLine(String text) {
+            lines.add(text);
+        }
+
+        @Override
+        public synchronized void handle(Throwable e) {
+            lines.add(e.toString());
+        }
+
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            handle(e);
+        }
+
+        @Override
+        public synchronized void clear() {
+            lines.clear();
+        }
+
+        @Override
+        public synchronized ArrayList<String> getConsoleData() {
+            return new ArrayList<String>(lines);
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (lines.isEmpty()) {
+                return "Export failed.";
+            }
+            StringBuilder result = new StringBuilder();
+            for (String line : lines) {
+                result.append(result.length() == 0 ? "" : " ").append(line);
+            }
+            return result.toString();
+        }
+
+        @Override
+        public void addConsoleListener(ConsoleListener consoleListener) {}
+
+        @Override
+        public void removeConsoleListener(ConsoleListener consoleListener) {}
+
+        @Override
+        public void init() {}
+
+        @Override
+        public void finish() {}
+
+        @Override
+        public void setLangSelector(LangSelectorInterface langSelector) {}
+
+        @Override
+        public void setDebugReportUrl(String debugReportUrl) {}
+
+        @Override
+        public void setConsole(ConsoleInterface console) {}
+    }
+}
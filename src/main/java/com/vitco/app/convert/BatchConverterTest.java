@@ -0,0 +1,156 @@
+package com.vitco.app.convert;
+
+import com.vitco.app.core.data.Data;
+import com.vitco.app.core.data.container.Voxel;
+import org.junit.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Test the batch conversion.
+ */
+public class BatchConverterTest {
+
+    // helper - create a temporary folder
+    private static File createFolder() throws IOException {
+        return Files.createTempDirectory("convert").toFile();
+    }
+
+    // helper - delete a folder
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                boolean deleted = file.delete();
+                assert deleted;
+            }
+        }
+        boolean deleted = folder.delete();
+        assert deleted;
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        List<File> inputs = ConvertCommand.expand("src/test/resources/formats/qb/*.qb");
+        assert inputs.size() == 2;
+        File folder = createFolder();
+        try {
+            BatchConverter converter = new BatchConverter();
+            converter.setThreadCount(2);
+            converter.setOutputFolder(folder);
+            List<BatchConverter.Result> results = converter.convert(inputs, Arrays.asList("qb", "vsd"), null);
+            assert results.size() == 4;
+            for (BatchConverter.Result result : results) {
+                assert result.success : result.toString();
+                assert result.voxelCount > 0;
+            }
+            // the qb files were written with the default settings
+            for (File input : inputs) {
+                byte[] expected = Files.readAllBytes(input.toPath());
+                byte[] actual = Files.readAllBytes(new File(folder, input.getName()).toPath());
+                assert Arrays.equals(expected, actual);
+            }
+            // existing files are not replaced
+            results = converter.convert(inputs, Arrays.asList("qb"), null);
+            assert !results.get(0).success && !results.get(1).success;
+            // converting the converted files again
+            converter.setOverwrite(true);
+            results = converter.convert(ConvertCommand.expand(folder.getPath()), Arrays.asList("qb"), null);
+            assert results.size() == 4;
+            for (BatchConverter.Result result : results) {
+                // the vsd and qb inputs write the same file
+                assert result.success == result.input.getName().endsWith(".qb") : result.toString();
+            }
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void testMemoryLimit() throws Exception {
+        List<File> inputs = ConvertCommand.expand("src/test/resources/formats/qb");
+        File folder = createFolder();
+        try {
+            BatchConverter converter = new BatchConverter();
+            converter.setOutputFolder(folder);
+            converter.setFileMemoryLimit(1024);
+            for (BatchConverter.Result result : converter.convert(inputs, Arrays.asList("qb"), null)) {
+                assert !result.success;
+            }
+            assert folder.list().length == 0;
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void testVoxelLimit() throws Exception {
+        // a compressed file that passes the file size check, but has too many voxels
+        File input = new File("src/test/resources/formats/pnx/snake.pnx");
+        File folder = createFolder();
+        try {
+            BatchConverter converter = new BatchConverter();
+            converter.setOutputFolder(folder);
+            converter.setFileMemoryLimit(input.length() * 64);
+            List<BatchConverter.Result> results = converter.convert(Arrays.asList(input), Arrays.asList("qb"), null);
+            assert results.size() == 1;
+            BatchConverter.Result result = results.get(0);
+            assert !result.success;
+            assert result.voxelCount > 0 && result.message.startsWith("Memory limit per file exceeded") : result.toString();
+            assert folder.list().length == 0;
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    // helper - the positions and colors of voxels
+    private static HashSet<String> toSet(Voxel[] voxels) {
+        HashSet<String> result = new HashSet<String>();
+        for (Voxel voxel : voxels) {
+            result.add(voxel.x + "_" + voxel.y + "_" + voxel.z + "_" + voxel.getColor().getRGB());
+        }
+        assert result.size() == voxels.length;
+        return result;
+    }
+
+    @Test
+    public void testReadVisibleVoxels() throws Exception {
+        // the same voxels are visible as when the file is loaded into a data object
+        for (File input : ConvertCommand.expand("src/test/resources/formats/qb/*.qb")) {
+            Data data = new Data();
+            BatchConverter.importFile(input, data);
+            assert toSet(BatchConverter.readVisibleVoxels(input)).equals(toSet(data.getVisibleLayerVoxel()));
+        }
+        // vsd files (the topmost visible voxel is used)
+        File folder = createFolder();
+        try {
+            Data data = new Data();
+            int bottom = data.getLayers()[0];
+            data.selectLayer(bottom);
+            data.addVoxel(Color.RED, null, new int[]{0, 0, 0});
+            data.addVoxel(Color.RED, null, new int[]{1, 0, 0});
+            int top = data.createLayer("top");
+            data.selectLayer(top);
+            data.addVoxel(Color.GREEN, null, new int[]{0, 0, 0});
+            int hidden = data.createLayer("hidden");
+            data.selectLayer(hidden);
+            data.addVoxel(Color.BLUE, null, new int[]{1, 0, 0});
+            data.addVoxel(Color.BLUE, null, new int[]{2, 0, 0});
+            data.setVisible(hidden, false);
+            File file = new File(folder, "layers.vsd");
+            BatchConverter.exportFile(data, file, "vsd");
+            Voxel[] voxels = BatchConverter.readVisibleVoxels(file);
+            assert toSet(voxels).equals(toSet(data.getVisibleLayerVoxel()));
+            assert toSet(voxels).equals(new HashSet<String>(Arrays.asList(
+                    "0_0_0_" + Color.GREEN.getRGB(), "1_0_0_" + Color.RED.getRGB())));
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+}
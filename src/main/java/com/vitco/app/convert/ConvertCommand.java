@@ -0,0 +1,175 @@
+package com.vitco.app.convert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Command line interface for the batch conversion (runs without display).
+ *
+ * Usage: convert -f qb,vox [-o folder] [-j threads] [--memory MB] [--file-memory MB] [--overwrite] input...
+ * Inputs can be files, folders (all supported files) or glob patterns (e.g. "assets/**.qb").
+ */
+public class ConvertCommand {
+
+    private static final String USAGE =
+            "Usage: convert -f <formats> [options] <files, folders or glob patterns>\n" +
+            "  -f, --format <list>     comma separated output formats: " + join(BatchConverter.OUTPUT_FORMATS) + "\n" +
+            "  -o, --output <folder>   output folder (default: next to the input file)\n" +
+            "  -j, --threads <n>       amount of worker threads (default: amount of processors)\n" +
+            "  --memory <MB>           memory budget shared by the workers\n" +
+            "  --file-memory <MB>      skip files that need more memory than this\n" +
+            "  --overwrite             replace existing output files\n" +
+            "Supported input formats: " + join(BatchConverter.INPUT_FORMATS);
+
+    // helper - join a list
+    private static String join(List<String> list) {
+        StringBuilder result = new StringBuilder();
+        for (String entry : list) {
+            result.append(result.length() == 0 ? "" : ", ").append(entry);
+        }
+        return result.toString();
+    }
+
+    // helper - true if the pattern contains glob characters
+    private static boolean isGlob(String pattern) {
+        for (char c : "*?[{".toCharArray()) {
+            if (pattern.indexOf(c) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // find all input files for a file, folder or glob pattern (sorted)
+    static List<File> expand(String pattern) throws IOException {
+        final List<File> result = new ArrayList<File>();
+        if (!isGlob(pattern)) {
+            File file = new File(pattern);
+            if (file.isFile()) {
+                result.add(file);
+                return result;
+            }
+            if (!file.isDirectory()) {
+                throw new IOException("File not found: " + pattern);
+            }
+            pattern = new File(file, "**").getPath();
+        }
+        // the folder in front of the first glob character is searched
+        String normalized = pattern.replace(File.separatorChar, '/');
+        int firstGlob = normalized.length();
+        for (char c : "*?[{".toCharArray()) {
+            int pos = normalized.indexOf(c);
+            if (pos != -1) {
+                firstGlob = Math.min(firstGlob, pos);
+            }
+        }
+        int separator = normalized.lastIndexOf('/', firstGlob);
+        final Path base = Paths.get(separator == -1 ? "." : normalized.substring(0, separator + 1));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                "glob:" + (separator == -1 ? normalized : normalized.substring(separator + 1)));
+        if (Files.isDirectory(base)) {
+            Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    File asFile = file.toFile();
+                    if (attrs.isRegularFile() && matcher.matches(base.relativize(file))
+                            && BatchConverter.isSupportedInput(asFile)) {
+                        result.add(asFile);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    // run the conversion, returns the exit code
+    public static int run(String[] args, final PrintStream out) {
+        BatchConverter converter = new BatchConverter();
+        List<String> formats = new ArrayList<String>();
+        List<File> inputs = new ArrayList<File>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-f") || arg.equals("--format")) {
+                    for (String format : args[++i].split(",")) {
+                        formats.add(format.trim().toLowerCase(Locale.ENGLISH));
+                    }
+                } else if (arg.equals("-o") || arg.equals("--output")) {
+                    converter.setOutputFolder(new File(args[++i]));
+                } else if (arg.equals("-j") || arg.equals("--threads")) {
+                    converter.setThreadCount(Integer.parseInt(args[++i]));
+                } else if (arg.equals("--memory")) {
+                    converter.setMemoryBudget(Long.parseLong(args[++i]) << 20);
+                } else if (arg.equals("--file-memory")) {
+                    converter.setFileMemoryLimit(Long.parseLong(args[++i]) << 20);
+                } else if (arg.equals("--overwrite")) {
+                    converter.setOverwrite(true);
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    inputs.addAll(expand(arg));
+                }
+            }
+            if (formats.isEmpty() || inputs.isEmpty()) {
+                throw new IllegalArgumentException("No output format or input file given.");
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            out.println("Missing option value.");
+            out.println(USAGE);
+            return 2;
+        } catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            out.println(USAGE);
+            return 2;
+        } catch (IOException e) {
+            out.println(e.getMessage());
+            return 2;
+        }
+
+        long time = System.currentTimeMillis();
+        List<BatchConverter.Result> results;
+        try {
+            results = converter.convert(inputs, formats, new BatchConverter.ResultListener() {
+                @Override
+                public void onResult(BatchConverter.Result result) {
+                    synchronized (out) {
+                        out.println(result);
+                    }
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+
+        // summary
+        int failed = 0;
+        long voxels = 0;
+        long bytes = 0;
+        for (BatchConverter.Result result : results) {
+            if (!result.success) {
+                failed++;
+            }
+            voxels += result.voxelCount;
+            bytes += result.inputBytes;
+        }
+        time = Math.max(1, System.currentTimeMillis() - time);
+        out.println(String.format("Converted %d of %d in %d ms (%.2f MB/s, %d voxels/s).",
+                results.size() - failed, results.size(), time,
+                bytes / 1048576.0 * 1000 / time, voxels * 1000 / time));
+        return failed == 0 ? 0 : 1;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+}
@@ -0,0 +1,241 @@
+package com.vitco.app.convert;
+
+import com.vitco.app.core.container.OffscreenRenderer;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.manager.async.AsyncActionManager;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders previews of voxel files without user interface.
+ *
+ * The files are loaded by a fixed amount of workers, the renders are done one at a time (on
+ * the render thread of the editor if an async action manager is set). Thumbnails
+ * are cached by the hash of the file content, the view and the size: recently used ones in
+ * memory and all of them as png in the cache folder (if set), so a file that was moved or
+ * copied is not rendered again. The content is only hashed again when the size or the
+ * modification time of a file has changed.
+ */
+public class ThumbnailService {
+
+    // amount of thumbnails that are kept in memory
+    private static final int MEMORY_CACHE_SIZE = 256;
+    // amount of file hashes that are kept in memory
+    private static final int HASH_CACHE_SIZE = 4096;
+
+    private final ExecutorService executor;
+    // renders the loaded files
+    private final OffscreenRenderer renderer = new OffscreenRenderer();
+
+    // render on the thread of the editor (the renders share the jpct state with the editor)
+    @Autowired(required = false)
+    public final void setAsyncActionManager(AsyncActionManager asyncActionManager) {
+        renderer.setAsyncActionManager(asyncActionManager);
+    }
+
+    // folder for the rendered thumbnails (null to only cache in memory)
+    private final File cacheFolder;
+
+    // recently used thumbnails (least recently used first)
+    private final LinkedHashMap<String, BufferedImage> memoryCache =
+            new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                    return size() > MEMORY_CACHE_SIZE;
+                }
+            };
+    // the content hash of recently used files
+    private static final class FileHash {
+        private final long length;
+        private final long lastModified;
+        private final String hash;
+
+        private FileHash(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+    private final LinkedHashMap<String, FileHash> hashCache =
+            new LinkedHashMap<String, FileHash>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FileHash> eldest) {
+                    return size() > HASH_CACHE_SIZE;
+                }
+            };
+    // thumbnails that are currently rendered (so requests for the same thumbnail are merged)
+    private final ConcurrentHashMap<String, Future<BufferedImage>> pending =
+            new ConcurrentHashMap<String, Future<BufferedImage>>();
+
+    private final AtomicLong renderCount = new AtomicLong();
+    private final AtomicLong renderTime = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    // constructor
+    public ThumbnailService(int threadCount, File cacheFolder) {
+        this.cacheFolder = cacheFolder;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threadCount), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Thumbnail Renderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (cacheFolder != null && !cacheFolder.isDirectory() && !cacheFolder.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the cache folder \"" + cacheFolder + "\".");
+        }
+    }
+
+    // true if previews can be rendered for the file
+    public static boolean isSupported(File file) {
+        return BatchConverter.isSupportedInput(file);
+    }
+
+    // the content hash of a file (only computed if the file has changed)
+    private String getHash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (hashCache) {
+            FileHash cached = hashCache.get(path);
+            if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+                return cached.hash;
+            }
+        }
+        String hash;
+        InputStream in = new FileInputStream(file);
+        try {
+            hash = DigestUtils.md5Hex(in);
+        } finally {
+            in.close();
+        }
+        synchronized (hashCache) {
+            hashCache.put(path, new FileHash(length, lastModified, hash));
+        }
+        return hash;
+    }
+
+    // the cache key of a thumbnail
+    private String getKey(File file, String view, int width, int height) throws IOException {
+        return getHash(file) + "_" + view + "_" + width + "x" + height;
+    }
+
+    // request a thumbnail (the file is loaded and rendered by a worker)
+    public final Future<BufferedImage> submit(final File file, final String view, final int width, final int height) {
+        if (!OffscreenRenderer.VIEWS.containsKey(view)) {
+            throw new IllegalArgumentException("Unknown view \"" + view + "\".");
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height + ".");
+        }
+        return executor.submit(new Callable<BufferedImage>() {
+            @Override
+            public BufferedImage call() throws Exception {
+                return getThumbnail(file, view, width, height);
+            }
+        });
+    }
+
+    // get a thumbnail (blocks until it is rendered)
+    public final BufferedImage getThumbnail(final File file, final String view, final int width, final int height)
+            throws IOException {
+        final String key = getKey(file, view, width, height);
+        BufferedImage result;
+        synchronized (memoryCache) {
+            result = memoryCache.get(key);
+        }
+        if (result != null) {
+            hitCount.incrementAndGet();
+            return result;
+        }
+        // render or wait for the worker that renders this thumbnail
+        FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+            @Override
+            public BufferedImage call() throws Exception {
+                return load(file, key, view, width, height);
+            }
+        });
+        Future<BufferedImage> future = pending.putIfAbsent(key, task);
+        if (future == null) {
+            future = task;
+            task.run();
+        }
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering \"" + file + "\".", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to render \"" + file + "\".", e.getCause());
+        } finally {
+            pending.remove(key, task);
+        }
+        synchronized (memoryCache) {
+            memoryCache.put(key, result);
+        }
+        return result;
+    }
+
+    // load a thumbnail from the cache folder or render it
+    private BufferedImage load(File file, String key, String view, int width, int height) throws IOException {
+        File cached = cacheFolder == null ? null : new File(cacheFolder, key + ".png");
+        if (cached != null && cached.isFile()) {
+            BufferedImage image = ImageIO.read(cached);
+            if (image != null) {
+                hitCount.incrementAndGet();
+                return image;
+            }
+        }
+        long start = System.currentTimeMillis();
+        Voxel[] voxels = BatchConverter.readVisibleVoxels(file);
+        BufferedImage image = renderer.render(voxels, view, width, height);
+        renderTime.addAndGet(System.currentTimeMillis() - start);
+        renderCount.incrementAndGet();
+        if (cached != null) {
+            // write to a temporary file first, so other services never read a partial file
+            File temp = new File(cacheFolder, key + "." + Thread.currentThread().getId() + ".tmp");
+            if (!ImageIO.write(image, "png", temp) || !(temp.renameTo(cached) || cached.isFile())) {
+                temp.delete();
+                throw new IOException("Unable to write \"" + cached + "\".");
+            }
+            temp.delete();
+        }
+        return image;
+    }
+
+    // render a thumbnail into a png file
+    public final void writeThumbnail(File file, String view, int width, int height, File output) throws IOException {
+        if (!ImageIO.write(getThumbnail(file, view, width, height), "png", output)) {
+            throw new IOException("Unable to write \"" + output + "\".");
+        }
+    }
+
+    // get the statistics of this service
+    public final String[] getStatistics() {
+        long count = renderCount.get();
+        return new String[] {
+                String.format("Rendered: %d thumbnails, %.1f ms each", count, renderTime.get() / (double) Math.max(1, count)),
+                String.format("Cache hits: %d", hitCount.get())
+        };
+    }
+
+    // stop the workers (requests that are already submitted are still processed)
+    public final void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,107 @@
+package com.vitco.app.convert;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Test the rendering of thumbnails.
+ */
+public class ThumbnailServiceTest {
+
+    // helper - count the pixels that are not transparent
+    private static int countPixels(BufferedImage image) {
+        int count = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) >>> 24) != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testThumbnails() throws Exception {
+        List<File> inputs = ConvertCommand.expand("src/test/resources/formats/pnx/chr_*.pnx");
+        assert inputs.size() == 5;
+        File folder = Files.createTempDirectory("thumbnails").toFile();
+        try {
+            ThumbnailService service = new ThumbnailService(2, folder);
+            List<Future<BufferedImage>> futures = new ArrayList<Future<BufferedImage>>();
+            for (File input : inputs) {
+                futures.add(service.submit(input, "perspective", 64, 48));
+            }
+            for (Future<BufferedImage> future : futures) {
+                BufferedImage image = future.get();
+                assert image.getWidth() == 64 && image.getHeight() == 48;
+                // the model is visible, but does not fill the image
+                int count = countPixels(image);
+                assert count > 64 * 48 / 20 && count < 64 * 48 : count;
+            }
+            File[] cached = folder.listFiles();
+            assert cached != null && cached.length == inputs.size();
+
+            // the cache is used for the same content (also by a new service)
+            BufferedImage image = service.getThumbnail(inputs.get(0), "perspective", 64, 48);
+            assert image == futures.get(0).get();
+            ThumbnailService other = new ThumbnailService(1, folder);
+            image = other.getThumbnail(inputs.get(0), "perspective", 64, 48);
+            assert countPixels(image) == countPixels(futures.get(0).get());
+            assert other.getStatistics()[0].startsWith("Rendered: 0 ");
+
+            // different views are different thumbnails
+            assert countPixels(service.getThumbnail(inputs.get(0), "top", 64, 48)) > 0;
+            assert folder.listFiles().length == inputs.size() + 1;
+            service.shutdown();
+            other.shutdown();
+        } finally {
+            File[] files = folder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    boolean deleted = file.delete();
+                    assert deleted;
+                }
+            }
+            boolean deleted = folder.delete();
+            assert deleted;
+        }
+    }
+
+    @Test
+    public void testChangedFile() throws Exception {
+        File folder = Files.createTempDirectory("thumbnails").toFile();
+        File file = new File(folder, "model.pnx");
+        try {
+            ThumbnailService service = new ThumbnailService(1, null);
+            Files.copy(new File("src/test/resources/formats/pnx/3x3x3.pnx").toPath(), file.toPath());
+            BufferedImage image = service.getThumbnail(file, "front", 32, 32);
+            assert service.getThumbnail(file, "front", 32, 32) == image;
+            // a changed file is rendered again
+            Files.copy(new File("src/test/resources/formats/pnx/chr_old.pnx").toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            boolean modified = file.setLastModified(file.lastModified() + 10000);
+            assert modified;
+            BufferedImage changed = service.getThumbnail(file, "front", 32, 32);
+            assert changed != image && countPixels(changed) != countPixels(image);
+            assert service.getStatistics()[0].startsWith("Rendered: 2 ");
+            service.shutdown();
+        } finally {
+            boolean deleted = file.delete() && folder.delete();
+            assert deleted;
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupported() throws Exception {
+        new ThumbnailService(1, null).getThumbnail(new File("pom.xml"), "front", 16, 16);
+    }
+}
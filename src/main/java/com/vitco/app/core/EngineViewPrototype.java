@@ -125,9 +125,7 @@ public abstract class EngineViewPrototype extends ViewPrototype {
                 world.clearPosition(remove);
             }
         }
-        for (Voxel added : changed[1]) {
-            world.updateVoxel(added);
-        }
+        world.updateVoxels(changed[1]);
         asyncActionManager.addAsyncAction(new AsyncAction("asyncWorld" + side) {
             @Override
             public void performAction() {
@@ -149,9 +147,7 @@ public abstract class EngineViewPrototype extends ViewPrototype {
                 selectedVoxelsWorld.clearPosition(remove);
             }
         }
-        for (Voxel added : changed[1]) {
-            selectedVoxelsWorld.updateVoxel(added);
-        }
+        selectedVoxelsWorld.updateVoxels(changed[1]);
         asyncActionManager.addAsyncAction(new AsyncAction("asyncSelWorld" + side) {
             @Override
             public void performAction() {
@@ -197,7 +193,7 @@ public abstract class EngineViewPrototype extends ViewPrototype {
             final boolean skipNextWorldRender = container.isSkipNextWorldRender();
             final boolean doNotSkipNextWorldRender = container.isDoNotSkipNextWorldRender();
             container.resetSkipRenderFlags();
-            asyncActionManager.addAsyncAction(new AsyncAction("repaint" + side) {
+            asyncActionManager.addAsyncAction(new AsyncAction("repaint" + side, AsyncAction.PRIORITY_INTERACTIVE) {
                 @Override
                 public void performAction() {
                     if (skipNextWorldRender) {
@@ -330,6 +326,10 @@ public abstract class EngineViewPrototype extends ViewPrototype {
             @Override
             public void onCameraChange() {
                 container.setCameraChanged(true);
+                // switching the level of detail needs a world refresh
+                if (world.updateDetailLevel(container.getWidth())) {
+                    invalidateVoxels();
+                }
             }
         });
 
@@ -427,7 +427,7 @@ public abstract class EngineViewPrototype extends ViewPrototype {
         // handle mouse events for this container
         container.addMouseListener(new MouseAdapter() {
             private void handleMouseState(final MouseEvent e, final boolean flag) {
-                asyncActionManager.addAsyncAction(new AsyncAction() {
+                asyncActionManager.addAsyncAction(new AsyncAction(AsyncAction.PRIORITY_INTERACTIVE) {
                     @Override
                     public void performAction() {
                         // only consider mouse events that don't involve middle mouse (camera)
@@ -0,0 +1,179 @@
+package com.vitco.app.core.container;
+
+import com.threed.jpct.*;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.core.world.CWorld;
+import com.vitco.app.manager.async.AsyncAction;
+import com.vitco.app.manager.async.AsyncActionManager;
+import com.vitco.app.settings.VitcoSettings;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Renders voxels into images without a view (e.g. for thumbnails).
+ *
+ * Every render builds its own world. The worlds share the jpct configuration, the texture
+ * manager and the texture images with the editor, so renders are never done in parallel:
+ * if an async action manager is set they are executed on its thread (where the editor
+ * renders, so this must not be called from that thread), otherwise one render is done
+ * at a time. The camera looks at the center of the voxels from a preset direction and is
+ * moved out until all voxels fit into the image.
+ */
+public final class OffscreenRenderer {
+
+    // the camera presets (direction from the voxels to the camera)
+    public static final Map<String, SimpleVector> VIEWS;
+    static {
+        LinkedHashMap<String, SimpleVector> views = new LinkedHashMap<String, SimpleVector>();
+        views.put("perspective", VitcoSettings.MAIN_VIEW_CAMERA_POSITION);
+        views.put("front", VitcoSettings.SIDE_VIEW1_CAMERA_POSITION);
+        views.put("top", VitcoSettings.SIDE_VIEW2_CAMERA_POSITION);
+        views.put("side", VitcoSettings.SIDE_VIEW3_CAMERA_POSITION);
+        VIEWS = Collections.unmodifiableMap(views);
+    }
+
+    // the polygons that are drawn per frame (coarser levels are shown for larger models)
+    private static final int MAX_POLYS_VISIBLE = 40000;
+
+    // renders that are not executed by an async action manager hold this lock
+    private static final Object RENDER_LOCK = new Object();
+
+    private final PostProcessor postProcessor = new PostProcessor();
+
+    // the manager that executes the renders (null to render on the calling thread)
+    private AsyncActionManager asyncActionManager = null;
+    public final void setAsyncActionManager(AsyncActionManager asyncActionManager) {
+        this.asyncActionManager = asyncActionManager;
+    }
+
+    // render the voxels from a camera preset (transparent background)
+    public BufferedImage render(final Voxel[] voxels, String view, final int width, final int height) {
+        final SimpleVector direction = VIEWS.get(view);
+        if (direction == null) {
+            throw new IllegalArgumentException("Unknown view \"" + view + "\".");
+        }
+        if (asyncActionManager == null) {
+            synchronized (RENDER_LOCK) {
+                return renderWorld(voxels, direction, width, height);
+            }
+        }
+        // render on the thread of the editor and wait for the result
+        final FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+            @Override
+            public BufferedImage call() throws Exception {
+                return renderWorld(voxels, direction, width, height);
+            }
+        });
+        asyncActionManager.addAsyncAction(new AsyncAction(AsyncAction.PRIORITY_BACKGROUND) {
+            @Override
+            public void performAction() {
+                task.run();
+            }
+        });
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to render the voxels.", e.getCause());
+        }
+    }
+
+    // helper - build a world for the voxels and render it (not thread safe)
+    private BufferedImage renderWorld(Voxel[] voxels, SimpleVector direction, int width, int height) {
+        // the polygon limit is read when the world is created
+        int maxPolysVisible = Config.maxPolysVisible;
+        Config.maxPolysVisible = MAX_POLYS_VISIBLE;
+        CWorld world = new CWorld(true, -1, false);
+        Config.maxPolysVisible = maxPolysVisible;
+        world.setAmbientLight(1, 1, 1);
+        if (voxels.length > 0) {
+            // center and radius of the bounding sphere (world coordinates)
+            int[] min = voxels[0].getPosAsInt();
+            int[] max = voxels[0].getPosAsInt();
+            for (Voxel voxel : voxels) {
+                min[0] = Math.min(min[0], voxel.x);
+                min[1] = Math.min(min[1], voxel.y);
+                min[2] = Math.min(min[2], voxel.z);
+                max[0] = Math.max(max[0], voxel.x);
+                max[1] = Math.max(max[1], voxel.y);
+                max[2] = Math.max(max[2], voxel.z);
+            }
+            SimpleVector center = new SimpleVector(
+                    (min[0] + max[0]) / 2f * VitcoSettings.VOXEL_SIZE,
+                    (min[1] + max[1]) / 2f * VitcoSettings.VOXEL_SIZE,
+                    (min[2] + max[2]) / 2f * VitcoSettings.VOXEL_SIZE);
+            float radius = new SimpleVector(max[0] - min[0] + 1, max[1] - min[1] + 1, max[2] - min[2] + 1)
+                    .length() / 2 * VitcoSettings.VOXEL_SIZE;
+
+            // move the camera out until the sphere fits (the smaller field of view counts)
+            Camera camera = world.getCamera();
+            camera.setFOVLimits(VitcoSettings.MAIN_VIEW_ZOOM_FOV, VitcoSettings.MAIN_VIEW_ZOOM_FOV);
+            camera.setFOV(VitcoSettings.MAIN_VIEW_ZOOM_FOV);
+            float tan = VitcoSettings.MAIN_VIEW_ZOOM_FOV / 2 * Math.min(1, height / (float) width);
+            float distance = radius / (float) Math.sin(Math.atan(tan));
+            SimpleVector position = direction.normalize();
+            position.scalarMul(distance);
+            position.add(center);
+            camera.setPosition(position);
+            camera.lookAt(center);
+            world.setClippingPlanes(Config.nearPlane, distance + radius * 2);
+
+            // build the world, then switch to the level of detail that fits the image size
+            world.updateVoxels(voxels);
+            //noinspection StatementWithEmptyBody
+            while (!world.refreshWorld()) {}
+            if (world.updateDetailLevel(width)) {
+                world.refreshWorld();
+            }
+        }
+        BufferedImage result = renderImage(world, width, height, postProcessor);
+        world.clear();
+        world.refreshWorld();
+        return result;
+    }
+
+    // render a world in high quality (supersampled, transparent background)
+    static BufferedImage renderImage(World world, int width, int height, PostProcessor postProcessor) {
+        // the alpha setting is read when the frame buffer is created
+        Config.useFramebufferWithAlpha = true;
+        HackedFrameBuffer fb = new HackedFrameBuffer(width*2, height*2, FrameBuffer.SAMPLINGMODE_NORMAL);
+        Config.useFramebufferWithAlpha = false;
+        fb.clear(new Color(0, 0, 0, 0));
+        world.renderScene(fb);
+        world.draw(fb);
+        fb.update();
+
+        int w = fb.getWidth() * 2;
+        int[] zBuffer = fb.getZBuffer(); //requires hacked framebuffer
+        int[] pixels = fb.getPixels();
+
+        // fix t-junction anomalies
+        postProcessor.fixJunctions(zBuffer, pixels, w);
+
+        BufferedImage largeResult = new BufferedImage(fb.getWidth(), fb.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        fb.display(largeResult.getGraphics());
+
+        // resize
+        BufferedImage result = new BufferedImage(largeResult.getWidth()/2, largeResult.getHeight()/2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = result.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.drawImage(largeResult, 0, 0, largeResult.getWidth()/2, largeResult.getHeight()/2, null);
+        g2d.dispose();
+
+        return result;
+    }
+}
@@ -0,0 +1,280 @@
+package com.vitco.app.core.container;
+
+import java.util.stream.IntStream;
+
+/**
+ * Software post-processing of rendered frames (edge shader, t-junction fix and depth image).
+ *
+ * The z-buffer and pixel arrays are split into bands of rows that are processed on all cores.
+ * Scratch buffers are kept between frames and the time of every pass is recorded.
+ */
+final class PostProcessor {
+
+    // z-buffer value of pixels where nothing was drawn
+    private static final int Z_EMPTY = -2147483647;
+
+    // amount of rows that are processed by one task
+    private static final int BAND_HEIGHT = 32;
+
+    // the passes (for statistics)
+    private static final int PASS_SHADER = 0;
+    private static final int PASS_JUNCTIONS = 1;
+    private static final int PASS_DEPTH_RANGE = 2;
+    private static final int PASS_DEPTH_MAP = 3;
+    private static final String[] PASS_NAMES = new String[] {"Shader", "T-junctions", "Depth range", "Depth map"};
+
+    private final long[] passCount = new long[PASS_NAMES.length];
+    private final long[] passTime = new long[PASS_NAMES.length];
+    private final long[] passMaxTime = new long[PASS_NAMES.length];
+
+    // scratch buffers for the t-junction fix (reused between frames)
+    private byte[] junctions = new byte[0];
+    private int[] unmodified = new int[0];
+
+    // task that processes the indices [from, to) of one band
+    private interface BandTask {
+        void run(int band, int from, int to);
+    }
+
+    // split the indices [start, end) into bands of rows and process them in parallel
+    private static void forEachBand(final int start, final int end, int w, final BandTask task) {
+        final int bandSize = Math.max(1, w * BAND_HEIGHT);
+        int bands = end > start ? (end - 1) / bandSize + 1 : 0;
+        IntStream.range(start / bandSize, bands).parallel().forEach(band ->
+                task.run(band, Math.max(start, band * bandSize), Math.min(end, (band + 1) * bandSize))
+        );
+    }
+
+    // record the time of a pass that started at the given time
+    private void record(int pass, long start) {
+        long time = System.nanoTime() - start;
+        passCount[pass]++;
+        passTime[pass] += time;
+        passMaxTime[pass] = Math.max(passMaxTime[pass], time);
+    }
+
+    // get the timing statistics (one line per pass)
+    public synchronized String[] getStatistics() {
+        String[] result = new String[PASS_NAMES.length];
+        for (int i = 0; i < PASS_NAMES.length; i++) {
+            long count = Math.max(1, passCount[i]);
+            result[i] = String.format("%s: %d frames, %.2f ms (max %.2f ms)",
+                    PASS_NAMES[i], passCount[i], passTime[i] / (count * 1000000.0), passMaxTime[i] / 1000000.0);
+        }
+        return result;
+    }
+
+    // draw the depth outline (software "shader")
+    // idea: http://coding-experiments.blogspot.de/2010/06/edge-detection.html
+    public synchronized void drawShader(final int[] zBuffer, final int[] pixels, final int w, final int multiplicand) {
+        long start = System.nanoTime();
+        final int factor = w * multiplicand * multiplicand;
+        forEachBand(w*2 + 2, zBuffer.length - w*2 - 2, w, (band, from, to) -> {
+            for (int c = from; c < to; c++) {
+
+                int x = zBuffer[c] + Integer.MAX_VALUE;
+                if (x != 0) {
+                    int x5 = zBuffer[c-w] + Integer.MAX_VALUE;
+                    int x3 = zBuffer[c+w] + Integer.MAX_VALUE;
+                    int x1 = zBuffer[c-1] + Integer.MAX_VALUE;
+                    int x7 = zBuffer[c+1] + Integer.MAX_VALUE;
+                    int x2 = zBuffer[c-w - 1] + Integer.MAX_VALUE;
+                    int x8 = zBuffer[c-w + 1] + Integer.MAX_VALUE;
+                    int x0 = zBuffer[c+w - 1] + Integer.MAX_VALUE;
+                    int x6 = zBuffer[c+w + 1] + Integer.MAX_VALUE;
+
+                    // move one more outwards
+                    int x5t = zBuffer[c-2*w] + Integer.MAX_VALUE;
+                    int x3t = zBuffer[c+2*w] + Integer.MAX_VALUE;
+                    int x1t = zBuffer[c-2] + Integer.MAX_VALUE;
+                    int x7t = zBuffer[c+2] + Integer.MAX_VALUE;
+                    int x2t = zBuffer[c-2*w - 2] + Integer.MAX_VALUE;
+                    int x8t = zBuffer[c-2*w + 2] + Integer.MAX_VALUE;
+                    int x0t = zBuffer[c+2*w - 2] + Integer.MAX_VALUE;
+                    int x6t = zBuffer[c+2*w + 2] + Integer.MAX_VALUE;
+
+                    int p1 = Math.abs(x1 - x7)/10;
+                    int p2 = Math.abs(x5 - x3)/10;
+                    int p3 = Math.abs(x0 - x8)/10;
+                    int p4 = Math.abs(x2 - x6)/10;
+                    int val = (Math.abs(x7 - x7t) < p1 && Math.abs(x1 - x1t) < p1 ? 1 : 0) +
+                            (Math.abs(x5 - x5t) < p2 && Math.abs(x3 - x3t) < p2 ? 1 : 0) +
+                            (Math.abs(x0 - x0t) < p3 && Math.abs(x8 - x8t) < p3 ? 1 : 0) +
+                            (Math.abs(x2 - x2t) < p4 && Math.abs(x6 - x6t) < p4 ? 1 : 0);
+
+                    if (val == 2 || val == 3) {
+                        pixels[(c/factor)*w + (c/multiplicand)%w] = 0;
+                        // skip the remaining samples of this pixel (the phase is taken from the
+                        // absolute index, so the result does not depend on where the bands start)
+                        c += multiplicand - 1 - c % multiplicand;
+                    } else {
+
+                        int xP = x + 100;
+                        int xM = x - 100;
+
+                        int s = ((x1t > xP && x7 > xP) || (x1t < xM && x7t < xM) ? 1 : 0) +
+                                ((x5t > xP && x3 > xP) || (x5t < xM && x3t < xM) ? 1 : 0) +
+                                ((x2t > xP && x6 > xP) || (x2t < xM && x6t < xM) ? 1 : 0) +
+                                ((x0t > xP && x8 > xP) || (x0t < xM && x8t < xM) ? 1 : 0);
+
+                        if (s == 2 || s == 3) {
+                            pixels[(c/factor)*w + (c/multiplicand)%w] = 0;
+                            c += multiplicand - 1 - c % multiplicand;
+                        }
+                    }
+                }
+            }
+        });
+        record(PASS_SHADER, start);
+    }
+
+    // fix t-junction anomalies, i.e. pixels that are not covered because they lie on the edge
+    // between two faces. The values (pixels or depth) of these are copied from a neighbour. The
+    // anomalies are detected on the unmodified z-buffer and copies are resolved in scan order.
+    public synchronized void fixJunctions(final int[] zBuffer, final int[] values, final int w) {
+        long start = System.nanoTime();
+        final int len = zBuffer.length;
+        if (junctions.length < len) {
+            junctions = new byte[len];
+            unmodified = new int[len];
+        }
+        final byte[] junctions = this.junctions;
+        final int[] unmodified = this.unmodified;
+        // offset of the neighbour that is copied (by junction type)
+        final int[] offsets = new int[] {0, -1, -w, w - 1, -w - 1};
+
+        // detect the anomalies
+        forEachBand(0, len, w, (band, from, to) -> {
+            System.arraycopy(values, from, unmodified, from, to - from);
+            for (int c = from; c < to; c++) {
+                byte type = 0;
+                if (c >= w + 1 && c < len - w - 1) {
+                    int x = zBuffer[c] + Integer.MAX_VALUE;
+                    int x5 = zBuffer[c-w] + Integer.MAX_VALUE;
+                    int x3 = zBuffer[c+w] + Integer.MAX_VALUE;
+                    int x1 = zBuffer[c-1] + Integer.MAX_VALUE;
+                    int x7 = zBuffer[c+1] + Integer.MAX_VALUE;
+                    int x2 = zBuffer[c-w - 1] + Integer.MAX_VALUE;
+                    int x8 = zBuffer[c-w + 1] + Integer.MAX_VALUE;
+                    int x0 = zBuffer[c+w - 1] + Integer.MAX_VALUE;
+                    int x6 = zBuffer[c+w + 1] + Integer.MAX_VALUE;
+
+                    if (Math.abs(x1 - x7) < 100000 && Math.abs(x1 - x) > 100000) {
+                        type = 1;
+                    } else if (Math.abs(x5 - x3) < 100000 && Math.abs(x5 - x) > 100000) {
+                        type = 2;
+                    } else if (Math.abs(x0 - x8) < 100000 && Math.abs(x0 - x) > 100000) {
+                        type = 3;
+                    } else if (Math.abs(x2 - x6) < 100000 && Math.abs(x2 - x) > 100000) {
+                        type = 4;
+                    }
+                }
+                junctions[c] = type;
+            }
+        });
+
+        // copy the values, neighbours that come earlier in scan order might be fixed themselves
+        forEachBand(0, len, w, (band, from, to) -> {
+            for (int c = from; c < to; c++) {
+                if (junctions[c] != 0) {
+                    int s = c;
+                    int value;
+                    while (true) {
+                        int type = junctions[s];
+                        if (type == 0) {
+                            value = unmodified[s];
+                            break;
+                        }
+                        int source = s + offsets[type];
+                        if (source > s) {
+                            value = unmodified[source];
+                            break;
+                        }
+                        s = source;
+                    }
+                    values[c] = value;
+                }
+            }
+        });
+        record(PASS_JUNCTIONS, start);
+    }
+
+    // draw the depth as gray values into the raster (the z-buffer has the same layout as the raster)
+    public synchronized void drawDepth(final int[] zBuffer, final int[] raster, int w) {
+        long start = System.nanoTime();
+        int len = zBuffer.length;
+        int bandCount = (len - 1) / Math.max(1, w * BAND_HEIGHT) + 1;
+
+        // compute mean
+        final long[] sums = new long[bandCount];
+        final int[] counts = new int[bandCount];
+        forEachBand(0, len, w, (band, from, to) -> {
+            for (int c = from; c < to; c++) {
+                if (zBuffer[c] != Z_EMPTY) {
+                    sums[band] += zBuffer[c];
+                    counts[band]++;
+                }
+            }
+        });
+        int count = 0;
+        long meanSum = 0;
+        for (int band = 0; band < bandCount; band++) {
+            meanSum += sums[band];
+            count += counts[band];
+        }
+        final long mean = meanSum / count;
+
+        // compute std deviation
+        final double[] squares = new double[bandCount];
+        forEachBand(0, len, w, (band, from, to) -> {
+            for (int c = from; c < to; c++) {
+                if (zBuffer[c] != Z_EMPTY) {
+                    double diff = zBuffer[c] - mean;
+                    squares[band] += diff * diff;
+                }
+            }
+        });
+        double sum = 0;
+        for (double square : squares) {
+            sum += square;
+        }
+        final double stdDev = Math.sqrt(sum/count);
+
+        // compute min and max for non outliers
+        final int[] mins = new int[bandCount];
+        final int[] maxs = new int[bandCount];
+        forEachBand(0, len, w, (band, from, to) -> {
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (int c = from; c < to; c++) {
+                if (Math.abs(zBuffer[c] - mean) < 4*stdDev) {
+                    min = Math.min(min, zBuffer[c]);
+                    max = Math.max(max, zBuffer[c]);
+                }
+            }
+            mins[band] = min;
+            maxs[band] = max;
+        });
+        int minValue = Integer.MAX_VALUE, maxValue = Integer.MIN_VALUE;
+        for (int band = 0; band < bandCount; band++) {
+            minValue = Math.min(minValue, mins[band]);
+            maxValue = Math.max(maxValue, maxs[band]);
+        }
+        final int min = minValue;
+        final float step = (maxValue - min)/255f;
+        record(PASS_DEPTH_RANGE, start);
+
+        fixJunctions(zBuffer, zBuffer, w);
+
+        // compute values
+        start = System.nanoTime();
+        forEachBand(0, len, w, (band, from, to) -> {
+            for (int c = from; c < to; c++) {
+                if (zBuffer[c] != Z_EMPTY) {
+                    int val = (int) Math.min(255, Math.max(0, (zBuffer[c] - min) / step));
+                    raster[c] = 0xFF000000 | (val << 16) | (val << 8) | val;
+                }
+            }
+        });
+        record(PASS_DEPTH_MAP, start);
+    }
+}
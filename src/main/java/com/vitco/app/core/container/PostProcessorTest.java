@@ -0,0 +1,184 @@
+package com.vitco.app.core.container;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test that the banded post-processing gives the same result as processing the frame in one go.
+ */
+public class PostProcessorTest {
+
+    private static final int W = 301;
+    private static final int H = 257;
+
+    // helper - frame with overlapping boxes at different depths, some holes and an empty border
+    private static int[] createZBuffer(long seed) {
+        Random rand = new Random(seed);
+        int[] zBuffer = new int[W * H];
+        Arrays.fill(zBuffer, -2147483647);
+        for (int i = 0; i < 40; i++) {
+            int x1 = 3 + rand.nextInt(W - 6), x2 = Math.min(W - 3, x1 + rand.nextInt(80));
+            int y1 = 3 + rand.nextInt(H - 6), y2 = Math.min(H - 3, y1 + rand.nextInt(80));
+            int depth = rand.nextInt(1000000000);
+            int slope = rand.nextInt(2000);
+            for (int y = y1; y < y2; y++) {
+                for (int x = x1; x < x2; x++) {
+                    zBuffer[y * W + x] = depth + x * slope;
+                }
+            }
+        }
+        // single holes and short runs of holes
+        for (int i = 0; i < 2000; i++) {
+            int c = (3 + rand.nextInt(H - 6)) * W + 3 + rand.nextInt(W - 8);
+            for (int j = rand.nextInt(3); j >= 0; j--) {
+                zBuffer[c + j] = -2147483647;
+            }
+        }
+        return zBuffer;
+    }
+
+    // helper - random pixels
+    private static int[] createPixels(long seed) {
+        Random rand = new Random(seed);
+        int[] pixels = new int[W * H];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = rand.nextInt();
+        }
+        return pixels;
+    }
+
+    // reference - t-junction fix in scan order
+    private static void fixJunctions(int[] zBuffer, int[] pixels, int w) {
+        for (int c = w + 1; c < zBuffer.length - w - 1; c++) {
+
+            int x = zBuffer[c] + Integer.MAX_VALUE;
+            int x5 = zBuffer[c-w] + Integer.MAX_VALUE;
+            int x3 = zBuffer[c+w] + Integer.MAX_VALUE;
+            int x1 = zBuffer[c-1] + Integer.MAX_VALUE;
+            int x7 = zBuffer[c+1] + Integer.MAX_VALUE;
+            int x2 = zBuffer[c-w - 1] + Integer.MAX_VALUE;
+            int x8 = zBuffer[c-w + 1] + Integer.MAX_VALUE;
+            int x0 = zBuffer[c+w - 1] + Integer.MAX_VALUE;
+            int x6 = zBuffer[c+w + 1] + Integer.MAX_VALUE;
+
+            if (Math.abs(x1 - x7) < 100000 && Math.abs(x1 - x) > 100000) {
+                pixels[c] = pixels[c-1];
+            } else if (Math.abs(x5 - x3) < 100000 && Math.abs(x5 - x) > 100000) {
+                pixels[c] = pixels[c-w];
+            } else if (Math.abs(x0 - x8) < 100000 && Math.abs(x0 - x) > 100000) {
+                pixels[c] = pixels[c+w-1];
+            } else if (Math.abs(x2 - x6) < 100000 && Math.abs(x2 - x) > 100000) {
+                pixels[c] = pixels[c-w-1];
+            }
+        }
+    }
+
+    // reference - shader in scan order (checks every sample, skipping samples is only an optimization)
+    private static void drawShader(int[] zBuffer, int[] pixels, int w, int multiplicand) {
+        int factor = w * multiplicand * multiplicand;
+        for (int c = w*2 + 2; c < zBuffer.length - w*2 - 2; c++) {
+
+            int x = zBuffer[c] + Integer.MAX_VALUE;
+            if (x != 0) {
+                int x5 = zBuffer[c-w] + Integer.MAX_VALUE;
+                int x3 = zBuffer[c+w] + Integer.MAX_VALUE;
+                int x1 = zBuffer[c-1] + Integer.MAX_VALUE;
+                int x7 = zBuffer[c+1] + Integer.MAX_VALUE;
+                int x2 = zBuffer[c-w - 1] + Integer.MAX_VALUE;
+                int x8 = zBuffer[c-w + 1] + Integer.MAX_VALUE;
+                int x0 = zBuffer[c+w - 1] + Integer.MAX_VALUE;
+                int x6 = zBuffer[c+w + 1] + Integer.MAX_VALUE;
+
+                int x5t = zBuffer[c-2*w] + Integer.MAX_VALUE;
+                int x3t = zBuffer[c+2*w] + Integer.MAX_VALUE;
+                int x1t = zBuffer[c-2] + Integer.MAX_VALUE;
+                int x7t = zBuffer[c+2] + Integer.MAX_VALUE;
+                int x2t = zBuffer[c-2*w - 2] + Integer.MAX_VALUE;
+                int x8t = zBuffer[c-2*w + 2] + Integer.MAX_VALUE;
+                int x0t = zBuffer[c+2*w - 2] + Integer.MAX_VALUE;
+                int x6t = zBuffer[c+2*w + 2] + Integer.MAX_VALUE;
+
+                int p1 = Math.abs(x1 - x7)/10;
+                int p2 = Math.abs(x5 - x3)/10;
+                int p3 = Math.abs(x0 - x8)/10;
+                int p4 = Math.abs(x2 - x6)/10;
+                int val = (Math.abs(x7 - x7t) < p1 && Math.abs(x1 - x1t) < p1 ? 1 : 0) +
+                        (Math.abs(x5 - x5t) < p2 && Math.abs(x3 - x3t) < p2 ? 1 : 0) +
+                        (Math.abs(x0 - x0t) < p3 && Math.abs(x8 - x8t) < p3 ? 1 : 0) +
+                        (Math.abs(x2 - x2t) < p4 && Math.abs(x6 - x6t) < p4 ? 1 : 0);
+
+                if (val == 2 || val == 3) {
+                    pixels[(c/factor)*w + (c/multiplicand)%w] = 0;
+                } else {
+
+                    int xP = x + 100;
+                    int xM = x - 100;
+
+                    int s = ((x1t > xP && x7 > xP) || (x1t < xM && x7t < xM) ? 1 : 0) +
+                            ((x5t > xP && x3 > xP) || (x5t < xM && x3t < xM) ? 1 : 0) +
+                            ((x2t > xP && x6 > xP) || (x2t < xM && x6t < xM) ? 1 : 0) +
+                            ((x0t > xP && x8 > xP) || (x0t < xM && x8t < xM) ? 1 : 0);
+
+                    if (s == 2 || s == 3) {
+                        pixels[(c/factor)*w + (c/multiplicand)%w] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFixJunctions() {
+        PostProcessor postProcessor = new PostProcessor();
+        for (int seed = 0; seed < 5; seed++) {
+            int[] zBuffer = createZBuffer(seed);
+            int[] expected = createPixels(seed);
+            int[] pixels = expected.clone();
+            fixJunctions(zBuffer, expected, W);
+            postProcessor.fixJunctions(zBuffer, pixels, W);
+            assert !Arrays.equals(expected, createPixels(seed));
+            assert Arrays.equals(expected, pixels);
+        }
+    }
+
+    @Test
+    public void testDrawShader() {
+        PostProcessor postProcessor = new PostProcessor();
+        // the band size (w * 32) and the first index (w * 2 + 2) are not multiples of three
+        assert (W * 32) % 3 != 0 && (W * 2 + 2) % 3 != 0;
+        for (int multiplicand = 1; multiplicand <= 3; multiplicand++) {
+            for (int seed = 0; seed < 5; seed++) {
+                int[] zBuffer = createZBuffer(seed);
+                int[] expected = createPixels(seed);
+                int[] pixels = expected.clone();
+                drawShader(zBuffer, expected, W, multiplicand);
+                postProcessor.drawShader(zBuffer, pixels, W, multiplicand);
+                assert !Arrays.equals(expected, createPixels(seed));
+                assert Arrays.equals(expected, pixels);
+            }
+        }
+    }
+
+    @Test
+    public void testDrawDepth() {
+        PostProcessor postProcessor = new PostProcessor();
+        int[] zBuffer = createZBuffer(1);
+        int[] raster = new int[zBuffer.length];
+        postProcessor.drawDepth(zBuffer, raster, W);
+        int black = 0, white = 0;
+        for (int c = 0; c < raster.length; c++) {
+            if (zBuffer[c] == -2147483647) {
+                assert raster[c] == 0;
+            } else {
+                int val = raster[c] & 0xFF;
+                assert raster[c] == (0xFF000000 | (val << 16) | (val << 8) | val);
+                black += val == 0 ? 1 : 0;
+                white += val == 255 ? 1 : 0;
+            }
+        }
+        assert black > 0 && white > 0;
+        assert postProcessor.getStatistics().length == 4;
+    }
+}
@@ -29,6 +29,28 @@ public final class Data extends VoxelHighlighting implements DataInterface {
         }
     }
 
+    @Override
+    public final long getHistoryFootprintA() {
+        synchronized (VitcoSettings.SYNC) {
+            return historyManagerA.getMemoryFootprint();
+        }
+    }
+
+    @Override
+    public final long getHistoryFootprintV() {
+        synchronized (VitcoSettings.SYNC) {
+            return historyManagerV.getMemoryFootprint();
+        }
+    }
+
+    @Override
+    public final void setHistoryMemoryBudget(long budget) {
+        synchronized (VitcoSettings.SYNC) {
+            historyManagerA.setMemoryBudget(budget);
+            historyManagerV.setMemoryBudget(budget);
+        }
+    }
+
     public final void setFrozen(boolean flag) {
         historyManagerA.setFrozen(flag);
         historyManagerV.setFrozen(flag);
@@ -13,6 +13,11 @@ public interface DataInterface {
     // delete all history
     void clearHistoryA();
     void clearHistoryV();
+    // estimated memory footprint of the history (in bytes)
+    long getHistoryFootprintA();
+    long getHistoryFootprintV();
+    // set the memory budget of the histories (in bytes)
+    void setHistoryMemoryBudget(long budget);
 
     void setFrozen(boolean flag);
 
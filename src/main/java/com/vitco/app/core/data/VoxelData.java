@@ -2,6 +2,7 @@ package com.vitco.app.core.data;
 
 import com.vitco.app.core.data.container.Voxel;
 import com.vitco.app.core.data.container.VoxelLayer;
+import com.vitco.app.core.data.history.ChangeJournal;
 import com.vitco.app.core.data.history.HistoryChangeListener;
 import com.vitco.app.core.data.history.HistoryManager;
 import com.vitco.app.core.data.history.VoxelActionIntent;
@@ -19,9 +20,12 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Defines the voxel data interaction (layer, undo, etc)
@@ -71,88 +75,111 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
     // position where the selection state has actually changed!)
     private final TIntHashSet currentSelectedVoxel = new TIntHashSet();
 
+    // journal of changed positions (visible voxels and selection state)
+    private final ChangeJournal visibleJournal = new ChangeJournal(VitcoSettings.CHANGE_JOURNAL_CAPACITY);
+    private final ChangeJournal selectedJournal = new ChangeJournal(VitcoSettings.CHANGE_JOURNAL_CAPACITY);
+
     // invalidate cache
     protected final void invalidateV(int[][] effected) {
         if (effected != null) {
-            // notification of changed visible voxels
-            for (TIntObjectHashMap<int[]> map : changedVisibleVoxel.values()) {
-                if (map != null) {
-                    for (int[] invalid : effected) {
-                        Integer key = CubeIndexer.getId(invalid[0], invalid[1], invalid[2]);
-                        if (!map.containsKey(key)) {
-                            map.put(key, invalid);
-                        }
-                    }
-                }
+            // update the composite and log the changed visible voxels
+            for (int[] invalid : effected) {
+                invalidatePosition(invalid);
             }
 
-            // notification of changed selected voxels
-            TIntObjectHashMap<int[]> invalidSelected = new TIntObjectHashMap<int[]>();
+            // log the positions where the selection state has changed
             for (int[] invalid : effected) {
-                Voxel voxel = searchVoxel(invalid, false);
+                Voxel voxel = visibleComposite.search(invalid);
                 if (voxel == null) {
                     int key = CubeIndexer.getId(invalid[0], invalid[1], invalid[2]);
                     if (currentSelectedVoxel.remove(key)) {
-                        invalidSelected.put(key, invalid);
+                        selectedJournal.append(key);
                     }
                 } else {
                     int key = voxel.posId;
                     if (voxel.isSelected()) {
                         if (currentSelectedVoxel.add(key)) {
-                            invalidSelected.put(key, invalid);
+                            selectedJournal.append(key);
                         }
                     } else {
                         if (currentSelectedVoxel.remove(key)) {
-                            invalidSelected.put(key, invalid);
+                            selectedJournal.append(key);
                         }
                     }
                 }
             }
-            for (TIntObjectHashMap<int[]> map : changedSelectedVoxel.values()) {
-                if (map != null) {
-                    map.putAll(invalidSelected);
-                }
-            }
 
-            // notification of changed visible voxel for this plane
-            for (TIntIterator it = changedVisibleVoxelPlane.keySet().iterator(); it.hasNext();) {
-                int side = it.next();
-                int missingSide = 1;
-                switch (side) {
-                    case 0: missingSide = 2; break;
-                    case 2: missingSide = 0; break;
-                    default: break;
-                }
-                for (String requestId : changedVisibleVoxelPlane.get(side).keySet()) {
-                    for (int[] invalid : effected) {
-                        // make sure this is set
-                        if (!changedVisibleVoxelPlane.get(side).get(requestId).containsKey(invalid[missingSide])) {
-                            changedVisibleVoxelPlane.get(side).get(requestId).put(
-                                    invalid[missingSide], new TIntObjectHashMap<int[]>());
-                        }
-                        // fill the details
-                        int key = CubeIndexer.getId(invalid[0], invalid[1], invalid[2]);
-                        if (!changedVisibleVoxelPlane.get(side).get(requestId).get(invalid[missingSide]).containsKey(key)) {
-                            changedVisibleVoxelPlane.get(side).get(requestId).get(invalid[missingSide]).put(key, invalid);
-                        }
-                    }
-                }
+            // the plane buffers are invalidated per position
+            if (effected.length > 0) {
+                layerVoxelBufferValid = false;
+                selectedVoxelBufferValid = false;
             }
         } else {
-            currentSelectedVoxel.clear();
-            changedSelectedVoxel.clear();
-            changedVisibleVoxel.clear();
-            changedVisibleVoxelPlane.clear();
+            rebuildComposite();
+            invalidateAllPositions();
         }
         layerBufferValid = false;
         layerNameBufferValid = false;
+        notifier.onVoxelDataChanged();
+    }
+
+    // helper - all consumers need to do a complete refresh
+    private void invalidateAllPositions() {
+        currentSelectedVoxel.clear();
+        visibleJournal.reset();
+        selectedJournal.reset();
         layerVoxelBufferValid = false;
-        layerVoxelXYBufferValid = false;
-        layerVoxelXZBufferValid = false;
-        layerVoxelYZBufferValid = false;
+        planeBufferXY.clear();
+        planeBufferXZ.clear();
+        planeBufferYZ.clear();
         selectedVoxelBufferValid = false;
-        visibleLayerVoxelInternalBufferValid = false;
-        notifier.onVoxelDataChanged();
+    }
+
+    // helper - update the composite, log the position and invalidate
+    // the plane buffers that contain this position
+    private void invalidatePosition(int[] pos) {
+        updateComposite(pos);
+        visibleJournal.append(CubeIndexer.getId(pos[0], pos[1], pos[2]));
+        planeBufferXY.remove(pos[2]);
+        planeBufferXZ.remove(pos[1]);
+        planeBufferYZ.remove(pos[0]);
+    }
+
+    // composite of the topmost visible voxel for every position
+    private VoxelLayer visibleComposite = new VoxelLayer(-1, "composite");
+    // array view of the composite (only rebuilt when requested after a change)
+    private Voxel[] visibleCompositeBuffer = new Voxel[0];
+    private boolean visibleCompositeBufferValid = false;
+
+    // helper - update the composite for a position
+    private void updateComposite(int[] pos) {
+        Voxel current = visibleComposite.search(pos);
+        Voxel top = searchVoxel(pos, false);
+        if (current != top) {
+            if (current != null) {
+                visibleComposite.removeVoxel(current);
+            }
+            if (top != null) {
+                visibleComposite.addVoxel(top);
+            }
+            visibleCompositeBufferValid = false;
+        }
+    }
+
+    // helper - rebuild the composite from all visible layers
+    private void rebuildComposite() {
+        visibleComposite = new VoxelLayer(-1, "composite");
+        for (Integer layerId : dataContainer.layerOrder) {
+            VoxelLayer layer = dataContainer.layers.get(layerId);
+            if (layer.isVisible()) {
+                for (Voxel voxel : layer.getVoxels()) {
+                    if (visibleComposite.voxelPositionFree(voxel)) {
+                        visibleComposite.addVoxel(voxel);
+                    }
+                }
+            }
+        }
+        visibleCompositeBufferValid = false;
     }
 
     // holds the historyV data
@@ -209,15 +236,10 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         @Override
         protected void applyAction() {
             if (isFirstCall()) {
-                // remember effected positions
-                effected = new int[dataContainer.layers.get(layerId).getVoxels().length][];
-                // remove all points in this layer
-                Voxel[] voxels = dataContainer.layers.get(layerId).getVoxels();
-                for (int i = 0; i < voxels.length; i++) {
-                    Voxel voxel = voxels[i];
-                    historyManagerV.applyIntent(new RemoveVoxelIntent(voxel.id, true));
-                    effected[i] = voxel.getPosAsInt(); // store
-                }
+                // remove all points in this layer (in one batch)
+                removeIntent = new BatchVoxelIntent(
+                        dataContainer.layers.get(layerId).getVoxels(), new Voxel[0], true);
+                historyManagerV.applyIntent(removeIntent);
                 // remember the position of this layer
                 layerPosition = dataContainer.layerOrder.indexOf(layerId);
                 // and the name
@@ -233,10 +255,10 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.layerOrder.add(layerPosition, layerId);
         }
 
-        private int[][] effected = null; // everything effected
+        private BatchVoxelIntent removeIntent = null; // everything effected
         @Override
         public int[][] effected() {
-            return effected;
+            return removeIntent == null ? null : removeIntent.effected();
         }
     }
 
@@ -383,6 +405,119 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
     }
 
     // voxel intents
+
+    // applies a change set (voxels to remove and voxels to add) in one pass. The voxel
+    // instances are kept, so undo/redo always restores the exact same objects.
+    private class BatchVoxelIntent extends VoxelActionIntent {
+        private Voxel[] removed = new Voxel[0];
+        private Voxel[] added = new Voxel[0];
+
+        protected BatchVoxelIntent(Voxel[] removed, Voxel[] added, boolean attach) {
+            super(attach);
+            setChanges(removed, added);
+        }
+
+        // the change set needs to be set by the child class before the intent is applied
+        protected BatchVoxelIntent(boolean attach) {
+            super(attach);
+        }
+
+        protected final void setChanges(Voxel[] removed, Voxel[] added) {
+            this.removed = removed;
+            this.added = added;
+        }
+
+        @Override
+        protected void applyAction() {
+            for (Voxel voxel : removed) {
+                dataContainer.voxels.remove(voxel.id);
+                dataContainer.layers.get(voxel.getLayerId()).removeVoxel(voxel);
+            }
+            for (Voxel voxel : added) {
+                dataContainer.voxels.put(voxel.id, voxel);
+                dataContainer.layers.get(voxel.getLayerId()).addVoxel(voxel);
+            }
+        }
+
+        @Override
+        protected void unapplyAction() {
+            for (int i = added.length - 1; i > -1; i--) {
+                Voxel voxel = added[i];
+                dataContainer.voxels.remove(voxel.id);
+                dataContainer.layers.get(voxel.getLayerId()).removeVoxel(voxel);
+            }
+            for (int i = removed.length - 1; i > -1; i--) {
+                Voxel voxel = removed[i];
+                dataContainer.voxels.put(voxel.id, voxel);
+                dataContainer.layers.get(voxel.getLayerId()).addVoxel(voxel);
+            }
+        }
+
+        // the effected positions are derived from the voxels (not stored)
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + (long)(removed.length + added.length) * (VOXEL_FOOTPRINT + 8);
+        }
+
+        @Override
+        public int[][] effected() {
+            int[][] effected = new int[removed.length + added.length][];
+            int i = 0;
+            for (Voxel voxel : removed) {
+                effected[i++] = voxel.getPosAsInt();
+            }
+            for (Voxel voxel : added) {
+                effected[i++] = voxel.getPosAsInt();
+            }
+            return effected;
+        }
+    }
+
+    // change the color of many voxel in one pass (colors are stored as argb values)
+    private class BatchColorVoxelIntent extends VoxelActionIntent {
+        private Voxel[] voxels = new Voxel[0];
+        private int[] oldColors = new int[0];
+        private int[] newColors = new int[0];
+
+        // the colors need to be set by the child class before the intent is applied
+        protected BatchColorVoxelIntent(boolean attach) {
+            super(attach);
+        }
+
+        protected final void setColors(Voxel[] voxels, int[] newColors) {
+            this.voxels = voxels;
+            this.newColors = newColors;
+            this.oldColors = new int[voxels.length];
+            for (int i = 0; i < voxels.length; i++) {
+                oldColors[i] = voxels[i].getColor().getRGB();
+            }
+        }
+
+        @Override
+        protected void applyAction() {
+            for (int i = 0; i < voxels.length; i++) {
+                voxels[i].setColor(new Color(newColors[i], true));
+            }
+        }
+
+        @Override
+        protected void unapplyAction() {
+            for (int i = 0; i < voxels.length; i++) {
+                voxels[i].setColor(new Color(oldColors[i], true));
+            }
+        }
+
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + (long)voxels.length * (VOXEL_FOOTPRINT + 16);
+        }
+
+        @Override
+        public int[][] effected() {
+            return getPositions(voxels);
+        }
+    }
+
     private final class AddVoxelIntent extends VoxelActionIntent {
         private final Voxel voxel;
 
@@ -404,6 +539,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.layers.get(voxel.getLayerId()).removeVoxel(voxel);
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + VOXEL_FOOTPRINT;
+        }
+
         @Override
         public int[][] effected() {
             return new int[][]{voxel.getPosAsInt()};
@@ -434,6 +574,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.layers.get(voxel.getLayerId()).addVoxel(voxel);
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + VOXEL_FOOTPRINT;
+        }
+
         @Override
         public int[][] effected() {
             return new int[][]{voxel.getPosAsInt()};
@@ -544,41 +689,6 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         }
     }
 
-    private final class ColorShiftVoxelIntent extends VoxelActionIntent {
-        private final Voxel voxel;
-        private final Color newColor;
-        private final Color oldColor;
-
-        protected ColorShiftVoxelIntent(int voxelId, float[] hsbOffset, boolean attach) {
-            super(attach);
-            this.voxel = dataContainer.voxels.get(voxelId);
-            this.oldColor = voxel.getColor();
-            float[] currentHSB = ColorTools.colorToHSB(this.oldColor);
-            this.newColor = ColorTools.hsbToColor(new float[] {
-                    (currentHSB[0] + hsbOffset[0] + 2) % 1,
-                    Math.max(0, Math.min(1, currentHSB[1] + hsbOffset[1])),
-                    Math.max(0, Math.min(1, currentHSB[2] + hsbOffset[2]))
-            });
-            this.effected = new int[][]{voxel.getPosAsInt()};
-        }
-
-        @Override
-        protected void applyAction() {
-            voxel.setColor(newColor);
-        }
-
-        @Override
-        protected void unapplyAction() {
-            voxel.setColor(oldColor);
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
-        }
-    }
-
     private final class AlphaVoxelIntent extends VoxelActionIntent {
         private final int voxelId;
         private final int newAlpha;
@@ -625,17 +735,10 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         @Override
         protected void applyAction() {
             if (isFirstCall()) {
-                ArrayList<int[]> effected = new ArrayList<int[]>();
-
                 // get all voxels and remove them
-                for (Voxel voxel : dataContainer.layers.get(layerId).getVoxels()) {
-                    effected.add(voxel.getPosAsInt());
-                    historyManagerV.applyIntent(new RemoveVoxelIntent(voxel.id, true));
-                }
-
-                // what is effected
-                this.effected = new int[effected.size()][];
-                effected.toArray(this.effected);
+                removeIntent = new BatchVoxelIntent(
+                        dataContainer.layers.get(layerId).getVoxels(), new Voxel[0], true);
+                historyManagerV.applyIntent(removeIntent);
             }
         }
 
@@ -644,10 +747,10 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             // nothing to do
         }
 
-        private int[][] effected = null;
+        private BatchVoxelIntent removeIntent = null;
         @Override
         public int[][] effected() {
-            return effected;
+            return removeIntent == null ? null : removeIntent.effected();
         }
     }
 
@@ -660,27 +763,27 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         @Override
         protected void applyAction() {
             if (isFirstCall()) {
-                ArrayList<int[]> effected = new ArrayList<int[]>();
-
                 // create new layer
                 int mergedLayerId = getFreeLayerId();
                 historyManagerV.applyIntent(new CreateLayerIntent(mergedLayerId, "Merged", true));
 
                 // add the voxels to the new layer (top to bottom)
+                ArrayList<Voxel> merged = new ArrayList<Voxel>();
+                TIntHashSet usedPositions = new TIntHashSet();
                 for (int layerId : dataContainer.layerOrder) {
                     if (dataContainer.layers.get(layerId).isVisible()) { // only visible
                         Voxel[] voxels = getLayerVoxels(layerId); // get voxels
                         for (Voxel voxel : voxels) {
-                            if (dataContainer.layers.get(mergedLayerId).voxelPositionFree(voxel)) { // add if this voxel does not exist
-                                effected.add(voxel.getPosAsInt());
-                                historyManagerV.applyIntent( // we <need> a new id for this voxel
-                                        new AddVoxelIntent(getFreeVoxelId(), voxel.getPosAsInt(),
-                                                voxel.getColor(), voxel.isSelected(), voxel.getTexture(), mergedLayerId, true)
-                                );
+                            if (usedPositions.add(voxel.posId)) { // add if this voxel does not exist
+                                // we <need> a new id for this voxel
+                                merged.add(new Voxel(getFreeVoxelId(), voxel.getPosAsInt(),
+                                        voxel.getColor(), voxel.isSelected(), voxel.getTexture(), mergedLayerId));
                             }
                         }
                     }
                 }
+                addIntent = new BatchVoxelIntent(new Voxel[0], merged.toArray(new Voxel[merged.size()]), true);
+                historyManagerV.applyIntent(addIntent);
 
                 // delete the visible layers (not the new one)
                 Integer[] layer = new Integer[dataContainer.layerOrder.size()];
@@ -693,10 +796,6 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
 
                 // select the new layer (only when created)
                 dataContainer.selectedLayer = mergedLayerId;
-
-                // what is effected
-                this.effected = new int[effected.size()][];
-                effected.toArray(this.effected);
             }
         }
 
@@ -705,10 +804,10 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             // nothing to do
         }
 
-        private int[][] effected = null;
+        private BatchVoxelIntent addIntent = null;
         @Override
         public int[][] effected() {
-            return effected;
+            return addIntent == null ? null : addIntent.effected();
         }
     }
 
@@ -736,6 +835,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.textures.remove(textureId);
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + TEXTURE_FOOTPRINT;
+        }
+
         @Override
         public int[][] effected() {
             // nothing effected
@@ -777,6 +881,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             // nothing to do
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + (long)texture.getWidth() * texture.getHeight() * 4;
+        }
+
         @Override
         public int[][] effected() {
             // nothing effected
@@ -814,6 +923,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.textures.put(textureId, texture);
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + TEXTURE_FOOTPRINT;
+        }
+
         @Override
         public int[][] effected() {
             // nothing effected
@@ -892,6 +1006,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             dataContainer.textures.put(textureId, textureOld);
         }
 
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + 2 * TEXTURE_FOOTPRINT;
+        }
+
         @Override
         public int[][] effected() {
             // nothing effected
@@ -1014,6 +1133,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         }
 
         private int[][] effected = null;
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + (long)voxelIds.length * 48;
+        }
+
         @Override
         public int[][] effected() {
             return effected;
@@ -1089,33 +1213,22 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             this.voxels = voxels;
         }
 
-        private Integer[] convertVoxelsToIdArray(Voxel[] voxels) {
-            // what is effected (there *should* not be duplicate positions
-            // as they are all moved to one new layer)
-            effected = new int[voxels.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = voxels[i].getPosAsInt();
-            }
-
-            Integer[] voxelIds = new Integer[voxels.length];
-            int i = 0;
-            for (Voxel voxel : voxels) {
-                voxelIds[i++] = voxel.id;
-            }
-            return voxelIds;
-        }
-
         @Override
         protected void applyAction() {
             if (isFirstCall()) {
                 // create a new layer
                 int layerId = getFreeLayerId();
                 historyManagerV.applyIntent(new CreateLayerIntent(layerId, "Migrated", true));
-                // remove all voxels
-                historyManagerV.applyIntent(
-                        new MassRemoveVoxelIntent(convertVoxelsToIdArray(voxels), true));
-                // add all voxels to new layer
-                historyManagerV.applyIntent(new MassAddVoxelIntent(voxels, layerId, true));
+                // remove all voxels and add them to the new layer
+                Voxel[] removed = getLiveVoxels(voxels);
+                Voxel[] added = new Voxel[removed.length];
+                for (int i = 0; i < removed.length; i++) {
+                    Voxel voxel = removed[i];
+                    added[i] = new Voxel(getFreeVoxelId(), voxel.getPosAsInt(),
+                            voxel.getColor(), voxel.isSelected(), voxel.getTexture(), layerId);
+                }
+                migrateIntent = new BatchVoxelIntent(removed, added, true);
+                historyManagerV.applyIntent(migrateIntent);
                 // select the new layer
                 historyManagerV.applyIntent(new SelectLayerIntent(layerId, true));
             }
@@ -1126,457 +1239,275 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             // nothing to do
         }
 
-        private int[][] effected = null;
+        private BatchVoxelIntent migrateIntent = null;
         @Override
         public int[][] effected() {
-            return effected;
+            return migrateIntent == null ? null : migrateIntent.effected();
         }
     }
 
     // mass events
 
     private final class MassSelectVoxelIntent extends VoxelActionIntent {
-        private final Integer[] voxelIds;
+        private final Voxel[] voxels;
         private final boolean selected;
+        private final boolean[] prevSelected;
 
         protected MassSelectVoxelIntent(Integer[] voxelIds, boolean selected, boolean attach) {
             super(attach);
-
-            // what is effected (there could be duplicate positions here)
-            effected = new int[voxelIds.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = dataContainer.voxels.get(voxelIds[i]).getPosAsInt();
-            }
-
-            this.voxelIds = voxelIds;
+            this.voxels = getLiveVoxels(voxelIds);
             this.selected = selected;
+            this.prevSelected = new boolean[voxels.length];
+            for (int i = 0; i < voxels.length; i++) {
+                prevSelected[i] = voxels[i].isSelected();
+            }
         }
 
         @Override
         protected void applyAction() {
-            if (isFirstCall()) {
-                for (Integer id : voxelIds) {
-                    historyManagerV.applyIntent(new SelectVoxelIntent(id, selected, true));
-                }
+            for (Voxel voxel : voxels) {
+                voxel.setSelected(selected);
             }
         }
 
         @Override
         protected void unapplyAction() {
-            // nothing to do
+            for (int i = 0; i < voxels.length; i++) {
+                voxels[i].setSelected(prevSelected[i]);
+            }
+        }
+
+        @Override
+        public long getMemoryFootprint() {
+            return 64 + (long)voxels.length * (VOXEL_FOOTPRINT + 9);
         }
 
-        private int[][] effected = null;
         @Override
         public int[][] effected() {
-            return effected;
+            return getPositions(voxels);
         }
     }
 
-    private final class MassRemoveVoxelIntent extends VoxelActionIntent {
-        private final Integer[] voxelIds;
+    private final class MassRemoveVoxelIntent extends BatchVoxelIntent {
 
         protected MassRemoveVoxelIntent(Integer[] voxelIds, boolean attach) {
             super(attach);
-
-            // what is effected (there could be duplicate positions here)
-            effected = new int[voxelIds.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = dataContainer.voxels.get(voxelIds[i]).getPosAsInt();
-            }
-
-            this.voxelIds = voxelIds;
-        }
-
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-                for (Integer id : voxelIds) {
-                    historyManagerV.applyIntent(new RemoveVoxelIntent(id, true));
-                }
-            }
-        }
-
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+            setChanges(getLiveVoxels(voxelIds), new Voxel[0]);
         }
     }
 
     // if the layerid is null the voxel layerId will be used,
     // otherwise the provided layerid
     // the voxel id is never used (!)
-    private final class MassAddVoxelIntent extends VoxelActionIntent {
-        private final Voxel[] voxels;
-        private final Integer layerId;
+    private final class MassAddVoxelIntent extends BatchVoxelIntent {
 
         protected MassAddVoxelIntent(Voxel[] voxels, Integer layerId, boolean attach) {
             super(attach);
-
-            // what is effected (there could be duplicate positions here)
-            effected = new int[voxels.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = voxels[i].getPosAsInt();
+            boolean layerIdSet = layerId != null;
+            Voxel[] added = new Voxel[voxels.length];
+            for (int i = 0; i < voxels.length; i++) {
+                Voxel voxel = voxels[i];
+                added[i] = new Voxel(getFreeVoxelId(), voxel.getPosAsInt(), voxel.getColor(), voxel.isSelected(),
+                        voxel.getTexture(), layerIdSet ? layerId : voxel.getLayerId());
             }
-
-            this.voxels = voxels;
-            this.layerId = layerId;
-        }
-
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-                boolean layerIdSet = layerId != null;
-                for (Voxel voxel : voxels) {
-                    historyManagerV.applyIntent(
-                            new AddVoxelIntent(getFreeVoxelId(), voxel.getPosAsInt(),
-                                    voxel.getColor(), voxel.isSelected(), voxel.getTexture(), layerIdSet ? layerId : voxel.getLayerId(), true));
-                }
-            }
-        }
-
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+            setChanges(new Voxel[0], added);
         }
     }
 
-    private final class MassColorVoxelIntent extends VoxelActionIntent  {
-        private final Integer[] voxelIds;
-        private final Color color;
+    private final class MassColorVoxelIntent extends BatchColorVoxelIntent {
 
         protected MassColorVoxelIntent(Integer[] voxelIds, Color color, boolean attach) {
             super(attach);
-
-            // what is effected (there could be duplicate positions here)
-            effected = new int[voxelIds.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = dataContainer.voxels.get(voxelIds[i]).getPosAsInt();
-            }
-
-            this.voxelIds = voxelIds;
-            this.color = color;
-        }
-
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-                for (Integer voxelId : voxelIds) {
-                    historyManagerV.applyIntent(new ColorVoxelIntent(voxelId, color, true));
-                }
-            }
-        }
-
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+            Voxel[] voxels = getLiveVoxels(voxelIds);
+            int[] newColors = new int[voxels.length];
+            Arrays.fill(newColors, color.getRGB());
+            setColors(voxels, newColors);
         }
     }
 
-    private final class MassColorShiftVoxelIntent extends VoxelActionIntent  {
-        private final Integer[] voxelIds;
-        private final float[] hsbOffset;
+    private final class MassColorShiftVoxelIntent extends BatchColorVoxelIntent {
 
         protected MassColorShiftVoxelIntent(Integer[] voxelIds, float[] hsbOffset, boolean attach) {
             super(attach);
-
-            // what is effected (there could be duplicate positions here)
-            effected = new int[voxelIds.length][];
-            for (int i = 0; i < effected.length; i++) {
-                effected[i] = dataContainer.voxels.get(voxelIds[i]).getPosAsInt();
-            }
-
-            this.voxelIds = voxelIds;
-            this.hsbOffset = hsbOffset;
-        }
-
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-                for (Integer voxelId : voxelIds) {
-                    historyManagerV.applyIntent(new ColorShiftVoxelIntent(voxelId, hsbOffset, true));
-                }
+            Voxel[] voxels = getLiveVoxels(voxelIds);
+            int[] newColors = new int[voxels.length];
+            for (int i = 0; i < voxels.length; i++) {
+                float[] currentHSB = ColorTools.colorToHSB(voxels[i].getColor());
+                newColors[i] = ColorTools.hsbToColor(new float[] {
+                        (currentHSB[0] + hsbOffset[0] + 2) % 1,
+                        Math.max(0, Math.min(1, currentHSB[1] + hsbOffset[1])),
+                        Math.max(0, Math.min(1, currentHSB[2] + hsbOffset[2]))
+                }).getRGB();
             }
-        }
-
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+            setColors(voxels, newColors);
         }
     }
 
-    private final class MassMoveVoxelIntent extends VoxelActionIntent  {
-        private final Voxel[] voxels;
-        private final int[] shift;
+    private final class MassMoveVoxelIntent extends BatchVoxelIntent {
 
         protected MassMoveVoxelIntent(Voxel[] voxels, int[] shift, boolean attach) {
             super(attach);
-            this.voxels = voxels;
-            this.shift = shift;
-        }
-
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-
-                // what is effected (there could be duplicate positions here)
-                effected = new int[voxels.length*2][];
-
-                // generate the ids
-                Integer[] voxelIds = new Integer[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    voxelIds[i] = voxels[i].id;
-                }
-                // remove all voxels
-                historyManagerV.applyIntent(new MassRemoveVoxelIntent(voxelIds, true));
-
-                // create new voxels (with new position) and delete
-                // existing voxels at those positions
-                Voxel[] shiftedVoxels = new Voxel[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    Voxel voxel = voxels[i];
-                    int[] pos = voxel.getPosAsInt();
-                    effected[i] = voxel.getPosAsInt(); // what is effected
-                    pos[0] -= shift[0];
-                    pos[1] -= shift[1];
-                    pos[2] -= shift[2];
-                    effected[i + voxels.length] = pos.clone(); // what is effected
-                    shiftedVoxels[i] = new Voxel(voxel.id, pos, voxel.getColor(), voxel.isSelected(), voxel.getTexture(), voxel.getLayerId());
-                    // remove existing voxels in this layer
-                    Voxel result = dataContainer.layers.get(voxel.getLayerId()).search(pos);
-                    if (result != null) {
-                        historyManagerV.applyIntent(new RemoveVoxelIntent(result.id, true));
-                    }
-                }
-                // (re)add all the shifted voxels (null ~ the voxel layer id is used)
-                historyManagerV.applyIntent(new MassAddVoxelIntent(shiftedVoxels, null, true));
+            Voxel[] moved = getLiveVoxels(voxels);
+            int[][] newPositions = new int[moved.length][];
+            for (int i = 0; i < moved.length; i++) {
+                int[] pos = moved[i].getPosAsInt();
+                pos[0] -= shift[0];
+                pos[1] -= shift[1];
+                pos[2] -= shift[2];
+                newPositions[i] = pos;
             }
-        }
-
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
-
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+            setTransformChanges(this, moved, newPositions);
         }
     }
 
     // rotate voxel around their center (but not the voxel "texture" itself)
-    private final class RotateVoxelCenterIntent extends VoxelActionIntent  {
-        private final Voxel[] voxels;
-        private final int axe;
-        private final float angle;
+    private final class RotateVoxelCenterIntent extends BatchVoxelIntent {
 
         protected RotateVoxelCenterIntent(Voxel[] voxels, int axe, float angle, boolean attach) {
             super(attach);
-            this.voxels = voxels;
-            this.axe = axe;
-            this.angle = angle;
-        }
+            Voxel[] moved = getLiveVoxels(voxels);
+            float[] center = getCenter(moved);
+
+            int rot1 = 0;
+            int rot2 = 2;
+            switch (axe) {
+                case 2:
+                    rot1 = 0;
+                    rot2 = 1;
+                    break;
+                case 1:
+                    rot1 = 0;
+                    rot2 = 2;
+                    break;
+                case 0:
+                    rot1 = 1;
+                    rot2 = 2;
+                    break;
+                default: break;
+            }
+
+            AffineTransform rotation = AffineTransform.getRotateInstance(
+                    Math.toRadians(angle), center[rot1], center[rot2]);
+            int[][] newPositions = new int[moved.length][];
+            double[] pt = new double[2];
+            for (int i = 0; i < moved.length; i++) {
+                int[] pos = moved[i].getPosAsInt();
+                // rotate the point around the center
+                // (overlaps when rotating values other than 90, 180, 270 are dropped)
+                pt[0] = pos[rot1];
+                pt[1] = pos[rot2];
+                rotation.transform(pt, 0, pt, 0, 1); // specifying to use this double[] to hold coords
+                pos[rot1] = (int)Math.round(pt[0]);
+                pos[rot2] = (int)Math.round(pt[1]);
+                newPositions[i] = pos;
+            }
+            setTransformChanges(this, moved, newPositions);
+        }
+    }
+
+    private final class MirrorVoxelIntent extends BatchVoxelIntent {
 
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-
-                // what is effected (there could be duplicate positions here)
-                effected = new int[voxels.length*2][];
-
-                // generate the ids and find center
-                int[] centerMin = null;
-                int[] centerMax = null;
-                Integer[] voxelIds = new Integer[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    voxelIds[i] = voxels[i].id;
-                    Voxel voxel = voxels[i];
-                    if (centerMin == null) {
-                        centerMin = voxel.getPosAsInt();
-                        centerMax = voxel.getPosAsInt();
-                    }
-                    centerMin[0] = Math.min(centerMin[0],voxel.x);
-                    centerMin[1] = Math.min(centerMin[1],voxel.y);
-                    centerMin[2] = Math.min(centerMin[2],voxel.z);
-                    centerMax[0] = Math.max(centerMax[0],voxel.x);
-                    centerMax[1] = Math.max(centerMax[1],voxel.y);
-                    centerMax[2] = Math.max(centerMax[2],voxel.z);
-                }
-                // calculate center - note: voxels.length must not be zero
-                assert centerMin != null;
-                float[] center = new float[] {
-                        (centerMin[0]/(float)2 + centerMax[0]/(float)2),
-                        (centerMin[1]/(float)2 + centerMax[1]/(float)2),
-                        (centerMin[2]/(float)2 + centerMax[2]/(float)2)
-                };
-
-                int rot1 = 0;
-                int rot2 = 2;
-                switch (axe) {
-                    case 2:
-                        rot1 = 0;
-                        rot2 = 1;
-                        break;
-                    case 1:
-                        rot1 = 0;
-                        rot2 = 2;
-                        break;
-                    case 0:
-                        rot1 = 1;
-                        rot2 = 2;
-                        break;
-                    default: break;
-                }
-
-                // remove all voxels
-                historyManagerV.applyIntent(new MassRemoveVoxelIntent(voxelIds, true));
-
-                // create new voxels (with new position) and delete
-                // existing voxels at those positions
-                Voxel[] shiftedVoxels = new Voxel[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    Voxel voxel = voxels[i];
-                    int[] pos = voxel.getPosAsInt();
-                    effected[i] = voxel.getPosAsInt(); // what is effected
-
-                    // rotate the point around the center
-                    // todo check for duplicates (overlaps when rotating values other than 90, 180, 270)
-                    double[] pt = {pos[rot1], pos[rot2]};
-                    AffineTransform.getRotateInstance(Math.toRadians(angle), center[rot1], center[rot2])
-                            .transform(pt, 0, pt, 0, 1); // specifying to use this double[] to hold coords
-                    pos[rot1] = (int)Math.round(pt[0]);
-                    pos[rot2] = (int)Math.round(pt[1]);
-
-                    effected[i + voxels.length] = pos.clone(); // what is effected
-                    shiftedVoxels[i] = new Voxel(voxel.id, pos, voxel.getColor(), voxel.isSelected(), voxel.getTexture(), voxel.getLayerId());
-                    // remove existing voxels in this layer
-                    Voxel result = dataContainer.layers.get(voxel.getLayerId()).search(pos);
-                    if (result != null) {
-                        historyManagerV.applyIntent(new RemoveVoxelIntent(result.id, true));
-                    }
-                }
-                // (re)add all the rotated voxels (null ~ the voxel layer id is used)
-                historyManagerV.applyIntent(new MassAddVoxelIntent(shiftedVoxels, null, true));
+        protected MirrorVoxelIntent(Voxel[] voxels, int axe, boolean attach) {
+            super(attach);
+            Voxel[] moved = getLiveVoxels(voxels);
+            float[] center = getCenter(moved);
+            int[][] newPositions = new int[moved.length][];
+            for (int i = 0; i < moved.length; i++) {
+                int[] pos = moved[i].getPosAsInt();
+                // switch the point with the center
+                pos[axe] = Math.round(- pos[axe] + 2*center[axe]);
+                newPositions[i] = pos;
             }
+            setTransformChanges(this, moved, newPositions);
         }
+    }
 
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
-        }
+    // ##################### BATCH HELPER FUNCTIONS
 
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+    // get the positions of voxels
+    private static int[][] getPositions(Voxel[] voxels) {
+        int[][] result = new int[voxels.length][];
+        for (int i = 0; i < voxels.length; i++) {
+            result[i] = voxels[i].getPosAsInt();
         }
+        return result;
     }
 
-    private final class MirrorVoxelIntent extends VoxelActionIntent  {
-        private final Voxel[] voxels;
-        private final int axe;
-
-        protected MirrorVoxelIntent(Voxel[] voxels, int axe, boolean attach) {
-            super(attach);
-            this.voxels = voxels;
-            this.axe = axe;
+    // get the current instances for voxel ids (unknown and duplicate ids are skipped)
+    private Voxel[] getLiveVoxels(Integer[] voxelIds) {
+        ArrayList<Voxel> result = new ArrayList<Voxel>(voxelIds.length);
+        TIntHashSet seen = new TIntHashSet();
+        for (Integer voxelId : voxelIds) {
+            Voxel voxel = dataContainer.voxels.get(voxelId);
+            if (voxel != null && seen.add(voxelId)) {
+                result.add(voxel);
+            }
         }
+        return result.toArray(new Voxel[result.size()]);
+    }
 
-        @Override
-        protected void applyAction() {
-            if (isFirstCall()) {
-
-                // what is effected (there could be duplicate positions here)
-                effected = new int[voxels.length*2][];
-
-                // generate the ids and find center
-                int[] centerMin = null;
-                int[] centerMax = null;
-                Integer[] voxelIds = new Integer[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    voxelIds[i] = voxels[i].id;
-                    Voxel voxel = voxels[i];
-                    if (centerMin == null) {
-                        centerMin = voxel.getPosAsInt();
-                        centerMax = voxel.getPosAsInt();
-                    }
-                    centerMin[0] = Math.min(centerMin[0],voxel.x);
-                    centerMin[1] = Math.min(centerMin[1],voxel.y);
-                    centerMin[2] = Math.min(centerMin[2],voxel.z);
-                    centerMax[0] = Math.max(centerMax[0],voxel.x);
-                    centerMax[1] = Math.max(centerMax[1],voxel.y);
-                    centerMax[2] = Math.max(centerMax[2],voxel.z);
-                }
-                // calculate center - note: voxels.length must not be zero
-                assert centerMin != null;
-                float[] center = new float[] {
-                        (centerMin[0]/(float)2 + centerMax[0]/(float)2),
-                        (centerMin[1]/(float)2 + centerMax[1]/(float)2),
-                        (centerMin[2]/(float)2 + centerMax[2]/(float)2)
-                };
-
-                // remove all voxels
-                historyManagerV.applyIntent(new MassRemoveVoxelIntent(voxelIds, true));
-
-                // create new voxels (with new position) and delete
-                // existing voxels at those positions
-                Voxel[] shiftedVoxels = new Voxel[voxels.length];
-                for (int i = 0; i < voxels.length; i++) {
-                    Voxel voxel = voxels[i];
-                    int[] pos = voxel.getPosAsInt();
-                    effected[i] = voxel.getPosAsInt(); // what is effected
-
-                    // switch the point with the center
-                    pos[axe] = Math.round(- pos[axe] + 2*center[axe]);
-
-                    effected[i + voxels.length] = pos.clone(); // what is effected
-                    shiftedVoxels[i] = new Voxel(voxel.id, pos, voxel.getColor(), voxel.isSelected(), voxel.getTexture(), voxel.getLayerId());
-                    // remove existing voxels in this layer
-                    Voxel result = dataContainer.layers.get(voxel.getLayerId()).search(pos);
-                    if (result != null) {
-                        historyManagerV.applyIntent(new RemoveVoxelIntent(result.id, true));
-                    }
-                }
-                // (re)add all the rotated voxels (null ~ the voxel layer id is used)
-                historyManagerV.applyIntent(new MassAddVoxelIntent(shiftedVoxels, null, true));
-            }
+    // get the current instances for voxels (unknown and duplicate voxels are skipped)
+    private Voxel[] getLiveVoxels(Voxel[] voxels) {
+        Integer[] voxelIds = new Integer[voxels.length];
+        for (int i = 0; i < voxels.length; i++) {
+            voxelIds[i] = voxels[i].id;
         }
+        return getLiveVoxels(voxelIds);
+    }
 
-        @Override
-        protected void unapplyAction() {
-            // nothing to do
+    // get the center of the bounding box of voxels
+    private static float[] getCenter(Voxel[] voxels) {
+        if (voxels.length == 0) {
+            return new float[] {0, 0, 0};
+        }
+        int[] centerMin = voxels[0].getPosAsInt();
+        int[] centerMax = voxels[0].getPosAsInt();
+        for (Voxel voxel : voxels) {
+            centerMin[0] = Math.min(centerMin[0],voxel.x);
+            centerMin[1] = Math.min(centerMin[1],voxel.y);
+            centerMin[2] = Math.min(centerMin[2],voxel.z);
+            centerMax[0] = Math.max(centerMax[0],voxel.x);
+            centerMax[1] = Math.max(centerMax[1],voxel.y);
+            centerMax[2] = Math.max(centerMax[2],voxel.z);
         }
+        return new float[] {
+                (centerMin[0]/(float)2 + centerMax[0]/(float)2),
+                (centerMin[1]/(float)2 + centerMax[1]/(float)2),
+                (centerMin[2]/(float)2 + centerMax[2]/(float)2)
+        };
+    }
 
-        private int[][] effected = null;
-        @Override
-        public int[][] effected() {
-            return effected;
+    // compute the change set that moves voxels to new positions: the voxels are
+    // removed, voxels that exist at the new positions (in the same layer) are removed
+    // and the voxels are re-added at the new positions (with the same id)
+    private void setTransformChanges(BatchVoxelIntent intent, Voxel[] voxels, int[][] newPositions) {
+        TIntHashSet movedIds = new TIntHashSet();
+        for (Voxel voxel : voxels) {
+            movedIds.add(voxel.id);
+        }
+        ArrayList<Voxel> removed = new ArrayList<Voxel>(Arrays.asList(voxels));
+        ArrayList<Voxel> added = new ArrayList<Voxel>(voxels.length);
+        // target positions per layer (a position can only be used once)
+        TIntObjectHashMap<TIntHashSet> targets = new TIntObjectHashMap<TIntHashSet>();
+        for (int i = 0; i < voxels.length; i++) {
+            Voxel voxel = voxels[i];
+            int[] pos = newPositions[i];
+            TIntHashSet layerTargets = targets.get(voxel.getLayerId());
+            if (layerTargets == null) {
+                layerTargets = new TIntHashSet();
+                targets.put(voxel.getLayerId(), layerTargets);
+            }
+            if (!layerTargets.add(CubeIndexer.getId(pos[0], pos[1], pos[2]))) {
+                continue; // another voxel already moved here
+            }
+            // remove existing voxels in this layer
+            Voxel result = dataContainer.layers.get(voxel.getLayerId()).search(pos);
+            if (result != null && !movedIds.contains(result.id)) {
+                removed.add(result);
+            }
+            added.add(new Voxel(voxel.id, pos, voxel.getColor(), voxel.isSelected(), voxel.getTexture(), voxel.getLayerId()));
         }
+        intent.setChanges(removed.toArray(new Voxel[removed.size()]), added.toArray(new Voxel[added.size()]));
     }
 
     // ##################### PRIVATE HELPER FUNCTIONS
@@ -1621,11 +1552,66 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
                 Voxel voxel = new Voxel(result, pos, color, false, null, dataContainer.selectedLayer);
                 dataContainer.voxels.put(voxel.id, voxel);
                 dataContainer.layers.get(voxel.getLayerId()).addVoxel(voxel);
+                // keep the buffers in sync (listeners are not notified)
+                invalidatePosition(pos);
+                layerVoxelBufferValid = false;
+                selectedVoxelBufferValid = false;
             }
             return result;
         }
     }
 
+    @Override
+    public final int importLayer(String layerName, boolean visible, int[] voxels) {
+        synchronized (VitcoSettings.SYNC) {
+            int layerId = createLayer(layerName);
+            selectLayer(layerId);
+            setVisible(layerId, visible);
+            // create the voxels (colors are shared)
+            TIntObjectHashMap<Color> colors = new TIntObjectHashMap<Color>();
+            Voxel[] added = new Voxel[voxels.length / 4];
+            int[] pos = new int[3];
+            for (int i = 0, j = 0; i < added.length; i++) {
+                pos[0] = voxels[j++];
+                pos[1] = voxels[j++];
+                pos[2] = voxels[j++];
+                int rgb = voxels[j++];
+                Color color = colors.get(rgb);
+                if (color == null) {
+                    color = new Color(rgb);
+                    colors.put(rgb, color);
+                }
+                added[i] = new Voxel(getFreeVoxelId(), pos, color, false, null, layerId);
+            }
+            // index the voxels (duplicate positions are dropped)
+            dataContainer.layers.get(layerId).addVoxels(added);
+            for (Voxel voxel : added) {
+                if (voxel != null) {
+                    dataContainer.voxels.put(voxel.id, voxel);
+                }
+            }
+            // the new layer is on top, so visible voxels replace the composite
+            if (visible) {
+                if (visibleComposite.getSize() > 0) {
+                    for (Voxel voxel : added) {
+                        Voxel current = voxel == null ? null : visibleComposite.search(voxel);
+                        if (current != null) {
+                            visibleComposite.removeVoxel(current);
+                        }
+                    }
+                }
+                visibleComposite.addVoxels(added);
+            }
+            // one invalidation for all voxels
+            visibleCompositeBufferValid = false;
+            invalidateAllPositions();
+            layerBufferValid = false;
+            layerNameBufferValid = false;
+            notifier.onVoxelDataChanged();
+            return layerId;
+        }
+    }
+
     @Override
     public final int addVoxel(Color color, int[] textureId, int[] pos) {
         synchronized (VitcoSettings.SYNC) {
@@ -1646,13 +1632,11 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
             VoxelLayer layer = dataContainer.layers.get(dataContainer.selectedLayer);
             if (layer != null) {
                 ArrayList<Voxel> validVoxel = new ArrayList<Voxel>();
-                HashSet<String> voxelPos = new HashSet<String>();
+                TIntHashSet voxelPos = new TIntHashSet();
                 for (Voxel voxel : voxels) {
-                    String posHash = voxel.getPosAsString();
                     if (layer.voxelPositionFree(voxel)
-                            && !voxelPos.contains(posHash)) {
+                            && voxelPos.add(voxel.posId)) {
                         validVoxel.add(voxel);
-                        voxelPos.add(posHash);
                     }
                 }
                 if (validVoxel.size() > 0 && layer.getSize() + validVoxel.size() <= VitcoSettings.MAX_VOXEL_COUNT_PER_LAYER) {
@@ -1928,33 +1912,18 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         }
     }
 
-    private final HashMap<String, TIntObjectHashMap<int[]>> changedSelectedVoxel = new HashMap<String, TIntObjectHashMap<int[]>>();
+    // journal cursor of the consumers (requestId -> cursor)
+    private final HashMap<String, Long> selectedCursor = new HashMap<String, Long>();
     @Override
     public final Voxel[][] getNewSelectedVoxel(String requestId) {
         synchronized (VitcoSettings.SYNC) {
-            if (!changedSelectedVoxel.containsKey(requestId)) {
-                changedSelectedVoxel.put(requestId, null);
-            }
-            if (changedSelectedVoxel.get(requestId) == null) {
-                changedSelectedVoxel.put(requestId, new TIntObjectHashMap<int[]>());
+            Long cursor = selectedCursor.get(requestId);
+            selectedCursor.put(requestId, selectedJournal.getHead());
+            if (cursor == null || !selectedJournal.isValid(cursor)) {
                 return new Voxel[][] {null, getSelectedVoxels()};
             } else {
-                ArrayList<Voxel> removed = new ArrayList<Voxel>();
-                ArrayList<Voxel> added = new ArrayList<Voxel>();
-                for (int[] pos : changedSelectedVoxel.get(requestId).valueCollection()) {
-                    Voxel voxel = searchVoxel(pos, false);
-                    if (voxel != null && voxel.isSelected()) {
-                        added.add(voxel);
-                    } else {
-                        removed.add(new Voxel(-1, pos, null, false, null, -1));
-                    }
-                }
-                Voxel[][] result = new Voxel[2][];
-                result[0] = new Voxel[removed.size()];
-                removed.toArray(result[0]);
-                result[1] = new Voxel[added.size()];
-                added.toArray(result[1]);
-                changedSelectedVoxel.get(requestId).clear();
+                Voxel[][] result = getChangedVoxels(selectedJournal.getChanges(cursor), -1, 0, true);
+                trimJournals();
                 return result;
             }
         }
@@ -2039,90 +2008,88 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
 
     // get the new visible voxels, NOTE: if first element of array is null
     // this means that everything is erased
-    private final HashMap<String, TIntObjectHashMap<int[]>> changedVisibleVoxel = new HashMap<String, TIntObjectHashMap<int[]>>();
+    // journal cursor of the consumers (requestId -> cursor)
+    private final HashMap<String, Long> visibleCursor = new HashMap<String, Long>();
     @Override
     public final Voxel[][] getNewVisibleLayerVoxel(String requestId) {
         synchronized (VitcoSettings.SYNC) {
-            if (!changedVisibleVoxel.containsKey(requestId)) {
-                changedVisibleVoxel.put(requestId, null);
-            }
-            if (changedVisibleVoxel.get(requestId) == null) {
-                changedVisibleVoxel.put(requestId, new TIntObjectHashMap<int[]>());
+            Long cursor = visibleCursor.get(requestId);
+            visibleCursor.put(requestId, visibleJournal.getHead());
+            if (cursor == null || !visibleJournal.isValid(cursor)) {
                 return new Voxel[][] {null, _getVisibleLayerVoxel()};
             } else {
-                ArrayList<Voxel> removed = new ArrayList<Voxel>();
-                ArrayList<Voxel> added = new ArrayList<Voxel>();
-                for (int[] pos : changedVisibleVoxel.get(requestId).valueCollection()) {
-                    Voxel voxel = searchVoxel(pos, false);
-                    if (voxel != null) {
-                        added.add(voxel);
-                    } else {
-                        removed.add(new Voxel(-1, pos, null, false, null, -1));
-                    }
-                }
-                Voxel[][] result = new Voxel[2][];
-                result[0] = new Voxel[removed.size()];
-                removed.toArray(result[0]);
-                result[1] = new Voxel[added.size()];
-                added.toArray(result[1]);
-                changedVisibleVoxel.get(requestId).clear();
+                Voxel[][] result = getChangedVoxels(visibleJournal.getChanges(cursor), -1, 0, false);
+                trimJournals();
                 return result;
             }
         }
     }
 
-    // internal function, heavy!
-    Voxel[] visibleLayerVoxelInternalBuffer = new Voxel[0];
-    boolean visibleLayerVoxelInternalBufferValid = false;
-    private Voxel[] _getVisibleLayerVoxel() {
-        if (!visibleLayerVoxelInternalBufferValid) {
-            VoxelLayer result = new VoxelLayer(-1, "tmp");
-            for (Integer layerId : dataContainer.layerOrder) {
-                if (dataContainer.layers.get(layerId).isVisible()) {
-                    Voxel[] voxels = dataContainer.layers.get(layerId).getVoxels();
-                    for (Voxel voxel : voxels) {
-                        if (result.voxelPositionFree(voxel)) {
-                            result.addVoxel(voxel);
-                        }
-                    }
-                }
+    // helper - get the removed and added voxels for changed positions, the positions
+    // can be restricted to a plane (axis 0 = x, 1 = y, 2 = z or -1 for all)
+    private Voxel[][] getChangedVoxels(TIntHashSet changes, int axis, int plane, boolean onlySelected) {
+        ArrayList<Voxel> removed = new ArrayList<Voxel>();
+        ArrayList<Voxel> added = new ArrayList<Voxel>();
+        for (TIntIterator it = changes.iterator(); it.hasNext();) {
+            short[] posS = CubeIndexer.getPos(it.next());
+            if (axis != -1 && posS[axis] != plane) {
+                continue;
+            }
+            int[] pos = new int[] {posS[0], posS[1], posS[2]};
+            Voxel voxel = visibleComposite.search(pos);
+            if (voxel != null && (!onlySelected || voxel.isSelected())) {
+                added.add(voxel);
+            } else {
+                removed.add(new Voxel(-1, pos, null, false, null, -1));
             }
-            visibleLayerVoxelInternalBuffer = result.getVoxels();
-            visibleLayerVoxelInternalBufferValid = true;
         }
-        return visibleLayerVoxelInternalBuffer.clone();
+        Voxel[][] result = new Voxel[2][];
+        result[0] = new Voxel[removed.size()];
+        removed.toArray(result[0]);
+        result[1] = new Voxel[added.size()];
+        added.toArray(result[1]);
+        return result;
     }
 
-    // returns visible voxels
-    @Override
-    public final Voxel[] getVisibleLayerVoxel() {
-        synchronized (VitcoSettings.SYNC) {
-            updateVisVoxTreeInternal();
-            return visibleLayerVoxelBuffer;
+    // helper - drop the journal entries that all consumers have seen (side
+    // view cursors that are no longer valid are removed)
+    private void trimJournals() {
+        long min = visibleJournal.getHead();
+        for (Long cursor : visibleCursor.values()) {
+            min = Math.min(min, cursor);
         }
-    }
-
-    // helper to update buffers for visible voxels
-    private Voxel[] visibleLayerVoxelBuffer = new Voxel[0];
-    private boolean anyVoxelsVisibleBuffer = false;
-    private final HashMap<String, Voxel> visVoxelList = new HashMap<String, Voxel>();
-    private void updateVisVoxTreeInternal() {
-        Voxel[][] newV = getNewVisibleLayerVoxel("___internal___visible_list");
-        if (newV[0] == null) {
-            visVoxelList.clear();
-        } else {
-            for (Voxel removed : newV[0]) {
-                visVoxelList.remove(removed.getPosAsString());
+        for (LinkedHashMap<Integer, Long> cursors : sideCursor.values()) {
+            for (Iterator<Long> it = cursors.values().iterator(); it.hasNext();) {
+                long cursor = it.next();
+                if (visibleJournal.isValid(cursor)) {
+                    min = Math.min(min, cursor);
+                } else {
+                    it.remove();
+                }
             }
         }
-        for (Voxel added : newV[1]) {
-            visVoxelList.put(added.getPosAsString(), added);
+        visibleJournal.trim(min);
+        min = selectedJournal.getHead();
+        for (Long cursor : selectedCursor.values()) {
+            min = Math.min(min, cursor);
         }
-        // update the buffer
-        if (newV[0]== null || newV[0].length > 0 || newV[1].length > 0) {
-            visibleLayerVoxelBuffer = new Voxel[visVoxelList.size()];
-            visVoxelList.values().toArray(visibleLayerVoxelBuffer);
-            anyVoxelsVisibleBuffer = visibleLayerVoxelBuffer.length > 0;
+        selectedJournal.trim(min);
+    }
+
+    // internal function, the returned array is shared and must not be modified
+    private Voxel[] _getVisibleLayerVoxel() {
+        if (!visibleCompositeBufferValid) {
+            visibleCompositeBuffer = visibleComposite.getVoxels();
+            visibleCompositeBufferValid = true;
+        }
+        return visibleCompositeBuffer;
+    }
+
+    // returns visible voxels (read only)
+    @Override
+    public final Voxel[] getVisibleLayerVoxel() {
+        synchronized (VitcoSettings.SYNC) {
+            return _getVisibleLayerVoxel();
         }
     }
 
@@ -2130,8 +2097,7 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
     @Override
     public final boolean anyLayerVoxelVisible() {
         synchronized (VitcoSettings.SYNC) {
-            updateVisVoxTreeInternal();
-            return anyVoxelsVisibleBuffer;
+            return visibleComposite.getSize() > 0;
         }
     }
 
@@ -2151,74 +2117,49 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
     @Override
     public final void invalidateSideViewBuffer(String requestId, Integer side, Integer plane) {
         synchronized (VitcoSettings.SYNC) {
-            // make sure this plane is set
-            if (!changedVisibleVoxelPlane.containsKey(side)) {
-                changedVisibleVoxelPlane.put(side, new HashMap<String, TIntObjectHashMap<TIntObjectHashMap<int[]>>>());
-            }
-            // make sure the requestId is set
-            if (!changedVisibleVoxelPlane.get(side).containsKey(requestId)) {
-                changedVisibleVoxelPlane.get(side).put(requestId, new TIntObjectHashMap<TIntObjectHashMap<int[]>>());
+            // force complete refresh
+            LinkedHashMap<Integer, Long> cursors = sideCursor.get(requestId + "_" + side);
+            if (cursors != null) {
+                cursors.remove(plane);
             }
-            // make sure this plane has no information stored (force complete refresh)
-            changedVisibleVoxelPlane.get(side).get(requestId).remove(plane);
         }
     }
 
-    // side -> requestId -> plane -> positions
-    private final TIntObjectHashMap<HashMap<String, TIntObjectHashMap<TIntObjectHashMap<int[]>>>> changedVisibleVoxelPlane
-            = new TIntObjectHashMap<HashMap<String, TIntObjectHashMap<TIntObjectHashMap<int[]>>>>();
+    // journal cursors of the side view consumers (requestId_side -> plane -> cursor),
+    // only the recently read planes are kept, so that cursors of planes that are no
+    // longer shown do not hold back the journal trimming
+    private final HashMap<String, LinkedHashMap<Integer, Long>> sideCursor =
+            new HashMap<String, LinkedHashMap<Integer, Long>>();
     @Override
     public final Voxel[][] getNewSideVoxel(String requestId, Integer side, Integer plane) {
         synchronized (VitcoSettings.SYNC) {
-            // default result (delete all + empty)
-            Voxel[][] result = new Voxel[][]{null, new Voxel[0]};
-            // make sure this plane is set
-            if (!changedVisibleVoxelPlane.containsKey(side)) {
-                changedVisibleVoxelPlane.put(side, new HashMap<String, TIntObjectHashMap<TIntObjectHashMap<int[]>>>());
-            }
-            // make sure the requestId is set
-            if (!changedVisibleVoxelPlane.get(side).containsKey(requestId)) {
-                changedVisibleVoxelPlane.get(side).put(requestId, new TIntObjectHashMap<TIntObjectHashMap<int[]>>());
+            String key = requestId + "_" + side;
+            LinkedHashMap<Integer, Long> cursors = sideCursor.get(key);
+            if (cursors == null) {
+                cursors = new LinkedHashMap<Integer, Long>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                        return size() > VitcoSettings.SIDE_VIEW_CURSORS;
+                    }
+                };
+                sideCursor.put(key, cursors);
             }
-
-            if (changedVisibleVoxelPlane.get(side).get(requestId).get(plane) == null) {
-                // if the plane is null, fetch all data and set it no empty
+            Long cursor = cursors.put(plane, visibleJournal.getHead());
+            if (cursor == null || !visibleJournal.isValid(cursor)) {
+                // fetch all data
                 switch (side) {
-                    case 0:
-                        result = new Voxel[][] {null, getVoxelsXY(plane)};
-                        break;
-                    case 1:
-                        result = new Voxel[][] {null, getVoxelsXZ(plane)};
-                        break;
-                    case 2:
-                        result = new Voxel[][] {null, getVoxelsYZ(plane)};
-                        break;
-                    default: break;
+                    case 0: return new Voxel[][] {null, getVoxelsXY(plane)};
+                    case 1: return new Voxel[][] {null, getVoxelsXZ(plane)};
+                    case 2: return new Voxel[][] {null, getVoxelsYZ(plane)};
+                    default: return new Voxel[][]{null, new Voxel[0]};
                 }
-                // reset
-                changedVisibleVoxelPlane.get(side).get(requestId).put(plane, new TIntObjectHashMap<int[]>());
             } else {
-                // if there are changed positions, notify only those positions
-                ArrayList<Voxel> removed = new ArrayList<Voxel>();
-                ArrayList<Voxel> added = new ArrayList<Voxel>();
-                for (int[] pos : changedVisibleVoxelPlane.get(side).get(requestId).get(plane).valueCollection()) {
-                    Voxel voxel = searchVoxel(pos, false);
-                    if (voxel != null) {
-                        added.add(voxel);
-                    } else {
-                        removed.add(new Voxel(-1, pos, null, false, null, -1));
-                    }
-                }
-                result = new Voxel[2][];
-                result[0] = new Voxel[removed.size()];
-                removed.toArray(result[0]);
-                result[1] = new Voxel[added.size()];
-                added.toArray(result[1]);
-                // these changes have now been forwarded
-                changedVisibleVoxelPlane.get(side).get(requestId).get(plane).clear();
-            }
-            // return the result
-            return result;
+                // notify only the changed positions in this plane
+                int axis = side == 0 ? 2 : (side == 2 ? 0 : 1);
+                Voxel[][] result = getChangedVoxels(visibleJournal.getChanges(cursor), axis, plane, false);
+                trimJournals();
+                return result;
+            }
         }
     }
 
@@ -2252,84 +2193,57 @@ public abstract class VoxelData extends AnimationHighlight implements VoxelDataI
         }
     }
 
-    int lastVoxelXYBufferZValue;
-    boolean layerVoxelXYBufferValid = false;
-    Voxel[] layerVoxelXYBuffer = new Voxel[0];
+    // buffer of the recently used planes of the composite (plane -> voxels), least recently used first
+    private static final class PlaneBuffer extends LinkedHashMap<Integer, Voxel[]> {
+        private static final long serialVersionUID = 1L;
+
+        private PlaneBuffer() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Voxel[]> eldest) {
+            return size() > VitcoSettings.PLANE_BUFFER_SIZE;
+        }
+    }
+
+    private final PlaneBuffer planeBufferXY = new PlaneBuffer();
+    private final PlaneBuffer planeBufferXZ = new PlaneBuffer();
+    private final PlaneBuffer planeBufferYZ = new PlaneBuffer();
+
     @Override
     public final Voxel[] getVoxelsXY(int z) {
         synchronized (VitcoSettings.SYNC) {
-            if (!layerVoxelXYBufferValid || z != lastVoxelXYBufferZValue) {
-
-                VoxelLayer result = new VoxelLayer(-1, "tmp");
-                for (Integer layerId : dataContainer.layerOrder) {
-                    if (dataContainer.layers.get(layerId).isVisible()) {
-                        Voxel[] voxels = dataContainer.layers.get(layerId).getZPlane(z);
-                        for (Voxel voxel : voxels) {
-                            if (result.voxelPositionFree(voxel)) {
-                                result.addVoxel(voxel);
-                            }
-                        }
-                    }
-                }
-                layerVoxelXYBuffer = result.getVoxels();
-                layerVoxelXYBufferValid = true;
-                lastVoxelXYBufferZValue = z;
+            Voxel[] result = planeBufferXY.get(z);
+            if (result == null) {
+                result = visibleComposite.getZPlane(z);
+                planeBufferXY.put(z, result);
             }
-            return layerVoxelXYBuffer.clone();
+            return result.clone();
         }
     }
 
-    int lastVoxelXZBufferYValue;
-    boolean layerVoxelXZBufferValid = false;
-    Voxel[] layerVoxelXZBuffer = new Voxel[0];
     @Override
     public final Voxel[] getVoxelsXZ(int y) {
         synchronized (VitcoSettings.SYNC) {
-            if (!layerVoxelXZBufferValid || y != lastVoxelXZBufferYValue) {
-
-                VoxelLayer result = new VoxelLayer(-1, "tmp");
-                for (Integer layerId : dataContainer.layerOrder) {
-                    if (dataContainer.layers.get(layerId).isVisible()) {
-                        Voxel[] voxels = dataContainer.layers.get(layerId).getYPlane(y);
-                        for (Voxel voxel : voxels) {
-                            if (result.voxelPositionFree(voxel)) {
-                                result.addVoxel(voxel);
-                            }
-                        }
-                    }
-                }
-                layerVoxelXZBuffer = result.getVoxels();
-                layerVoxelXZBufferValid = true;
-                lastVoxelXZBufferYValue = y;
+            Voxel[] result = planeBufferXZ.get(y);
+            if (result == null) {
+                result = visibleComposite.getYPlane(y);
+                planeBufferXZ.put(y, result);
             }
-            return layerVoxelXZBuffer.clone();
+            return result.clone();
         }
     }
 
-    int lastVoxelYZBufferXValue;
-    boolean layerVoxelYZBufferValid = false;
-    Voxel[] layerVoxelYZBuffer = new Voxel[0];
     @Override
     public final Voxel[] getVoxelsYZ(int x) {
         synchronized (VitcoSettings.SYNC) {
-            if (!layerVoxelYZBufferValid || x != lastVoxelYZBufferXValue) {
-
-                VoxelLayer result = new VoxelLayer(-1, "tmp");
-                for (Integer layerId : dataContainer.layerOrder) {
-                    if (dataContainer.layers.get(layerId).isVisible()) {
-                        Voxel[] voxels = dataContainer.layers.get(layerId).getXPlane(x);
-                        for (Voxel voxel : voxels) {
-                            if (result.voxelPositionFree(voxel)) {
-                                result.addVoxel(voxel);
-                            }
-                        }
-                    }
-                }
-                layerVoxelYZBuffer = result.getVoxels();
-                layerVoxelYZBufferValid = true;
-                lastVoxelYZBufferXValue = x;
+            Voxel[] result = planeBufferYZ.get(x);
+            if (result == null) {
+                result = visibleComposite.getXPlane(x);
+                planeBufferYZ.put(x, result);
             }
-            return layerVoxelYZBuffer.clone();
+            return result.clone();
         }
     }
 
@@ -14,6 +14,9 @@ public interface VoxelDataInterface {
     // adds a voxel directly to the container (no history entry is created!)
     // only to be used for back imports etc
     int addVoxelDirect(Color color, int[] pos);
+    // creates a new (selected) layer that contains the voxels (x, y, z, rgb for every voxel),
+    // the voxels are added directly (no history entry is created!), returns the layer id
+    int importLayer(String layerName, boolean visible, int[] voxels);
     // adds a voxel to current layer and returns voxel id
     int addVoxel(Color color, int[] textureId, int[] pos);
     // deleted the voxel
@@ -43,7 +46,7 @@ public interface VoxelDataInterface {
     Voxel[] getLayerVoxels(int layerId);
     // get changed voxels since last call
     Voxel[][] getNewVisibleLayerVoxel(String requestId);
-    // get all visible layer voxels
+    // get all visible layer voxels (the returned array is shared, do not modify)
     Voxel[] getVisibleLayerVoxel();
     // true iff any voxels are visible
     boolean anyLayerVoxelVisible();
@@ -1,12 +1,14 @@
 package com.vitco.app.core.data;
 
 import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.settings.VitcoSettings;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.awt.*;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Random;
 
 /**
@@ -58,6 +60,59 @@ public class VoxelDataTest {
         assert data.getVoxel(id3).id == id3;
     }
 
+    @Test
+    public void testImportLayer() throws Exception {
+        Data expected = new Data();
+        while (expected.getLayers().length > 0) {
+            expected.deleteLayer(expected.getLayers()[0]);
+        }
+        Random rand = new Random(0);
+        // a consumer that is up to date before the import
+        data.getNewVisibleLayerVoxel("import");
+        assert data.getNewVisibleLayerVoxel("import")[1].length == 0;
+        for (int l = 0; l < 3; l++) {
+            boolean visible = l != 1;
+            int[] voxels = new int[2000 * 4];
+            for (int i = 0; i < voxels.length; i += 4) {
+                // some positions are used several times
+                voxels[i] = rand.nextInt(20) - 10;
+                voxels[i + 1] = rand.nextInt(20) - 10;
+                voxels[i + 2] = rand.nextInt(20) - 10;
+                voxels[i + 3] = rand.nextInt();
+            }
+            int lid = data.importLayer("layer" + l, visible, voxels);
+            assert data.getSelectedLayer() == lid;
+            assert data.getLayerVisible(lid) == visible;
+            // the consumer receives the imported voxels
+            Voxel[][] changed = data.getNewVisibleLayerVoxel("import");
+            assert changed[0] == null && changed[1].length == data.getVisibleLayerVoxel().length;
+            assert changed[1].length > 0;
+            // add the voxels one by one
+            int lidExpected = expected.createLayer("layer" + l);
+            expected.selectLayer(lidExpected);
+            expected.setVisible(lidExpected, visible);
+            for (int i = 0; i < voxels.length; i += 4) {
+                expected.addVoxelDirect(new Color(voxels[i + 3]), new int[] {voxels[i], voxels[i + 1], voxels[i + 2]});
+            }
+            assert data.getLayerVoxels(lid).length == expected.getLayerVoxels(lidExpected).length;
+            for (Voxel voxel : expected.getLayerVoxels(lidExpected)) {
+                Voxel other = data.searchVoxel(voxel.getPosAsInt(), lid);
+                assert other != null;
+                assert other.getColor().equals(voxel.getColor());
+                assert data.getVoxel(other.id) == other;
+            }
+        }
+        // the visible voxels are the same
+        HashMap<String, Color> visible = new HashMap<String, Color>();
+        for (Voxel voxel : data.getVisibleLayerVoxel()) {
+            visible.put(voxel.getPosAsString(), voxel.getColor());
+        }
+        assert visible.size() == expected.getVisibleLayerVoxel().length;
+        for (Voxel voxel : expected.getVisibleLayerVoxel()) {
+            assert voxel.getColor().equals(visible.get(voxel.getPosAsString()));
+        }
+    }
+
     @Test
     public void testMoveVoxel() throws Exception {
         int lid1 = data.createLayer("layer1");
@@ -165,6 +220,41 @@ public class VoxelDataTest {
         assert data.getVoxelsXY(2).length == 1;
     }
 
+    @Test
+    public void testPlaneBuffer() throws Exception {
+        int lid1 = data.createLayer("layer1");
+        data.selectLayer(lid1);
+        // more planes than are buffered
+        int count = VitcoSettings.PLANE_BUFFER_SIZE * 2;
+        for (int z = 0; z < count; z++) {
+            data.addVoxel(Color.RED, null, new int[] {0, 0, z});
+        }
+        for (int z = 0; z < count; z++) {
+            assert data.getVoxelsXY(z).length == 1;
+            assert data.getVoxelsYZ(0).length == count;
+        }
+        // the result is a copy
+        data.getVoxelsXY(count - 1)[0] = null;
+        assert data.getVoxelsXY(count - 1)[0] != null;
+        // an edit only changes the planes that contain it
+        data.addVoxel(Color.GREEN, null, new int[] {1, 0, count - 1});
+        assert data.getVoxelsXY(count - 1).length == 2;
+        assert data.getVoxelsXY(count - 2).length == 1;
+        assert data.getVoxelsYZ(1).length == 1;
+        assert data.getVoxelsXZ(0).length == count + 1;
+        data.undoV();
+        assert data.getVoxelsXY(count - 1).length == 1;
+        assert data.getVoxelsYZ(1).length == 0;
+        // planes that were evicted are computed again
+        data.addVoxel(Color.GREEN, null, new int[] {1, 0, 0});
+        assert data.getVoxelsXY(0).length == 2;
+        // hiding the layer changes all planes
+        data.setVisible(lid1, false);
+        for (int z = 0; z < count; z++) {
+            assert data.getVoxelsXY(z).length == 0;
+        }
+    }
+
     // tests for layers
 
     @Test
@@ -889,4 +979,162 @@ public class VoxelDataTest {
         }
     }
 
+    // test that the history respects the memory budget
+    @Test
+    public void testHistoryMemoryBudget() throws Exception {
+        int lid = data.createLayer("layer");
+        data.selectLayer(lid);
+        long budget = data.getHistoryFootprintV() + 20 * 1024;
+        data.setHistoryMemoryBudget(budget);
+        int[] ids = new int[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = data.addVoxel(Color.RED, null, new int[]{i,0,0});
+            assert data.getHistoryFootprintV() <= budget;
+        }
+        // the newest changes can still be undone
+        int count = 0;
+        while (data.canUndoV()) {
+            data.undoV();
+            count++;
+        }
+        assert count > 0 && count < ids.length;
+        assert data.getVoxel(ids[ids.length - 1]) == null;
+        assert data.getVoxel(ids[0]) != null;
+        // and redone
+        while (data.canRedoV()) {
+            data.redoV();
+        }
+        for (int id : ids) {
+            assert data.getVoxel(id) != null;
+        }
+        // the footprint is reset with the history
+        data.clearHistoryV();
+        assert data.getHistoryFootprintV() == 0;
+    }
+
+    // test the incremental change notification
+    @Test
+    public void testChangeNotification() throws Exception {
+        int lid = data.createLayer("layer");
+        data.selectLayer(lid);
+        // first request returns everything
+        data.addVoxel(Color.RED, null, new int[]{1,2,3});
+        Voxel[][] changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0] == null && changed[1].length == 1;
+        changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0] == null && changed[1].length == 1;
+        assert data.getNewSelectedVoxel("test")[0] == null;
+        // nothing changed
+        changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0].length == 0 && changed[1].length == 0;
+        // only the changes are returned
+        int id = data.addVoxel(Color.RED, null, new int[]{1,2,4});
+        changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0].length == 0 && changed[1].length == 1 && changed[1][0].id == id;
+        // other planes are not notified
+        changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0].length == 0 && changed[1].length == 0;
+        data.setVoxelSelected(id, true);
+        changed = data.getNewSelectedVoxel("test");
+        assert changed[0].length == 0 && changed[1].length == 1 && changed[1][0].id == id;
+        data.removeVoxel(id);
+        changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0].length == 1 && changed[1].length == 0;
+        assert changed[0][0].getPosAsInt()[2] == 4;
+        changed = data.getNewSelectedVoxel("test");
+        assert changed[0].length == 1 && changed[1].length == 0;
+        // a forced refresh of the side view returns everything
+        data.invalidateSideViewBuffer("test", 0, 3);
+        changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0] == null && changed[1].length == 1;
+    }
+
+    // test that only the recently read planes of a side view are notified incrementally
+    @Test
+    public void testSideViewCursorLimit() throws Exception {
+        int lid = data.createLayer("layer");
+        data.selectLayer(lid);
+        data.addVoxel(Color.RED, null, new int[]{1,2,3});
+        Voxel[][] changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0] == null && changed[1].length == 1;
+        // scroll through many planes
+        for (int plane = 100; plane < 100 + VitcoSettings.SIDE_VIEW_CURSORS * 4; plane++) {
+            changed = data.getNewSideVoxel("test", 0, plane);
+            assert changed[0] == null && changed[1].length == 0;
+        }
+        // the recently read planes are still notified incrementally
+        int last = 100 + VitcoSettings.SIDE_VIEW_CURSORS * 4 - 1;
+        data.addVoxel(Color.RED, null, new int[]{1,2,last});
+        changed = data.getNewSideVoxel("test", 0, last);
+        assert changed[0].length == 0 && changed[1].length == 1;
+        changed = data.getNewSideVoxel("test", 0, last - 1);
+        assert changed[0].length == 0 && changed[1].length == 0;
+        // the cursor of the old plane was dropped
+        changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0] == null && changed[1].length == 1;
+        // other sides keep their own cursors
+        changed = data.getNewSideVoxel("test", 1, 2);
+        assert changed[0] == null && changed[1].length == 2;
+        changed = data.getNewSideVoxel("test", 1, 2);
+        assert changed[0].length == 0 && changed[1].length == 0;
+    }
+
+    // test that consumers do a complete refresh after a full invalidation
+    @Test
+    public void testChangeNotificationReset() throws Exception {
+        int lid = data.createLayer("layer");
+        data.selectLayer(lid);
+        data.addVoxel(Color.RED, null, new int[]{1,2,3});
+        data.getNewVisibleLayerVoxel("test");
+        data.getNewSideVoxel("test", 0, 3);
+        Voxel[][] changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0].length == 0 && changed[1].length == 0;
+        // the consumers are up to date when the journal is reset
+        data.clearHistoryV();
+        changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0] == null && changed[1].length == 1;
+        changed = data.getNewSideVoxel("test", 0, 3);
+        assert changed[0] == null && changed[1].length == 1;
+        // afterwards only the changes are returned again
+        data.addVoxel(Color.RED, null, new int[]{1,2,4});
+        changed = data.getNewVisibleLayerVoxel("test");
+        assert changed[0].length == 0 && changed[1].length == 1;
+    }
+
+    // test that the visible voxels always contain the topmost voxel per position
+    @Test
+    public void testVisibleComposite() throws Exception {
+        int lid1 = data.createLayer("layer1");
+        data.selectLayer(lid1);
+        int id1 = data.addVoxel(Color.RED, null, new int[]{0,0,0});
+        int lid2 = data.createLayer("layer2");
+        data.selectLayer(lid2);
+        int id2 = data.addVoxel(Color.GREEN, null, new int[]{0,0,0});
+        data.addVoxel(Color.GREEN, null, new int[]{1,0,0});
+        Voxel[] visible = data.getVisibleLayerVoxel();
+        assert visible.length == 2;
+        assert data.searchVoxel(new int[]{0,0,0}, false).id == id2;
+        assert data.getVoxelsXY(0).length == 2;
+        // hide the top layer
+        data.setVisible(lid2, false);
+        visible = data.getVisibleLayerVoxel();
+        assert visible.length == 1 && visible[0].id == id1;
+        assert data.getVoxelsYZ(1).length == 0;
+        // change the order
+        data.setVisible(lid2, true);
+        data.moveLayerDown(lid2);
+        assert data.getVisibleLayerVoxel().length == 2;
+        for (Voxel voxel : data.getVoxelsYZ(0)) {
+            assert voxel.id == id1;
+        }
+        // remove a voxel
+        data.removeVoxel(id1);
+        for (Voxel voxel : data.getVoxelsYZ(0)) {
+            assert voxel.id == id2;
+        }
+        assert data.anyLayerVoxelVisible();
+        data.undoV();
+        assert data.getVoxelsYZ(0)[0].id == id1;
+    }
+
 }
@@ -13,6 +13,10 @@ import java.util.HashMap;
  * Collection of all the persistent data
  *
  * IMPORTANT: This class should never be changes!
+ * (the legacy vsd format contains this class in serialized form)
+ *
+ * Files are written in the binary vsd format (see VsdBinaryFormat),
+ * legacy "**VSD2013**" files can still be read.
  */
 public final class DataContainer implements Serializable {
     // this is just for legacy (vsd format)
@@ -53,7 +57,8 @@ public final class DataContainer implements Serializable {
         this(null, null);
     }
 
-    private static final class TmpData {
+    // temporary data that is read from file
+    static final class TmpData {
         boolean result = false;
         // ############# create temporary to read from file
         HashMap<Integer, ImageIcon> textures = new HashMap<Integer, ImageIcon>();
@@ -77,7 +82,14 @@ public final class DataContainer implements Serializable {
 
         final TmpData tmpData = new TmpData();
 
-        if (file != null && file.exists()) {
+        if (file != null && file.exists() && VsdBinaryFormat.isBinaryFile(file)) {
+            try {
+                tmpData.result = VsdBinaryFormat.read(file, tmpData);
+            } catch (IOException e) {
+                errorHandler.handle(e);
+            }
+        } else if (file != null && file.exists()) {
+            // legacy format (serialized objects)
             try {
                 new AutoFileCloser() {
                     @Override protected void doWork() throws Throwable {
@@ -143,69 +155,16 @@ public final class DataContainer implements Serializable {
         hasLoaded = tmpData.result;
     }
 
-    // save to file function
+    // save to file function (binary format)
     public final boolean saveToVsdFile(final File file, ErrorHandlerInterface errorHandler) {
-        final boolean[] result = {false};
         try {
-            new AutoFileCloser() {
-                @Override protected void doWork() throws Throwable {
-                    OutputStream outputStream = autoClose(new FileOutputStream( file ));
-                    OutputStream buffer = autoClose(new BufferedOutputStream( outputStream ));
-                    ObjectOutputStream output = autoClose(new ObjectOutputStream( buffer ));
-
-                    // write identifier
-                    output.writeUTF("**VSD2013**");
-
-                    if (textures != null) {
-                        output.writeUTF("#textures#");
-                        output.writeObject(textures);
-                    }
-
-                    output.writeUTF("#selectedTexture#");
-                    output.writeObject(selectedTexture);
-
-                    output.writeUTF("#selectedLayer#");
-                    output.writeObject(selectedLayer);
-
-                    if (layers != null) {
-                        output.writeUTF("#layers#");
-                        output.writeObject(layers);
-                    }
-                    if (layerOrder != null) {
-                        output.writeUTF("#layerOrder#");
-                        output.writeObject(layerOrder);
-                    }
-                    if (voxels != null) {
-                        output.writeUTF("#voxels#");
-                        output.writeObject(voxels);
-                    }
-                    if (points != null) {
-                        output.writeUTF("#points#");
-                        output.writeObject(points);
-                    }
-                    if (lines != null) {
-                        output.writeUTF("#lines#");
-                        output.writeObject(lines);
-                    }
-                    if (pointsToLines != null) {
-                        output.writeUTF("#pointsToLines#");
-                        output.writeObject(pointsToLines);
-                    }
-
-                    output.writeUTF("#activeFrame#");
-                    output.writeObject(activeFrame);
-
-                    if (frames != null) {
-                        output.writeUTF("#frames#");
-                        output.writeObject(frames);
-                    }
-
-                    result[0] = true;
-                }
-            };
+            VsdBinaryFormat.write(file, this, true);
+            return true;
+        } catch (IOException e) {
+            errorHandler.handle(e);
         } catch (RuntimeException e) {
             errorHandler.handle(e);
         }
-        return result[0];
+        return false;
     }
 }
@@ -0,0 +1,152 @@
+package com.vitco.app.core.data.container;
+
+import com.threed.jpct.SimpleVector;
+import com.vitco.app.core.data.Data;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Test saving and loading of the data container (binary and legacy vsd format).
+ */
+public class DataContainerTest {
+
+    // helper - create data with voxels, textures and animation data
+    private static Data createData() {
+        Data data = new Data();
+        Random rand = new Random(1);
+        BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 32; x++) {
+            for (int y = 0; y < 32; y++) {
+                image.setRGB(x, y, rand.nextInt());
+            }
+        }
+        data.addTexture(image);
+        int textureId = data.getTextureList()[0];
+        int layerId = data.createLayer("second layer");
+        data.setVisible(layerId, false);
+        data.selectLayer(layerId);
+        for (int i = 0; i < 1000; i++) {
+            data.addVoxelDirect(new Color(rand.nextInt(0xFFFFFF)), new int[] {rand.nextInt(100) - 50, rand.nextInt(100) - 50, rand.nextInt(100) - 50});
+        }
+        Voxel voxel = data.getLayerVoxels(layerId)[0];
+        data.setTexture(voxel.id, 2, textureId);
+        data.rotateVoxelTexture(voxel.id, 2);
+        data.flipVoxelTexture(voxel.id, 2);
+        // animation data
+        int p1 = data.addPoint(new SimpleVector(1, 2, 3));
+        int p2 = data.addPoint(new SimpleVector(4, 5, 6));
+        data.connect(p1, p2);
+        data.selectFrame(data.createFrame("frame"));
+        data.movePoint(p1, new SimpleVector(7, 8, 9));
+        return data;
+    }
+
+    // helper - check that the data is equal
+    private static void assertEqualData(Data expected, Data actual) {
+        assert Arrays.equals(expected.getLayers(), actual.getLayers());
+        assert Arrays.equals(expected.getLayerNames(), actual.getLayerNames());
+        for (int layerId : expected.getLayers()) {
+            assert expected.getLayerVisible(layerId) == actual.getLayerVisible(layerId);
+            Voxel[] voxels = expected.getLayerVoxels(layerId);
+            assert voxels.length == actual.getLayerVoxels(layerId).length;
+            for (Voxel voxel : voxels) {
+                Voxel other = actual.getVoxel(voxel.id);
+                assert other != null;
+                assert Arrays.equals(voxel.getPosAsInt(), other.getPosAsInt());
+                assert voxel.getColor().equals(other.getColor());
+                assert voxel.getLayerId() == other.getLayerId();
+                assert Arrays.equals(voxel.getTexture(), other.getTexture());
+                assert Arrays.equals(voxel.getRotation(), other.getRotation());
+                assert Arrays.equals(voxel.getFlip(), other.getFlip());
+            }
+        }
+        assert Arrays.equals(expected.getTextureList(), actual.getTextureList());
+        for (int textureId : expected.getTextureList()) {
+            BufferedImage image = (BufferedImage) expected.getTexture(textureId).getImage();
+            BufferedImage other = (BufferedImage) actual.getTexture(textureId).getImage();
+            assert image.getWidth() == other.getWidth() && image.getHeight() == other.getHeight();
+            for (int x = 0; x < image.getWidth(); x++) {
+                for (int y = 0; y < image.getHeight(); y++) {
+                    assert image.getRGB(x, y) == other.getRGB(x, y);
+                }
+            }
+        }
+        assert Arrays.equals(expected.getFrames(), actual.getFrames());
+        assert expected.getSelectedFrame() == actual.getSelectedFrame();
+        assert Arrays.equals(expected.getPoints(), actual.getPoints());
+        assert expected.getLines().length == actual.getLines().length;
+    }
+
+    @Test
+    public void testBinaryFormat() throws Exception {
+        Data data = createData();
+        File file = File.createTempFile("test", ".vsd");
+        try {
+            boolean saved = data.saveToFile(file);
+            assert saved;
+            Data loaded = new Data();
+            boolean read = loaded.loadFromFile(file);
+            assert read;
+            assertEqualData(data, loaded);
+        } finally {
+            boolean deleted = file.delete();
+            assert deleted;
+        }
+    }
+
+    @Test
+    public void testLegacyFormat() throws Exception {
+        Data data = createData();
+        File file = File.createTempFile("test", ".vsd");
+        try {
+            // write the legacy format (serialized objects)
+            File binary = File.createTempFile("test", ".vsd");
+            boolean saved = data.saveToFile(binary);
+            assert saved;
+            DataContainer container = new DataContainer(binary, null);
+            boolean deleted = binary.delete();
+            assert deleted;
+            ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                output.writeUTF("**VSD2013**");
+                output.writeUTF("#textures#");
+                output.writeObject(new HashMap<Integer, ImageIcon>(container.textures));
+                output.writeUTF("#selectedLayer#");
+                output.writeObject(container.selectedLayer);
+                output.writeUTF("#layers#");
+                output.writeObject(container.layers);
+                output.writeUTF("#layerOrder#");
+                output.writeObject(new ArrayList<Integer>(container.layerOrder));
+                output.writeUTF("#voxels#");
+                output.writeObject(container.voxels);
+                output.writeUTF("#points#");
+                output.writeObject(container.points);
+                output.writeUTF("#lines#");
+                output.writeObject(container.lines);
+                output.writeUTF("#pointsToLines#");
+                output.writeObject(container.pointsToLines);
+                output.writeUTF("#activeFrame#");
+                output.writeObject(container.activeFrame);
+                output.writeUTF("#frames#");
+                output.writeObject(container.frames);
+            } finally {
+                output.close();
+            }
+            Data loaded = new Data();
+            boolean read = loaded.loadFromFile(file);
+            assert read;
+            assertEqualData(data, loaded);
+        } finally {
+            boolean deleted = file.delete();
+            assert deleted;
+        }
+    }
+}
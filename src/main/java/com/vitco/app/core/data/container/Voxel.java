@@ -44,7 +44,6 @@ public final class Voxel implements Serializable {
         this.textureIds = textureIds == null ? null : textureIds.clone();
         this.selected = selected;
         posI = pos.clone();
-        posS = posI[0] + "_" + posI[1] + "_" + posI[2];
         // load the public values for fast access
         x = pos[0];
         y = pos[1];
@@ -56,10 +55,6 @@ public final class Voxel implements Serializable {
     // called after deserialization
     private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        // build the string representation when loading from file
-        if (posS == null) {
-            posS = posI[0] + "_" + posI[1] + "_" + posI[2];
-        }
         // read the transient final values after de-serialization
         try {
             Field f = this.getClass().getDeclaredField("x");
@@ -89,6 +84,10 @@ public final class Voxel implements Serializable {
         return posI.clone();
     }
     public final String getPosAsString() {
+        // build the string representation on demand
+        if (posS == null) {
+            posS = posI[0] + "_" + posI[1] + "_" + posI[2];
+        }
         return posS;
     }
 
@@ -136,6 +135,12 @@ public final class Voxel implements Serializable {
         return sideFlip == null ? null : sideFlip.clone();
     }
 
+    // restore the rotation and flip of this voxel (used when loading from file)
+    final void setSideTransform(int[] sideRotation, boolean[] sideFlip) {
+        this.sideRotation = sideRotation == null ? null : sideRotation.clone();
+        this.sideFlip = sideFlip == null ? null : sideFlip.clone();
+    }
+
     // set the texture of this voxel
     public final boolean setTexture(int[] textureIds) {
         if (textureIds == null || textureIds.length == 6) {
@@ -1,6 +1,6 @@
 package com.vitco.app.core.data.container;
 
-import com.vitco.app.low.CubeIndexer;
+import com.vitco.app.low.engine.Chunk;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 
@@ -8,24 +8,31 @@ import java.awt.*;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * A layer that contains voxels.
  *
+ * The voxels are stored in chunks (bricks) that are indexed by position. The chunks hold
+ * references and not packed colors: the voxel objects are shared with the id index of the
+ * data container, the history and the selection (and keep the texture, rotation and
+ * selection state), so packing them here would not free them.
+ *
  * Does not check for duplicates on insertion!
  */
 public final class VoxelLayer implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    // list of all voxels
-    private final ArrayList<Voxel> voxelList = new ArrayList<Voxel>();
-    // string "index"
-    private transient TIntObjectHashMap<Voxel> index = new TIntObjectHashMap<Voxel>();
-    // side index
-    private transient TIntObjectHashMap<HashSet<Voxel>> sideX = new TIntObjectHashMap<HashSet<Voxel>>();
-    private transient TIntObjectHashMap<HashSet<Voxel>> sideY = new TIntObjectHashMap<HashSet<Voxel>>();
-    private transient TIntObjectHashMap<HashSet<Voxel>> sideZ = new TIntObjectHashMap<HashSet<Voxel>>();
+    // only used for (de)serialization, the voxels live in the chunks
+    private ArrayList<Voxel> voxelList = null;
+    // chunks that hold the voxels (chunk id -> chunk)
+    private transient TIntObjectHashMap<Chunk<Voxel>> chunks = new TIntObjectHashMap<Chunk<Voxel>>();
+    // chunks per slab (chunk coordinate -> chunks), used for plane queries
+    private transient TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabX = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+    private transient TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabY = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+    private transient TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabZ = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+    // amount of voxels in this layer
+    private transient int size = 0;
 
     public final int id;
     private String layerName; // layerName of layer
@@ -37,104 +44,100 @@ public final class VoxelLayer implements Serializable {
         this.layerName = layerName;
     }
 
-    // helper to add voxel to index
-    private void indexVoxel(Voxel voxel) {
-        index.put(voxel.posId, voxel);
+    // helper - add chunk to slab
+    private static void addToSlab(TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabs, int key, Chunk<Voxel> chunk) {
+        ArrayList<Chunk<Voxel>> slab = slabs.get(key);
+        if (slab == null) {
+            slab = new ArrayList<Chunk<Voxel>>();
+            slabs.put(key, slab);
+        }
+        slab.add(chunk);
+    }
 
-        // side x
-        HashSet<Voxel> planeX = sideX.get(voxel.x);
-        if (planeX == null) {
-            planeX = new HashSet<Voxel>();
-            sideX.put(voxel.x, planeX);
+    // helper - remove chunk from slab
+    private static void removeFromSlab(TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabs, int key, Chunk<Voxel> chunk) {
+        ArrayList<Chunk<Voxel>> slab = slabs.get(key);
+        if (slab != null) {
+            slab.remove(chunk);
+            if (slab.isEmpty()) {
+                slabs.remove(key);
+            }
         }
-        planeX.add(voxel);
-        // side y
-        HashSet<Voxel> planeY = sideY.get(voxel.y);
-        if (planeY == null) {
-            planeY = new HashSet<Voxel>();
-            sideY.put(voxel.y, planeY);
+    }
+
+    // helper to add voxel to index
+    private void indexVoxel(Voxel voxel) {
+        int chunkId = Chunk.getChunkId(voxel.x, voxel.y, voxel.z);
+        Chunk<Voxel> chunk = chunks.get(chunkId);
+        if (chunk == null) {
+            chunk = new Chunk<Voxel>(Chunk.toChunk(voxel.x), Chunk.toChunk(voxel.y), Chunk.toChunk(voxel.z));
+            chunks.put(chunkId, chunk);
+            addToSlab(slabX, chunk.cx, chunk);
+            addToSlab(slabY, chunk.cy, chunk);
+            addToSlab(slabZ, chunk.cz, chunk);
         }
-        planeY.add(voxel);
-        // side z
-        HashSet<Voxel> planeZ = sideZ.get(voxel.z);
-        if (planeZ == null) {
-            planeZ = new HashSet<Voxel>();
-            sideZ.put(voxel.z, planeZ);
+        if (chunk.set(voxel.x, voxel.y, voxel.z, voxel) == null) {
+            size++;
         }
-        planeZ.add(voxel);
     }
 
     private boolean unindexVoxel(Voxel voxel) {
-        boolean result = true;
-
-        if (null == index.remove(voxel.posId)) {
-            result = false;
+        int chunkId = Chunk.getChunkId(voxel.x, voxel.y, voxel.z);
+        Chunk<Voxel> chunk = chunks.get(chunkId);
+        // only remove the voxel if this exact instance is stored
+        if (chunk == null || chunk.get(voxel.x, voxel.y, voxel.z) != voxel) {
+            return false;
+        }
+        chunk.remove(voxel.x, voxel.y, voxel.z);
+        size--;
+        // release empty chunks
+        if (chunk.isEmpty()) {
+            chunks.remove(chunkId);
+            removeFromSlab(slabX, chunk.cx, chunk);
+            removeFromSlab(slabY, chunk.cy, chunk);
+            removeFromSlab(slabZ, chunk.cz, chunk);
         }
+        return true;
+    }
 
-        // side x
-        HashSet<Voxel> planeX = sideX.get(voxel.x);
-        if (planeX != null) {
-            planeX.remove(voxel);
-            if (planeX.isEmpty()) {
-                sideX.remove(voxel.x);
-            }
-        } else {
-            result = false; // should never happen
+    // helper - get all voxels in a plane
+    private Voxel[] getPlane(TIntObjectHashMap<ArrayList<Chunk<Voxel>>> slabs, int axis, int plane) {
+        ArrayList<Chunk<Voxel>> slab = slabs.get(Chunk.toChunk(plane));
+        if (slab == null) {
+            return new Voxel[0];
         }
-        // side y
-        HashSet<Voxel> planeY = sideY.get(voxel.y);
-        if (planeY != null) {
-            planeY.remove(voxel);
-            if (planeY.isEmpty()) {
-                sideY.remove(voxel.y);
-            }
-        } else {
-            result = false; // should never happen
+        int count = 0;
+        for (Chunk<Voxel> chunk : slab) {
+            count += chunk.getPlaneSize(axis, plane);
         }
-        // side z
-        HashSet<Voxel> planeZ = sideZ.get(voxel.z);
-        if (planeZ != null) {
-            planeZ.remove(voxel);
-            if (planeZ.isEmpty()) {
-                sideZ.remove(voxel.z);
-            }
-        } else {
-            result = false; // should never happen
+        Voxel[] result = new Voxel[count];
+        int offset = 0;
+        for (Chunk<Voxel> chunk : slab) {
+            offset = chunk.copyPlaneTo(axis, plane, result, offset);
         }
-
         return result;
     }
 
     public final Voxel[] getXPlane(int plane) {
-        HashSet<Voxel> planeX = sideX.get(plane);
-        if (planeX != null) {
-            Voxel[] result = new Voxel[planeX.size()];
-            planeX.toArray(result);
-            return result;
-        } else {
-            return new Voxel[0];
-        }
+        return getPlane(slabX, 0, plane);
     }
 
     public final Voxel[] getYPlane(int plane) {
-        HashSet<Voxel> planeY = sideY.get(plane);
-        if (planeY != null) {
-            Voxel[] result = new Voxel[planeY.size()];
-            planeY.toArray(result);
-            return result;
-        } else {
-            return new Voxel[0];
-        }
+        return getPlane(slabY, 1, plane);
     }
 
     public final Voxel[] getZPlane(int plane) {
-        HashSet<Voxel> planeZ = sideZ.get(plane);
-        if (planeZ != null) {
-            Voxel[] result = new Voxel[planeZ.size()];
-            planeZ.toArray(result);
-            return result;
-        } else {
-            return new Voxel[0];
+        return getPlane(slabZ, 2, plane);
+    }
+
+    // called before serialization
+    private void writeObject(java.io.ObjectOutputStream out) throws IOException {
+        // the legacy format stores the voxels as a list
+        voxelList = new ArrayList<Voxel>(Arrays.asList(getVoxels()));
+        try {
+            out.defaultWriteObject();
+        } finally {
+            voxelList = null;
         }
     }
 
@@ -142,51 +145,91 @@ public final class VoxelLayer implements Serializable {
     private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         // build the indices when loading from file
-        if (sideX == null) {
-            sideX = new TIntObjectHashMap<HashSet<Voxel>>();
-        }
-        if (sideY == null) {
-            sideY = new TIntObjectHashMap<HashSet<Voxel>>();
-        }
-        if (sideZ == null) {
-            sideZ = new TIntObjectHashMap<HashSet<Voxel>>();
-        }
-        if (index == null) {
-            index = new TIntObjectHashMap<Voxel>();
-        }
-        for (Voxel voxel : voxelList) {
-            indexVoxel(voxel);
+        chunks = new TIntObjectHashMap<Chunk<Voxel>>();
+        slabX = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+        slabY = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+        slabZ = new TIntObjectHashMap<ArrayList<Chunk<Voxel>>>();
+        size = 0;
+        if (voxelList != null) {
+            for (Voxel voxel : voxelList) {
+                indexVoxel(voxel);
+            }
+            voxelList = null;
         }
     }
 
+    // helper - find the voxel at a position
+    private Voxel find(int x, int y, int z) {
+        Chunk<Voxel> chunk = chunks.get(Chunk.getChunkId(x, y, z));
+        return chunk == null ? null : chunk.get(x, y, z);
+    }
+
     public Voxel search(int[] pos) {
-        return index.get(CubeIndexer.getId(pos[0], pos[1], pos[2]));
+        return find(pos[0], pos[1], pos[2]);
     }
 
     // search position by using another voxel as reference
     public Voxel search(Voxel voxel) {
-        return index.get(voxel.posId);
+        return find(voxel.x, voxel.y, voxel.z);
     }
 
     public int getSize() {
-        return voxelList.size();
+        return size;
     }
 
     // check if a position already contains a voxel
     public boolean voxelPositionFree(int[] pos) {
-        return !index.containsKey(CubeIndexer.getId(pos[0], pos[1], pos[2]));
+        return find(pos[0], pos[1], pos[2]) == null;
     }
 
     // check position by using another voxel
     public boolean voxelPositionFree(Voxel voxel) {
-        return !index.containsKey(voxel.posId);
+        return find(voxel.x, voxel.y, voxel.z) == null;
     }
 
     // add a voxel iff that position is not already occupied
     public void addVoxel(Voxel voxel) {
         assert voxelPositionFree(voxel);
         indexVoxel(voxel);
-        voxelList.add(voxel);
+    }
+
+    // add voxels in bulk (the index is built in one pass), voxels at positions that
+    // are already occupied are skipped and set to null in the array (the first voxel wins),
+    // null entries are ignored
+    public final int addVoxels(Voxel[] voxels) {
+        if (chunks.isEmpty()) {
+            chunks.ensureCapacity(voxels.length / (Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE) + 1);
+        }
+        int added = 0;
+        int lastChunkId = 0;
+        Chunk<Voxel> chunk = null;
+        for (int i = 0; i < voxels.length; i++) {
+            Voxel voxel = voxels[i];
+            if (voxel == null) {
+                continue;
+            }
+            // neighbouring voxels are usually in the same chunk
+            int chunkId = Chunk.getChunkId(voxel.x, voxel.y, voxel.z);
+            if (chunk == null || chunkId != lastChunkId) {
+                chunk = chunks.get(chunkId);
+                if (chunk == null) {
+                    chunk = new Chunk<Voxel>(Chunk.toChunk(voxel.x), Chunk.toChunk(voxel.y), Chunk.toChunk(voxel.z));
+                    chunks.put(chunkId, chunk);
+                    addToSlab(slabX, chunk.cx, chunk);
+                    addToSlab(slabY, chunk.cy, chunk);
+                    addToSlab(slabZ, chunk.cz, chunk);
+                }
+                lastChunkId = chunkId;
+            }
+            if (chunk.get(voxel.x, voxel.y, voxel.z) == null) {
+                chunk.set(voxel.x, voxel.y, voxel.z, voxel);
+                added++;
+            } else {
+                voxels[i] = null;
+            }
+        }
+        size += added;
+        return added;
     }
 
     // set the color of a voxel
@@ -201,20 +244,23 @@ public final class VoxelLayer implements Serializable {
 
     // remove a voxel
     public final boolean removeVoxel(Voxel voxel) {
-        return voxelList.remove(voxel) && unindexVoxel(voxel);
+        return unindexVoxel(voxel);
     }
 
-    // get all voxels of this layer
+    // get all voxels of this layer (grouped by chunk, not in the order they were added)
     public final Voxel[] getVoxels() {
-        Voxel[] result = new Voxel[voxelList.size()];
-        voxelList.toArray(result);
+        Voxel[] result = new Voxel[size];
+        int offset = 0;
+        for (Chunk<Voxel> chunk : chunks.valueCollection()) {
+            offset = chunk.copyTo(result, offset);
+        }
         return result;
     }
 
     // get all voxel colors of this layer
     public final TIntHashSet getVoxelColors() {
         TIntHashSet result = new TIntHashSet();
-        for (Voxel voxel : voxelList) {
+        for (Voxel voxel : getVoxels()) {
             result.add(voxel.getColor().getRGB());
         }
         return result;
@@ -0,0 +1,555 @@
+package com.vitco.app.core.data.container;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary (versioned) vsd file format.
+ *
+ * The file starts with the magic bytes and the format version, followed by a list of blocks:
+ * (tag, flags, raw length, stored length, payload). Blocks can be deflate compressed and
+ * unknown blocks are skipped. Voxels are stored column wise (ids, positions, colors, ...) in
+ * blocks of limited size and textures are stored as png.
+ */
+final class VsdBinaryFormat {
+
+    // identifies the file format
+    private static final byte[] MAGIC = "**VSDB**".getBytes(StandardCharsets.US_ASCII);
+    // the current format version
+    private static final int VERSION = 1;
+
+    // block tags
+    private static final int BLOCK_STATE = 1;
+    private static final int BLOCK_TEXTURE = 2;
+    private static final int BLOCK_LAYER = 3;
+    private static final int BLOCK_VOXELS = 4;
+    private static final int BLOCK_ANIMATION = 5;
+    private static final int BLOCK_END = 0;
+
+    // block flags
+    private static final byte FLAG_DEFLATE = 1;
+
+    // size of a block header (tag, flags, raw length, stored length)
+    private static final int BLOCK_HEADER_SIZE = 13;
+
+    // the maximum amount of voxels per voxel block
+    private static final int VOXELS_PER_BLOCK = 1 << 18;
+
+    // flags of the per voxel extra information
+    private static final int EXTRA_TEXTURE = 1;
+    private static final int EXTRA_ROTATION = 2;
+    private static final int EXTRA_FLIP = 4;
+
+    private VsdBinaryFormat() {}
+
+    // ####################### helper
+
+    // a growable buffer that holds the payload of a block
+    private static final class BlockBuffer {
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                newBuffer.put(buffer);
+                buffer = newBuffer;
+            }
+        }
+
+        private BlockBuffer putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        private BlockBuffer putFloat(float value) {
+            ensure(4);
+            buffer.putFloat(value);
+            return this;
+        }
+
+        private BlockBuffer putByte(int value) {
+            ensure(1);
+            buffer.put((byte) value);
+            return this;
+        }
+
+        private BlockBuffer putInts(int[] values, int length) {
+            ensure(length * 4);
+            buffer.asIntBuffer().put(values, 0, length);
+            buffer.position(buffer.position() + length * 4);
+            return this;
+        }
+
+        private BlockBuffer putBytes(byte[] bytes) {
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        private BlockBuffer putString(String value) {
+            return putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // helper - read an int array
+    private static int[] getInts(ByteBuffer buffer, int length) {
+        int[] result = new int[length];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + length * 4);
+        return result;
+    }
+
+    // helper - read a byte array
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.getInt()];
+        buffer.get(result);
+        return result;
+    }
+
+    // helper - read a string
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    // helper - write a block to the channel
+    private static void writeBlock(FileChannel channel, int tag, BlockBuffer block, boolean compress) throws IOException {
+        byte[] raw = block.buffer.array();
+        int rawLength = block.buffer.position();
+        byte[] stored = raw;
+        int storedLength = rawLength;
+        byte flags = 0;
+        if (compress && rawLength > 64) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw, 0, rawLength);
+                deflater.finish();
+                byte[] compressed = new byte[rawLength + rawLength / 100 + 64];
+                int length = 0;
+                while (!deflater.finished() && length < compressed.length) {
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                // only use the compressed data if it is smaller
+                if (deflater.finished() && length < rawLength) {
+                    stored = compressed;
+                    storedLength = length;
+                    flags = FLAG_DEFLATE;
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        header.putInt(tag).put(flags).putInt(rawLength).putInt(storedLength);
+        header.flip();
+        writeFully(channel, header);
+        writeFully(channel, ByteBuffer.wrap(stored, 0, storedLength));
+    }
+
+    // helper - write all bytes of the buffer
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // helper - read bytes from the channel (returns false if the end of the file was reached)
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    // helper - encode an image as png
+    private static byte[] toPng(ImageIcon icon) throws IOException {
+        Image image = icon.getImage();
+        BufferedImage bufferedImage;
+        if (image instanceof BufferedImage) {
+            bufferedImage = (BufferedImage) image;
+        } else {
+            bufferedImage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = bufferedImage.createGraphics();
+            g2.drawImage(image, 0, 0, null);
+            g2.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", out);
+        return out.toByteArray();
+    }
+
+    // ####################### detection
+
+    // true if this file uses the binary format
+    static boolean isBinaryFile(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            return readFully(channel, magic) && magic.equals(ByteBuffer.wrap(MAGIC));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ####################### writing
+
+    // write the data container to file
+    static void write(File file, DataContainer container, boolean compress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4);
+            header.put(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(channel, header);
+
+            // -- general state
+            BlockBuffer block = new BlockBuffer();
+            block.putInt(container.selectedTexture).putInt(container.selectedLayer).putInt(container.activeFrame);
+            ArrayList<Integer> layerOrder = container.layerOrder == null ? new ArrayList<Integer>() : container.layerOrder;
+            block.putInt(layerOrder.size());
+            for (Integer layerId : layerOrder) {
+                block.putInt(layerId);
+            }
+            writeBlock(channel, BLOCK_STATE, block, compress);
+
+            // -- textures (png encoded, hence not compressed again)
+            if (container.textures != null) {
+                for (Map.Entry<Integer, ImageIcon> entry : container.textures.entrySet()) {
+                    block = new BlockBuffer();
+                    block.putInt(entry.getKey()).putBytes(toPng(entry.getValue()));
+                    writeBlock(channel, BLOCK_TEXTURE, block, false);
+                }
+            }
+
+            // -- layers and voxels
+            if (container.layers != null) {
+                for (VoxelLayer layer : container.layers.values()) {
+                    block = new BlockBuffer();
+                    block.putInt(layer.id).putString(layer.getName()).putByte(layer.isVisible() ? 1 : 0);
+                    writeBlock(channel, BLOCK_LAYER, block, compress);
+                    Voxel[] voxels = layer.getVoxels();
+                    for (int offset = 0; offset < voxels.length; offset += VOXELS_PER_BLOCK) {
+                        writeBlock(channel, BLOCK_VOXELS, encodeVoxels(layer.id, voxels, offset,
+                                Math.min(voxels.length, offset + VOXELS_PER_BLOCK)), compress);
+                    }
+                }
+            }
+
+            // -- animation data
+            writeBlock(channel, BLOCK_ANIMATION, encodeAnimation(container), compress);
+
+            writeBlock(channel, BLOCK_END, new BlockBuffer(), false);
+        }
+    }
+
+    // helper - encode voxels (column wise)
+    private static BlockBuffer encodeVoxels(int layerId, Voxel[] voxels, int from, int to) {
+        int count = to - from;
+        int[] ids = new int[count];
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int[] zs = new int[count];
+        int[] colors = new int[count];
+        int[] alphas = new int[count];
+        int extraCount = 0;
+        for (int i = 0; i < count; i++) {
+            Voxel voxel = voxels[from + i];
+            ids[i] = voxel.id;
+            xs[i] = voxel.x;
+            ys[i] = voxel.y;
+            zs[i] = voxel.z;
+            colors[i] = voxel.getColor().getRGB();
+            alphas[i] = voxel.getAlpha();
+            if (voxel.getTexture() != null || voxel.getRotation() != null || voxel.getFlip() != null) {
+                extraCount++;
+            }
+        }
+        BlockBuffer block = new BlockBuffer();
+        block.putInt(layerId).putInt(count);
+        block.putInts(ids, count).putInts(xs, count).putInts(ys, count).putInts(zs, count);
+        block.putInts(colors, count).putInts(alphas, count);
+        // the texture information (only for the voxels that have it)
+        block.putInt(extraCount);
+        for (int i = 0; i < count && extraCount > 0; i++) {
+            Voxel voxel = voxels[from + i];
+            int[] texture = voxel.getTexture();
+            int[] rotation = voxel.getRotation();
+            boolean[] flip = voxel.getFlip();
+            if (texture != null || rotation != null || flip != null) {
+                block.putInt(i).putByte((texture != null ? EXTRA_TEXTURE : 0) |
+                        (rotation != null ? EXTRA_ROTATION : 0) | (flip != null ? EXTRA_FLIP : 0));
+                if (texture != null) {
+                    block.putInts(texture, 6);
+                }
+                for (int side = 0; rotation != null && side < 6; side++) {
+                    block.putByte(rotation[side]);
+                }
+                for (int side = 0; flip != null && side < 6; side++) {
+                    block.putByte(flip[side] ? 1 : 0);
+                }
+            }
+        }
+        return block;
+    }
+
+    // helper - write a point
+    private static void putPoint(BlockBuffer block, ExtendedVector point) {
+        block.putInt(point.id).putFloat(point.x).putFloat(point.y).putFloat(point.z);
+    }
+
+    // helper - read a point
+    private static ExtendedVector getPoint(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        return new ExtendedVector(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), id);
+    }
+
+    // helper - encode the animation data
+    private static BlockBuffer encodeAnimation(DataContainer container) {
+        BlockBuffer block = new BlockBuffer();
+        HashMap<Integer, ExtendedVector> points = container.points == null ? new HashMap<Integer, ExtendedVector>() : container.points;
+        block.putInt(points.size());
+        for (Map.Entry<Integer, ExtendedVector> entry : points.entrySet()) {
+            block.putInt(entry.getKey());
+            putPoint(block, entry.getValue());
+        }
+        HashMap<String, ExtendedLine> lines = container.lines == null ? new HashMap<String, ExtendedLine>() : container.lines;
+        block.putInt(lines.size());
+        for (Map.Entry<String, ExtendedLine> entry : lines.entrySet()) {
+            block.putString(entry.getKey()).putInt(entry.getValue().point1).putInt(entry.getValue().point2);
+        }
+        HashMap<Integer, ArrayList<ExtendedLine>> pointsToLines = container.pointsToLines == null ?
+                new HashMap<Integer, ArrayList<ExtendedLine>>() : container.pointsToLines;
+        block.putInt(pointsToLines.size());
+        for (Map.Entry<Integer, ArrayList<ExtendedLine>> entry : pointsToLines.entrySet()) {
+            block.putInt(entry.getKey()).putInt(entry.getValue().size());
+            for (ExtendedLine line : entry.getValue()) {
+                block.putInt(line.point1).putInt(line.point2);
+            }
+        }
+        HashMap<Integer, Frame> frames = container.frames == null ? new HashMap<Integer, Frame>() : container.frames;
+        block.putInt(frames.size());
+        for (Map.Entry<Integer, Frame> entry : frames.entrySet()) {
+            Frame frame = entry.getValue();
+            Integer[] framePoints = frame.getPoints();
+            block.putInt(entry.getKey()).putString(frame.getName()).putInt(framePoints.length);
+            for (Integer pointId : framePoints) {
+                block.putInt(pointId);
+                putPoint(block, frame.getPoint(pointId));
+            }
+        }
+        return block;
+    }
+
+    // ####################### reading
+
+    // read a file into the temporary data (returns false if the file is not valid)
+    static boolean read(File file, DataContainer.TmpData data) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4);
+            if (!readFully(channel, header)) {
+                return false;
+            }
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!ByteBuffer.wrap(magic).equals(ByteBuffer.wrap(MAGIC)) || header.getInt() > VERSION) {
+                return false;
+            }
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            while (true) {
+                blockHeader.clear();
+                if (!readFully(channel, blockHeader)) {
+                    // the end block is missing
+                    return false;
+                }
+                int tag = blockHeader.getInt();
+                byte flags = blockHeader.get();
+                int rawLength = blockHeader.getInt();
+                int storedLength = blockHeader.getInt();
+                if (tag == BLOCK_END) {
+                    return true;
+                }
+                ByteBuffer stored = ByteBuffer.allocate(storedLength);
+                if (!readFully(channel, stored)) {
+                    return false;
+                }
+                ByteBuffer block = stored;
+                if ((flags & FLAG_DEFLATE) != 0) {
+                    block = ByteBuffer.wrap(inflate(stored.array(), rawLength));
+                }
+                switch (tag) {
+                    case BLOCK_STATE: readState(block, data); break;
+                    case BLOCK_TEXTURE: readTexture(block, data); break;
+                    case BLOCK_LAYER: readLayer(block, data); break;
+                    case BLOCK_VOXELS: readVoxels(block, data); break;
+                    case BLOCK_ANIMATION: readAnimation(block, data); break;
+                    default: break; // unknown blocks are skipped
+                }
+            }
+        }
+    }
+
+    // helper - decompress a block
+    private static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] result = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(result, length, rawLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupted block in vsd file.");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // helper - read the general state
+    private static void readState(ByteBuffer block, DataContainer.TmpData data) {
+        data.selectedTexture = block.getInt();
+        data.selectedLayer = block.getInt();
+        data.activeFrame = block.getInt();
+        for (int i = 0, len = block.getInt(); i < len; i++) {
+            data.layerOrder.add(block.getInt());
+        }
+    }
+
+    // helper - read a texture
+    private static void readTexture(ByteBuffer block, DataContainer.TmpData data) throws IOException {
+        int id = block.getInt();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(getBytes(block)));
+        if (image == null) {
+            throw new IOException("Invalid texture in vsd file.");
+        }
+        data.textures.put(id, new ImageIcon(image));
+    }
+
+    // helper - read a layer
+    private static void readLayer(ByteBuffer block, DataContainer.TmpData data) {
+        int id = block.getInt();
+        VoxelLayer layer = new VoxelLayer(id, getString(block));
+        layer.setVisible(block.get() == 1);
+        data.layers.put(id, layer);
+    }
+
+    // helper - read voxels
+    private static void readVoxels(ByteBuffer block, DataContainer.TmpData data) throws IOException {
+        int layerId = block.getInt();
+        VoxelLayer layer = data.layers.get(layerId);
+        if (layer == null) {
+            throw new IOException("Voxels of unknown layer in vsd file.");
+        }
+        int count = block.getInt();
+        int[] ids = getInts(block, count);
+        int[] xs = getInts(block, count);
+        int[] ys = getInts(block, count);
+        int[] zs = getInts(block, count);
+        int[] colors = getInts(block, count);
+        int[] alphas = getInts(block, count);
+        // read the extra information
+        int extraCount = block.getInt();
+        int[] extraIndex = new int[extraCount];
+        int[][] textures = new int[extraCount][];
+        int[][] rotations = new int[extraCount][];
+        boolean[][] flips = new boolean[extraCount][];
+        for (int i = 0; i < extraCount; i++) {
+            extraIndex[i] = block.getInt();
+            int extra = block.get();
+            if ((extra & EXTRA_TEXTURE) != 0) {
+                textures[i] = getInts(block, 6);
+            }
+            if ((extra & EXTRA_ROTATION) != 0) {
+                rotations[i] = new int[6];
+                for (int side = 0; side < 6; side++) {
+                    rotations[i][side] = block.get();
+                }
+            }
+            if ((extra & EXTRA_FLIP) != 0) {
+                flips[i] = new boolean[6];
+                for (int side = 0; side < 6; side++) {
+                    flips[i][side] = block.get() == 1;
+                }
+            }
+        }
+        // create the voxels
+        int[] pos = new int[3];
+        for (int i = 0, e = 0; i < count; i++) {
+            pos[0] = xs[i];
+            pos[1] = ys[i];
+            pos[2] = zs[i];
+            boolean hasExtra = e < extraCount && extraIndex[e] == i;
+            Voxel voxel = new Voxel(ids[i], pos, new Color(colors[i], true), false,
+                    hasExtra ? textures[e] : null, layerId);
+            voxel.setAlpha(alphas[i]);
+            if (hasExtra) {
+                voxel.setSideTransform(rotations[e], flips[e]);
+                e++;
+            }
+            layer.addVoxel(voxel);
+            data.voxels.put(voxel.id, voxel);
+        }
+    }
+
+    // helper - read the animation data
+    private static void readAnimation(ByteBuffer block, DataContainer.TmpData data) {
+        for (int i = 0, len = block.getInt(); i < len; i++) {
+            int key = block.getInt();
+            data.points.put(key, getPoint(block));
+        }
+        for (int i = 0, len = block.getInt(); i < len; i++) {
+            String key = getString(block);
+            data.lines.put(key, new ExtendedLine(block.getInt(), block.getInt()));
+        }
+        for (int i = 0, len = block.getInt(); i < len; i++) {
+            int key = block.getInt();
+            int count = block.getInt();
+            ArrayList<ExtendedLine> list = new ArrayList<ExtendedLine>(count);
+            for (int j = 0; j < count; j++) {
+                int point1 = block.getInt();
+                int point2 = block.getInt();
+                // reference the same line instance
+                ExtendedLine line = data.lines.get(point1 + "_" + point2);
+                list.add(line != null ? line : new ExtendedLine(point1, point2));
+            }
+            data.pointsToLines.put(key, list);
+        }
+        for (int i = 0, len = block.getInt(); i < len; i++) {
+            int key = block.getInt();
+            Frame frame = new Frame(getString(block));
+            for (int j = 0, count = block.getInt(); j < count; j++) {
+                int pointId = block.getInt();
+                frame.setPoint(pointId, getPoint(block));
+            }
+            data.frames.put(key, frame);
+        }
+    }
+}
@@ -35,4 +35,10 @@ public abstract class BasicActionIntent {
 
     // action to be defined by child class
     protected abstract void unapplyAction();
+
+    // estimated amount of memory (in bytes) that this intent holds on to
+    // (overwrite this for intents that store large amounts of data)
+    public long getMemoryFootprint() {
+        return 64;
+    }
 }
@@ -0,0 +1,80 @@
+package com.vitco.app.core.data.history;
+
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Append-only log of changed positions (packed pos ids).
+ *
+ * Every entry has a sequence number. Consumers only keep a cursor (the sequence number
+ * of the next entry they have not seen) and read the entries that were appended since.
+ * A cursor that is no longer covered by the log (e.g. after a reset) is not valid
+ * and the consumer needs to do a complete refresh.
+ */
+public final class ChangeJournal {
+
+    // the maximum amount of entries that are kept
+    private final int capacity;
+
+    // the entries (pos ids)
+    private int[] entries = new int[256];
+    // amount of entries in the log
+    private int length = 0;
+    // sequence number of the first entry in the log
+    private long base = 0;
+
+    // constructor
+    public ChangeJournal(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // the sequence number of the next entry
+    public final long getHead() {
+        return base + length;
+    }
+
+    // append a changed position
+    public final void append(int posId) {
+        if (length == capacity) {
+            // the log is full, consumers will need to refresh completely
+            reset();
+        }
+        if (length == entries.length) {
+            int[] newEntries = new int[Math.min(capacity, entries.length * 2)];
+            System.arraycopy(entries, 0, newEntries, 0, length);
+            entries = newEntries;
+        }
+        entries[length++] = posId;
+    }
+
+    // drop all entries (all cursors become invalid)
+    public final void reset() {
+        // skip one sequence number, so that a cursor at the current head is not covered either
+        base += length + 1;
+        length = 0;
+    }
+
+    // true if the changes since this cursor are known
+    public final boolean isValid(long cursor) {
+        return cursor >= base && cursor <= base + length;
+    }
+
+    // get the (distinct) changed positions since the cursor
+    public final TIntHashSet getChanges(long cursor) {
+        TIntHashSet result = new TIntHashSet();
+        for (int i = (int) (cursor - base); i < length; i++) {
+            result.add(entries[i]);
+        }
+        return result;
+    }
+
+    // drop all entries before this cursor (they are no longer needed by any consumer)
+    public final void trim(long cursor) {
+        int count = (int) (Math.min(cursor, base + length) - base);
+        // only compact when at least half of the log can be dropped
+        if (count > 0 && count * 2 >= length) {
+            System.arraycopy(entries, count, entries, 0, length - count);
+            length -= count;
+            base += count;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.vitco.app.core.data.history;
 
+import com.vitco.app.settings.VitcoSettings;
+
 import java.util.ArrayList;
 
 /**
  * Manages BasicActionIntents. History manager.
+ *
+ * The history is bound by a memory budget: when the estimated footprint of all intents
+ * exceeds the budget, the oldest intent groups (main intent with all attached intents)
+ * are dropped and can no longer be undone.
  */
 public class HistoryManager<T extends BasicActionIntent> {
 
@@ -11,10 +17,16 @@ public class HistoryManager<T extends BasicActionIntent> {
     private int historyPosition = -1;
     private ArrayList<T> history = new ArrayList<T>();
 
+    // estimated memory footprint of all intents in the history (in bytes)
+    private long footprint = 0;
+    // the memory budget of this history (in bytes)
+    private long memoryBudget = VitcoSettings.HISTORY_MEMORY_BUDGET;
+
     public void clear() {
         if (frozen) {return;}
         historyPosition = -1;
         history = new ArrayList<T>();
+        footprint = 0;
         // invalidate the cache
         notifyListener(null);
     }
@@ -38,6 +50,54 @@ public class HistoryManager<T extends BasicActionIntent> {
     public final void setHistory(ArrayList<T> history) {
         if (frozen) {return;}
         this.history = new ArrayList<T>(history);
+        footprint = 0;
+        for (T intent : history) {
+            footprint += intent.getMemoryFootprint();
+        }
+    }
+
+    // get the estimated memory footprint of the history (in bytes)
+    public final long getMemoryFootprint() {
+        return footprint;
+    }
+
+    public final long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    // set the memory budget of the history (in bytes), old history
+    // entries are dropped if the budget is exceeded
+    public final void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        if (!frozen) {
+            compact();
+        }
+    }
+
+    // drop the oldest groups while the budget is exceeded (the
+    // group that is currently applied last is always kept)
+    private void compact() {
+        int count = 0;
+        long freed = 0;
+        while (footprint - freed > memoryBudget) {
+            // find the main intent of the oldest group
+            int end = count;
+            long groupFootprint = 0;
+            while (end < historyPosition && history.get(end).attach) {
+                groupFootprint += history.get(end).getMemoryFootprint();
+                end++;
+            }
+            if (end >= historyPosition) {
+                break;
+            }
+            freed += groupFootprint + history.get(end).getMemoryFootprint();
+            count = end + 1;
+        }
+        if (count > 0) {
+            history.subList(0, count).clear();
+            historyPosition -= count;
+            footprint -= freed;
+        }
     }
 
     public final void setHistoryPosition(int historyPosition) {
@@ -59,17 +119,23 @@ public class HistoryManager<T extends BasicActionIntent> {
             return;
         }
         // delete all "re-dos"
-        while (history.size() > historyPosition + 1) {
-            history.remove(historyPosition + 1);
+        if (history.size() > historyPosition + 1) {
+            for (T intent : history.subList(historyPosition + 1, history.size())) {
+                footprint -= intent.getMemoryFootprint();
+            }
+            history.subList(historyPosition + 1, history.size()).clear();
         }
         // apply the intent
         actionIntent.apply();
         historyPosition++;
         // and add it to the history
         history.add(actionIntent);
+        footprint += actionIntent.getMemoryFootprint();
         // invalidate the cache if the intent is not attached
         // (for the main intent)
         if (!actionIntent.attach) {
+            // the group is complete, enforce the memory budget
+            compact();
             notifyListener(actionIntent);
         }
     }
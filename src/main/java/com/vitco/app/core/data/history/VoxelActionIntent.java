@@ -4,6 +4,10 @@ package com.vitco.app.core.data.history;
  * Basic action intent for Voxels
  */
 public abstract class VoxelActionIntent extends BasicActionIntent {
+    // estimated memory footprint of a voxel and of a (32 x 32) texture
+    protected static final int VOXEL_FOOTPRINT = 128;
+    protected static final int TEXTURE_FOOTPRINT = 4300;
+
     protected VoxelActionIntent(boolean attach) {
         super(attach);
     }
@@ -79,6 +79,13 @@ public abstract class AbstractCWorld extends World {
     // add or update a voxel
     public abstract void updateVoxel(Voxel voxel);
 
+    // add or update many voxels
+    public void updateVoxels(Voxel[] voxels) {
+        for (Voxel voxel : voxels) {
+            updateVoxel(voxel);
+        }
+    }
+
     // erase the entire content of this world
     public abstract void clear();
 
@@ -91,6 +98,12 @@ public abstract class AbstractCWorld extends World {
     // refresh world (partially) - returns true if fully refreshed
     public abstract boolean refreshWorld();
 
+    // update the level of detail for the current camera (view width in pixel)
+    // returns true if the world needs to be refreshed to show the correct level
+    public boolean updateDetailLevel(int viewWidth) {
+        return false;
+    }
+
     // get voxel by hit position
     public abstract int[] getVoxelPos(Integer objectId, float posx, float posy, float posz);
 
@@ -1,16 +1,20 @@
 package com.vitco.app.core.world;
 
+import com.threed.jpct.Camera;
+import com.threed.jpct.Config;
+import com.threed.jpct.Object3D;
 import com.threed.jpct.SimpleVector;
 import com.vitco.app.core.data.container.Voxel;
 import com.vitco.app.core.world.container.BorderObject3D;
+import com.vitco.app.core.world.container.LodManager;
 import com.vitco.app.core.world.container.VoxelManager;
 import com.vitco.app.low.hull.HullManagerExt;
 import com.vitco.app.low.triangulate.Grid2TriPolyFast;
 import com.vitco.app.low.triangulate.util.Grid2PolyHelper;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 import com.vitco.app.settings.VitcoSettings;
 import com.vitco.app.util.graphic.SharedImageFactory;
 import org.poly2tri.Poly2Tri;
-import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.awt.*;
 import java.util.*;
@@ -66,6 +70,16 @@ public class CWorld extends AbstractCWorld {
         hullManager.update(voxel.posId, voxel);
     }
 
+    // add or update many voxels (fast when the world was cleared)
+    @Override
+    public void updateVoxels(Voxel[] voxels) {
+        int[] posIds = new int[voxels.length];
+        for (int i = 0; i < voxels.length; i++) {
+            posIds[i] = voxels[i].posId;
+        }
+        hullManager.update(posIds, voxels);
+    }
+
     // erase the entire content of this world
     @Override
     public void clear() {
@@ -98,159 +112,424 @@ public class CWorld extends AbstractCWorld {
         for (Integer worldId : worldId2Side.keySet()) {
             ((BorderObject3D)this.getObject(worldId)).setBorder(border);
         }
+        for (DetailLevel level : detailLevels) {
+            for (Integer worldId : level.objects.values()) {
+                ((BorderObject3D)this.getObject(worldId)).setBorder(border);
+            }
+        }
     }
 
-    // the maximum amount of areas that are drawn in one call
+    // the maximum amount of areas that are drawn in one call (per thread)
     private final static int maxAreaDraw = 10;
+    // the amount of threads that build the area meshes
+    private final static int parallelism = Runtime.getRuntime().availableProcessors();
+    // widen the field of view by this factor when checking if an area is on screen
+    private final static float VIEW_CONE_FACTOR = 1.5f;
+
+    // an outdated area and (once computed) the triangulation of its faces
+    private static final class AreaTask {
+        private final int orientation;
+        private final Integer plane;
+        private final String areaKey;
+        private final boolean fullRefresh;
+        // the faces of this area (null if the area is empty)
+        private final Collection<Voxel> faceList;
+        // the triangulation and the rect that contains all voxel faces
+        private TriangleBuffer tris;
+        private int min1;
+        private int min2;
+        private int w;
+        private int h;
 
-    // handle all planes (in one direction, determined by side)
-    // returns true iff all areas are handled
-    private boolean handleOrientedPlane(int orientation) {
+        private AreaTask(int orientation, Integer plane, Point area, boolean fullRefresh, Collection<Voxel> faceList) {
+            this.orientation = orientation;
+            this.plane = plane;
+            // id for this particular area
+            this.areaKey = orientation + "_" + plane + "_" + area.x + "_" + area.y;
+            this.fullRefresh = fullRefresh;
+            this.faceList = faceList;
+        }
+
+        // triangulate the faces (only computation, does not touch the world)
+        private void buildMesh() {
+            int axis = orientation/2;
+            // this should never happen as the faceManager deletes unused faceLists
+            assert !faceList.isEmpty();
+            // determine size of rect that contains all voxel faces
+            boolean first = true;
+            int max1 = 0;
+            int max2 = 0;
+            for (Voxel face : faceList) {
+                int[] pos2D = VoxelManager.convert3D2D(face, axis);
+                if (first) {
+                    min1 = pos2D[0];
+                    max1 = pos2D[0];
+                    min2 = pos2D[1];
+                    max2 = pos2D[1];
+                    first = false;
+                } else {
+                    min1 = Math.min(min1,pos2D[0]);
+                    max1 = Math.max(max1, pos2D[0]);
+                    min2 = Math.min(min2,pos2D[1]);
+                    max2 = Math.max(max2, pos2D[1]);
+                }
+            }
+            w = max1 - min1 + 1;
+            h = max2 - min2 + 1;
+
+            boolean[][] data = new boolean[w][h];
+            for (Voxel face : faceList) {
+                int[] pos2D = VoxelManager.convert3D2D(face, axis);
+                data[pos2D[0] - min1][pos2D[1] - min2] = true;
+            }
+            tris = new TriangleBuffer();
+            Grid2TriPolyFast.triangulate(Grid2PolyHelper.convert(data), tris);
+        }
+    }
+
+    // an outdated area and its refresh priority (lower values are refreshed first)
+    private static final class ScoredArea implements Comparable<ScoredArea> {
+        private final Integer plane;
+        private final Point area;
+        private final float score;
+
+        private ScoredArea(Integer plane, Point area, float score) {
+            this.plane = plane;
+            this.area = area;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredArea o) {
+            return Float.compare(score, o.score);
+        }
+    }
+
+    // penalty for areas that are not visible (dominates the distance)
+    private final static float HIDDEN_PENALTY = 100000000f;
+
+    // helper - compute the refresh priority of an area: areas that are on screen and face the
+    // camera come first, closer areas are refreshed before areas that are further away
+    private static float getRefreshScore(int orientation, int plane, Point area,
+                                         SimpleVector camPos, SimpleVector camDir, float minCos) {
         int axis = orientation/2;
+        // center of the area in world coordinates
+        float c1 = (area.x * VitcoSettings.TRI_GRID_SIZE - VitcoSettings.TRI_GRID_OFFSET
+                + (VitcoSettings.TRI_GRID_SIZE - 1) / 2f) * VitcoSettings.VOXEL_SIZE;
+        float c2 = (area.y * VitcoSettings.TRI_GRID_SIZE - VitcoSettings.TRI_GRID_OFFSET
+                + (VitcoSettings.TRI_GRID_SIZE - 1) / 2f) * VitcoSettings.VOXEL_SIZE;
+        float cp = (plane + (orientation%2 == 0 ? 0.5f : -0.5f)) * VitcoSettings.VOXEL_SIZE;
+        float dx = (axis == 0 ? cp : c1) - camPos.x;
+        float dy = (axis == 1 ? cp : (axis == 0 ? c1 : c2)) - camPos.y;
+        float dz = (axis == 2 ? cp : c2) - camPos.z;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        float score = distance;
+        // the face points away from the camera
+        float toFace = axis == 0 ? dx : (axis == 1 ? dy : dz);
+        if ((orientation%2 == 0 ? toFace : -toFace) > 0) {
+            score += HIDDEN_PENALTY;
+        }
+        // the area is outside of the view cone (areas close to the camera always count as visible)
+        if (distance > VitcoSettings.TRI_GRID_SIZE * VitcoSettings.VOXEL_SIZE
+                && (dx * camDir.x + dy * camDir.y + dz * camDir.z) / distance < minCos) {
+            score += HIDDEN_PENALTY;
+        }
+        return score;
+    }
+
+    // collect the outdated areas (in one direction, determined by side), the areas
+    // that are visible to the camera are collected first
+    // returns true iff all areas are collected
+    private boolean collectOutdatedAreas(int orientation, ArrayList<AreaTask> tasks) {
         // processed entries are cleaned here in this function (!)
         HashMap<Integer, HashMap<Point, Boolean>> outdatedPlanes = voxelManager.getInvalidPlanes(orientation);
 
-        int progressCounter = 0;
+        int maxCount = maxAreaDraw * parallelism;
 
-        for (Iterator<Map.Entry<Integer, HashMap<Point, Boolean>>> planeIterator = outdatedPlanes.entrySet().iterator(); planeIterator.hasNext() && progressCounter < maxAreaDraw;) {
-            Map.Entry<Integer, HashMap<Point, Boolean>> entry = planeIterator.next();
+        // score all outdated areas
+        ArrayList<ScoredArea> areas = new ArrayList<ScoredArea>();
+        Camera camera = getCamera();
+        SimpleVector camPos = camera.getPosition();
+        SimpleVector camDir = camera.getDirection();
+        // the view cone is a bit wider than the field of view (to cover the corners)
+        float minCos = (float) Math.cos(Math.min(Math.PI / 2,
+                Math.atan(Math.max(camera.getFOV(), camera.getYFOV()) / 2) * VIEW_CONE_FACTOR));
+        for (Map.Entry<Integer, HashMap<Point, Boolean>> entry : outdatedPlanes.entrySet()) {
             Integer outdatedPlane = entry.getKey();
-            HashMap<Point, Boolean> outdatedAreas = entry.getValue();
-
-            // loop over all outdated areas
-            for (Iterator<Map.Entry<Point,Boolean>> areaIterator = outdatedAreas.entrySet().iterator(); areaIterator.hasNext() && progressCounter < maxAreaDraw; progressCounter++) {
-                Map.Entry<Point,Boolean> outdatedAreaEntry = areaIterator.next();
-                Point outdatedArea = outdatedAreaEntry.getKey();
-                Boolean fullRefresh = outdatedAreaEntry.getValue();
-                // id for this particular area
-                String areaKey = orientation + "_" + outdatedPlane + "_" + outdatedArea.x + "_" + outdatedArea.y;
-
-                if (fullRefresh) { // full refresh (recreate triangulation)
-                    // handle the triangle building
-                    Collection<Voxel> faceList = voxelManager.getFaces(orientation, outdatedPlane, outdatedArea);
-                    if (faceList != null) {
-                        // this should never happen as the faceManager deletes unused faceLists
-                        assert !faceList.isEmpty();
-                        // determine size of rect that contains all voxel faces
-                        boolean first = true;
-                        int min1 = 0;
-                        int max1 = 0;
-                        int min2 = 0;
-                        int max2 = 0;
-                        for (Voxel face : faceList) {
-                            int[] pos2D = VoxelManager.convert3D2D(face, axis);
-                            if (first) {
-                                min1 = pos2D[0];
-                                max1 = pos2D[0];
-                                min2 = pos2D[1];
-                                max2 = pos2D[1];
-                                first = false;
-                            } else {
-                                min1 = Math.min(min1,pos2D[0]);
-                                max1 = Math.max(max1, pos2D[0]);
-                                min2 = Math.min(min2,pos2D[1]);
-                                max2 = Math.max(max2, pos2D[1]);
-                            }
-                        }
-                        int w = max1 - min1 + 1;
-                        int h = max2 - min2 + 1;
-
-                        // --------------
-                        ArrayList<DelaunayTriangle> tris = new ArrayList<DelaunayTriangle>();
-                        boolean[][] data = new boolean[w][h];
-                        for (Voxel face : faceList) {
-                            int[] pos2D = VoxelManager.convert3D2D(face, axis);
-                            data[pos2D[0] - min1][pos2D[1] - min2] = true;
-//                            // consider textured faces separately (needed?)
-//                            if (face.getTexture() == null) {
-//                                data[pos2D[0] - min1][pos2D[1] - min2] = true;
-//                            } else {
-//                                int pX = pos2D[0] - min1;
-//                                int pY = pos2D[1] - min2;
-//                                // add the textured faces separately
-//                                tris.add(new DelaunayTriangle(new PolygonPoint(pX, pY), new PolygonPoint(pX + 1, pY), new PolygonPoint(pX, pY + 1)));
-//                                tris.add(new DelaunayTriangle(new PolygonPoint(pX + 1, pY), new PolygonPoint(pX + 1, pY + 1), new PolygonPoint(pX, pY + 1)));
-//                            }
-                        }
-                        tris.addAll(Grid2TriPolyFast.triangulate(Grid2PolyHelper.convert(data)));
-//                        tris.addAll(Grid2TriGreedyOptimal.triangulate(data));
-                        // --------------
-                        // todo: remove
-//                        // build image to compute triangle overlay
-//                        TiledImage src = SharedImageFactory.getTiledImage(w, h);
-//                        for (Voxel face : faceList) {
-//                            int[] pos2D = VoxelManager.convert3D2D(face, axis);
-//                            src.setSample(pos2D[0] - min1, pos2D[1] - min2, 0, 1);
-//                        }
-//                        // triangulate the image
-//                        ArrayList<DelaunayTriangle> tris = Grid2Tri.triangulate(Grid2Tri.doVectorize(src));
-//                        // reset image
-//                        for (Voxel face : faceList) {
-//                            int[] pos2D = VoxelManager.convert3D2D(face, axis);
-//                            src.setSample(pos2D[0] - min1, pos2D[1] - min2, 0, 0);
-//                        }
-//                        // --------------
-
-                        // build the plane
-                        BorderObject3D box = new BorderObject3D(
-                                tris, faceList,
-                                min1, min2, w, h, orientation, axis,
-                                outdatedPlane, simpleMode, side, culling,
-                                hasBorder, hullManager
-                        );
-                        // remove old version of this side (if exists)
-                        Integer oldId = plane2WorldId.get(areaKey);
-                        if (oldId != null) {
-                            // only remove texture in non-wireframe world
-                            if (!simpleMode) {
-                                BorderObject3D obj = (BorderObject3D) getObject(oldId);
-                                // remove other information
-                                removeObject(oldId);
-                                obj.freeTexture();
-                            } else {
-                                // remove other information
-                                removeObject(oldId);
-                            }
-                            worldId2Side.remove(oldId);
-                        }
-                        // add new plane
-                        int newWorldId = addObject(box);
-                        plane2WorldId.put(areaKey, newWorldId);
-                        worldId2Side.put(newWorldId, orientation);
-                    } else {
-                        // remove old version of this side (if exists)
-                        Integer oldId = plane2WorldId.remove(areaKey);
-                        if (oldId != null) {
-                            // only remove texture in non-wireframe world
-                            if (!simpleMode) {
-                                BorderObject3D obj = (BorderObject3D) getObject(oldId);
-                                // remove other information
-                                removeObject(oldId);
-                                obj.freeTexture();
-                            } else {
-                                // remove other information
-                                removeObject(oldId);
-                            }
-                            worldId2Side.remove(oldId);
-                        }
-                    }
-                } else if (!simpleMode) {
-                    // only do texture refresh (soft)
-                    Integer objId = plane2WorldId.get(areaKey);
-                    if (objId != null) {
-                        ((BorderObject3D) getObject(objId)).refreshTextureInterpolation();
-                    }
-                }
-                // this area was processed
-                areaIterator.remove();
+            for (Point outdatedArea : entry.getValue().keySet()) {
+                areas.add(new ScoredArea(outdatedPlane, outdatedArea,
+                        getRefreshScore(orientation, outdatedPlane, outdatedArea, camPos, camDir, minCos)));
+            }
+        }
+        if (areas.size() > maxCount) {
+            Collections.sort(areas);
+        }
+
+        // collect the most important areas
+        for (int i = 0, len = Math.min(maxCount, areas.size()); i < len; i++) {
+            ScoredArea scoredArea = areas.get(i);
+            HashMap<Point, Boolean> outdatedAreas = outdatedPlanes.get(scoredArea.plane);
+            Boolean fullRefresh = outdatedAreas.remove(scoredArea.area);
+            if (fullRefresh || !simpleMode) {
+                // the faces are only needed for a full refresh (recreate triangulation)
+                tasks.add(new AreaTask(orientation, scoredArea.plane, scoredArea.area, fullRefresh,
+                        fullRefresh ? voxelManager.getFaces(orientation, scoredArea.plane, scoredArea.area) : null));
             }
             // clear this plane entry if all areas are processed
             if (outdatedAreas.isEmpty()) {
-                planeIterator.remove();
+                outdatedPlanes.remove(scoredArea.plane);
+            }
+        }
+        return areas.size() <= maxCount;
+    }
+
+    // helper - remove an object from the world
+    private void removeWorldObject(Integer objId) {
+        // only remove texture in non-wireframe world
+        if (!simpleMode) {
+            BorderObject3D obj = (BorderObject3D) getObject(objId);
+            // remove other information
+            removeObject(objId);
+            obj.freeTexture();
+        } else {
+            // remove other information
+            removeObject(objId);
+        }
+    }
+
+    // apply a processed area to the world (this needs to be done in sync with the rendering)
+    private void applyArea(AreaTask task) {
+        if (task.fullRefresh) {
+            if (task.faceList != null) {
+                // build the plane
+                BorderObject3D box = new BorderObject3D(
+                        task.tris, task.faceList,
+                        task.min1, task.min2, task.w, task.h, task.orientation, task.orientation/2,
+                        task.plane, simpleMode, side, culling,
+                        hasBorder, hullManager
+                );
+                // remove old version of this side (if exists)
+                Integer oldId = plane2WorldId.get(task.areaKey);
+                if (oldId != null) {
+                    triangleCount -= getObject(oldId).getMesh().getTriangleCount();
+                    removeWorldObject(oldId);
+                    worldId2Side.remove(oldId);
+                }
+                // add new plane (hidden while a coarser level is shown)
+                box.setVisibility(activeLevel == 0);
+                triangleCount += task.tris.size();
+                int newWorldId = addObject(box);
+                plane2WorldId.put(task.areaKey, newWorldId);
+                worldId2Side.put(newWorldId, task.orientation);
+            } else {
+                // remove old version of this side (if exists)
+                Integer oldId = plane2WorldId.remove(task.areaKey);
+                if (oldId != null) {
+                    triangleCount -= getObject(oldId).getMesh().getTriangleCount();
+                    removeWorldObject(oldId);
+                    worldId2Side.remove(oldId);
+                }
+            }
+        } else {
+            // only do texture refresh (soft)
+            Integer objId = plane2WorldId.get(task.areaKey);
+            if (objId != null) {
+                ((BorderObject3D) getObject(objId)).refreshTextureInterpolation();
+            }
+        }
+    }
+
+    // ====================================
+    // level of detail (main view only)
+
+    // true if this world shows coarser levels when zoomed out or when there are too many triangles
+    private final boolean hasDetailLevels = side == -1 && !simpleMode;
+    // the amount of polygons that are drawn per frame (the setting when this world was created)
+    private final int polygonBudget = Config.maxPolysVisible;
+    // keeps track of the visible voxels and computes the coarser levels
+    private final LodManager lodManager = new LodManager();
+    // the amount of triangles of the area objects (full detail)
+    private int triangleCount = 0;
+
+    // a coarser level of detail
+    private static final class DetailLevel {
+        // the objects of this level (area key -> world id)
+        private final HashMap<String, Integer> objects = new HashMap<String, Integer>();
+        // the merged voxels and their faces (null if never built)
+        private HullManagerExt<Voxel> hullManager = null;
+        private VoxelManager voxelManager = null;
+        // amount of triangles (-1 if never built, outdated levels keep their count as estimate)
+        private int triangleCount = -1;
+        // true if this level is up to date
+        private boolean valid = false;
+    }
+
+    // the coarser levels (level i is stored at index i - 1)
+    private final DetailLevel[] detailLevels = new DetailLevel[VitcoSettings.LOD_LEVEL_COUNT];
+    {
+        for (int i = 0; i < detailLevels.length; i++) {
+            detailLevels[i] = new DetailLevel();
+        }
+    }
+
+    // the level that is shown (zero is full detail)
+    private volatile int activeLevel = 0;
+    // the level that is needed for the distance of the camera
+    private volatile int distanceLevel = 0;
+    // the level that is needed to stay within the polygon budget
+    private volatile int budgetLevel = 0;
+
+    @Override
+    public final boolean updateDetailLevel(int viewWidth) {
+        if (!hasDetailLevels) {
+            return false;
+        }
+        Camera camera = getCamera();
+        float distance = lodManager.getDistance(camera.getPosition());
+        int level = 0;
+        if (distance > 0 && viewWidth > 0) {
+            // size of a voxel on screen (in pixel)
+            float pixelSize = VitcoSettings.VOXEL_SIZE * viewWidth / camera.getFOV() / distance;
+            while (level < VitcoSettings.LOD_LEVEL_COUNT && pixelSize * (2 << level) <= VitcoSettings.LOD_PIXEL_SIZE) {
+                level++;
+            }
+        }
+        distanceLevel = level;
+        return Math.max(level, budgetLevel) != activeLevel;
+    }
+
+    // helper - remove the objects of a level from the world
+    private void removeLevelObjects(DetailLevel level) {
+        for (Integer objId : level.objects.values()) {
+            removeWorldObject(objId);
+        }
+        level.objects.clear();
+        level.hullManager = null;
+        level.voxelManager = null;
+    }
+
+    // helper - bring a coarser level up to date (only the changed cubes are merged again,
+    // the complete level is only computed when it is built for the first time)
+    private void updateLevel(int level) {
+        DetailLevel detailLevel = detailLevels[level - 1];
+        int[] changedCubes = detailLevel.hullManager == null ? null : lodManager.pollChangedCubes(level);
+        if (changedCubes == null) {
+            removeLevelObjects(detailLevel);
+            Voxel[] voxels = lodManager.downsample(level);
+            int[] posIds = new int[voxels.length];
+            for (int i = 0; i < voxels.length; i++) {
+                posIds[i] = voxels[i].posId;
+            }
+            detailLevel.hullManager = new HullManagerExt<Voxel>();
+            detailLevel.hullManager.update(posIds, voxels);
+            detailLevel.voxelManager = new VoxelManager(detailLevel.hullManager, side);
+            detailLevel.triangleCount = 0;
+        } else {
+            // the pos id of a merged voxel is the id of its cube
+            for (int cubeId : changedCubes) {
+                Voxel voxel = lodManager.downsample(level, cubeId);
+                if (voxel == null) {
+                    detailLevel.hullManager.clearPosition(cubeId);
+                } else {
+                    detailLevel.hullManager.update(cubeId, voxel);
+                }
+            }
+        }
+        // the outdated areas of the merged voxels
+        ArrayList<AreaTask> tasks = new ArrayList<AreaTask>();
+        for (int i = 0; i < 6; i++) {
+            for (Voxel voxel : detailLevel.hullManager.getHullAdditions(i)) {
+                detailLevel.voxelManager.addFace(i, voxel);
+            }
+            for (Voxel voxel : detailLevel.hullManager.getHullRemovals(i)) {
+                detailLevel.voxelManager.removeFace(i, voxel);
+            }
+            for (Map.Entry<Integer, HashMap<Point, Boolean>> entry
+                    : detailLevel.voxelManager.getInvalidPlanes(i).entrySet()) {
+                for (Map.Entry<Point, Boolean> area : entry.getValue().entrySet()) {
+                    boolean fullRefresh = area.getValue();
+                    tasks.add(new AreaTask(i, entry.getKey(), area.getKey(), fullRefresh, fullRefresh
+                            ? detailLevel.voxelManager.getFaces(i, entry.getKey(), area.getKey()) : null));
+                }
+            }
+            detailLevel.voxelManager.clearInvalidAreas(i);
+        }
+        tasks.parallelStream()
+                .filter(task -> task.fullRefresh && task.faceList != null)
+                .forEach(AreaTask::buildMesh);
+        for (AreaTask task : tasks) {
+            applyLevelArea(level, detailLevel, task);
+        }
+        detailLevel.valid = true;
+    }
+
+    // helper - apply a processed area to a coarser level
+    private void applyLevelArea(int level, DetailLevel detailLevel, AreaTask task) {
+        Integer oldId = detailLevel.objects.get(task.areaKey);
+        if (!task.fullRefresh) {
+            // only do texture refresh (soft)
+            if (oldId != null) {
+                ((BorderObject3D) getObject(oldId)).refreshTextureInterpolation();
+            }
+            return;
+        }
+        // remove old version of this area (if exists)
+        if (oldId != null) {
+            detailLevel.triangleCount -= getObject(oldId).getMesh().getTriangleCount();
+            removeWorldObject(oldId);
+            detailLevel.objects.remove(task.areaKey);
+        }
+        if (task.faceList != null) {
+            BorderObject3D box = new BorderObject3D(
+                    task.tris, task.faceList,
+                    task.min1, task.min2, task.w, task.h, task.orientation, task.orientation/2,
+                    task.plane, simpleMode, side, culling,
+                    hasBorder, detailLevel.hullManager
+            );
+            // scale the object to the size of the voxels it replaces
+            int cellSize = 1 << level;
+            float shift = (cellSize - 1) / 2f * VitcoSettings.VOXEL_SIZE;
+            box.setRotationPivot(new SimpleVector(0, 0, 0));
+            box.setScale(cellSize);
+            box.translate(shift, shift, shift);
+            // hit tests are done against the voxels
+            box.setCollisionMode(Object3D.COLLISION_CHECK_NONE);
+            box.setVisibility(activeLevel == level);
+            detailLevel.objects.put(task.areaKey, addObject(box));
+            detailLevel.triangleCount += task.tris.size();
+        }
+    }
+
+    // show the level that is needed for the camera distance and the polygon budget
+    private void refreshDetailLevel() {
+        // the finest level within the budget (levels that were never built need to be built to know)
+        int level = 0;
+        int count = triangleCount;
+        while (level < VitcoSettings.LOD_LEVEL_COUNT
+                && count > polygonBudget * VitcoSettings.LOD_BUDGET_FACTOR) {
+            level++;
+            if (detailLevels[level - 1].triangleCount == -1) {
+                updateLevel(level);
+            }
+            count = detailLevels[level - 1].triangleCount;
+        }
+        budgetLevel = level;
+        level = Math.max(level, distanceLevel);
+        if (level > 0 && !detailLevels[level - 1].valid) {
+            updateLevel(level);
+        }
+        // swap the visible objects
+        if (level != activeLevel) {
+            for (Integer objId : worldId2Side.keySet()) {
+                getObject(objId).setVisibility(level == 0);
+            }
+            for (int i = 1; i <= detailLevels.length; i++) {
+                for (Integer objId : detailLevels[i - 1].objects.values()) {
+                    getObject(objId).setVisibility(level == i);
+                }
             }
+            activeLevel = level;
         }
-        //faceManager.clearInvalidAreas(orientation);
-        return progressCounter < maxAreaDraw;
     }
 
     // refresh world (partially) - returns true if fully refreshed
@@ -266,31 +545,39 @@ public class CWorld extends AbstractCWorld {
             voxelManager.clear();
             // remove world objects
             for (Integer objId : worldId2Side.keySet()) {
-                // only remove texture in non-wireframe world
-                if (!simpleMode) {
-                    BorderObject3D obj = (BorderObject3D) getObject(objId);
-                    // remove other information
-                    removeObject(objId);
-                    obj.freeTexture();
-                } else {
-                    // remove other information
-                    removeObject(objId);
-                }
+                removeWorldObject(objId);
             }
             worldId2Side.clear();
             plane2WorldId.clear();
+            triangleCount = 0;
+            // reset the detail levels
+            lodManager.clear();
+            for (DetailLevel level : detailLevels) {
+                removeLevelObjects(level);
+                level.triangleCount = -1;
+                level.valid = false;
+            }
+            activeLevel = 0;
+            budgetLevel = 0;
         }
 
-        // handle the updating
+        // collect the outdated areas
+        ArrayList<AreaTask> tasks = new ArrayList<AreaTask>();
         if (side == -1) {
             for (int i = 0; i < 6; i++) {
                 for (Voxel voxel : hullManager.getHullAdditions(i)) {
                     voxelManager.addFace(i, voxel);
+                    if (hasDetailLevels) {
+                        lodManager.addFace(i, voxel);
+                    }
                 }
                 for (Voxel voxel : hullManager.getHullRemovals(i)) {
                     voxelManager.removeFace(i, voxel);
+                    if (hasDetailLevels) {
+                        lodManager.removeFace(i, voxel);
+                    }
                 }
-                if (handleOrientedPlane(i)) {
+                if (collectOutdatedAreas(i, tasks)) {
                     ready++;
                 }
             }
@@ -302,11 +589,35 @@ public class CWorld extends AbstractCWorld {
             for (Voxel voxel : hullManager.getHullRemovals(orientation)) {
                 voxelManager.removeFace(orientation, voxel);
             }
-            if (handleOrientedPlane(orientation)) {
+            if (collectOutdatedAreas(orientation, tasks)) {
                 ready = 6;
             }
         }
 
+        // triangulate the areas of all orientations in parallel (the voxel manager
+        // is not modified while this is running)
+        tasks.parallelStream()
+                .filter(task -> task.fullRefresh && task.faceList != null)
+                .forEach(AreaTask::buildMesh);
+
+        // swap the world objects (serialized)
+        for (AreaTask task : tasks) {
+            applyArea(task);
+        }
+
+        if (hasDetailLevels) {
+            if (!tasks.isEmpty()) {
+                // the coarser levels are outdated (they are updated once they are shown)
+                for (DetailLevel level : detailLevels) {
+                    level.valid = false;
+                }
+            }
+            // only switch once all areas are up to date
+            if (ready == 6) {
+                refreshDetailLevel();
+            }
+        }
+
         return ready == 6;
 
     }
@@ -0,0 +1,120 @@
+package com.vitco.app.core.world;
+
+import com.vitco.app.settings.VitcoSettings;
+import com.vitco.app.util.graphic.GraphicTools;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pool for the generated area textures.
+ *
+ * Textures are addressed by their content, so areas that look the same share one texture. The
+ * textures are reference counted. Unused textures are kept, so they don't need to be loaded again
+ * when an area changes back, and the least recently used are removed once the budget is exceeded.
+ */
+public final class TexturePool {
+
+    // prevent instantiation
+    private TexturePool() {}
+
+    // maximum memory of all textures (only unused textures are removed to stay within)
+    private static long budget = VitcoSettings.TEXTURE_POOL_BUDGET;
+
+    // a texture that is in use
+    private static final class Entry {
+        private final long size;
+        private int count = 0;
+
+        private Entry(long size) {
+            this.size = size;
+        }
+    }
+
+    // the textures that are in use
+    private static final HashMap<String, Entry> used = new HashMap<String, Entry>();
+    // the textures that are not used anymore, least recently released first (name -> size in bytes)
+    private static final LinkedHashMap<String, Long> unused = new LinkedHashMap<String, Long>();
+
+    private static long usedBytes = 0;
+    private static long unusedBytes = 0;
+    private static long loadCount = 0;
+    private static long reuseCount = 0;
+
+    // the memory a texture needs (in bytes)
+    private static long getSize(BufferedImage image) {
+        return image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    // the name of the texture with this content
+    public static String getName(BufferedImage image) {
+        return image.getWidth() + "x" + image.getHeight() + "_" + GraphicTools.getHash(image);
+    }
+
+    // use a texture (loaded if it is not in the pool yet), the name needs to match the content
+    public static synchronized void acquire(String name, BufferedImage image) {
+        Entry entry = used.get(name);
+        if (entry == null) {
+            entry = new Entry(getSize(image));
+            if (unused.remove(name) != null) {
+                unusedBytes -= entry.size;
+                reuseCount++;
+            } else {
+                WorldManager.loadEfficientTexture(name, image, false);
+                loadCount++;
+            }
+            usedBytes += entry.size;
+            used.put(name, entry);
+            // make room for the new texture
+            evict();
+        }
+        entry.count++;
+    }
+
+    // stop using a texture
+    public static synchronized void release(String name) {
+        Entry entry = used.get(name);
+        if (--entry.count == 0) {
+            used.remove(name);
+            usedBytes -= entry.size;
+            unusedBytes += entry.size;
+            unused.put(name, entry.size);
+            evict();
+        }
+    }
+
+    // remove unused textures until the budget is met
+    private static void evict() {
+        Iterator<Map.Entry<String, Long>> it = unused.entrySet().iterator();
+        while (usedBytes + unusedBytes > budget && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            WorldManager.removeEfficientTexture(entry.getKey());
+            unusedBytes -= entry.getValue();
+            it.remove();
+        }
+    }
+
+    // set the maximum memory of all textures (in bytes)
+    public static synchronized void setBudget(long bytes) {
+        budget = bytes;
+        evict();
+    }
+
+    // true if the texture is in the pool (used or not)
+    public static synchronized boolean contains(String name) {
+        return used.containsKey(name) || unused.containsKey(name);
+    }
+
+    // get the statistics of the pool
+    public static synchronized String[] getStatistics() {
+        return new String[] {
+                String.format("Used: %d textures, %,.1f KB", used.size(), usedBytes / 1024.0),
+                String.format("Unused: %d textures, %,.1f KB", unused.size(), unusedBytes / 1024.0),
+                String.format("Budget: %,.1f KB", budget / 1024.0),
+                String.format("Loaded: %d, reused: %d", loadCount, reuseCount)
+        };
+    }
+}
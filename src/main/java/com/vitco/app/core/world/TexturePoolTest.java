@@ -0,0 +1,81 @@
+package com.vitco.app.core.world;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Test the sharing, reuse and eviction of pooled textures.
+ */
+public class TexturePoolTest {
+
+    // helper - image with a single color
+    private static BufferedImage createImage(int w, int h, int rgb) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void testSharedAndReused() {
+        TexturePool.setBudget(1024 * 1024);
+        BufferedImage image = createImage(16, 8, 0x123456);
+        String name = TexturePool.getName(image);
+        assert name.equals(TexturePool.getName(createImage(16, 8, 0x123456)));
+        // same content with a different size is a different texture
+        assert !name.equals(TexturePool.getName(createImage(8, 16, 0x123456)));
+
+        TexturePool.acquire(name, image);
+        TexturePool.acquire(name, image);
+        int id = WorldManager.getTextureId(name);
+        TexturePool.release(name);
+        assert WorldManager.containsTexture(name);
+        // unused textures are kept
+        TexturePool.release(name);
+        assert TexturePool.contains(name);
+        assert WorldManager.containsTexture(name);
+        // and reused without loading them again
+        TexturePool.acquire(name, image);
+        assert WorldManager.getTextureId(name) == id;
+        TexturePool.release(name);
+    }
+
+    @Test
+    public void testBudget() {
+        TexturePool.setBudget(3 * 32 * 32 * 4);
+        String[] names = new String[4];
+        for (int i = 0; i < names.length; i++) {
+            BufferedImage image = createImage(32, 32, i);
+            names[i] = TexturePool.getName(image);
+            TexturePool.acquire(names[i], image);
+        }
+        // textures in use are never removed
+        for (String name : names) {
+            TexturePool.release(name);
+        }
+        // the least recently released texture is removed
+        assert !TexturePool.contains(names[0]);
+        assert !WorldManager.containsTexture(names[0]);
+        for (int i = 1; i < names.length; i++) {
+            assert TexturePool.contains(names[i]);
+        }
+        // acquiring a new texture also removes unused ones
+        BufferedImage image = createImage(32, 32, names.length);
+        String added = TexturePool.getName(image);
+        TexturePool.acquire(added, image);
+        assert !TexturePool.contains(names[1]);
+        assert !WorldManager.containsTexture(names[1]);
+        assert TexturePool.contains(names[2]) && TexturePool.contains(names[3]);
+        TexturePool.release(added);
+        TexturePool.setBudget(0);
+        assert !TexturePool.contains(added);
+        for (String name : names) {
+            assert !TexturePool.contains(name);
+            assert !WorldManager.containsTexture(name);
+        }
+    }
+}
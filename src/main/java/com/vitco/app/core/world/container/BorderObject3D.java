@@ -6,10 +6,9 @@ import com.threed.jpct.SimpleVector;
 import com.threed.jpct.TextureInfo;
 import com.vitco.app.core.data.container.Voxel;
 import com.vitco.app.low.hull.HullManager;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 import com.vitco.app.settings.VitcoSettings;
 import com.vitco.app.util.misc.ConversionTools;
-import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
-import org.poly2tri.triangulation.point.TPoint;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -23,15 +22,15 @@ public class BorderObject3D extends Object3D {
     private static final long serialVersionUID = 1L;
 
     // get the rounded points of a triangle as an int array
-    private static int[] getRoundedPoints(DelaunayTriangle triangle) {
+    private static int[] getRoundedPoints(TriangleBuffer tris, int triangle) {
         // rounding is needed since the triangulation can result in non integers
         return new int[] {
-                Math.round(triangle.points[0].getXf()),
-                Math.round(triangle.points[0].getYf()),
-                Math.round(triangle.points[1].getXf()),
-                Math.round(triangle.points[1].getYf()),
-                Math.round(triangle.points[2].getXf()),
-                Math.round(triangle.points[2].getYf())
+                tris.getRoundedX(triangle, 0),
+                tris.getRoundedY(triangle, 0),
+                tris.getRoundedX(triangle, 1),
+                tris.getRoundedY(triangle, 1),
+                tris.getRoundedX(triangle, 2),
+                tris.getRoundedY(triangle, 2)
         };
     }
 
@@ -49,11 +48,10 @@ public class BorderObject3D extends Object3D {
 
     // returns the outside directions for those points that are "outside"
     private static byte[] getOutsideDirections(
-            HashSet<Point> seenTrianglePoints, DelaunayTriangle triangle, int[] roundedTrianglePoints) {
+            HashSet<Point> seenTrianglePoints, TriangleBuffer tris, int triangle, int[] roundedTrianglePoints) {
 
-        TPoint triangle_center = triangle.centroid();
         boolean[] centerDirection =
-                getCenterDirection(roundedTrianglePoints, triangle_center.getXf(), triangle_center.getYf());
+                getCenterDirection(roundedTrianglePoints, tris.getCentroidX(triangle), tris.getCentroidY(triangle));
 
         byte[] outsideDirection = new byte[6];
 
@@ -157,7 +155,7 @@ public class BorderObject3D extends Object3D {
     }
 
     // generate triangles and use adjustable edge interpolation
-    private void generateAdvanced(ArrayList<DelaunayTriangle> triangleList, Collection<Voxel> faceList,
+    private void generateAdvanced(TriangleBuffer triangleList, Collection<Voxel> faceList,
                                   int minx, int miny, int w, int h, Integer orientation, Integer axis,
                                   Integer plane, int side, HullManager<Voxel> hullManager) {
 
@@ -201,11 +199,11 @@ public class BorderObject3D extends Object3D {
         float move = orientation%2 == 0 ? 0.5f : -0.5f;
 
         // iterate over triangles
-        for (DelaunayTriangle tri : triangleList) {
+        for (int tri = 0, size = triangleList.size(); tri < size; tri++) {
             // get the rounded points
-            int[] roundedTrianglePoints = getRoundedPoints(tri);
+            int[] roundedTrianglePoints = getRoundedPoints(triangleList, tri);
             // get the outside direction
-            byte[] outside_direction = getOutsideDirections(seenTrianglePoints, tri, roundedTrianglePoints);
+            byte[] outside_direction = getOutsideDirections(seenTrianglePoints, triangleList, tri, roundedTrianglePoints);
             // the the interpolated points
             SimpleVector[] interpTrianglePoints = getTrianglePointsInterpolated(axis, plane, move, roundedTrianglePoints, minx, miny, outside_direction);
             // get the appropriate interpolation for the texture
@@ -245,11 +243,11 @@ public class BorderObject3D extends Object3D {
     }
 
     // generate triangles without any interpolation
-    private void generateSimple(ArrayList<DelaunayTriangle> triangleList, int minx, int miny,
+    private void generateSimple(TriangleBuffer triangleList, int minx, int miny,
                                 Integer orientation, Integer axis, Integer plane) {
         float move = orientation%2 == 0 ? 0.5f : -0.5f;
-        for (DelaunayTriangle triangle : triangleList) {
-            int[] roundedTrianglePoints = getRoundedPoints(triangle);
+        for (int triangle = 0, size = triangleList.size(); triangle < size; triangle++) {
+            int[] roundedTrianglePoints = getRoundedPoints(triangleList, triangle);
             SimpleVector[] simpleVectors = getTrianglePoints(axis, plane, move, roundedTrianglePoints, minx, miny);
             this.addTriangle(simpleVectors[inverted?1:0],simpleVectors[inverted?0:1],simpleVectors[2]);
         }
@@ -298,7 +296,7 @@ public class BorderObject3D extends Object3D {
     // ------------------------------------
 
     // constructor
-    public BorderObject3D(ArrayList<DelaunayTriangle> tris, Collection<Voxel> faceList,
+    public BorderObject3D(TriangleBuffer tris, Collection<Voxel> faceList,
                           int minx, int miny, int w, int h, Integer orientation, Integer axis,
                           Integer plane, boolean simpleMode, int side,
                           boolean culling, boolean hasBorder, HullManager<Voxel> hullManager) {
@@ -0,0 +1,188 @@
+package com.vitco.app.core.world.container;
+
+import com.threed.jpct.SimpleVector;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.low.CubeIndexer;
+import com.vitco.app.settings.VitcoSettings;
+import com.vitco.app.util.misc.IntegerTools;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntByteHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.awt.*;
+
+/**
+ * Keeps track of the visible voxels of a world and computes coarser versions of them (level of detail).
+ *
+ * A level merges cubes of 2^level voxels per axis into one voxel with the average color.
+ * Once a level was computed, the cubes that change afterwards are tracked, so that the
+ * level can be updated without computing all of it again.
+ */
+public class LodManager {
+
+    // the visible voxels (pos id -> voxel)
+    private final TIntObjectHashMap<Voxel> voxels = new TIntObjectHashMap<Voxel>();
+    // the directions a voxel is visible in (pos id -> bit mask)
+    private final TIntByteHashMap directions = new TIntByteHashMap();
+
+    // the changed cubes per level (level i is stored at index i - 1, null while not tracked)
+    private final TIntHashSet[] changedCubes = new TIntHashSet[VitcoSettings.LOD_LEVEL_COUNT];
+
+    // helper - mark the cubes of a voxel as changed (for the tracked levels)
+    private void markChanged(Voxel voxel) {
+        for (int i = 0; i < changedCubes.length; i++) {
+            if (changedCubes[i] != null) {
+                int cellSize = 2 << i;
+                changedCubes[i].add(CubeIndexer.getId(
+                        IntegerTools.ifloordiv2(voxel.x, cellSize),
+                        IntegerTools.ifloordiv2(voxel.y, cellSize),
+                        IntegerTools.ifloordiv2(voxel.z, cellSize)));
+            }
+        }
+    }
+
+    // bounding box of the visible voxels (min x, y, z, max x, y, z), only grows until cleared
+    private volatile int[] bounds = null;
+
+    // add a visible face
+    public final void addFace(int orientation, Voxel voxel) {
+        markChanged(voxel);
+        voxels.put(voxel.posId, voxel);
+        directions.put(voxel.posId, (byte) (directions.get(voxel.posId) | (1 << orientation)));
+        int[] bounds = this.bounds;
+        if (bounds == null || voxel.x < bounds[0] || voxel.y < bounds[1] || voxel.z < bounds[2]
+                || voxel.x > bounds[3] || voxel.y > bounds[4] || voxel.z > bounds[5]) {
+            // replace the array, since it is read by other threads
+            this.bounds = bounds == null
+                    ? new int[] {voxel.x, voxel.y, voxel.z, voxel.x, voxel.y, voxel.z}
+                    : new int[] {
+                        Math.min(bounds[0], voxel.x), Math.min(bounds[1], voxel.y), Math.min(bounds[2], voxel.z),
+                        Math.max(bounds[3], voxel.x), Math.max(bounds[4], voxel.y), Math.max(bounds[5], voxel.z)
+                    };
+        }
+    }
+
+    // remove a visible face
+    public final void removeFace(int orientation, Voxel voxel) {
+        if (directions.containsKey(voxel.posId)) {
+            markChanged(voxel);
+            byte mask = (byte) (directions.get(voxel.posId) & ~(1 << orientation));
+            if (mask == 0) {
+                directions.remove(voxel.posId);
+                voxels.remove(voxel.posId);
+            } else {
+                directions.put(voxel.posId, mask);
+            }
+        }
+    }
+
+    // remove all voxels
+    public final void clear() {
+        voxels.clear();
+        directions.clear();
+        bounds = null;
+        for (int i = 0; i < changedCubes.length; i++) {
+            changedCubes[i] = null;
+        }
+    }
+
+    // the amount of visible voxels
+    public final int size() {
+        return voxels.size();
+    }
+
+    // distance from a point (in world coordinates) to the bounding box of the voxels
+    // (zero if the point is inside or there are no voxels)
+    public final float getDistance(SimpleVector point) {
+        int[] bounds = this.bounds;
+        if (bounds == null) {
+            return 0;
+        }
+        float min = -VitcoSettings.HALF_VOXEL_SIZE;
+        float max = VitcoSettings.HALF_VOXEL_SIZE;
+        float dx = Math.max(0, Math.max(bounds[0] * VitcoSettings.VOXEL_SIZE + min - point.x,
+                point.x - bounds[3] * VitcoSettings.VOXEL_SIZE - max));
+        float dy = Math.max(0, Math.max(bounds[1] * VitcoSettings.VOXEL_SIZE + min - point.y,
+                point.y - bounds[4] * VitcoSettings.VOXEL_SIZE - max));
+        float dz = Math.max(0, Math.max(bounds[2] * VitcoSettings.VOXEL_SIZE + min - point.z,
+                point.z - bounds[5] * VitcoSettings.VOXEL_SIZE - max));
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // compute the voxels of a level, the position of a voxel is the position of its cube
+    // (i.e. it needs to be scaled by 2^level to match the voxels of this manager),
+    // the changes of this level are tracked from now on
+    public final Voxel[] downsample(int level) {
+        changedCubes[level - 1] = new TIntHashSet();
+        int cellSize = 1 << level;
+        // the sum of the colors and the voxel count per cube (cube pos id -> [r, g, b, count])
+        TIntObjectHashMap<int[]> cubes = new TIntObjectHashMap<int[]>();
+        for (TIntObjectIterator<Voxel> it = voxels.iterator(); it.hasNext();) {
+            it.advance();
+            Voxel voxel = it.value();
+            int cubeId = CubeIndexer.getId(
+                    IntegerTools.ifloordiv2(voxel.x, cellSize),
+                    IntegerTools.ifloordiv2(voxel.y, cellSize),
+                    IntegerTools.ifloordiv2(voxel.z, cellSize));
+            int[] cube = cubes.get(cubeId);
+            if (cube == null) {
+                cube = new int[4];
+                cubes.put(cubeId, cube);
+            }
+            Color color = voxel.getColor();
+            cube[0] += color.getRed();
+            cube[1] += color.getGreen();
+            cube[2] += color.getBlue();
+            cube[3]++;
+        }
+        Voxel[] result = new Voxel[cubes.size()];
+        int i = 0;
+        for (TIntObjectIterator<int[]> it = cubes.iterator(); it.hasNext();) {
+            it.advance();
+            int[] cube = it.value();
+            result[i++] = createCube(it.key(), cube);
+        }
+        return result;
+    }
+
+    // helper - create the voxel of a cube from its color sum and voxel count
+    private static Voxel createCube(int cubeId, int[] cube) {
+        short[] pos = CubeIndexer.getPos(cubeId);
+        return new Voxel(cubeId, new int[] {pos[0], pos[1], pos[2]},
+                new Color(cube[0] / cube[3], cube[1] / cube[3], cube[2] / cube[3]), false, null, -1);
+    }
+
+    // get the cubes of a level that changed since the last call (or since the level was
+    // computed), returns null if the level was not computed since the last clear
+    public final int[] pollChangedCubes(int level) {
+        TIntHashSet changed = changedCubes[level - 1];
+        if (changed == null) {
+            return null;
+        }
+        changedCubes[level - 1] = new TIntHashSet();
+        return changed.toArray();
+    }
+
+    // compute the voxel of one cube of a level (null if the cube is empty)
+    public final Voxel downsample(int level, int cubeId) {
+        int cellSize = 1 << level;
+        short[] pos = CubeIndexer.getPos(cubeId);
+        int[] cube = new int[4];
+        for (int x = pos[0] * cellSize, maxX = x + cellSize; x < maxX; x++) {
+            for (int y = pos[1] * cellSize, maxY = y + cellSize; y < maxY; y++) {
+                for (int z = pos[2] * cellSize, maxZ = z + cellSize; z < maxZ; z++) {
+                    Voxel voxel = voxels.get(CubeIndexer.getId(x, y, z));
+                    if (voxel != null) {
+                        Color color = voxel.getColor();
+                        cube[0] += color.getRed();
+                        cube[1] += color.getGreen();
+                        cube[2] += color.getBlue();
+                        cube[3]++;
+                    }
+                }
+            }
+        }
+        return cube[3] == 0 ? null : createCube(cubeId, cube);
+    }
+}
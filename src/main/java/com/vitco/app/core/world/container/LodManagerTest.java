@@ -0,0 +1,113 @@
+package com.vitco.app.core.world.container;
+
+import com.threed.jpct.SimpleVector;
+import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.settings.VitcoSettings;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.HashMap;
+
+/**
+ * Test the tracking of visible voxels and the computation of the coarser levels.
+ */
+public class LodManagerTest {
+
+    // helper - create a voxel
+    private static Voxel voxel(int x, int y, int z, Color color) {
+        return new Voxel(0, new int[] {x, y, z}, color, false, null, 0);
+    }
+
+    @Test
+    public void testDownsample() {
+        LodManager lodManager = new LodManager();
+        // two voxels in the cube (-1,0,0) and one in the cube (0,0,0) for level one
+        lodManager.addFace(0, voxel(-2, 0, 1, new Color(100, 0, 0)));
+        lodManager.addFace(2, voxel(-1, 1, 0, new Color(0, 200, 0)));
+        lodManager.addFace(4, voxel(1, 1, 1, new Color(0, 0, 30)));
+        // visible in two directions (counted once)
+        lodManager.addFace(5, voxel(1, 1, 1, new Color(0, 0, 30)));
+        assert lodManager.size() == 3;
+
+        HashMap<String, Color> result = new HashMap<String, Color>();
+        for (Voxel voxel : lodManager.downsample(1)) {
+            result.put(voxel.getPosAsString(), voxel.getColor());
+        }
+        assert result.size() == 2;
+        assert result.get(voxel(-1, 0, 0, Color.BLACK).getPosAsString()).equals(new Color(50, 100, 0));
+        assert result.get(voxel(0, 0, 0, Color.BLACK).getPosAsString()).equals(new Color(0, 0, 30));
+
+        // the cubes are aligned to zero (negative positions round down)
+        assert lodManager.downsample(2).length == 2;
+        lodManager.removeFace(4, voxel(1, 1, 1, Color.BLACK));
+        lodManager.removeFace(5, voxel(1, 1, 1, Color.BLACK));
+        assert lodManager.downsample(3).length == 1;
+    }
+
+    @Test
+    public void testRemoveFace() {
+        LodManager lodManager = new LodManager();
+        Voxel voxel = voxel(3, 4, 5, Color.RED);
+        lodManager.addFace(0, voxel);
+        lodManager.addFace(3, voxel);
+        lodManager.removeFace(0, voxel);
+        // still visible in one direction
+        assert lodManager.size() == 1;
+        lodManager.removeFace(3, voxel);
+        assert lodManager.size() == 0;
+        // removing a face that is not known does nothing
+        lodManager.removeFace(1, voxel);
+        assert lodManager.downsample(1).length == 0;
+    }
+
+    @Test
+    public void testChangedCubes() {
+        LodManager lodManager = new LodManager();
+        lodManager.addFace(0, voxel(0, 0, 0, new Color(100, 0, 0)));
+        // the changes are only tracked once the level was computed
+        assert lodManager.pollChangedCubes(1) == null;
+        assert lodManager.downsample(1).length == 1;
+        assert lodManager.pollChangedCubes(1).length == 0;
+        // two changes in one cube and one in another cube
+        lodManager.addFace(0, voxel(1, 1, 1, new Color(0, 0, 100)));
+        lodManager.addFace(0, voxel(-1, 0, 0, Color.GREEN));
+        lodManager.addFace(1, voxel(-1, 0, 0, Color.GREEN));
+        int[] changed = lodManager.pollChangedCubes(1);
+        assert changed.length == 2;
+        assert lodManager.pollChangedCubes(1).length == 0;
+        // the changed cubes match the complete level
+        HashMap<Integer, Color> expected = new HashMap<Integer, Color>();
+        for (Voxel voxel : lodManager.downsample(1)) {
+            expected.put(voxel.posId, voxel.getColor());
+        }
+        for (int cubeId : changed) {
+            assert lodManager.downsample(1, cubeId).getColor().equals(expected.get(cubeId));
+        }
+        assert expected.get(voxel(0, 0, 0, Color.BLACK).posId).equals(new Color(50, 0, 50));
+        // an empty cube
+        lodManager.removeFace(0, voxel(-1, 0, 0, Color.GREEN));
+        lodManager.removeFace(1, voxel(-1, 0, 0, Color.GREEN));
+        changed = lodManager.pollChangedCubes(1);
+        assert changed.length == 1 && lodManager.downsample(1, changed[0]) == null;
+        // other levels are tracked independently and the tracking ends with a clear
+        assert lodManager.pollChangedCubes(2) == null;
+        lodManager.clear();
+        assert lodManager.pollChangedCubes(1) == null;
+    }
+
+    @Test
+    public void testDistance() {
+        LodManager lodManager = new LodManager();
+        assert lodManager.getDistance(new SimpleVector(100, 0, 0)) == 0;
+        lodManager.addFace(0, voxel(0, 0, 0, Color.RED));
+        lodManager.addFace(0, voxel(2, 0, 0, Color.RED));
+        float size = VitcoSettings.VOXEL_SIZE;
+        // inside the bounding box
+        assert lodManager.getDistance(new SimpleVector(size, 0, 0)) == 0;
+        // next to the bounding box
+        assert Math.abs(lodManager.getDistance(new SimpleVector(3 * size, 0, 0)) - size / 2) < 0.001f;
+        assert Math.abs(lodManager.getDistance(new SimpleVector(0, -size * 10.5f, 0)) - size * 10) < 0.001f;
+        lodManager.clear();
+        assert lodManager.getDistance(new SimpleVector(100, 0, 0)) == 0;
+    }
+}
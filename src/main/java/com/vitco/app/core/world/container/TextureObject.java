@@ -1,6 +1,7 @@
 package com.vitco.app.core.world.container;
 
 import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.core.world.TexturePool;
 import com.vitco.app.core.world.WorldManager;
 import com.vitco.app.low.hull.HullManager;
 import com.vitco.app.util.graphic.GraphicTools;
@@ -10,7 +11,6 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 
 /**
@@ -32,9 +32,6 @@ public class TextureObject implements Serializable {
     private int textureId;
     private String textureName = null;
 
-    // counts how often the textures are used
-    private static final HashMap<String, Integer> textureCount = new HashMap<String, Integer>();
-
     // constructor
     public TextureObject(int minx, int miny, Collection<Voxel> faceList,
                          Integer orientation, Integer axis, HullManager<Voxel> hullManager,
@@ -73,17 +70,9 @@ public class TextureObject implements Serializable {
 
     // called when this instance is no longer needed
     public final void destroy() {
-        setCurrentTextureUnused();
-    }
-
-    // sets the current texture unused
-    private void setCurrentTextureUnused() {
-        int count = textureCount.get(textureName);
-        if (count == 1) {
-            WorldManager.removeEfficientTexture(textureName);
-            textureCount.remove(textureName);
-        } else {
-            textureCount.put(textureName, count - 1);
+        if (textureName != null) {
+            TexturePool.release(textureName);
+            textureName = null;
         }
     }
 
@@ -240,26 +229,20 @@ public class TextureObject implements Serializable {
         }
         g2.dispose();
 
-        // get the hash of the texture as texture key
-        String textureNameNew = GraphicTools.getHash(textureImage);
+        // the content of the texture is the texture key
+        String textureNameNew = TexturePool.getName(textureImage);
 
         if (!textureNameNew.equals(textureName)) {
 
             // update count and load if necessary
-            Integer count = textureCount.get(textureNameNew);
-            if (count == null) {
-                count = 0;
-                // load the texture
-                WorldManager.loadEfficientTexture(textureNameNew, textureImage, false);
-            }
-            textureCount.put(textureNameNew, count + 1);
+            TexturePool.acquire(textureNameNew, textureImage);
             // get the id for this texture
             textureId = WorldManager.getTextureId(textureNameNew);
             // update the texture of the object
             obj.setTexture(textureNameNew);
             // remove existing (old) texture information
             if (textureName != null) {
-                setCurrentTextureUnused();
+                TexturePool.release(textureName);
             }
             // assign the new texture name
             textureName = textureNameNew;
@@ -65,7 +65,7 @@ public abstract class AbstractExporter extends ProgressReporter {
 
     // compute and write the file content
     public final boolean writeData() throws IOException {
-        fileOut = new FileOut(exportTo.getAbsolutePath());
+        fileOut = new FileOut(exportTo.getAbsolutePath(), true);
         boolean wasWritten = false;
         try {
             wasWritten = writeFile();
@@ -119,6 +119,7 @@ public class PnxExporter extends AbstractExporter {
         }
 
         // write data cache
+        fileOutBuffer.finish();
         fileOut.writeBytes(baos.toByteArray());
 
         // success
@@ -6,10 +6,13 @@ import com.vitco.app.layout.content.console.ConsoleInterface;
 import com.vitco.app.settings.DynamicSettings;
 import com.vitco.app.util.components.progressbar.ProgressDialog;
 import com.vitco.app.util.file.FileOut;
-import com.vitco.app.util.misc.ByteHelper;
+import gnu.trove.set.hash.TLongHashSet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Exporter into *.qb (Qubicle 1.0)
@@ -51,6 +54,9 @@ public class QbExporter extends AbstractExporter {
     private static final int NEXT_SLICE_FLAG = 6;
     private static final int TRANSPARENT_VOXEL = 0x00000000;
 
+    // maximum amount of cells (bits) for which a dense occupancy grid is used
+    private static final long DENSE_GRID_LIMIT = 1L << 27;
+
     // write the file
     @Override
     protected boolean writeFile() throws IOException {
@@ -76,6 +82,7 @@ public class QbExporter extends AbstractExporter {
         // num matrices
         fileOut.writeIntRev(layers.length);
 
+        RunWriter out = new RunWriter(fileOut);
         for (int i = layers.length - 1; i >= 0; i--) {
             Integer layerId = layers[i];
 
@@ -84,7 +91,8 @@ public class QbExporter extends AbstractExporter {
             fileOut.writeByte((byte) layerName.length());
             fileOut.writeASCIIString(layerName);
 
-            int[][] meta = get_meta(layerId);
+            Voxel[] voxels = data.getLayerVoxels(layerId);
+            int[][] meta = get_meta(voxels);
             int[] min = meta[0];
             int[] max = meta[1];
             int[] size = meta[2];
@@ -99,75 +107,255 @@ public class QbExporter extends AbstractExporter {
             fileOut.writeIntRev(this.useOriginAsZero ? -max[1] : 0);
             fileOut.writeIntRev(this.useOriginAsZero ? min[ax2] : 0);
 
-            int currentColor = TRANSPARENT_VOXEL;
-            int count = 0;
-
-            for (int c1 = min[ax2]; c1 <= max[ax2]; c1++) {
-                for (int y = max[1]; y >= min[1]; y--) {
-                    for (int c2 = min[ax1]; c2 <= max[ax1]; c2++) {
-                        int x = this.useRightHandedZAxisOrientation ? c2 : c1;
-                        int z = this.useRightHandedZAxisOrientation ? c1 : c2;
-                        Voxel voxel = data.searchVoxel(new int[]{x, y, z}, layerId);
-                        int newColor;
-                        if (voxel == null) {
-                            newColor = TRANSPARENT_VOXEL;
-                        } else {
-                            byte visible = 1;
-                            if (this.useVisMaskEncoding) {
-                                if (data.searchVoxel(new int[]{x - 1, y, z}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, this.useRightHandedZAxisOrientation ? 5 : 1);
-                                }
-                                if (data.searchVoxel(new int[]{x + 1, y, z}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, this.useRightHandedZAxisOrientation ? 6 : 2);
-                                }
-                                if (data.searchVoxel(new int[]{x, y + 1, z}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, 3);
-                                }
-                                if (data.searchVoxel(new int[]{x, y - 1, z}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, 4);
-                                }
-                                if (data.searchVoxel(new int[]{x, y, z - 1}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, this.useRightHandedZAxisOrientation ? 2 : 5);
-                                }
-                                if (data.searchVoxel(new int[]{x, y, z + 1}, layerId) == null) {
-                                    visible = ByteHelper.setBit(visible, this.useRightHandedZAxisOrientation ? 1 : 6);
-                                }
-                            }
-                            newColor = voxel.getColor().getRGB();
-                            newColor = ((this.useVisMaskEncoding ? visible : 0xFF) << 24) | (newColor & 0x000000FF) << 16 | (newColor & 0x0000FF00) | (newColor & 0x00FF0000) >> 16;
-                        }
-
-                        if (this.useCompression) {
-                            if (newColor != currentColor) {
-                                this.writeColor(fileOut, count, currentColor);
-                                count = 0;
-                            }
-                            currentColor = newColor;
-                            count++;
-                        } else {
-                            fileOut.writeIntRev(newColor);
-                        }
-                    }
+            if (size[0] == 0) {
+                continue;
+            }
+
+            // the voxels of every slice, sorted by position in the slice
+            int sliceCount = size[ax2];
+            int sliceArea = size[1] * size[ax1];
+            int[] sliceStart = new int[sliceCount + 1];
+            long[] entries = sortIntoSlices(voxels, min, max, ax1, ax2, sliceStart);
+
+            // write the slices, empty cells in between voxels are written as one run
+            for (int s = 0; s < sliceCount; s++) {
+                int pos = 0;
+                for (int j = sliceStart[s], end = sliceStart[s + 1]; j < end; j++) {
+                    int cell = (int) (entries[j] >>> 32);
+                    out.add(TRANSPARENT_VOXEL, cell - pos);
+                    out.add((int) entries[j], 1);
+                    pos = cell + 1;
                 }
+                out.add(TRANSPARENT_VOXEL, sliceArea - pos);
                 if (this.useCompression) {
-                    this.writeColor(fileOut, count, currentColor);
-                    count = 0;
-                    fileOut.writeIntRev(NEXT_SLICE_FLAG);
+                    out.endSlice();
                 }
             }
+            out.flush();
         }
         // success
         return true;
     }
 
-    private int[][] get_meta(int layerId) {
+    // compute the qb color (incl. visibility mask) of all voxels that are inside the matrix and
+    // sort them into slices (upper bits: index in slice, lower bits: color)
+    private long[] sortIntoSlices(Voxel[] voxels, int[] min, int[] max, int ax1, int ax2, int[] sliceStart) {
+        Occupancy occupancy = this.useVisMaskEncoding ? Occupancy.create(voxels) : null;
+        int size1 = max[ax1] - min[ax1] + 1;
+        // determine slice and index in slice of all voxels in the matrix
+        int[] slice = new int[voxels.length];
+        int[] cell = new int[voxels.length];
+        for (int j = 0; j < voxels.length; j++) {
+            Voxel voxel = voxels[j];
+            int[] pos = new int[] {voxel.x, voxel.y, voxel.z};
+            if (pos[0] < min[0] || pos[0] > max[0] || pos[1] < min[1] || pos[1] > max[1]
+                    || pos[2] < min[2] || pos[2] > max[2]) {
+                slice[j] = -1;
+                continue;
+            }
+            slice[j] = pos[ax2] - min[ax2];
+            cell[j] = (max[1] - pos[1]) * size1 + (pos[ax1] - min[ax1]);
+            sliceStart[slice[j] + 1]++;
+        }
+        for (int s = 1; s < sliceStart.length; s++) {
+            sliceStart[s] += sliceStart[s - 1];
+        }
+        // place the voxels into their slices
+        long[] entries = new long[sliceStart[sliceStart.length - 1]];
+        int[] offset = sliceStart.clone();
+        for (int j = 0; j < voxels.length; j++) {
+            if (slice[j] != -1) {
+                Voxel voxel = voxels[j];
+                int visible = 0xFF;
+                if (occupancy != null) {
+                    visible = occupancy.getVisMask(voxel.x, voxel.y, voxel.z, this.useRightHandedZAxisOrientation);
+                }
+                int rgb = voxel.getColor().getRGB();
+                int color = (visible << 24) | (rgb & 0x000000FF) << 16 | (rgb & 0x0000FF00) | (rgb & 0x00FF0000) >> 16;
+                entries[offset[slice[j]]++] = ((long) cell[j] << 32) | (color & 0xFFFFFFFFL);
+            }
+        }
+        for (int s = 0; s < sliceStart.length - 1; s++) {
+            Arrays.sort(entries, sliceStart[s], sliceStart[s + 1]);
+        }
+        return entries;
+    }
+
+    // occupancy of a layer, used to compute the visibility mask
+    private static abstract class Occupancy {
+        // neighbor bits (x-1, x+1, y+1, y-1, z-1, z+1) for both z axis orientations
+        private static final int[] BITS_RIGHT_HANDED = new int[] {4, 2, 16, 8, 32, 64};
+        private static final int[] BITS_LEFT_HANDED = new int[] {64, 32, 16, 8, 4, 2};
+
+        // use a dense bit grid if the bounding box is small enough
+        static Occupancy create(Voxel[] voxels) {
+            if (voxels.length == 0) {
+                return new SparseOccupancy(0);
+            }
+            int[] min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+            int[] max = new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+            for (Voxel voxel : voxels) {
+                min[0] = Math.min(voxel.x, min[0]);
+                min[1] = Math.min(voxel.y, min[1]);
+                min[2] = Math.min(voxel.z, min[2]);
+                max[0] = Math.max(voxel.x, max[0]);
+                max[1] = Math.max(voxel.y, max[1]);
+                max[2] = Math.max(voxel.z, max[2]);
+            }
+            // padded by one so that no bounds check is needed for neighbors
+            long cells = (max[0] - (long) min[0] + 3) * (max[1] - (long) min[1] + 3) * (max[2] - (long) min[2] + 3);
+            Occupancy result = cells <= DENSE_GRID_LIMIT ? new DenseOccupancy(min, max) : new SparseOccupancy(voxels.length);
+            for (Voxel voxel : voxels) {
+                result.set(voxel.x, voxel.y, voxel.z);
+            }
+            return result;
+        }
+
+        abstract void set(int x, int y, int z);
+
+        abstract boolean isSet(int x, int y, int z);
+
+        // the visibility mask of a voxel (bit set if the neighbor is empty)
+        int getVisMask(int x, int y, int z, boolean rightHanded) {
+            int[] bits = rightHanded ? BITS_RIGHT_HANDED : BITS_LEFT_HANDED;
+            int visible = 1;
+            if (!isSet(x - 1, y, z)) visible |= bits[0];
+            if (!isSet(x + 1, y, z)) visible |= bits[1];
+            if (!isSet(x, y + 1, z)) visible |= bits[2];
+            if (!isSet(x, y - 1, z)) visible |= bits[3];
+            if (!isSet(x, y, z - 1)) visible |= bits[4];
+            if (!isSet(x, y, z + 1)) visible |= bits[5];
+            return visible;
+        }
+    }
+
+    // bit grid over the (padded) bounding box
+    private static final class DenseOccupancy extends Occupancy {
+        private final long[] bits;
+        private final int minX, minY, minZ;
+        private final int sizeY, sizeZ;
+
+        DenseOccupancy(int[] min, int[] max) {
+            minX = min[0] - 1;
+            minY = min[1] - 1;
+            minZ = min[2] - 1;
+            sizeY = max[1] - min[1] + 3;
+            sizeZ = max[2] - min[2] + 3;
+            bits = new long[(int) (((max[0] - min[0] + 3L) * sizeY * sizeZ + 63) >> 6)];
+        }
+
+        private int index(int x, int y, int z) {
+            return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+        }
+
+        @Override
+        void set(int x, int y, int z) {
+            int index = index(x, y, z);
+            bits[index >> 6] |= 1L << index;
+        }
+
+        @Override
+        boolean isSet(int x, int y, int z) {
+            int index = index(x, y, z);
+            return (bits[index >> 6] & (1L << index)) != 0;
+        }
+    }
+
+    // hashed positions (for very large bounding boxes)
+    private static final class SparseOccupancy extends Occupancy {
+        private final TLongHashSet positions;
+
+        SparseOccupancy(int capacity) {
+            positions = new TLongHashSet(capacity);
+        }
+
+        private static long key(int x, int y, int z) {
+            return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+        }
+
+        @Override
+        void set(int x, int y, int z) {
+            positions.add(key(x, y, z));
+        }
+
+        @Override
+        boolean isSet(int x, int y, int z) {
+            return positions.contains(key(x, y, z));
+        }
+    }
+
+    // buffers the color values (little endian) and encodes them as runs (if compression is used)
+    private final class RunWriter {
+        private final FileOut fileOut;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private int currentColor = TRANSPARENT_VOXEL;
+        private int count = 0;
+
+        RunWriter(FileOut fileOut) {
+            this.fileOut = fileOut;
+        }
+
+        // add a run of cells with the same color
+        void add(int color, int length) throws IOException {
+            if (length <= 0) {
+                return;
+            }
+            if (useCompression) {
+                if (color != currentColor) {
+                    writeColor(count, currentColor);
+                    count = 0;
+                }
+                currentColor = color;
+                count += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    writeInt(color);
+                }
+            }
+        }
+
+        // write the current run and the slice flag
+        void endSlice() throws IOException {
+            writeColor(count, currentColor);
+            count = 0;
+            writeInt(NEXT_SLICE_FLAG);
+        }
+
+        // Helper to write color information
+        private void writeColor(int count, int currentColor) throws IOException {
+            if (count > 3) {
+                writeInt(CODE_FLAG);
+                writeInt(count);
+                writeInt(currentColor);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    writeInt(currentColor);
+                }
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        // write the buffered bytes to the file
+        void flush() throws IOException {
+            fileOut.writeBytes(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+
+    private int[][] get_meta(Voxel[] voxels) {
         int[] min, max, size;
         if (!useBoxAsMatrix) { // determine actual size by using the voxels
             min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
             max = new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
             size = new int[]{0, 0, 0};
             boolean hasVoxel = false;
-            for (Voxel voxel : data.getLayerVoxels(layerId)) {
+            for (Voxel voxel : voxels) {
                 min[0] = Math.min(voxel.x, min[0]);
                 min[1] = Math.min(voxel.y, min[1]);
                 min[2] = Math.min(voxel.z, min[2]);
@@ -200,22 +388,4 @@ public class QbExporter extends AbstractExporter {
         };
     }
 
-    // Helper to write color information
-    private void writeColor(FileOut fileOut, int count, int currentColor) throws IOException {
-        if (count == 1) {
-            fileOut.writeIntRev(currentColor);
-        } else if (count == 2) {
-            fileOut.writeIntRev(currentColor);
-            fileOut.writeIntRev(currentColor);
-        } else if (count == 3) {
-            fileOut.writeIntRev(currentColor);
-            fileOut.writeIntRev(currentColor);
-            fileOut.writeIntRev(currentColor);
-        } else if (count > 3) {
-            fileOut.writeIntRev(CODE_FLAG);
-            fileOut.writeIntRev(count);
-            fileOut.writeIntRev(currentColor);
-        }
-    }
-
 }
@@ -7,8 +7,13 @@ import com.vitco.app.util.components.progressbar.ProgressDialog;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Export cross-section slices of the voxel into
@@ -42,36 +47,62 @@ public class SlicesExporter extends AbstractExporter {
     // allow explicit access since multiple files are generated
     public boolean generateImages() throws IOException {
         int[] size = getSize();
-        int nSlices = size[ax1];  // number of slices
-        int width = size[ax2];  // width of slice bitmaps
-        int height = size[ax3];  // height of slice bitmaps
+        final int nSlices = size[ax1];  // number of slices
+        final int width = size[ax2];  // width of slice bitmaps
+        final int height = size[ax3];  // height of slice bitmaps
 
-        // create images
-        BufferedImage[] slices = new BufferedImage[nSlices];
+        // bucket the voxels by slice (offsets[idx] is the first voxel of slice idx)
+        Voxel[] voxels = this.data.getVisibleLayerVoxel();
+        int[] min = getMin();
+        final int[] offsets = new int[nSlices + 1];
+        for (Voxel voxel : voxels) {
+            offsets[voxel.getPosAsInt()[ax1] - min[ax1] + 1]++;
+        }
         for (int idx = 0; idx < nSlices; idx++) {
-            slices[idx] = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            offsets[idx + 1] += offsets[idx];
         }
-
-        // paint images
-        int[] min = getMin();
-        for (Voxel voxel : this.data.getVisibleLayerVoxel()) {
+        final int[] pixels = new int[voxels.length];
+        final int[] colors = new int[voxels.length];
+        int[] fill = Arrays.copyOf(offsets, nSlices);
+        for (Voxel voxel : voxels) {
             int[] pos = voxel.getPosAsInt();
-            slices[pos[ax1] - min[ax1]].setRGB(pos[ax2] - min[ax2], pos[ax3] - min[ax3], voxel.getColor().getRGB());
+            int i = fill[pos[ax1] - min[ax1]]++;
+            pixels[i] = (pos[ax3] - min[ax3]) * width + pos[ax2] - min[ax2];
+            colors[i] = voxel.getColor().getRGB();
         }
 
-        // save images
-        for (int idx = 0; idx < nSlices; idx++) {
-            String fileName = String.format(
-                    "%s_%d.%s",
-                    exportTo.getAbsolutePath(),
-                    invertOrder ? slices.length - idx : idx + 1,
-                    exportFormat
-            );
-            System.out.println("Creating file: " + fileName);
-            ImageIO.write(slices[idx], exportFormat, new File(fileName));
+        // render and save the slices on all cores, only one slice per worker is in memory
+        setActivity("Exporting slices...", false);
+        final AtomicInteger done = new AtomicInteger(0);
+        try {
+            IntStream.range(0, nSlices).parallel().forEach(idx -> {
+                if (isCancelled()) {
+                    return;
+                }
+                BufferedImage slice = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                int[] raster = ((DataBufferInt) slice.getRaster().getDataBuffer()).getData();
+                for (int i = offsets[idx], len = offsets[idx + 1]; i < len; i++) {
+                    raster[pixels[i]] = colors[i];
+                }
+                String fileName = String.format(
+                        "%s_%d.%s",
+                        exportTo.getAbsolutePath(),
+                        invertOrder ? nSlices - idx : idx + 1,
+                        exportFormat
+                );
+                System.out.println("Creating file: " + fileName);
+                try {
+                    ImageIO.write(slice, exportFormat, new File(fileName));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                setProgress(done.incrementAndGet() / (float) nSlices * 100);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
-        return true; // success
+        return !isCancelled(); // success
     }
 
     @Override
@@ -153,7 +153,7 @@ public class ColladaExportWrapper extends ProgressReporter {
                 prefixObjectNamesWithFileName, objectScale
         );
 
-        setActivity("Writing Data File...", true);
+        setActivity("Writing Data File...", false);
         // write the dae file
         if (!colladaFileExporter.writeToFile(colladaFile, errorHandler)) {
             result = false;
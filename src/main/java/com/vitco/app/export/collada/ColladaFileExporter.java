@@ -9,6 +9,7 @@ import com.vitco.app.manager.error.ErrorHandlerInterface;
 import com.vitco.app.settings.VitcoSettings;
 import com.vitco.app.util.components.progressbar.ProgressDialog;
 import com.vitco.app.util.components.progressbar.ProgressReporter;
+import com.vitco.app.util.file.AsciiChannelWriter;
 import com.vitco.app.util.file.FileTools;
 import com.vitco.app.util.misc.DateTools;
 import com.vitco.app.util.xml.XmlFile;
@@ -20,7 +21,10 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
 
 /**
@@ -43,6 +47,31 @@ public class ColladaFileExporter extends ProgressReporter {
     // scale factor (useful for Blender)
     private final float objectScale;
 
+    // a text section that is only written when the file is saved (the content
+    // can be very large and is hence not stored in the xml document)
+    private abstract static class StreamSection {
+        // the amount of items in this section (used for progress reporting)
+        private final int weight;
+
+        private StreamSection(int weight) {
+            this.weight = weight;
+        }
+
+        abstract void write(AsciiChannelWriter out) throws IOException;
+    }
+
+    // the registered sections (referenced by index from the document)
+    private final ArrayList<StreamSection> streamSections = new ArrayList<StreamSection>();
+
+    // prefix of the text that marks the position of a stream section ("#streamSection:<index>#")
+    private static final String STREAM_MARKER = "#streamSection:";
+
+    // register a stream section and return the text that marks its position
+    private String addStreamSection(StreamSection section) {
+        streamSections.add(section);
+        return STREAM_MARKER + (streamSections.size() - 1) + "#";
+    }
+
     // constructor
     public ColladaFileExporter(ProgressDialog dialog, ConsoleInterface console, ExportDataManager exportDataManager,
                                String texturePrefix, String name, boolean useYUP, boolean exportOrthogonalVertexNormals, boolean useVertexColoring,
@@ -199,11 +228,11 @@ public class ColladaFileExporter extends ProgressReporter {
     }
 
     // write the coordinates
-    private void writeCoordinates(boolean useYUP, boolean exportOrthogonalVertexNormals, boolean useVertexColoring) {
+    private void writeCoordinates(boolean useYUP, final boolean exportOrthogonalVertexNormals, boolean useVertexColoring) {
         TexTriangleManager[] triangleManager = exportDataManager.getTriangleManager();
         for (int layerRef = 0; layerRef < triangleManager.length; layerRef++) {
-            TexTriangleManager texTriangleManager = triangleManager[layerRef];
-            TIntIntHashMap colorMap = new TIntIntHashMap();
+            final TexTriangleManager texTriangleManager = triangleManager[layerRef];
+            final TIntIntHashMap colorMap = new TIntIntHashMap();
             String gId = "Plane-tex-mesh-" + layerRef;
 
             // reset top node
@@ -222,7 +251,12 @@ public class ColladaFileExporter extends ProgressReporter {
                     new String[]{
                             "id=" + gId + "-positions-array",
                             "count=" + texTriangleManager.getUniquePointCount() * 3},
-                    texTriangleManager.getUniquePointString(true));
+                    addStreamSection(new StreamSection(texTriangleManager.getUniquePointCount()) {
+                        @Override
+                        void write(AsciiChannelWriter out) throws IOException {
+                            texTriangleManager.writeUniquePoints(out, true);
+                        }
+                    }));
             xmlFile.addAttributes("source[" + 0 + "]/technique_common/accessor", new String[]{
                     "source=#" + gId + "-positions-array",
                     "count=" + texTriangleManager.getUniquePointCount(),
@@ -279,7 +313,12 @@ public class ColladaFileExporter extends ProgressReporter {
                         new String[]{
                                 "id=" + gId + "-uvs-array",
                                 "count=" + (texTriangleManager.getUniqueUVCount() * 2)},
-                        texTriangleManager.getUniqueUVString(false));
+                        addStreamSection(new StreamSection(texTriangleManager.getUniqueUVCount()) {
+                            @Override
+                            void write(AsciiChannelWriter out) throws IOException {
+                                texTriangleManager.writeUniqueUVs(out, false);
+                            }
+                        }));
 
                 xmlFile.addAttributes("source[" + 1 + "]/technique_common/accessor", new String[]{
                         "source=#" + gId + "-uvs-array",
@@ -347,8 +386,12 @@ public class ColladaFileExporter extends ProgressReporter {
                             "offset=" + 2
                     });
                 }
-                xmlFile.addTextContent("p", texTriangleManager.getTrianglePolygonList(
-                        null, colorMap, exportOrthogonalVertexNormals, true));
+                xmlFile.addTextContent("p", addStreamSection(new StreamSection(texTriangleManager.getTriangleCount()) {
+                    @Override
+                    void write(AsciiChannelWriter out) throws IOException {
+                        texTriangleManager.writeTrianglePolygonList(out, null, colorMap, exportOrthogonalVertexNormals, true);
+                    }
+                }));
             } else {
                 // write one poly list for each texture
                 for (int[] identifier : texTriangleManager.getTextureIds()) {
@@ -376,8 +419,13 @@ public class ColladaFileExporter extends ProgressReporter {
                                 "offset=" + 2
                         });
                     }
-                    xmlFile.addTextContent("p", texTriangleManager.getTrianglePolygonList(
-                            identifier[0], null, exportOrthogonalVertexNormals, false));
+                    final int textureId = identifier[0];
+                    xmlFile.addTextContent("p", addStreamSection(new StreamSection(identifier[1]) {
+                        @Override
+                        void write(AsciiChannelWriter out) throws IOException {
+                            texTriangleManager.writeTrianglePolygonList(out, textureId, null, exportOrthogonalVertexNormals, false);
+                        }
+                    }));
                 }
             }
         }
@@ -441,8 +489,36 @@ public class ColladaFileExporter extends ProgressReporter {
     }
 
     // save this file
+    // Note: the document structure is serialized first and the
+    // stream sections are written into it while writing the file
     public boolean writeToFile(File file, ErrorHandlerInterface errorHandler) {
-        return xmlFile.writeToFile(file, errorHandler);
+        StringWriter structure = new StringWriter();
+        if (!xmlFile.writeToWriter(structure, errorHandler)) {
+            return false;
+        }
+        String text = structure.toString();
+        long totalWeight = 0;
+        for (StreamSection section : streamSections) {
+            totalWeight += section.weight;
+        }
+        long doneWeight = 0;
+        try (AsciiChannelWriter out = new AsciiChannelWriter(new FileOutputStream(file).getChannel())) {
+            int pos = 0;
+            for (int start; (start = text.indexOf(STREAM_MARKER, pos)) != -1;) {
+                int end = text.indexOf('#', start + STREAM_MARKER.length());
+                out.write(text.substring(pos, start));
+                StreamSection section = streamSections.get(Integer.parseInt(text.substring(start + STREAM_MARKER.length(), end)));
+                section.write(out);
+                doneWeight += section.weight;
+                setProgress(doneWeight / (float) Math.max(1, totalWeight) * 100);
+                pos = end + 1;
+            }
+            out.write(text.substring(pos));
+            return true;
+        } catch (IOException e) {
+            errorHandler.handle(e);
+        }
+        return false;
     }
 
     // write texture files
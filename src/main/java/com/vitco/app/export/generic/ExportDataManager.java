@@ -10,6 +10,7 @@ import com.vitco.app.low.triangulate.Grid2TriGreedyOptimal;
 import com.vitco.app.low.triangulate.Grid2TriNaive;
 import com.vitco.app.low.triangulate.Grid2TriPolyFast;
 import com.vitco.app.low.triangulate.util.Grid2PolyHelper;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 import com.vitco.app.settings.DynamicSettings;
 import com.vitco.app.util.components.progressbar.ProgressDialog;
 import com.vitco.app.util.components.progressbar.ProgressReporter;
@@ -18,12 +19,14 @@ import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.procedure.TIntObjectProcedure;
 import gnu.trove.procedure.TObjectIntProcedure;
-import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Encapsulates the voxel data and manages restructuring, preparing it for exporting.
@@ -253,11 +256,9 @@ public class ExportDataManager extends ProgressReporter {
         // rewrite centers for different modes
         rewriteCenters();
 
-        // pre-compute exterior hole if necessary
+        // pre-compute exterior hole if necessary (layers are independent)
         if (removeHoles) {
-            for (HullManagerExt<Voxel> hullManager : hullManagers) {
-                hullManager.computeExterior();
-            }
+            hullManagers.parallelStream().forEach(HullManagerExt::computeExterior);
         }
 
         // extract information
@@ -434,214 +435,265 @@ public class ExportDataManager extends ProgressReporter {
         return result;
     }
 
-    // extract the necessary information from the hull manager
-    private void extract(final int algorithm) {
-        setActivity("Extracting Mesh...", false);
-        // loop over all managers
-        for (int i = 0; i < hullManagers.size(); i++) {
-            final int finalI = i;
-            HullManagerExt<Voxel> hullManager = hullManagers.get(i);
-            final TexTriangleManager triangleManager = new TexTriangleManager();
-            triangleManagers.add(triangleManager);
-            // loop over all sides
-            for (int side = 0; side < 6; side++) {
-                final int finalSide = side;
-
-                // get borders into specific direction and
-                // calculate orientation related variables
-                short[][] hull = removeHoles ? hullManager.getExteriorHull(side) : hullManager.getHull(side);
-                final int directionId = side / 2;
-                final boolean orientationPositive = side % 2 != (directionId == 1 ? 1 : 0);
-                final int offset = side % 2 != 1 ? 1 : 0;
-
-                // extract planes
-                HashMap<Short, TObjectIntHashMap<short[]>> planes = new HashMap<Short, TObjectIntHashMap<short[]>>();
-                for (short[] border : hull) {
-                    TObjectIntHashMap<short[]> plane = planes.get(border[directionId]);
-                    if (plane == null) {
-                        plane = new TObjectIntHashMap<short[]>();
-                        planes.put(border[directionId], plane);
-                    }
+    // one plane of one side of one layer, the triangulation only reads
+    // the hull manager and can hence be computed in parallel
+    private final class PlaneTask {
+        private final int layer;
+        private final int side;
+        private final short plane;
+        private final HullManagerExt<Voxel> hullManager;
+        // the voxel faces of this plane and their colors
+        private final TObjectIntHashMap<short[]> faces;
+        // maps colors to min/max (minA, minB, maxA, maxB)
+        private final TIntObjectHashMap<short[]> minMaxMap = new TIntObjectHashMap<short[]>();
+        // maps colors to triangles (computed)
+        private final TIntObjectHashMap<TriangleBuffer> trisArray = new TIntObjectHashMap<TriangleBuffer>();
+        // the ids for the orientation
+        private final int directionId;
+        private final int id1;
+        private final int id2;
+        private final int id3;
+
+        private PlaneTask(int layer, int side, short plane, HullManagerExt<Voxel> hullManager, TObjectIntHashMap<short[]> faces) {
+            this.layer = layer;
+            this.side = side;
+            this.plane = plane;
+            this.hullManager = hullManager;
+            this.faces = faces;
+            // select the corresponding ids for the orientation
+            directionId = side / 2;
+            switch (directionId) {
+                case 0:
+                    id1 = 1;
+                    id2 = 2;
+                    id3 = 0;
+                    break;
+                case 1:
+                    id1 = 0;
+                    id2 = 2;
+                    id3 = 1;
+                    break;
+                default: //case 2
+                    id1 = 0;
+                    id2 = 1;
+                    id3 = 2;
+                    break;
+            }
+        }
 
-                    // if we use textures we use "0" as placeholder for all colors
-                    plane.put(border, triangulateByColor ? hullManager.get(border).getColor().getRGB() : 0);
+        // compute the triangles of this plane
+        private void triangulate(final int algorithm) {
+            // compute min/max per color
+            faces.forEachEntry(new TObjectIntProcedure<short[]>() {
+                @Override
+                public boolean execute(short[] position, int rgb) {
+                    short[] minMax = minMaxMap.get(rgb);
+                    if (minMax == null) {
+                        minMax = new short[] {
+                                Short.MAX_VALUE, Short.MAX_VALUE, Short.MIN_VALUE, Short.MIN_VALUE
+                        };
+                        minMaxMap.put(rgb, minMax);
+                    }
+                    minMax[0] = (short) Math.min(minMax[0], position[id1]);
+                    minMax[1] = (short) Math.min(minMax[1], position[id2]);
+                    minMax[2] = (short) Math.max(minMax[2], position[id1]);
+                    minMax[3] = (short) Math.max(minMax[3], position[id2]);
+                    return true;
                 }
+            });
 
-                // select the corresponding ids for the orientation
-                final int id1;
-                final int id2;
-                final int id3;
-                switch (directionId) {
-                    case 0:
-                        id1 = 1;
-                        id2 = 2;
-                        id3 = 0;
-                        break;
-                    case 1:
-                        id1 = 0;
-                        id2 = 2;
-                        id3 = 1;
-                        break;
-                    default: //case 2
-                        id1 = 0;
-                        id2 = 1;
-                        id3 = 2;
-                        break;
-                }
+            // maps colors to data sets
+            final TIntObjectHashMap<boolean[][]> dataArray = new TIntObjectHashMap<boolean[][]>();
 
-                // loop over planes
-                int progressCount = 0;
-                float elementCount = planes.size();
-                for (final Map.Entry<Short, TObjectIntHashMap<short[]>> entries : planes.entrySet()) {
-                    setProgress((side / 6f) * 100 + ((progressCount / elementCount) / 6f) * 100);
-                    progressCount++;
-                    // maps colors to min/max (minA, minB, maxA, maxB)
-                    final TIntObjectHashMap<short[]> minMaxMap = new TIntObjectHashMap<short[]>();
-                    // remove the values that are pending as remove (remove is stronger!)
-                    entries.getValue().forEachEntry(new TObjectIntProcedure<short[]>() {
-                        @Override
-                        public boolean execute(short[] position, int rgb) {
-                            short[] minMax = minMaxMap.get(rgb);
-                            if (minMax == null) {
-                                minMax = new short[] {
-                                        Short.MAX_VALUE, Short.MAX_VALUE, Short.MIN_VALUE, Short.MIN_VALUE
-                                };
-                                minMaxMap.put(rgb, minMax);
-                            }
-                            minMax[0] = (short) Math.min(minMax[0], position[id1]);
-                            minMax[1] = (short) Math.min(minMax[1], position[id2]);
-                            minMax[2] = (short) Math.max(minMax[2], position[id1]);
-                            minMax[3] = (short) Math.max(minMax[3], position[id2]);
-                            return true;
-                        }
-                    });
-
-                    // maps colors to data sets
-                    final TIntObjectHashMap<boolean[][]> dataArray = new TIntObjectHashMap<boolean[][]>();
+            faces.forEachEntry(new TObjectIntProcedure<short[]>() {
 
-                    entries.getValue().forEachEntry(new TObjectIntProcedure<short[]>() {
-
-                        @Override
-                        public boolean execute(short[] position, int rgb) {
-                            short[] minMax = minMaxMap.get(rgb);
-                            boolean[][] data = dataArray.get(rgb);
-                            if (data == null) {
-                                data = new boolean[minMax[2] - minMax[0] + 1][minMax[3] - minMax[1] + 1];
-                                dataArray.put(rgb, data);
-                            }
-                            data[position[id1] - minMax[0]][position[id2] - minMax[1]] = true;
-                            return true;
-                        }
-                    });
-
-                    final TIntObjectHashMap<Collection<DelaunayTriangle>> trisArray = new TIntObjectHashMap<Collection<DelaunayTriangle>>();
-
-                    dataArray.forEachEntry(new TIntObjectProcedure<boolean[][]>() {
-                        @Override
-                        public boolean execute(int rgb, boolean[][] data) {
-                            short[] minMax = minMaxMap.get(rgb);
-                            Collection<DelaunayTriangle> tris;
-                            switch (algorithm) {
-                                case ExportDataManager.MINIMAL_RECT_ALGORITHM:
-                                    tris = Grid2TriGreedyOptimal.triangulate(data);
-                                    break;
-                                case ExportDataManager.NAIVE_ALGORITHM:
-                                    tris = Grid2TriNaive.triangulate(data);
-                                    break;
-                                default:
-                                    // generate triangles
-                                    short[][][] polys = Grid2PolyHelper.convert(data);
-                                    if (fixTJunctions) {
-                                        // fix 3D t-junction problems
-                                        int planeAbove = entries.getKey() + (finalSide % 2 == 0 ? 1 : -1);
-                                        // Note: This *should* work the same if only outside is used (i.e. holes are removed)
-                                        polys = fix3DTJunctionProblems(hullManager, polys, entries.getKey(), (short) planeAbove, id1, id2, id3, minMax[0], minMax[1]);
-                                    }
-                                    // extract triangles
-                                    tris = Grid2TriPolyFast.triangulate(polys);
-                                    break;
+                @Override
+                public boolean execute(short[] position, int rgb) {
+                    short[] minMax = minMaxMap.get(rgb);
+                    boolean[][] data = dataArray.get(rgb);
+                    if (data == null) {
+                        data = new boolean[minMax[2] - minMax[0] + 1][minMax[3] - minMax[1] + 1];
+                        dataArray.put(rgb, data);
+                    }
+                    data[position[id1] - minMax[0]][position[id2] - minMax[1]] = true;
+                    return true;
+                }
+            });
+
+            dataArray.forEachEntry(new TIntObjectProcedure<boolean[][]>() {
+                @Override
+                public boolean execute(int rgb, boolean[][] data) {
+                    short[] minMax = minMaxMap.get(rgb);
+                    TriangleBuffer tris = new TriangleBuffer();
+                    switch (algorithm) {
+                        case ExportDataManager.MINIMAL_RECT_ALGORITHM:
+                            tris.addAll(Grid2TriGreedyOptimal.triangulate(data));
+                            break;
+                        case ExportDataManager.NAIVE_ALGORITHM:
+                            tris.addAll(Grid2TriNaive.triangulate(data));
+                            break;
+                        default:
+                            // generate triangles
+                            short[][][] polys = Grid2PolyHelper.convert(data);
+                            if (fixTJunctions) {
+                                // fix 3D t-junction problems
+                                int planeAbove = plane + (side % 2 == 0 ? 1 : -1);
+                                // Note: This *should* work the same if only outside is used (i.e. holes are removed)
+                                polys = fix3DTJunctionProblems(hullManager, polys, plane, (short) planeAbove, id1, id2, id3, minMax[0], minMax[1]);
                             }
-                            trisArray.put(rgb, tris);
-                            return true;
-                        }
-                    });
-
-                    trisArray.forEachEntry(new TIntObjectProcedure<Collection<DelaunayTriangle>>() {
-                        @Override
-                        public boolean execute(int rgb, Collection<DelaunayTriangle> tris) {
-                            short[] minMax = minMaxMap.get(rgb);
-
-                            for (DelaunayTriangle tri : tris) {
-
-                                // create the triangle
-                                TexTriangle texTri = new TexTriangle(tri, triangleManager, finalSide);
-
-                                // create the texture (wrapper) for this triangle
-                                TexTriUV[] uvs = texTri.getUVs();
-                                TriTexture triTexture = new TriTexture(
-                                        // Note: The triangulation points might have rounding errors (!)
-                                        // So we <need> to round these values (casting to int is not sufficient!)
-                                        uvs[0], Math.round(minMax[0] + tri.points[0].getXf()), Math.round(minMax[1] + tri.points[0].getYf()),
-                                        uvs[1], Math.round(minMax[0] + tri.points[1].getXf()), Math.round(minMax[1] + tri.points[1].getYf()),
-                                        uvs[2], Math.round(minMax[0] + tri.points[2].getXf()), Math.round(minMax[1] + tri.points[2].getYf()),
-                                        finalSide,
-                                        entries.getKey(),
-                                        usePadding,
-                                        texTri, data,
-                                        textureManager,
-                                        exportTexturedVoxels,
-                                        useSkewedUvs
-                                );
-
-                                // set the texture for this triangle
-                                texTri.setTexture(triTexture);
-
-                                // add to the texture manager
-                                textureManager.addTexture(triTexture);
-
-                                // translate to triangle in 3D space
-                                for (int p = 0; p < 3; p++) {
-                                    TexTriPoint point = texTri.getPoint(p);
-                                    float[] coord = point.getCoords();
-                                    point.set(directionId, entries.getKey() + offset);
-                                    point.set(id1, minMax[0] + coord[0]);
-                                    point.set(id2, minMax[1] + coord[1]);
-                                }
+                            // extract triangles
+                            Grid2TriPolyFast.triangulate(polys, tris);
+                            break;
+                    }
+                    trisArray.put(rgb, tris);
+                    return true;
+                }
+            });
+        }
 
-                                // invert the triangle when necessary (correct back-face culling)
-                                if (orientationPositive) {
-                                    texTri.invert();
-                                }
+        // create the textured triangles (not thread safe, the order of the
+        // calls determines the exported file)
+        private void addTriangles(final TexTriangleManager triangleManager) {
+            final boolean orientationPositive = side % 2 != (directionId == 1 ? 1 : 0);
+            final int offset = side % 2 != 1 ? 1 : 0;
+            final float[] center = centers.get(layer);
+
+            // process the colors in a fixed order (the faces are hashed by identity,
+            // so the iteration order of the maps can change between runs)
+            int[] colors = trisArray.keys();
+            Arrays.sort(colors);
+            for (int rgb : colors) {
+                TriangleBuffer tris = trisArray.get(rgb);
+                short[] minMax = minMaxMap.get(rgb);
+
+                for (int tri = 0, size = tris.size(); tri < size; tri++) {
+
+                    // create the triangle
+                    TexTriangle texTri = new TexTriangle(tris, tri, triangleManager, side);
+
+                    // create the texture (wrapper) for this triangle
+                    TexTriUV[] uvs = texTri.getUVs();
+                    TriTexture triTexture = new TriTexture(
+                            // Note: The triangulation points might have rounding errors (!)
+                            // So we <need> to round these values (casting to int is not sufficient!)
+                            uvs[0], Math.round(minMax[0] + tris.getX(tri, 0)), Math.round(minMax[1] + tris.getY(tri, 0)),
+                            uvs[1], Math.round(minMax[0] + tris.getX(tri, 1)), Math.round(minMax[1] + tris.getY(tri, 1)),
+                            uvs[2], Math.round(minMax[0] + tris.getX(tri, 2)), Math.round(minMax[1] + tris.getY(tri, 2)),
+                            side,
+                            plane,
+                            usePadding,
+                            texTri, data,
+                            textureManager,
+                            exportTexturedVoxels,
+                            useSkewedUvs
+                    );
+
+                    // set the texture for this triangle
+                    texTri.setTexture(triTexture);
+
+                    // add to the texture manager
+                    textureManager.addTexture(triTexture);
+
+                    // translate to triangle in 3D space
+                    for (int p = 0; p < 3; p++) {
+                        TexTriPoint point = texTri.getPoint(p);
+                        float[] coord = point.getCoords();
+                        point.set(directionId, plane + offset);
+                        point.set(id1, minMax[0] + coord[0]);
+                        point.set(id2, minMax[1] + coord[1]);
+                    }
 
-                                // change positions so that the exported file is accurate
-                                texTri.swap(1, 2);
-                                texTri.invert(0);
-                                texTri.invert(1);
-                                texTri.invert(2);
+                    // invert the triangle when necessary (correct back-face culling)
+                    if (orientationPositive) {
+                        texTri.invert();
+                    }
 
-                                texTri.move(centers.get(finalI)[0] + 0.5f, centers.get(finalI)[2] + 0.5f, centers.get(finalI)[1] + 0.5f);
+                    // change positions so that the exported file is accurate
+                    texTri.swap(1, 2);
+                    texTri.invert(0);
+                    texTri.invert(1);
+                    texTri.invert(2);
 
-                                if (useYUP) {
-                                    texTri.swap(1, 2);
-                                    texTri.invert(2);
-                                }
+                    texTri.move(center[0] + 0.5f, center[2] + 0.5f, center[1] + 0.5f);
 
-                                // scale to create integers
-                                texTri.scale(2);
+                    if (useYUP) {
+                        texTri.swap(1, 2);
+                        texTri.invert(2);
+                    }
 
-                                // convert to integer values
-                                texTri.round();
+                    // scale to create integers
+                    texTri.scale(2);
 
-                                // add to known triangles
-                                triangleManager.addTriangle(texTri);
-                            }
+                    // convert to integer values
+                    texTri.round();
 
-                            return true;
-                        }
-                    });
+                    // add to known triangles
+                    triangleManager.addTriangle(texTri);
                 }
             }
         }
     }
 
+    // split one side of a layer into planes
+    private ArrayList<PlaneTask> collectPlanes(int layer, int side) {
+        HullManagerExt<Voxel> hullManager = hullManagers.get(layer);
+        // get borders into specific direction
+        short[][] hull = removeHoles ? hullManager.getExteriorHull(side) : hullManager.getHull(side);
+        int directionId = side / 2;
+
+        // extract planes
+        HashMap<Short, TObjectIntHashMap<short[]>> planes = new HashMap<Short, TObjectIntHashMap<short[]>>();
+        for (short[] border : hull) {
+            TObjectIntHashMap<short[]> plane = planes.get(border[directionId]);
+            if (plane == null) {
+                plane = new TObjectIntHashMap<short[]>();
+                planes.put(border[directionId], plane);
+            }
+
+            // if we use textures we use "0" as placeholder for all colors
+            plane.put(border, triangulateByColor ? hullManager.get(border).getColor().getRGB() : 0);
+        }
+
+        ArrayList<PlaneTask> result = new ArrayList<PlaneTask>(planes.size());
+        for (Map.Entry<Short, TObjectIntHashMap<short[]>> entry : planes.entrySet()) {
+            result.add(new PlaneTask(layer, side, entry.getKey(), hullManager, entry.getValue()));
+        }
+        return result;
+    }
+
+    // extract the necessary information from the hull manager
+    private void extract(final int algorithm) {
+        setActivity("Extracting Mesh...", false);
+
+        // collect the planes of all layers and sides (layers and sides are processed in parallel,
+        // collecting the results keeps the order)
+        final ArrayList<PlaneTask> tasks = new ArrayList<PlaneTask>();
+        for (ArrayList<PlaneTask> planes : IntStream.range(0, hullManagers.size() * 6).parallel()
+                .mapToObj(i -> collectPlanes(i / 6, i % 6))
+                .collect(Collectors.toList())) {
+            tasks.addAll(planes);
+        }
+
+        // triangulate all planes in parallel (first half of the progress)
+        final AtomicInteger done = new AtomicInteger(0);
+        final float taskCount = Math.max(1, tasks.size());
+        tasks.parallelStream().forEach(task -> {
+            task.triangulate(algorithm);
+            setProgress(done.incrementAndGet() / taskCount * 50);
+        });
+
+        // create the triangles and textures in the sequential order
+        // (serialized, so the output does not depend on the thread scheduling)
+        for (int i = 0; i < hullManagers.size(); i++) {
+            triangleManagers.add(new TexTriangleManager());
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            PlaneTask task = tasks.get(i);
+            task.addTriangles(triangleManagers.get(task.layer));
+            // release the triangles
+            tasks.set(i, null);
+            setProgress(50 + (i + 1) / taskCount * 50);
+        }
+    }
+
 }
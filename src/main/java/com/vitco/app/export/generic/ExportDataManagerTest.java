@@ -0,0 +1,76 @@
+package com.vitco.app.export.generic;
+
+import com.vitco.app.core.data.Data;
+import com.vitco.app.export.collada.ColladaExportWrapper;
+import com.vitco.app.export.generic.container.TexTriangle;
+import com.vitco.app.export.generic.container.TexTriangleManager;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test that the (parallel) mesh extraction gives the same result every time.
+ */
+public class ExportDataManagerTest {
+
+    // helper - create layers with random colored voxels
+    private static Data createData() {
+        Data data = new Data();
+        Random rand = new Random(3);
+        for (int l = 0; l < 4; l++) {
+            data.selectLayer(data.createLayer("layer" + l));
+            int size = 4 + rand.nextInt(8);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    for (int z = 0; z < size; z++) {
+                        if (rand.nextInt(3) > 0) {
+                            data.addVoxelDirect(new Color(rand.nextInt(3) * 60, 50, l * 30), new int[] {x + l * 3, -y, z});
+                        }
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    // helper - extract the triangle coordinates of all layers
+    private static float[][] extract(Data data, int algorithm, int separationMode, boolean byColor) {
+        ExportDataManager manager = new ExportDataManager(null, null, data, true, true, algorithm, true,
+                ColladaExportWrapper.ORIGIN_CROSS, ColladaExportWrapper.ORIGIN_LOCAL_CENTER, false, separationMode,
+                byColor, byColor, byColor, false, false, false);
+        TexTriangleManager[] triangleManagers = manager.getTriangleManager();
+        float[][] result = new float[triangleManagers.length][];
+        for (int i = 0; i < triangleManagers.length; i++) {
+            TexTriangle[] tris = triangleManagers[i].getTriangles();
+            result[i] = new float[tris.length * 10];
+            for (int t = 0; t < tris.length; t++) {
+                for (int p = 0; p < 3; p++) {
+                    System.arraycopy(tris[t].getPoint(p).getCoords(), 0, result[i], t * 10 + p * 3, 3);
+                }
+                if (byColor) {
+                    result[i][t * 10 + 9] = tris[t].getTexture().getSampleRGB();
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testDeterministic() {
+        Data data = createData();
+        for (int algorithm = 0; algorithm < 3; algorithm++) {
+            for (int separationMode : new int[] {ColladaExportWrapper.SEPARATION_MERGED, ColladaExportWrapper.SEPARATION_LAYER}) {
+                for (boolean byColor : new boolean[] {false, true}) {
+                    float[][] first = extract(data, algorithm, separationMode, byColor);
+                    assert first.length == (separationMode == ColladaExportWrapper.SEPARATION_MERGED ? 1 : 4);
+                    for (float[] layer : first) {
+                        assert layer.length > 0;
+                    }
+                    assert Arrays.deepEquals(first, extract(data, algorithm, separationMode, byColor));
+                }
+            }
+        }
+    }
+}
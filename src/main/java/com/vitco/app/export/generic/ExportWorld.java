@@ -6,6 +6,7 @@ import com.vitco.app.low.triangulate.Grid2TriMono;
 import com.vitco.app.low.triangulate.Grid2TriNaiveGreedy;
 import com.vitco.app.low.triangulate.Grid2TriPolyFast;
 import com.vitco.app.low.triangulate.util.Grid2PolyHelper;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -86,6 +87,8 @@ public class ExportWorld {
         int triCount = 0;
         int triCountRaw = 0;
         long time = 0;
+        // reused for all planes
+        TriangleBuffer tris = new TriangleBuffer();
         // for all sides
         for (int i = 0; i < 6; i++) {
             // holds the sides per "slice"
@@ -127,7 +130,9 @@ public class ExportWorld {
                                 dataPoly2Tri[point.x - min2][point.y - min3] = true;
                             }
                             time -= System.currentTimeMillis();
-                            triCount += Grid2TriPolyFast.triangulate(Grid2PolyHelper.convert(dataPoly2Tri)).size();
+                            tris.clear();
+                            Grid2TriPolyFast.triangulate(Grid2PolyHelper.convert(dataPoly2Tri), tris);
+                            triCount += tris.size();
                             time += System.currentTimeMillis();
                             break;
                         case 1: // greedy (will produce many t-junction problems)
@@ -1,5 +1,9 @@
 package com.vitco.app.export.generic.container;
 
+import com.vitco.app.util.file.AsciiChannelWriter;
+
+import java.io.IOException;
+
 /**
  * Abstract class that holds corner information for a TexTriangle
  */
@@ -11,6 +15,9 @@ public abstract class TexTriCornerInfo {
         return toString(false);
     }
 
+    // write the representation (same format as the string representation)
+    public abstract void write(AsciiChannelWriter out, boolean useInt) throws IOException;
+
     // making sure these will be overwritten
     // Note: two info objects should be equal if they represent the same data
     @Override
@@ -1,7 +1,9 @@
 package com.vitco.app.export.generic.container;
 
+import com.vitco.app.util.file.AsciiChannelWriter;
 import com.vitco.app.util.misc.BiMap;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -51,20 +53,15 @@ public class TexTriCornerManager<T extends TexTriCornerInfo> {
         return knownUnique.get(cornerInfo);
     }
 
-    // get string with unique cornerInfo
-    public final String getString(boolean asInt) {
+    // write the unique cornerInfo (separated by space)
+    public final void write(AsciiChannelWriter out, boolean asInt) throws IOException {
         validate();
-        StringBuilder stringBuilder = new StringBuilder();
-        boolean first = true;
         for (int i = 0, len = knownUnique.size(); i < len; i++) {
-            if (!first) {
-                stringBuilder.append(" ");
-            } else {
-                first = false;
+            if (i > 0) {
+                out.write(' ');
             }
-            stringBuilder.append(knownUnique.getKey(i).toString(asInt));
+            knownUnique.getKey(i).write(out, asInt);
         }
-        return stringBuilder.toString();
     }
 
     // get the amount of unique corner info objects in this manager
@@ -1,5 +1,8 @@
 package com.vitco.app.export.generic.container;
 
+import com.vitco.app.util.file.AsciiChannelWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -88,4 +91,13 @@ public class TexTriPoint extends TexTriCornerInfo {
             return coords[0] + " " + coords[1] + " " + coords[2];
         }
     }
+
+    @Override
+    public final void write(AsciiChannelWriter out, boolean asInt) throws IOException {
+        if (asInt) {
+            out.write(Math.round(coords[0])).write(' ').write(Math.round(coords[1])).write(' ').write(Math.round(coords[2]));
+        } else {
+            out.write(coords[0]).write(' ').write(coords[1]).write(' ').write(coords[2]);
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.vitco.app.export.generic.container;
 
+import com.vitco.app.util.file.AsciiChannelWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -60,4 +63,13 @@ public class TexTriUV extends TexTriCornerInfo {
             return uv[0] + " " + uv[1];
         }
     }
+
+    @Override
+    public final void write(AsciiChannelWriter out, boolean useInt) throws IOException {
+        if (useInt) {
+            out.write(Math.round(uv[0])).write(' ').write(Math.round(uv[1]));
+        } else {
+            out.write(uv[0]).write(' ').write(uv[1]);
+        }
+    }
 }
@@ -1,6 +1,6 @@
 package com.vitco.app.export.generic.container;
 
-import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 
 /**
  * A textured triangle.
@@ -49,12 +49,12 @@ public class TexTriangle {
     // ------------------------
 
     // constructor
-    public TexTriangle(DelaunayTriangle tri, TexTriangleManager manager, int orientation) {
+    public TexTriangle(TriangleBuffer tris, int tri, TexTriangleManager manager, int orientation) {
         for (int i = 0; i < 3; i++) {
             points[i] = new TexTriPoint(
-                    Math.round(tri.points[i].getXf()),
-                    Math.round(tri.points[i].getYf()),
-                    Math.round(tri.points[i].getZf()),
+                    tris.getRoundedX(tri, i),
+                    tris.getRoundedY(tri, i),
+                    0,
                     manager
             );
             uvs[i] = new TexTriUV(0,0,manager);
@@ -1,8 +1,10 @@
 package com.vitco.app.export.generic.container;
 
+import com.vitco.app.util.file.AsciiChannelWriter;
 import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.map.hash.TIntIntHashMap;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -73,39 +75,32 @@ public class TexTriangleManager {
 
     // ----------------
 
-    // get the triangle coordinate list
+    // write the triangle coordinate list
     // (i.e. "[p1_ uv1 p2 uv2 p3 uv3]_tri1 [p1_ uv1 p2 uv2 p3 uv3]_tri2 ...")
-    public final String getTrianglePolygonList(Integer groupId, TIntIntHashMap colorMap, boolean exportOrthogonalVertexNormals, boolean useVertexColoring) {
-        StringBuilder stringBuilder = new StringBuilder();
+    public final void writeTrianglePolygonList(AsciiChannelWriter out, Integer groupId, TIntIntHashMap colorMap,
+                                               boolean exportOrthogonalVertexNormals, boolean useVertexColoring) throws IOException {
         boolean first = true;
         for (TexTriangle tri : triangles) {
             // only consider triangles with the specific texture id
             if ((groupId == null || tri.getTexture().getId() == groupId)) {
                 if (!first) {
-                    stringBuilder.append(" ");
+                    out.write(' ');
                 } else {
                     first = false;
                 }
-                int[] colTexInfo;
-                if (!useVertexColoring) {
-                    TexTriUV[] uvs = tri.getUVs();
-                    colTexInfo = new int[] {uvs[0].getId(), uvs[1].getId(), uvs[2].getId()};
-                } else {
-                    int colorPos = colorMap.get(tri.getTexture().getSampleRGB());
-                    colTexInfo = new int[] {colorPos, colorPos, colorPos};
-                }
+                TexTriUV[] uvs = useVertexColoring ? null : tri.getUVs();
+                int colorPos = useVertexColoring ? colorMap.get(tri.getTexture().getSampleRGB()) : 0;
                 for (int i = 0; i < 3; i++) {
-                    stringBuilder.append(tri.getPoint(i).getId()).append(" ").append(colTexInfo[i]);
+                    out.write(tri.getPoint(i).getId()).write(' ').write(useVertexColoring ? colorPos : uvs[i].getId());
                     if (exportOrthogonalVertexNormals) {
-                        stringBuilder.append(" ").append(tri.getOrientation());
+                        out.write(' ').write(tri.getOrientation());
                     }
                     if (i < 2) {
-                        stringBuilder.append(" ");
+                        out.write(' ');
                     }
                 }
             }
         }
-        return stringBuilder.toString();
     }
 
     // ----------------
@@ -128,9 +123,9 @@ public class TexTriangleManager {
         return uvManager.getId(uv);
     }
 
-    // get string with unique uvs
-    public final String getUniqueUVString(boolean asInt) {
-        return uvManager.getString(asInt);
+    // write the unique uvs
+    public final void writeUniqueUVs(AsciiChannelWriter out, boolean asInt) throws IOException {
+        uvManager.write(out, asInt);
     }
 
     // get the amount of unique uvs
@@ -158,9 +153,9 @@ public class TexTriangleManager {
         return pointManager.getId(point);
     }
 
-    // get string with unique points
-    public final String getUniquePointString(boolean asInt) {
-        return pointManager.getString(asInt);
+    // write the unique points
+    public final void writeUniquePoints(AsciiChannelWriter out, boolean asInt) throws IOException {
+        pointManager.write(out, asInt);
     }
 
     // get the amount of unique points
@@ -4,6 +4,7 @@ import com.vitco.app.core.data.Data;
 import com.vitco.app.core.data.container.Voxel;
 import com.vitco.app.util.graphic.G2DUtil;
 import com.vitco.app.util.graphic.ImageComparator;
+import com.vitco.app.util.graphic.SkylinePacker;
 import com.vitco.app.util.graphic.TextureTools;
 import com.vitco.app.util.misc.IntegerTools;
 import gnu.trove.iterator.TIntObjectIterator;
@@ -115,6 +116,40 @@ public class TriTexture {
         return this.imageComparator.jaccard(other.imageComparator);
     }
 
+    // obtain a hash of the pixels (independent of the pixel order)
+    public final long getPixelHash() {
+        long hash = ((long)width << 32) | height;
+        for (TIntObjectIterator<int[]> it = pixels.iterator(); it.hasNext();) {
+            it.advance();
+            long entry = ((long)it.key() << 32) ^ (it.value()[2] & 0xffffffffL);
+            // mix the entry bits (so that the sum is not only determined by a few bits)
+            entry *= 0x9E3779B97F4A7C15L;
+            hash += entry ^ (entry >>> 29);
+        }
+        return hash;
+    }
+
+    // true if the other texture has exactly the same pixels
+    public final boolean hasSamePixels(TriTexture other) {
+        if (width != other.width || height != other.height || pixels.size() != other.pixels.size()) {
+            return false;
+        }
+        for (TIntObjectIterator<int[]> it = pixels.iterator(); it.hasNext();) {
+            it.advance();
+            int[] otherPixel = other.pixels.get(it.key());
+            if (otherPixel == null || otherPixel[2] != it.value()[2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // find the first position of the child in this texture (or null if it is not contained)
+    // Note: this does not change any texture and can be called concurrently
+    public final int[] findChildPosition(TriTexture child) {
+        return imageComparator.getPosition(child.imageComparator, null);
+    }
+
     // retrieve image representation of this texture
     public final BufferedImage getImage() {
         // return parent texture image
@@ -389,37 +424,20 @@ public class TriTexture {
         // has no corresponding triangle
         this.hasTriangle = false;
 
-        TriTexture main = textures.remove(0);
-        this.pixels.putAll(main.pixels);
-        int width = main.width;
-        int height = main.height;
-        this.makeChild(main, new int[] {0, 0, 0});
-        assert main.hasParent();
-
-        while (!textures.isEmpty()) {
-            tickAction.onTick(texCount - textures.size(), texCount);
-            TriTexture sec = textures.remove(0);
-
-            int[] merge = null;
-            for (int y = 0; y <= height && merge == null; y++) {
-                for (int x = 0; x <= width && merge == null; x++) {
-                    // ensure the generate texture is square
-                    if (x + sec.width > height && height < width && x > 0) {
-                        break;
-                    }
-                    boolean works = true;
-                    // check if it fits
-                    for (TIntObjectIterator<int[]> it = sec.pixels.iterator(); it.hasNext() && works; ) {
-                        it.advance();
-                        int[] val = it.value();
-                        works = !pixels.containsKey(IntegerTools.makeInt(x + val[0], y + val[1]));
-                    }
-                    if (works) {
-                        merge = new int[]{x, y};
-                    }
-                }
-            }
-            assert merge != null;
+        // the strip is (about) as wide as a square that holds all textures
+        long totalArea = 0;
+        int stripWidth = 0;
+        for (TriTexture tex : textures) {
+            totalArea += tex.getArea();
+            stripWidth = Math.max(stripWidth, tex.width);
+        }
+        stripWidth = Math.max(stripWidth, (int) Math.ceil(Math.sqrt(totalArea)));
+        SkylinePacker packer = new SkylinePacker(stripWidth);
+
+        for (int i = 0; i < texCount; i++) {
+            tickAction.onTick(i, texCount);
+            TriTexture sec = textures.get(i);
+            int[] merge = packer.insert(sec.width, sec.height);
 
             // merge pixels into this TriTexture
             for (TIntObjectIterator<int[]> it = sec.pixels.iterator(); it.hasNext(); ) {
@@ -431,15 +449,13 @@ public class TriTexture {
                 );
             }
 
-            width = Math.max(width, merge[0] + sec.width);
-            height = Math.max(height, merge[1] + sec.height);
-
-            // -----------
-
             // make child
             this.makeChild(sec, new int[] {merge[0], merge[1], 0});
             assert sec.hasParent();
         }
+        textures.clear();
+        int width = packer.getWidth();
+        int height = packer.getHeight();
 
         // set the image comparator
         imageComparator = new ImageComparator(this.pixels.valueCollection());
@@ -8,9 +8,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Manages a list of textures and implements compression techniques for the textures.
+ *
+ * Identical textures are detected by pixel hash, the (expensive) containment and
+ * similarity searches run in parallel.
  */
 public class TriTextureManager extends ProgressReporter {
     // holds list of textures
@@ -98,11 +103,11 @@ public class TriTextureManager extends ProgressReporter {
         // create dummy list that we can delete from
         ArrayList<TriTexture> textures = new ArrayList<TriTexture>(this.textures);
 
-        // sort by pixel used (largest first)
+        // sort by height (largest first) - this gives a flat skyline
         Collections.sort(textures, new Comparator<TriTexture>() {
             @Override
             public int compare(TriTexture o1, TriTexture o2) {
-                return o2.getPixelCount() - o1.getPixelCount();
+                return o2.height != o1.height ? o2.height - o1.height : o2.width - o1.width;
             }
         });
 
@@ -111,7 +116,7 @@ public class TriTextureManager extends ProgressReporter {
         TriTexture main = new TriTexture(textures, new TriTexture.TickAction() {
             @Override
             void onTick(int current, int target) {
-                setProgress((float)current/target * 100);
+                if (current%100 == 0) {setProgress((float)current/target * 100);}
             }
         },  this);
         // register texture
@@ -121,38 +126,100 @@ public class TriTextureManager extends ProgressReporter {
         invalidate();
     }
 
-    // combine the textures in this manager
-    public final void combine() {
-        // -- find textures that are "inside" other textures
-        // create dummy list that we can delete from
-        ArrayList<TriTexture> textures = new ArrayList<TriTexture>(this.textures);
-        // sort by size (smallest first) - this makes processing a bit faster
+    // helper - make identical textures children of the first texture with the same pixels,
+    // returns the remaining textures
+    private ArrayList<TriTexture> removeDuplicates(ArrayList<TriTexture> textures) {
+        // index the textures by pixel hash (the hashes are computed in parallel)
+        long[] hashes = new long[textures.size()];
+        IntStream.range(0, hashes.length).parallel().forEach(i -> hashes[i] = textures.get(i).getPixelHash());
+        HashMap<Long, ArrayList<TriTexture>> index = new HashMap<Long, ArrayList<TriTexture>>();
+        ArrayList<TriTexture> result = new ArrayList<TriTexture>();
+        for (int i = 0; i < hashes.length; i++) {
+            TriTexture tex = textures.get(i);
+            ArrayList<TriTexture> candidates = index.get(hashes[i]);
+            if (candidates == null) {
+                candidates = new ArrayList<TriTexture>(1);
+                index.put(hashes[i], candidates);
+            }
+            boolean duplicate = false;
+            for (TriTexture candidate : candidates) {
+                if (candidate.hasSamePixels(tex)) {
+                    duplicate = candidate.makeChild(tex, new int[] {0, 0, 0});
+                    break;
+                }
+            }
+            if (!duplicate) {
+                candidates.add(tex);
+                result.add(tex);
+            }
+        }
+        return result;
+    }
+
+    // helper - make textures that are contained in other textures children of
+    // those textures, returns the remaining textures
+    private ArrayList<TriTexture> removeContained(ArrayList<TriTexture> textures) {
+        // sort by pixel count (smallest first), a texture can only be contained
+        // in a texture that comes after it (this prevents cyclic containment)
         Collections.sort(textures, new Comparator<TriTexture>() {
             @Override
             public int compare(TriTexture o1, TriTexture o2) {
-                return Math.max(o1.width, o1.height) - Math.max(o2.width, o2.height);
+                int result = o1.getPixelCount() - o2.getPixelCount();
+                return result != 0 ? result : Math.max(o1.width, o1.height) - Math.max(o2.width, o2.height);
             }
         });
-        int len = textures.size();
-        int originalLength = len;
-        setActivity("Merging Textures...", false);
-        for (int i = 0; i < len; i++) {
+        final int len = textures.size();
+        // find a parent for every texture (the search does not change the textures)
+        final int[] parents = new int[len];
+        final int[][] positions = new int[len][];
+        final AtomicInteger done = new AtomicInteger();
+        IntStream.range(0, len).parallel().forEach(i -> {
+            parents[i] = -1;
+            TriTexture tex = textures.get(i);
             for (int j = i + 1; j < len; j++) {
-                if (len%100 == 0) {setProgress(((originalLength - len - i)/(float)originalLength)*100);}
-                TriTexture tex1 = textures.get(i);
-                TriTexture tex2 = textures.get(j);
-                if (tex1.makeChild(tex2, null)) {
-                    textures.remove(j);
-                    j--;
-                    len--;
-                } else if (tex2.makeChild(tex1, null)) {
-                    textures.remove(i);
-                    i--;
-                    len--;
+                int[] pos = textures.get(j).findChildPosition(tex);
+                if (pos != null) {
+                    parents[i] = j;
+                    positions[i] = pos;
                     break;
                 }
             }
+            int count = done.incrementAndGet();
+            if (count%100 == 0) {setProgress(count/(float)len * 100);}
+        });
+        // assign the parents (smallest first, i.e. parents are only assigned once all
+        // their children are assigned)
+        ArrayList<TriTexture> result = new ArrayList<TriTexture>();
+        for (int i = 0; i < len; i++) {
+            TriTexture tex = textures.get(i);
+            if (parents[i] == -1 || !textures.get(parents[i]).makeChild(tex, positions[i])) {
+                result.add(tex);
+            }
+        }
+        return result;
+    }
+
+    // helper - find the index of the texture that is most similar to the first texture
+    // (the largest texture is chosen on ties, i.e. the one with the lowest index)
+    private static int findMostSimilar(final ArrayList<TriTexture> textures) {
+        final TriTexture texture = textures.get(0);
+        final float[] similarity = new float[textures.size()];
+        IntStream.range(1, similarity.length).parallel().forEach(i -> similarity[i] = texture.jaccard(textures.get(i)));
+        int result = 1;
+        for (int i = 2; i < similarity.length; i++) {
+            if (similarity[i] > similarity[result]) {
+                result = i;
+            }
         }
+        return result;
+    }
+
+    // combine the textures in this manager
+    public final void combine() {
+        // -- find textures that are identical to or "inside" other textures
+        setActivity("Merging Textures...", false);
+        ArrayList<TriTexture> textures = removeContained(removeDuplicates(new ArrayList<TriTexture>(this.textures)));
+        int len = textures.size();
 
         //System.out.println("Obtained " + textures.size() + " unique textures after merging.");
 
@@ -169,20 +236,10 @@ public class TriTextureManager extends ProgressReporter {
         while (len > 1) {
             setProgress(((lengthBeforeCombining - len + 1)/(float)lengthBeforeCombining) * 100);
             // find the texture with the biggest jaccard similarity
+            // Note: this gets the largest most similar neighbour
             TriTexture texture = textures.get(0);
-            TriTexture mergeTo = textures.get(1);
-            int mergeToId = 1;
-            float similarity = texture.jaccard(mergeTo);
-            for (int i = 2; i < len; i++) {
-                TriTexture compareTo = textures.get(i);
-                float newSim = texture.jaccard(compareTo);
-                // note: this gets the largest most similar neighbour
-                if (newSim > similarity) {
-                    similarity = newSim;
-                    mergeTo = compareTo;
-                    mergeToId = i;
-                }
-            }
+            int mergeToId = findMostSimilar(textures);
+            TriTexture mergeTo = textures.get(mergeToId);
             // check if we can make this a child
             // otherwise we combine the textures
             // Note: this can succeed b/c once merged textures might allow new children
@@ -193,11 +250,9 @@ public class TriTextureManager extends ProgressReporter {
             } else {
                 // generate the new TriTexture
                 TriTexture parentTexture = new TriTexture(texture, mergeTo, this);
-                // remove textures
+                // remove textures and add new parent to front
                 textures.remove(mergeToId);
-                textures.remove(0);
-                // add new parent to front
-                textures.add(0, parentTexture);
+                textures.set(0, parentTexture);
                 // register texture
                 this.addTexture(parentTexture);
             }
@@ -1,14 +1,15 @@
 package com.vitco.app.importer;
 
 import com.vitco.app.core.data.Data;
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
+import gnu.trove.list.array.TIntArrayList;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Importer contract for (all?) voxel formats
@@ -26,20 +27,24 @@ public abstract class AbstractImporter {
     // contains a layer object
     public final static class Layer {
         public final String name;
-        // contains the voxel that were read
-        private ArrayList<int[]> voxel = new ArrayList<int[]>();
+        // contains the voxel that were read (x, y, z, color)
+        private final TIntArrayList voxel = new TIntArrayList();
         // constructor
-        private Layer(String name) {
+        Layer(String name) {
             this.name = name;
         }
 
-        // for sanity testing
-        private final HashSet<String> known = new HashSet<String>();
+        // add a voxel to this layer
+        void addVoxel(int x, int y, int z, int color) {
+            voxel.add(x);
+            voxel.add(y);
+            voxel.add(z);
+            voxel.add(color);
+        }
 
-        private void addVoxel(int x, int y, int z, int color) {
-            voxel.add(new int[]{x,y,z,color});
-            // for sanity testing
-            assert known.add(x+"_"+y+"_"+z);
+        // append all voxel of another layer
+        void addVoxels(Layer layer) {
+            voxel.addAll(layer.voxel);
         }
 
         // ----
@@ -48,9 +53,21 @@ public abstract class AbstractImporter {
             return voxel.isEmpty();
         }
 
+        // the amount of voxel in this layer
+        public final int size() {
+            return voxel.size() / 4;
+        }
+
+        // get the raw voxel data (x, y, z, color for every voxel)
+        public final int[] toArray() {
+            return voxel.toArray();
+        }
+
         int i = 0;
         public final int[] next() {
-            return voxel.get(i++);
+            int[] result = new int[] {voxel.getQuick(i), voxel.getQuick(i + 1), voxel.getQuick(i + 2), voxel.getQuick(i + 3)};
+            i += 4;
+            return result;
         }
 
         public final boolean hasNext() {
@@ -70,6 +87,34 @@ public abstract class AbstractImporter {
         }
     }
 
+    // a part of the file that can be decoded independently
+    protected interface Chunk {
+        // returns true if the chunk was decoded correctly
+        boolean decode() throws IOException;
+    }
+
+    // decode chunks in parallel, returns true if all chunks were decoded correctly
+    // (all chunks are decoded before this returns or throws, so the file can be closed afterwards)
+    protected static boolean decodeParallel(List<? extends Chunk> chunks) throws IOException {
+        List<Object> results = chunks.parallelStream().map(chunk -> {
+            try {
+                return (Object) chunk.decode();
+            } catch (IOException | RuntimeException e) {
+                return e;
+            }
+        }).collect(Collectors.toList());
+        boolean result = true;
+        for (Object obj : results) {
+            if (obj instanceof IOException) {
+                throw (IOException) obj;
+            } else if (obj instanceof RuntimeException) {
+                throw (RuntimeException) obj;
+            }
+            result &= (Boolean) obj;
+        }
+        return result;
+    }
+
     // the currently active layer
     private Layer activeLayer;
 
@@ -80,27 +125,26 @@ public abstract class AbstractImporter {
 
     // add voxel to known-voxel list
     protected final void addVoxel(int x, int y, int z, int color) {
-        voxelCount++;
-        lx = Math.min(lx, x);
-        ly = Math.min(ly, y);
-        lz = Math.min(lz, z);
-        hx = Math.max(hx, x);
-        hy = Math.max(hy, y);
-        hz = Math.max(hz, z);
-        cx += x;
-        cy += y;
-        cz += z;
         activeLayer.addVoxel(x, y, z, color);
     }
 
+    // add all voxel of a (decoded) layer to the active layer
+    protected final void addVoxels(Layer layer) {
+        activeLayer.addVoxels(layer);
+    }
+
     // contains the layer list
     private final ArrayList<Layer> layerList = new ArrayList<Layer>();
     // add a new layer that the voxels are now added to
     protected final void addLayer(String name) {
+        addLayer(new Layer(name));
+    }
+    // add a (decoded) layer that the voxels are now added to
+    protected final void addLayer(Layer layer) {
         if (activeLayer.isEmpty()) {
             layerList.remove(activeLayer);
         }
-        activeLayer = new Layer(name);
+        activeLayer = layer;
         layerList.add(activeLayer);
     }
     // prepend a new layer that the voxels are now added to
@@ -157,48 +201,69 @@ public abstract class AbstractImporter {
 
     // --------------
 
+    // compute the bounds and the center of all layers
+    private void computeStatistics() {
+        for (Layer layer : layerList) {
+            TIntArrayList data = layer.voxel;
+            voxelCount += layer.size();
+            for (int i = 0, len = data.size(); i < len; i += 4) {
+                int x = data.getQuick(i);
+                int y = data.getQuick(i + 1);
+                int z = data.getQuick(i + 2);
+                lx = Math.min(lx, x);
+                ly = Math.min(ly, y);
+                lz = Math.min(lz, z);
+                hx = Math.max(hx, x);
+                hy = Math.max(hy, y);
+                hz = Math.max(hz, z);
+                cx += x;
+                cy += y;
+                cz += z;
+            }
+        }
+    }
+
     // constructor
     public AbstractImporter(File file, String layerName) throws IOException {
         activeLayer = new Layer(layerName);
         layerList.add(activeLayer);
-        FileIn fileIn = new FileIn(file);
-        try (RandomAccessFileIn raf = new RandomAccessFileIn(file, "r")) {
-            hasLoaded = read(fileIn, raf);
+        // the file is only mapped while it is read, so it is not locked afterwards
+        MappedFileIn fileIn = MappedFileIn.map(file);
+        try {
+            hasLoaded = read(fileIn);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Unexpected end of file: " + file.getName(), e);
         } finally {
-            fileIn.finish();
+            fileIn.close();
         }
+        computeStatistics();
     }
 
     // load the data in this importer into "data"
     public void loadInto(Data data, boolean shiftToCenter) {
         if (this.hasLoaded()) {
+            int sx = 0, sy = 0, sz = 0;
             if (shiftToCenter) {
                 int[] center = this.getWeightedCenter();
                 int[] highest = this.getHighest();
-                for (AbstractImporter.Layer layer : this.getVoxel()) {
-                    int layerId = data.createLayer(layer.name);
-                    data.selectLayer(layerId);
-                    data.setVisible(layerId, layer.isVisible());
-                    for (int[] vox; layer.hasNext();) {
-                        vox = layer.next();
-                        data.addVoxelDirect(new Color(vox[3]),
-                                new int[] {vox[0] - center[0], vox[1] - highest[1], vox[2] - center[2]});
-                    }
-                }
-            } else {
-                for (AbstractImporter.Layer layer : this.getVoxel()) {
-                    int layerId = data.createLayer(layer.name);
-                    data.selectLayer(layerId);
-                    data.setVisible(layerId, layer.isVisible());
-                    for (int[] vox; layer.hasNext();) {
-                        vox = layer.next();
-                        data.addVoxelDirect(new Color(vox[3]),new int[] {vox[0], vox[1], vox[2]});
+                sx = center[0];
+                sy = highest[1];
+                sz = center[2];
+            }
+            for (AbstractImporter.Layer layer : this.getVoxel()) {
+                int[] voxels = layer.toArray();
+                if (shiftToCenter) {
+                    for (int i = 0; i < voxels.length; i += 4) {
+                        voxels[i] -= sx;
+                        voxels[i + 1] -= sy;
+                        voxels[i + 2] -= sz;
                     }
                 }
+                data.importLayer(layer.name, layer.isVisible(), voxels);
             }
         }
     }
 
     // read file - returns true if file has loaded correctly
-    protected abstract boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException;
+    protected abstract boolean read(MappedFileIn fileIn) throws IOException;
 }
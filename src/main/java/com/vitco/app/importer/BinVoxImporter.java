@@ -1,7 +1,6 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.awt.*;
 import java.io.File;
@@ -47,10 +46,10 @@ public class BinVoxImporter extends AbstractImporter {
 
     // read file - returns true if file has loaded correctly
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
+    protected boolean read(MappedFileIn fileIn) throws IOException {
         // header
         String line = fileIn.readLine();
-        if (!line.startsWith("#binvox")) { // not a bin vox format
+        if (line == null || !line.startsWith("#binvox")) { // not a bin vox format
             return false;
         }
 
@@ -82,7 +81,7 @@ public class BinVoxImporter extends AbstractImporter {
                     count = fileIn.readByteUnsigned();
 
                     end_index = index + count;
-                    if (end_index > size) {
+                    if (count < 0 || end_index > size) {
                         return false;
                     }
                     if (value == 1) {
@@ -1,11 +1,11 @@
 package com.vitco.app.importer;
 
 import com.vitco.app.importer.dataStatic.CCVxlStatic;
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Voxel Importer for "Command & Conquer: Red Alert 2" voxel objects
@@ -29,111 +29,96 @@ public class CCVxlImporter extends AbstractImporter {
     }
 
     // voxel layer
-    private final static class VxlLimb {
+    private final static class VxlLimb implements Chunk {
         public String name;
         public float scale;
         public float[] bounds;
         public int[] size;
         public NormalType type;
 
-        public int voxelCount;
-    }
-
-    // read the voxel information for a specific layer
-    private void readVoxelData(RandomAccessFileIn s, VxlLimb l) throws IOException {
-        int baseSize = l.size[0] * l.size[1];
-        int[] colStart = new int[baseSize];
-        for (int i = 0; i < baseSize; i++) {
-            colStart[i] = s.readInt32();
-        }
-        s.seek(4 * baseSize, RandomAccessFileIn.CURRENT);
-        int dataStart = (int) s.getFilePointer();
-
-        // Count the voxels in this limb
-        l.voxelCount = 0;
-        for (int i = 0; i < baseSize; i++) {
-            // Empty column
-            if (colStart[i] == -1) {
-                continue;
+        // the voxel data of this limb
+        private MappedFileIn in;
+        private Layer layer;
+
+        // read the voxel information for this limb
+        @Override
+        public boolean decode() {
+            int baseSize = size[0] * size[1];
+            int[] colStart = new int[baseSize];
+            for (int i = 0; i < baseSize; i++) {
+                colStart[i] = in.readIntRev();
             }
-
-            s.seek(dataStart + colStart[i], RandomAccessFileIn.BEGINNING);
-            int z = 0;
-            do {
-                z += s.readUInt8();
-                int count = s.readUInt8();
-                z += count;
-                l.voxelCount += count;
-                s.seek(2 * count + 1, RandomAccessFileIn.CURRENT);
-            } while (z < l.size[2]);
-        }
-
-        // Read the data
-        for (int i = 0; i < baseSize; i++) {
-            // Empty column
-            if (colStart[i] == -1)
-                continue;
-
-            s.seek(dataStart + colStart[i], RandomAccessFileIn.BEGINNING);
-
-            int x = i % l.size[0];
-            int y = i / l.size[0];
-            int z = 0;
-            do {
-                z += s.readUInt8();
-                int count = s.readUInt8();
-                for (int j = 0; j < count; j++) {
-                    int color = s.readUInt8();
-                    s.readUInt8(); //int normal = s.readUInt8();
-
-                    // add a voxel with correct color
-                    addVoxel(
-                            x, -z, y,
-                            l.type == NormalType.TiberianSun
-                                    ? CCVxlStatic.COLORS_TIBERIAN_DAWN[color]
-                                    : CCVxlStatic.COLORS_RED_ALERT[color]
-                    );
-                    z++;
-                }
-                // Skip duplicate count
-                s.readUInt8();
-            } while (z < l.size[2]);
+            in.skipBytes(4 * baseSize);
+            int dataStart = in.position();
+
+            int[] colors = type == NormalType.TiberianSun
+                    ? CCVxlStatic.COLORS_TIBERIAN_DAWN
+                    : CCVxlStatic.COLORS_RED_ALERT;
+
+            // Read the data
+            for (int i = 0; i < baseSize; i++) {
+                // Empty column
+                if (colStart[i] == -1)
+                    continue;
+
+                in.seek(dataStart + colStart[i]);
+
+                int x = i % size[0];
+                int y = i / size[0];
+                int z = 0;
+                do {
+                    z += in.readByte() & 0xFF;
+                    int count = in.readByte() & 0xFF;
+                    for (int j = 0; j < count; j++) {
+                        int color = in.readByte() & 0xFF;
+                        in.readByte(); //int normal = in.readByte() & 0xFF;
+
+                        // add a voxel with correct color
+                        layer.addVoxel(x, -z, y, colors[color]);
+                        z++;
+                    }
+                    // Skip duplicate count
+                    in.readByte();
+                } while (z < size[2]);
+            }
+            return true;
         }
     }
 
     // read file - returns true if file has loaded correctly
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn s) throws IOException {
+    protected boolean read(MappedFileIn s) throws IOException {
 
         // identifier
-        if (!s.readASCII(16).startsWith("Voxel Animation")) {
+        String identifier = s.readASCIIString(16);
+        if (identifier == null || !identifier.startsWith("Voxel Animation")) {
             return false;
         }
 
         // read basic information
-        s.readUInt32();
-        int limbCount = s.readUInt32();
-        s.readUInt32();
-        int bodySize = s.readUInt32();
-        s.seek(770, RandomAccessFileIn.CURRENT);
+        s.readIntRevUnsigned();
+        int limbCount = s.readIntRevUnsigned();
+        s.readIntRevUnsigned();
+        int bodySize = s.readIntRevUnsigned();
+        s.skipBytes(770);
 
         // Read Limb (layer) headers
         VxlLimb[] limbs = new VxlLimb[limbCount];
         for (int i = 0; i < limbCount; i++) {
             limbs[i] = new VxlLimb();
-            limbs[i].name = s.readASCII(16).trim();
-            s.seek(12, RandomAccessFileIn.CURRENT);
+            limbs[i].name = s.readASCIIString(16).trim();
+            s.skipBytes(12);
         }
 
         // skip to the limb (layer) footers
-        s.seek(802 + 28 * limbCount + bodySize, RandomAccessFileIn.BEGINNING);
+        s.seek(802 + 28 * limbCount + bodySize);
 
         int[] limbDataOffset = new int[limbCount];
         for (int i = 0; i < limbCount; i++) {
-            limbDataOffset[i] = s.readUInt32();
-            s.seek(8, RandomAccessFileIn.CURRENT);
+            limbDataOffset[i] = s.readIntRevUnsigned();
+            s.skipBytes(8);
             limbs[i].scale = s.readFloat();
-            s.seek(48, RandomAccessFileIn.CURRENT);
+            s.skipBytes(48);
 
             limbs[i].bounds = new float[6];
             for (int j = 0; j < 6; j++) {
@@ -143,12 +128,16 @@ public class CCVxlImporter extends AbstractImporter {
             limbs[i].type = s.readByte() == 2 ? NormalType.TiberianSun : NormalType.RedAlert2;
         }
 
-        // read the voxel data for all layers
+        // read the voxel data for all layers (independently)
         for (int i = 0; i < limbCount; i++) {
+            int start = 802 + 28*limbCount + limbDataOffset[i];
+            limbs[i].in = s.slice(start, s.length() - start);
+            limbs[i].layer = new Layer(limbs[i].name);
+        }
+        decodeParallel(Arrays.asList(limbs));
+        for (VxlLimb limb : limbs) {
             // add a new layer
-            addLayer(limbs[i].name);
-            s.seek(802 + 28*limbCount + limbDataOffset[i], RandomAccessFileIn.BEGINNING);
-            readVoxelData(s, limbs[i]);
+            addLayer(limb.layer);
         }
 
         // success (i.e. no error)
@@ -1,12 +1,10 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.math.BigInteger;
 
 /**
  * Kvx importer
@@ -18,7 +16,7 @@ public class KvxImporter extends AbstractImporter {
     }
 
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
+    protected boolean read(MappedFileIn fileIn) throws IOException {
         fileIn.readIntRev(); //int numbytes = fileIn.readIntRev();
 
         // read the dimensions
@@ -73,14 +71,16 @@ public class KvxImporter extends AbstractImporter {
         }
 
         // Read the color palette (always at the end of the file)
-        raf.seek(raf.length() - 768);
+        int dataStart = fileIn.position();
+        fileIn.seek(fileIn.length() - 768);
         int[] colPalette = new int[256];
         for (int i = 0; i < 256; i++) {
-            int r = Math.min(255, Math.max(0, Math.round((raf.read() * 255) / 63f)));
-            int g = Math.min(255, Math.max(0, Math.round((raf.read() * 255) / 63f)));
-            int b = Math.min(255, Math.max(0, Math.round((raf.read() * 255) / 63f)));
+            int r = Math.min(255, Math.max(0, Math.round((fileIn.readByteUnsigned() * 255) / 63f)));
+            int g = Math.min(255, Math.max(0, Math.round((fileIn.readByteUnsigned() * 255) / 63f)));
+            int b = Math.min(255, Math.max(0, Math.round((fileIn.readByteUnsigned() * 255) / 63f)));
             colPalette[i] = new Color(r, g, b).getRGB();
         }
+        fileIn.seek(dataStart);
 
         int lastZ = 0;
         int lastCol = 0;
@@ -104,13 +104,12 @@ public class KvxImporter extends AbstractImporter {
                     start += zlen + 3;
 
                     // fill in voxels "in between"
-                    BigInteger bigInteger = BigInteger.valueOf(visfaces);
-                    if (!bigInteger.testBit(4)) {
+                    if ((visfaces & 16) == 0) {
                         for (int i = lastZ + 1; i < zpos; i++) {
                             addVoxel(x - cx, i - cz, -y + cy, lastCol);
                         }
                     }
-                    if (!bigInteger.testBit(5)) {
+                    if ((visfaces & 32) == 0) {
                         lastZ = zpos + zlen - 1;
                     }
 
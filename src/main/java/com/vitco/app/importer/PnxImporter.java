@@ -1,7 +1,6 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -18,19 +17,48 @@ public class PnxImporter extends AbstractImporter {
         super(file, name);
     }
 
+    // an image (slice) of the file
+    private static final class SliceImage implements Chunk {
+        private final MappedFileIn in;
+        private int width;
+        private int height;
+        private int[] pixels;
+
+        private SliceImage(MappedFileIn in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean decode() throws IOException {
+            BufferedImage img = in.readImage(in.length());
+            if (img == null) {
+                return false;
+            }
+            width = img.getWidth();
+            height = img.getHeight();
+            pixels = img.getRGB(0, 0, width, height, null, 0, width);
+            return true;
+        }
+    }
+
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
+    protected boolean read(MappedFileIn fileIn) throws IOException {
 
         // read overall size
         fileIn.readIntRev(); fileIn.readIntRev(); fileIn.readIntRev();
 
         int layerCount = fileIn.readIntRev();
 
-        // read all images
+        // read all images (they are decoded independently)
         int imageCount = fileIn.readIntRev();
-        ArrayList<BufferedImage> images = new ArrayList<BufferedImage>();
+        ArrayList<SliceImage> images = new ArrayList<SliceImage>();
         for (int i = 0; i < imageCount; i++) {
-            images.add(fileIn.readImage());
+            int length = fileIn.readIntRev();
+            images.add(new SliceImage(fileIn.slice(fileIn.position(), length)));
+            fileIn.skipBytes(length);
+        }
+        if (!decodeParallel(images)) {
+            return false;
         }
 
         for (int i = 0; i < layerCount; i++) {
@@ -53,11 +81,14 @@ public class PnxImporter extends AbstractImporter {
             // read layer slice by slice
             for (int x = size[0] + min[0] - 1; x > min[0] - 1; x--) {
                 // read image for slice
-                BufferedImage img = images.get(fileIn.readIntRev());
+                SliceImage img = images.get(fileIn.readIntRev());
+                if (size[1] > img.width || size[2] > img.height) {
+                    return false;
+                }
                 for (int y = 0; y < size[1]; y++) {
                     for (int z = 0; z < size[2]; z++) {
                         //noinspection SuspiciousNameCombination
-                        int rgb = img.getRGB(y, z);
+                        int rgb = img.pixels[z * img.width + y];
                         if ((rgb >> 24) != 0x00) {
                             addVoxel(x, y + min[1], z + min[2], rgb);
                         }
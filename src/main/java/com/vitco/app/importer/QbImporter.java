@@ -1,12 +1,10 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
 /**
  * *.qb importer
@@ -21,121 +19,135 @@ public class QbImporter extends AbstractImporter {
     private static final int CODE_FLAG = 2;
     private static final int NEXT_SLICE_FLAG = 6;
 
-    @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
-        fileIn.readIntRevUnsigned(); //int version = fileIn.readIntRevUnsigned();
-        //System.out.println("version: " + version);
-        int colorFormat = fileIn.readIntRevUnsigned();
-        //System.out.println("colorFormat: " + colorFormat);
-        int zAxisOrientation = fileIn.readIntRevUnsigned();
-        //System.out.println("zAxisOrientation: " + zAxisOrientation);
-        int compressed = fileIn.readIntRevUnsigned();
-        //System.out.println("compressed: " + compressed);
-        fileIn.readIntRevUnsigned(); // int visibilityMaskEncoded = fileIn.readIntRevUnsigned();
-        //System.out.println("visibilityMaskEncoded: " + visibilityMaskEncoded);
-        int numMatrices = fileIn.readIntRevUnsigned();
-        //System.out.println("numMatrices: " + numMatrices);
-
-        for (int i = 0; i < numMatrices; i++) {
-            // read matrix name
-            int nameLength = fileIn.readByteUnsigned();
-            String name = fileIn.readASCIIString(nameLength);
-            addLayer(name);
-            //System.out.println("name: " + name);
-
-            // read matrix size
-            int sx = fileIn.readIntRevUnsigned();
-            int sy = fileIn.readIntRevUnsigned();
-            int sz = fileIn.readIntRevUnsigned();
-
-            //System.out.println(sx + " " + sy + " " + sz);
-
-            // read offset size
-            int cx = fileIn.readIntRev();
-            int cy = fileIn.readIntRev();
-            int cz = fileIn.readIntRev();
-
-            //System.out.println(cx + " " + cy + " " + cz);
+    // a matrix (layer) of the file
+    private static final class Matrix implements Chunk {
+        private final Layer layer;
+        private final MappedFileIn in;
+        private final int sx, sy, sz;
+        private final int cx, cy, cz;
+        private final boolean compressed;
+        private final int colorFormat;
+        private final int zAxisOrientation;
+
+        private Matrix(String name, MappedFileIn in, int[] size, int[] offset,
+                       boolean compressed, int colorFormat, int zAxisOrientation) {
+            this.layer = new Layer(name);
+            this.in = in;
+            this.sx = size[0];
+            this.sy = size[1];
+            this.sz = size[2];
+            this.cx = offset[0];
+            this.cy = offset[1];
+            this.cz = offset[2];
+            this.compressed = compressed;
+            this.colorFormat = colorFormat;
+            this.zAxisOrientation = zAxisOrientation;
+        }
 
-            ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+        // add a voxel (data is the little endian color value)
+        private void addVoxel(int x, int y, int z, int data) {
+            int a = data >>> 24; // read visibility encoding
+            if (a != 0) { // if voxel is not invisible (this should work correctly in all cases)
+                int c1 = data & 0xFF;
+                int c2 = (data >> 8) & 0xFF;
+                int c3 = (data >> 16) & 0xFF;
+                int rgb = colorFormat == 0
+                        ? 0xFF000000 | (c1 << 16) | (c2 << 8) | c3
+                        : 0xFF000000 | (c3 << 16) | (c2 << 8) | c1;
+                if (zAxisOrientation == 1) {
+                    layer.addVoxel(x + cx, -y - cy, z + cz, rgb);
+                } else {
+                    layer.addVoxel(z + cz, -y - cy, x + cx, rgb);
+                }
+            }
+        }
 
-            if (compressed == 0) { // uncompressed
+        @Override
+        public boolean decode() {
+            if (!compressed) { // uncompressed
                 for(int z = 0; z < sz; z++) {
                     for(int y = 0; y < sy; y++) {
                         for(int x = 0; x < sx; x++) {
-                            int c1 = fileIn.readByteUnsigned();
-                            int c2 = fileIn.readByteUnsigned();
-                            int c3 = fileIn.readByteUnsigned();
-                            int a = fileIn.readByteUnsigned(); // read visibility encoding
-                            if (a != 0) { // if voxel is not invisible (this should work correctly in all cases)
-                                int rgb = colorFormat == 0 ? new Color(c1,c2,c3).getRGB() : new Color(c3, c2, c1).getRGB();
-                                if (zAxisOrientation == 1) {
-                                    addVoxel(x + cx, -y - cy, z + cz, rgb);
-                                } else {
-                                    addVoxel(z + cz, -y - cy, x + cx, rgb);
-                                }
-                            }
+                            addVoxel(x, y, z, in.readIntRev());
                         }
                     }
                 }
             } else { // compressed
-
-                int z = 0;
-
-                while (z < sz) {
+                for (int z = 0; z < sz; z++) {
                     int index = -1;
                     while (true) {
-                        int data = fileIn.readIntRev();
+                        int data = in.readIntRev();
                         if (data == NEXT_SLICE_FLAG) {
                             break;
                         } else if (data == CODE_FLAG) {
-                            int count = fileIn.readIntRevUnsigned();
-                            data = fileIn.readIntRev();
-
+                            int count = in.readIntRevUnsigned();
+                            data = in.readIntRev();
                             for (int j = 0; j < count; j++) {
-                                int x = (index + 1)%sx;
-                                int y = (index + 1)/sx;
                                 index++;
-                                byteBuffer.position(0);
-                                byteBuffer.putInt(data);
-                                int c1 = byteBuffer.get(3) & 0x0000FF;
-                                int c2 = byteBuffer.get(2) & 0x0000FF;
-                                int c3 = byteBuffer.get(1) & 0x0000FF;
-                                int a = byteBuffer.get(0) & 0x0000FF; // read visibility encoding
-                                if (a != 0) { // if voxel is not invisible
-                                    int rgb = colorFormat == 0 ? new Color(c1,c2,c3).getRGB() : new Color(c3, c2, c1).getRGB();
-                                    if (zAxisOrientation == 1) {
-                                        addVoxel(x + cx, -y - cy, z + cz, rgb);
-                                    } else {
-                                        addVoxel(z + cz, -y - cy, x + cx, rgb);
-                                    }
-                                }
+                                addVoxel(index % sx, index / sx, z, data);
                             }
                         } else {
-                            int x = (index + 1)%sx;
-                            int y = (index + 1)/sx;
                             index++;
-                            byteBuffer.position(0);
-                            byteBuffer.putInt(data);
-                            int c1 = byteBuffer.get(3) & 0x0000FF;
-                            int c2 = byteBuffer.get(2) & 0x0000FF;
-                            int c3 = byteBuffer.get(1) & 0x0000FF;
-                            int a = byteBuffer.get(0) & 0x0000FF; // read visibility encoding
-                            if (a != 0) { // if voxel is not invisible
-                                int rgb = colorFormat == 0 ? new Color(c1,c2,c3).getRGB() : new Color(c3, c2, c1).getRGB();
-                                if (zAxisOrientation == 1) {
-                                    addVoxel(x + cx, -y - cy, z + cz, rgb);
-                                } else {
-                                    addVoxel(z + cz, -y - cy, x + cx, rgb);
-                                }
-                            }
+                            addVoxel(index % sx, index / sx, z, data);
                         }
                     }
-                    z++;
                 }
+            }
+            return true;
+        }
+    }
 
+    // find the length of the compressed data of a matrix
+    private static int getCompressedLength(MappedFileIn fileIn, int sz) {
+        int start = fileIn.position();
+        for (int z = 0; z < sz; z++) {
+            while (true) {
+                int data = fileIn.readIntRev();
+                if (data == NEXT_SLICE_FLAG) {
+                    break;
+                } else if (data == CODE_FLAG) {
+                    fileIn.skipBytes(8);
+                }
             }
+        }
+        int length = fileIn.position() - start;
+        fileIn.seek(start);
+        return length;
+    }
+
+    @Override
+    protected boolean read(MappedFileIn fileIn) throws IOException {
+        fileIn.readIntRevUnsigned(); //int version = fileIn.readIntRevUnsigned();
+        int colorFormat = fileIn.readIntRevUnsigned();
+        int zAxisOrientation = fileIn.readIntRevUnsigned();
+        int compressed = fileIn.readIntRevUnsigned();
+        fileIn.readIntRevUnsigned(); // int visibilityMaskEncoded = fileIn.readIntRevUnsigned();
+        int numMatrices = fileIn.readIntRevUnsigned();
+
+        // find the matrices (they are decoded independently)
+        ArrayList<Matrix> matrices = new ArrayList<Matrix>();
+        for (int i = 0; i < numMatrices; i++) {
+            // read matrix name
+            int nameLength = fileIn.readByteUnsigned();
+            String name = fileIn.readASCIIString(nameLength);
+
+            // read matrix size
+            int[] size = new int[] {fileIn.readIntRevUnsigned(), fileIn.readIntRevUnsigned(), fileIn.readIntRevUnsigned()};
+
+            // read offset size
+            int[] offset = new int[] {fileIn.readIntRev(), fileIn.readIntRev(), fileIn.readIntRev()};
+
+            int length = compressed == 0
+                    ? size[0] * size[1] * size[2] * 4
+                    : getCompressedLength(fileIn, size[2]);
+            matrices.add(new Matrix(name, fileIn.slice(fileIn.position(), length), size, offset,
+                    compressed != 0, colorFormat, zAxisOrientation));
+            fileIn.skipBytes(length);
+        }
 
+        decodeParallel(matrices);
+        for (Matrix matrix : matrices) {
+            addLayer(matrix.layer);
         }
 
         return true;
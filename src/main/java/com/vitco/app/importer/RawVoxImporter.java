@@ -1,7 +1,6 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.awt.*;
 import java.io.File;
@@ -29,11 +28,11 @@ public class RawVoxImporter extends AbstractImporter {
 
     // read file - returns true if file has loaded correctly
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
+    protected boolean read(MappedFileIn fileIn) throws IOException {
 
         // header
         String header = fileIn.readASCIIString(4);
-        if (!header.startsWith("XOVR")) { // check format identifier
+        if (header == null || !header.startsWith("XOVR")) { // check format identifier
             return false;
         }
 
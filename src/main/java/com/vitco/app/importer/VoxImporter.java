@@ -1,12 +1,10 @@
 package com.vitco.app.importer;
 
-import com.vitco.app.util.file.FileIn;
-import com.vitco.app.util.file.RandomAccessFileIn;
+import com.vitco.app.util.file.MappedFileIn;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 public class VoxImporter extends AbstractImporter {
@@ -41,56 +39,87 @@ public class VoxImporter extends AbstractImporter {
             -5592406, -7829368, -8947849, -11184811, -12303292, -14540254, -15658735, -16777216
     };
 
+    // decodes the voxel of a MagicaVoxel "XYZI" chunk
+    private static final class XYZIChunk implements Chunk {
+        private final MappedFileIn in;
+        private final int numVoxels;
+        private final Layer layer = new Layer("XYZI");
+        // set when all chunks are known (the last values in the file are used)
+        private int[] offset;
+        private int[] palette;
+
+        private XYZIChunk(MappedFileIn in, int numVoxels) {
+            this.in = in;
+            this.numVoxels = numVoxels;
+        }
+
+        @Override
+        public boolean decode() {
+            for (int j = 0; j < numVoxels; j++) {
+                int x = in.readByteUnsigned();
+                int y = in.readByteUnsigned();
+                int z = in.readByteUnsigned();
+                int c = in.readByteUnsigned();
+                layer.addVoxel(-offset[0] + x - 1, -z, -offset[1] + y, palette[c - 1]);
+            }
+            return true;
+        }
+    }
+
     // read file - returns true if file has loaded correctly
     @Override
-    protected boolean read(FileIn fileIn, RandomAccessFileIn raf) throws IOException {
+    protected boolean read(MappedFileIn fileIn) throws IOException {
 
         // check magic number
-        byte[] check = new byte[4];
-        raf.read(check);
-        String checkSum = new String(check, "ASCII");
-        if (!checkSum.equals("VOX ")) {
+        String checkSum = fileIn.readASCIIString(4);
+        if (!"VOX ".equals(checkSum)) {
 
             // voxlap engine (slab6)
-            raf.seek(0);
-            int sx = Integer.reverseBytes(raf.readInt());
-            int sy = Integer.reverseBytes(raf.readInt());
-            int sz = Integer.reverseBytes(raf.readInt());
-
-            // read over integer values
-            fileIn.skipBytes(12);
+            fileIn.seek(0);
+            final int sx = fileIn.readIntRev();
+            final int sy = fileIn.readIntRev();
+            final int sz = fileIn.readIntRev();
 
             // =====================
             // VOXLAP ENGINE *.vox FORMAT
             // =====================
 
             // Read the color palette (always at the end of the file)
-            raf.seek(raf.length() - 768);
-            int[] colPalette = new int[256];
+            fileIn.seek(fileIn.length() - 768);
+            final int[] colPalette = new int[256];
             for (int i = 0; i < 256; i++) {
-                int r = Math.min(255,Math.max(0,Math.round((raf.read() * 255)/63f)));
-                int g = Math.min(255,Math.max(0,Math.round((raf.read() * 255)/63f)));
-                int b = Math.min(255,Math.max(0,Math.round((raf.read() * 255)/63f)));
+                int r = Math.min(255,Math.max(0,Math.round((fileIn.readByteUnsigned() * 255)/63f)));
+                int g = Math.min(255,Math.max(0,Math.round((fileIn.readByteUnsigned() * 255)/63f)));
+                int b = Math.min(255,Math.max(0,Math.round((fileIn.readByteUnsigned() * 255)/63f)));
                 colPalette[i] = new Color(r, g, b).getRGB();
             }
 
-            // read the voxel
+            // read the voxel (every x slice is decoded independently)
+            ArrayList<Chunk> chunks = new ArrayList<>();
+            final Layer[] slices = new Layer[sx];
             for (int x = 0; x < sx; x++) {
-                for (int y = 0; y < sy; y++) {
-                    for (int z = 0; z < sz; z++) {
-                        int paletteEntry = fileIn.readByteUnsigned();
-                        if (paletteEntry != 255) {
-                            //noinspection SuspiciousNameCombination
-                            addVoxel(x, z, -y, colPalette[paletteEntry]);
+                final int fx = x;
+                final MappedFileIn in = fileIn.slice(12 + x * sy * sz, sy * sz);
+                slices[x] = new Layer("slice");
+                chunks.add(() -> {
+                    for (int y = 0; y < sy; y++) {
+                        for (int z = 0; z < sz; z++) {
+                            int paletteEntry = in.readByteUnsigned();
+                            if (paletteEntry != 255) {
+                                //noinspection SuspiciousNameCombination
+                                slices[fx].addVoxel(fx, z, -y, colPalette[paletteEntry]);
+                            }
                         }
                     }
-                }
+                    return true;
+                });
+            }
+            decodeParallel(chunks);
+            for (Layer slice : slices) {
+                addVoxels(slice);
             }
 
             return true;
-        } else {
-            // skip over chechsum
-            fileIn.skipBytes(4);
         }
 
         // =====================
@@ -104,7 +133,7 @@ public class VoxImporter extends AbstractImporter {
         }
 
         // check main chunk identifier
-        if (!fileIn.readASCIIString(4).equals("MAIN")) {
+        if (!"MAIN".equals(fileIn.readASCIIString(4))) {
             return false;
         }
 
@@ -116,7 +145,7 @@ public class VoxImporter extends AbstractImporter {
             return false;
         }
 
-        ArrayList<Integer> voxels = new ArrayList<>();
+        ArrayList<XYZIChunk> models = new ArrayList<>();
         int[] palette = voxColors;
 
         int[] offset = new int[3];
@@ -124,9 +153,13 @@ public class VoxImporter extends AbstractImporter {
         for (int i = 0; i < totalChildrenSize;) {
             // each chunk has an ID, size and child chunks
             String chunkName = fileIn.readASCIIString(4);
+            if (chunkName == null) {
+                return false;
+            }
 
             int chunkSize = fileIn.readIntRev();
             fileIn.readIntRev();//int childChunks = fileIn.readIntRev();
+            int chunkStart = fileIn.position();
 
             switch (chunkName) {
                 case "SIZE":
@@ -140,10 +173,8 @@ public class VoxImporter extends AbstractImporter {
                     if (numVoxels < 0) { // sanity check
                         return false;
                     }
-                    for (int j = 0; j < numVoxels; j += 1) {
-                        voxels.add(fileIn.readInt());
-                    }
-
+                    // the voxel are decoded once all chunks are known
+                    models.add(new XYZIChunk(fileIn.slice(fileIn.position(), numVoxels * 4), numVoxels));
                     break;
                 case "RGBA":
                     // use custom color palette
@@ -155,23 +186,25 @@ public class VoxImporter extends AbstractImporter {
                         fileIn.readByteUnsigned();//int a = fileIn.readByteUnsigned();
                         palette[j] = new Color(r, g, b).getRGB();
                     }
-
                     break;
                 default:
-                    fileIn.skipBytes(chunkSize);
                     break;
             }
+            fileIn.seek(chunkStart + chunkSize);
 
             i += 12 + chunkSize;
         }
 
-        ByteBuffer buf = ByteBuffer.allocate(4);
-        for (Integer voxel : voxels) {
-            buf.position(0);
-            buf.putInt(voxel);
-            addVoxel(-offset[0] + (buf.get(0) & 0xFF) - 1, -(buf.get(2) & 0xFF),-offset[1] + (buf.get(1) & 0xFF), palette[(buf.get(3) & 0xFF) - 1]);
+        // decode the models
+        for (XYZIChunk model : models) {
+            model.offset = offset;
+            model.palette = palette;
+        }
+        decodeParallel(models);
+        for (XYZIChunk model : models) {
+            addVoxels(model.layer);
         }
 
         return true;
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import com.threed.jpct.TextureManager;
 import com.vitco.app.App;
 import com.vitco.app.core.data.Data;
 import com.vitco.app.core.data.container.Voxel;
+import com.vitco.app.core.world.TexturePool;
 import com.vitco.app.export.generic.ExportWorld;
 import com.vitco.app.layout.content.JCustomScrollPane;
 import com.vitco.app.layout.content.ViewPrototype;
@@ -154,7 +155,7 @@ public class ConsoleView extends ViewPrototype implements ConsoleViewInterface {
         actionManager.registerAction("study_object_complexity", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                asyncActionManager.addAsyncAction(new AsyncAction() {
+                asyncActionManager.addAsyncAction(new AsyncAction(AsyncAction.PRIORITY_BACKGROUND) {
                     @Override
                     public void performAction() {
                         console.addLine("Computing \"Reduced Triangle Count\"...");
@@ -315,9 +316,12 @@ public class ConsoleView extends ViewPrototype implements ConsoleViewInterface {
         consoleAction.put("/test voxel", "toggle_rapid_voxel_testing");
         consoleAction.put("/test camera", "toggle_rapid_camera_testing");
         consoleAction.put("/texture", "texture_debug_information");
+        consoleAction.put("/texture pool", "texture_pool_debug_information");
         consoleAction.put("/shader", "toggle_shader_enabled");
+        consoleAction.put("/shader timing", "shader_debug_information");
         consoleAction.put("/check deadlock", "check_for_deadlock_toggle");
         consoleAction.put("/study holes", "study_holes_print_info");
+        consoleAction.put("/async", "async_debug_information");
         consoleAction.put("/help", "display_console_commands");
 
         actionManager.registerAction("display_console_commands", new AbstractAction() {
@@ -401,6 +405,28 @@ public class ConsoleView extends ViewPrototype implements ConsoleViewInterface {
             }
         });
 
+        // display the statistics of the generated textures
+        actionManager.registerAction("texture_pool_debug_information", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                console.addLine("Texture Pool Information:");
+                for (String line : TexturePool.getStatistics()) {
+                    console.addLine("  " + line);
+                }
+            }
+        });
+
+        // display the async action statistics
+        actionManager.registerAction("async_debug_information", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                console.addLine("Async Action Information:");
+                for (String line : asyncActionManager.getStatistics()) {
+                    console.addLine("  " + line);
+                }
+            }
+        });
+
         // register all console actions (so debug know that they are used)
         for (String action : consoleAction.values()) {
             actionManager.registerActionIsUsed(action);
@@ -107,6 +107,17 @@ public class MainView extends EngineInteractionPrototype implements MainViewInte
             }
         });
 
+        // display the timings of the post-processing
+        actionManager.registerAction("shader_debug_information", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                console.addLine("Post-processing Information:");
+                for (String line : container.getPostProcessingStatistics()) {
+                    console.addLine("  " + line);
+                }
+            }
+        });
+
         // start/stop test mode (rapid camera rotation)
         actionManager.registerAction("toggle_rapid_camera_testing",new AbstractAction() {
 
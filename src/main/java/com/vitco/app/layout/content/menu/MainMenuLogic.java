@@ -1,6 +1,7 @@
 package com.vitco.app.layout.content.menu;
 
 import com.jidesoft.action.DefaultDockableBarDockableHolder;
+import com.vitco.app.convert.ThumbnailService;
 import com.vitco.app.core.data.container.Voxel;
 import com.vitco.app.export.*;
 import com.vitco.app.export.collada.ColladaExportWrapper;
@@ -18,8 +19,8 @@ import com.vitco.app.util.components.dialog.components.*;
 import com.vitco.app.util.components.progressbar.ProgressDialog;
 import com.vitco.app.util.components.progressbar.ProgressWorker;
 import com.vitco.app.util.file.FileTools;
-import com.vitco.app.util.misc.CFileDialog;
 import com.vitco.app.util.misc.ColorTools;
+import com.vitco.app.util.misc.ThumbnailFileChooser;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
@@ -72,9 +73,16 @@ public class MainMenuLogic extends MenuLogicPrototype implements MenuLogicInterf
         saveLocationListener.remove(listener);
     }
     // the file chooser
-    private final CFileDialog fc_vsd = new CFileDialog();
+    private final ThumbnailFileChooser fc_vsd = new ThumbnailFileChooser(32, 32);
     // import file chooser
-    private final CFileDialog fc_import = new CFileDialog();
+    private final ThumbnailFileChooser fc_import = new ThumbnailFileChooser(32, 32);
+
+    // renders the previews of the voxel files in the file choosers
+    @Autowired(required=true)
+    public final void setThumbnailService(ThumbnailService thumbnailService) {
+        fc_vsd.setThumbnailService(thumbnailService);
+        fc_import.setThumbnailService(thumbnailService);
+    }
 
     // save file prompt (and overwrite prompt): true iff save was successful
     private boolean handleSaveDialog(Frame frame) {
@@ -1,8 +1,246 @@
 package com.vitco.app.low.engine;
 
+import com.vitco.app.low.CubeIndexer;
+
+import java.util.Arrays;
+
 /**
- * A chunk of voxel ( e.g. 32 ^ 3 )
+ * A chunk of voxel ( e.g. 16 ^ 3 )
+ *
+ * Stores the objects of one cubic brick and keeps track of how many objects live in
+ * every local plane, so that plane queries can skip empty bricks without touching the slots.
+ *
+ * Chunks with few objects store them sparse (sorted slot indices and the objects), full
+ * chunks use a flat array that is indexed by the local position. Either way the objects
+ * are returned in slot order (x fastest, then z, then y).
  */
-public class Chunk {
-    protected final static int CHUNK_SIZE = 32;
+public final class Chunk<T> {
+    // size of a chunk (per dimension)
+    public final static int CHUNK_BITS = 4;
+    public final static int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private final static int CHUNK_MASK = CHUNK_SIZE - 1;
+    private final static int CHUNK_VOLUME = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE;
+    // the chunk switches to the flat array when it holds more objects than this
+    // (sparse: 6 byte per object, flat: 4 byte per slot) and back when it holds
+    // less than a quarter of it (so a chunk does not switch back and forth)
+    private final static int SPARSE_LIMIT = 512;
+
+    // the chunk coordinates (world position divided by chunk size)
+    public final int cx;
+    public final int cy;
+    public final int cz;
+
+    // the sorted slot indices and objects (sparse storage, the first "size" entries are used)
+    private short[] keys = new short[4];
+    private Object[] values = new Object[4];
+    // the slots of this chunk (flat storage, null while sparse)
+    private Object[] slots = null;
+    // amount of objects per local plane (x, y and z axis)
+    private final int[][] planeCount = new int[][] {
+            new int[CHUNK_SIZE], new int[CHUNK_SIZE], new int[CHUNK_SIZE]
+    };
+    // amount of objects in this chunk
+    private int size = 0;
+
+    // constructor
+    public Chunk(int cx, int cy, int cz) {
+        this.cx = cx;
+        this.cy = cy;
+        this.cz = cz;
+    }
+
+    // get the chunk coordinate for a world coordinate
+    public static int toChunk(int value) {
+        return value >> CHUNK_BITS;
+    }
+
+    // get the id of the chunk that contains this world position
+    public static int getChunkId(int x, int y, int z) {
+        return CubeIndexer.getId(x >> CHUNK_BITS, y >> CHUNK_BITS, z >> CHUNK_BITS);
+    }
+
+    // get the slot index of a world position inside its chunk
+    private static int getSlot(int x, int y, int z) {
+        return (x & CHUNK_MASK) | ((z & CHUNK_MASK) << CHUNK_BITS) | ((y & CHUNK_MASK) << (CHUNK_BITS * 2));
+    }
+
+    // get the local coordinate of a slot (axis 0 = x, 1 = y, 2 = z)
+    private static int getLocal(int slot, int axis) {
+        switch (axis) {
+            case 0: return slot & CHUNK_MASK;
+            case 1: return slot >> (CHUNK_BITS * 2);
+            default: return (slot >> CHUNK_BITS) & CHUNK_MASK;
+        }
+    }
+
+    // true if the objects are stored sparse
+    public final boolean isSparse() {
+        return slots == null;
+    }
+
+    // retrieve the object at world position (or null)
+    @SuppressWarnings("unchecked")
+    public final T get(int x, int y, int z) {
+        int slot = getSlot(x, y, z);
+        if (slots != null) {
+            return (T) slots[slot];
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (short) slot);
+        return index < 0 ? null : (T) values[index];
+    }
+
+    // set the object at world position, returns the previous object
+    @SuppressWarnings("unchecked")
+    public final T set(int x, int y, int z, T value) {
+        int slot = getSlot(x, y, z);
+        T previous;
+        if (slots != null) {
+            previous = (T) slots[slot];
+            slots[slot] = value;
+        } else {
+            int index = Arrays.binarySearch(keys, 0, size, (short) slot);
+            if (index >= 0) {
+                previous = (T) values[index];
+                if (value != null) {
+                    values[index] = value;
+                } else {
+                    // remove the entry
+                    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                    System.arraycopy(values, index + 1, values, index, size - index - 1);
+                    values[size - 1] = null;
+                }
+            } else {
+                previous = null;
+                if (value != null) {
+                    if (size == SPARSE_LIMIT) {
+                        toFlat();
+                        slots[slot] = value;
+                    } else {
+                        insert(-index - 1, slot, value);
+                    }
+                }
+            }
+        }
+        if (previous == null && value != null) {
+            updateCount(x, y, z, 1);
+        } else if (previous != null && value == null) {
+            updateCount(x, y, z, -1);
+            if (slots != null && size < SPARSE_LIMIT / 4) {
+                toSparse();
+            }
+        }
+        return previous;
+    }
+
+    // remove the object at world position, returns the removed object
+    public final T remove(int x, int y, int z) {
+        return set(x, y, z, null);
+    }
+
+    // helper - insert an entry into the sparse storage
+    private void insert(int index, int slot, Object value) {
+        if (size == keys.length) {
+            int capacity = Math.min(SPARSE_LIMIT, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = (short) slot;
+        values[index] = value;
+    }
+
+    // helper - switch to the flat storage
+    private void toFlat() {
+        slots = new Object[CHUNK_VOLUME];
+        for (int i = 0; i < size; i++) {
+            slots[keys[i]] = values[i];
+        }
+        keys = null;
+        values = null;
+    }
+
+    // helper - switch to the sparse storage
+    private void toSparse() {
+        int capacity = Math.max(4, Integer.highestOneBit(size) * 2);
+        keys = new short[capacity];
+        values = new Object[capacity];
+        int index = 0;
+        for (int slot = 0; slot < CHUNK_VOLUME; slot++) {
+            if (slots[slot] != null) {
+                keys[index] = (short) slot;
+                values[index++] = slots[slot];
+            }
+        }
+        slots = null;
+    }
+
+    // helper - update the count information
+    private void updateCount(int x, int y, int z, int delta) {
+        planeCount[0][x & CHUNK_MASK] += delta;
+        planeCount[1][y & CHUNK_MASK] += delta;
+        planeCount[2][z & CHUNK_MASK] += delta;
+        size += delta;
+    }
+
+    // amount of objects in this chunk
+    public final int getSize() {
+        return size;
+    }
+
+    // true if this chunk contains no objects
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    // amount of objects in a world plane (axis 0 = x, 1 = y, 2 = z)
+    public final int getPlaneSize(int axis, int plane) {
+        return planeCount[axis][plane & CHUNK_MASK];
+    }
+
+    // copy all objects into the target array (in slot order), returns the new offset
+    public final int copyTo(Object[] target, int offset) {
+        if (slots == null) {
+            System.arraycopy(values, 0, target, offset, size);
+            return offset + size;
+        }
+        for (Object obj : slots) {
+            if (obj != null) {
+                target[offset++] = obj;
+            }
+        }
+        return offset;
+    }
+
+    // copy all objects of a world plane into the target array (in slot order), returns the new offset
+    public final int copyPlaneTo(int axis, int plane, Object[] target, int offset) {
+        int local = plane & CHUNK_MASK;
+        if (planeCount[axis][local] == 0) {
+            return offset;
+        }
+        if (slots == null) {
+            for (int i = 0; i < size; i++) {
+                if (getLocal(keys[i], axis) == local) {
+                    target[offset++] = values[i];
+                }
+            }
+            return offset;
+        }
+        // the outer loop walks the higher bits, so the slots are visited in order
+        for (int a = 0; a < CHUNK_SIZE; a++) {
+            for (int b = 0; b < CHUNK_SIZE; b++) {
+                int slot;
+                switch (axis) {
+                    case 0: slot = local | (b << CHUNK_BITS) | (a << (CHUNK_BITS * 2)); break;
+                    case 1: slot = b | (a << CHUNK_BITS) | (local << (CHUNK_BITS * 2)); break;
+                    default: slot = b | (local << CHUNK_BITS) | (a << (CHUNK_BITS * 2)); break;
+                }
+                Object obj = slots[slot];
+                if (obj != null) {
+                    target[offset++] = obj;
+                }
+            }
+        }
+        return offset;
+    }
 }
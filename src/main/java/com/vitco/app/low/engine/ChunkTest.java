@@ -0,0 +1,75 @@
+package com.vitco.app.low.engine;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test the sparse and the flat storage of a chunk.
+ */
+public class ChunkTest {
+
+    // helper - compare the chunk with the expected content
+    private static void check(Chunk<Integer> chunk, HashMap<Integer, Integer> expected) {
+        assert chunk.getSize() == expected.size();
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            int slot = entry.getKey();
+            assert entry.getValue().equals(chunk.get(slot & 15, slot >> 8, (slot >> 4) & 15));
+        }
+        // all objects in slot order
+        Object[] all = new Object[chunk.getSize()];
+        assert chunk.copyTo(all, 0) == all.length;
+        int last = -1;
+        for (Object obj : all) {
+            assert (Integer) obj > last;
+            last = (Integer) obj;
+        }
+        // the planes contain every object once
+        for (int axis = 0; axis < 3; axis++) {
+            int count = 0;
+            for (int plane = 0; plane < Chunk.CHUNK_SIZE; plane++) {
+                Object[] objects = new Object[chunk.getPlaneSize(axis, plane)];
+                assert chunk.copyPlaneTo(axis, plane, objects, 0) == objects.length;
+                for (Object obj : objects) {
+                    int slot = (Integer) obj;
+                    int local = axis == 0 ? slot & 15 : (axis == 1 ? slot >> 8 : (slot >> 4) & 15);
+                    assert local == plane;
+                }
+                count += objects.length;
+            }
+            assert count == expected.size();
+        }
+    }
+
+    @Test
+    public void testStorage() {
+        Random rand = new Random(0);
+        Chunk<Integer> chunk = new Chunk<Integer>(0, 0, 0);
+        // the object is its slot index
+        HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        assert chunk.isSparse();
+        // fill the chunk (switches to the flat storage)
+        while (expected.size() < 3000) {
+            int slot = rand.nextInt(4096);
+            Integer previous = chunk.set(slot & 15, slot >> 8, (slot >> 4) & 15, slot);
+            assert previous == null ? !expected.containsKey(slot) : previous.equals(expected.get(slot));
+            expected.put(slot, slot);
+            if (expected.size() == 100) {
+                assert chunk.isSparse();
+                check(chunk, expected);
+            }
+        }
+        assert !chunk.isSparse();
+        check(chunk, expected);
+        // empty the chunk (switches back to the sparse storage)
+        while (expected.size() > 10) {
+            int slot = rand.nextInt(4096);
+            Integer removed = chunk.remove(slot & 15, slot >> 8, (slot >> 4) & 15);
+            assert removed == null ? !expected.containsKey(slot) : removed.equals(expected.remove(slot));
+        }
+        assert chunk.isSparse();
+        check(chunk, expected);
+    }
+}
@@ -1,7 +1,5 @@
 package com.vitco.app.low.engine;
 
-import com.vitco.app.low.CubeIndexer;
-import com.vitco.app.util.misc.IntegerTools;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.HashMap;
@@ -26,17 +24,14 @@ public class Engine {
     // -----------------------------
 
     // holds the different known chunks
-    private final TIntObjectHashMap<Chunk> chunks = new TIntObjectHashMap<Chunk>();
+    private final TIntObjectHashMap<Chunk<VoxelType>> chunks = new TIntObjectHashMap<Chunk<VoxelType>>();
 
     // obtain the appropriate chunk (create a new one if it doesn't exist)
-    private Chunk getChunk(int[] xyz) {
-        int chunkId = CubeIndexer.getId(
-                IntegerTools.ifloordiv2(xyz[0], Chunk.CHUNK_SIZE),
-                IntegerTools.ifloordiv2(xyz[1], Chunk.CHUNK_SIZE),
-                IntegerTools.ifloordiv2(xyz[2], Chunk.CHUNK_SIZE));
-        Chunk result = chunks.get(chunkId);
+    private Chunk<VoxelType> getChunk(int[] xyz) {
+        int chunkId = Chunk.getChunkId(xyz[0], xyz[1], xyz[2]);
+        Chunk<VoxelType> result = chunks.get(chunkId);
         if (result == null) {
-            result = new Chunk();
+            result = new Chunk<VoxelType>(Chunk.toChunk(xyz[0]), Chunk.toChunk(xyz[1]), Chunk.toChunk(xyz[2]));
             chunks.put(chunkId, result);
         }
         return result;
@@ -60,7 +55,7 @@ public class Engine {
             // increase the used count
             type.usedCount++;
             // get the chunk this voxel lives in
-            Chunk chunk = getChunk(xyz);
+            Chunk<VoxelType> chunk = getChunk(xyz);
             // check if the voxel already exists (and decrease used count of the type if so)
             // ...
             // update the voxel in the chunk
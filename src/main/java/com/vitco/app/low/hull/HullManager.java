@@ -229,6 +229,50 @@ public class HullManager<T> implements HullManagerInterface<T>, Serializable {
         }
     }
 
+    // helper - true if there are no objects and no pending changes
+    private boolean isPristine() {
+        if (!id2obj.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < 6; i++) {
+            if (!borderAdded[i].isEmpty() || !borderRemoved[i].isEmpty() ||
+                    !borderBufferAdded[i].isEmpty() || !borderBufferRemoved[i].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public final void update(int[] posIds, T[] objects) {
+        if (!isPristine()) {
+            for (int i = 0; i < posIds.length; i++) {
+                update(posIds[i], objects[i]);
+            }
+            return;
+        }
+        // the manager is empty, so the hull can be computed in one pass
+        id2obj.ensureCapacity(posIds.length);
+        for (int i = 0; i < posIds.length; i++) {
+            id2obj.put(posIds[i], objects[i]);
+        }
+        int[] offsets = new int[] {
+                1, -1, CubeIndexer.widthwidth, -CubeIndexer.widthwidth, CubeIndexer.width, -CubeIndexer.width
+        };
+        for (int posId : id2obj.keys()) {
+            T obj = null;
+            for (int i = 0; i < 6; i++) {
+                if (!id2obj.containsKey(posId + offsets[i])) {
+                    if (obj == null) {
+                        obj = id2obj.get(posId);
+                    }
+                    border[i].add(posId);
+                    borderBufferAdded[i].put(posId, obj);
+                }
+            }
+        }
+    }
+
     @Override
     public final boolean clearPosition(short[] pos) {
         //System.out.println("C " + pos[0] + "," + pos[1] + "," + pos[2]);
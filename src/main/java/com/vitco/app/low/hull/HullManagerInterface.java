@@ -34,6 +34,9 @@ public interface HullManagerInterface<T> {
     // remove an object from this hull finder
     void update(int posId, T object);
 
+    // add many objects at once (the objects of duplicate positions are updated)
+    void update(int[] posIds, T[] objects);
+
     // remove an object from this hull finder
     public boolean clearPosition(short[] pos);
 
@@ -1,7 +1,11 @@
 package com.vitco.app.low.hull;
 
+import com.vitco.app.low.CubeIndexer;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * Testing that the hull detection is working properly.
  */
@@ -231,4 +235,46 @@ public class HullManagerTest {
         }
 
     }
+
+    @Test
+    public void testBatchUpdate() throws Exception {
+        Random rand = new Random(0);
+        for (int run = 0; run < 10; run++) {
+            HullManager<String> sequential = new HullManager<String>();
+            HullManager<String> batch = new HullManager<String>();
+            int count = rand.nextInt(2000) + 1;
+            int[] posIds = new int[count];
+            String[] objects = new String[count];
+            for (int i = 0; i < count; i++) {
+                // some positions are used several times
+                short[] pos = get(rand.nextInt(15), rand.nextInt(15), rand.nextInt(15));
+                posIds[i] = CubeIndexer.getId(pos);
+                objects[i] = toString(pos) + " " + i;
+                sequential.update(posIds[i], objects[i]);
+            }
+            batch.update(posIds, objects);
+            assert Arrays.equals(sortedIds(sequential.getPosIds()), sortedIds(batch.getPosIds()));
+            for (int j = 0; j < 6; j++) {
+                assert Arrays.equals(sortedIds(sequential.getHullAsIds(j)), sortedIds(batch.getHullAsIds(j)));
+                assert sequential.getHullAdditions(j).equals(batch.getHullAdditions(j));
+                assert sequential.getHullRemovals(j).equals(batch.getHullRemovals(j));
+            }
+            // a second batch is applied to a manager that is not empty
+            for (int i = 0; i < count; i++) {
+                objects[i] = objects[i] + " updated";
+                sequential.update(posIds[i], objects[i]);
+            }
+            batch.update(posIds, objects);
+            for (int j = 0; j < 6; j++) {
+                assert sequential.getHullAdditions(j).equals(batch.getHullAdditions(j));
+                assert sequential.getHullRemovals(j).equals(batch.getHullRemovals(j));
+            }
+        }
+    }
+
+    // helper
+    private static int[] sortedIds(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
 }
@@ -1,5 +1,6 @@
 package com.vitco.app.low.triangulate;
 
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 import com.vitco.app.util.misc.IntegerTools;
 import gnu.trove.set.hash.TIntHashSet;
 import org.poly2tri.Poly2Tri;
@@ -9,7 +10,6 @@ import org.poly2tri.triangulation.TriangulationContext;
 import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * Takes a 2D bit array and converts it into polygons with holes.
@@ -32,77 +32,71 @@ public class Grid2TriPolyFast {
 
     // ==============
 
-    // helper - we need only one context for all conversion (faster)
-    private final static TriangulationContext tcx = Poly2Tri.createContext(TriangulationAlgorithm.DTSweep);
+    // helper - we need only one context per thread for all conversion (faster)
+    private final static ThreadLocal<TriangulationContext> tcx = new ThreadLocal<TriangulationContext>() {
+        @Override
+        protected TriangulationContext initialValue() {
+            return Poly2Tri.createContext(TriangulationAlgorithm.DTSweep);
+        }
+    };
+
+    // helper - convert a ring into polygon points, points that were already seen
+    // are interpolated so that Poly2Tri can process them
+    private static ArrayList<PolygonPoint> toPoints(short[] outline, TIntHashSet indexer) {
+        ArrayList<PolygonPoint> result = new ArrayList<PolygonPoint>(outline.length / 2);
+        for (int i = 0, len = outline.length - 2; i < len; i+=2) {
+            // check if we need to interpolate
+            if (!indexer.add(IntegerTools.makeInt(outline[i], outline[i + 1]))) {
+                result.add(new PolygonPoint(outline[i] - Math.signum(outline[i] - outline[i+2]) * INTERP, outline[i+1] - Math.signum(outline[i+1] - outline[i+3]) * INTERP));
+            } else {
+                result.add(new PolygonPoint(outline[i], outline[i+1]));
+            }
+        }
+        indexer.clear();
+        return result;
+    }
+
+    // helper - triangulate a polygon (the first ring is the outline, the others are holes)
+    private static org.poly2tri.geometry.polygon.Polygon triangulate(short[][] poly, TIntHashSet indexer) {
+        // convert to polygon from raw data
+        org.poly2tri.geometry.polygon.Polygon polyR = new org.poly2tri.geometry.polygon.Polygon(toPoints(poly[0], indexer));
+        for (int j = 1; j < poly.length; j++) {
+            polyR.addHole(new org.poly2tri.geometry.polygon.Polygon(toPoints(poly[j], indexer)));
+        }
+
+        // do the triangulation
+        // Note: Every thread uses its own context, so this can run in parallel
+        TriangulationContext context = tcx.get();
+        context.prepareTriangulation(polyR);
+        Poly2Tri.triangulate(context);
+        context.clear();
+        return polyR;
+    }
 
     // triangulate a polygon, the input data is interpolated to allow Poly2Tri to process it.
     // Hence the output data is slightly "off". This can be fixed by rounding the output data, don't use (int)
     // casting though as this might round down instead of up.
     public static ArrayList<DelaunayTriangle> triangulate(short[][][] polys) {
         ArrayList<DelaunayTriangle> result = new ArrayList<DelaunayTriangle>();
-
         // stores and manages all seen points
         TIntHashSet indexer = new TIntHashSet();
-
         // loop over all polygon (a polygon consists of exterior and interior ring)
         for (short[][] poly : polys) {
-
-            // stores an interpolated polygon ("0" entry is outline, others are holes)
-            HashMap<Integer, ArrayList<PolygonPoint>> polygon = new HashMap<Integer, ArrayList<PolygonPoint>>();
-
-            // stored the current point list (temp variable)
-            ArrayList<PolygonPoint> resultOutline = new ArrayList<PolygonPoint>();
-            polygon.put(0,resultOutline);
-
-            // loop over polygon outline
-            short[] outline = poly[0];
-            for (int i = 0, len = outline.length - 2; i < len; i+=2) {
-                // check if we need to interpolate
-                if (!indexer.add(IntegerTools.makeInt(outline[i], outline[i + 1]))) {
-                    resultOutline.add(new PolygonPoint(outline[i] - Math.signum(outline[i] - outline[i+2]) * INTERP, outline[i+1] - Math.signum(outline[i+1] - outline[i+3]) * INTERP));
-                } else {
-                    resultOutline.add(new PolygonPoint(outline[i], outline[i+1]));
-                }
-            }
-            indexer.clear();
-              
-            // loop over polygon holes
-            for (int j = 1; j < poly.length; j++) {
-                // create new hole outline entry
-                resultOutline = new ArrayList<PolygonPoint>();
-                polygon.put(j,resultOutline);
-                outline = poly[j];
-                for (int i = 0, len = outline.length - 2; i < len; i+=2) {
-                    // check if we need to interpolate
-                    if (!indexer.add(IntegerTools.makeInt(outline[i], outline[i + 1]))) {
-                        resultOutline.add(new PolygonPoint(outline[i] - Math.signum(outline[i] - outline[i+2]) * INTERP, outline[i+1] - Math.signum(outline[i+1] - outline[i+3]) * INTERP));
-                    } else {
-                        resultOutline.add(new PolygonPoint(outline[i], outline[i+1]));
-                    }
-                }
-                indexer.clear();
-            }
-
-            // convert to polygon from raw data (zero is always the id that contains the exterior of the polygon)
-            org.poly2tri.geometry.polygon.Polygon polyR = new org.poly2tri.geometry.polygon.Polygon(polygon.remove(0));
-            for (ArrayList<PolygonPoint> hole : polygon.values()) {
-                polyR.addHole(new org.poly2tri.geometry.polygon.Polygon(hole));
-            }
-
-            // do the triangulation and add the triangles for this polygon
-            // Note: This needs to be synchronized to prevent multiple instances
-            // from accessing the tcx context at once
-            synchronized (tcx) {
-                tcx.prepareTriangulation(polyR);
-                Poly2Tri.triangulate(tcx);
-                tcx.clear();
-            }
-            result.addAll(polyR.getTriangles());
-
+            result.addAll(triangulate(poly, indexer).getTriangles());
         }
-
         // return all triangles
         return result;
     }
 
+    // triangulate a polygon and add the triangles to the buffer (see above). The triangulation
+    // objects are released after every polygon, so this is preferred for large inputs.
+    public static void triangulate(short[][][] polys, TriangleBuffer out) {
+        TIntHashSet indexer = new TIntHashSet();
+        for (short[][] poly : polys) {
+            for (DelaunayTriangle tri : triangulate(poly, indexer).getTriangles()) {
+                out.add(tri);
+            }
+        }
+    }
+
 }
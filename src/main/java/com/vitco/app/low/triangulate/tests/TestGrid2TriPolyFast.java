@@ -2,11 +2,18 @@ package com.vitco.app.low.triangulate.tests;
 
 import com.vitco.app.low.triangulate.Grid2TriPolyFast;
 import com.vitco.app.low.triangulate.util.Grid2PolyHelper;
+import com.vitco.app.low.triangulate.util.TriangleBuffer;
 import org.junit.Test;
 import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * - Testing Poly2Tri and in particular new conversion "voxel -> polygon" by doing in depth validation of created geometry.
@@ -32,4 +39,66 @@ public class TestGrid2TriPolyFast extends AbstractTriangulationTest {
     public void testTriangulationCase() throws IOException {
         super.testTriangulationCase("test.png", "out.png", 20, false);
     }
+
+    // helper - create random polygons
+    private static short[][][] randomPolygons(int seed) {
+        Random rand = new Random(seed);
+        boolean[][] data = new boolean[rand.nextInt(60) + 5][rand.nextInt(60) + 5];
+        for (int j = 0, count = rand.nextInt(data.length * data[0].length * 2); j < count; j++) {
+            data[rand.nextInt(data.length)][rand.nextInt(data[0].length)] = true;
+        }
+        return Grid2PolyHelper.convert(data);
+    }
+
+    // helper - triangulate into a buffer and return the coordinates
+    private static float[] triangulateBuffer(short[][][] polys) {
+        TriangleBuffer buffer = new TriangleBuffer(1);
+        Grid2TriPolyFast.triangulate(polys, buffer);
+        float[] result = new float[buffer.size() * 6];
+        for (int i = 0; i < buffer.size(); i++) {
+            for (int p = 0; p < 3; p++) {
+                result[i * 6 + p * 2] = buffer.getX(i, p);
+                result[i * 6 + p * 2 + 1] = buffer.getY(i, p);
+            }
+        }
+        return result;
+    }
+
+    // the buffer contains the same triangles as the list and the
+    // triangulation gives the same result when running in parallel
+    @Test
+    public void testTriangleBuffer() throws Exception {
+        final int count = 500;
+        float[][] expected = new float[count][];
+        for (int i = 0; i < count; i++) {
+            short[][][] polys = randomPolygons(i);
+            ArrayList<DelaunayTriangle> tris = Grid2TriPolyFast.triangulate(polys);
+            expected[i] = triangulateBuffer(polys);
+            assert expected[i].length == tris.size() * 6;
+            for (int j = 0; j < tris.size(); j++) {
+                for (int p = 0; p < 3; p++) {
+                    assert expected[i][j * 6 + p * 2] == tris.get(j).points[p].getXf();
+                    assert expected[i][j * 6 + p * 2 + 1] == tris.get(j).points[p].getYf();
+                }
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<float[]>> results = new ArrayList<Future<float[]>>();
+            for (int i = 0; i < count; i++) {
+                final int seed = i;
+                results.add(executor.submit(new Callable<float[]>() {
+                    @Override
+                    public float[] call() {
+                        return triangulateBuffer(randomPolygons(seed));
+                    }
+                }));
+            }
+            for (int i = 0; i < count; i++) {
+                assert Arrays.equals(expected[i], results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package com.vitco.app.low.triangulate.util;
+
+import org.poly2tri.triangulation.delaunay.DelaunayTriangle;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Growable buffer of 2D triangles (six floats per triangle: x0, y0, x1, y1, x2, y2).
+ *
+ * Used instead of lists of triangle objects, so that the triangulation objects can be
+ * released directly after each polygon. A buffer can be cleared and reused.
+ *
+ * Note: The coordinates might be slightly "off" (interpolation of the triangulation),
+ * use the rounded getters to obtain the grid positions.
+ */
+public final class TriangleBuffer {
+
+    // the coordinates
+    private float[] coords;
+
+    // amount of triangles
+    private int size = 0;
+
+    // constructor
+    public TriangleBuffer(int initialCapacity) {
+        coords = new float[Math.max(1, initialCapacity) * 6];
+    }
+
+    // constructor
+    public TriangleBuffer() {
+        this(64);
+    }
+
+    // remove all triangles (keeps the memory)
+    public void clear() {
+        size = 0;
+    }
+
+    // amount of triangles
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // add a triangle
+    public void add(float x0, float y0, float x1, float y1, float x2, float y2) {
+        int offset = size * 6;
+        if (offset + 6 > coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+        coords[offset] = x0;
+        coords[offset + 1] = y0;
+        coords[offset + 2] = x1;
+        coords[offset + 3] = y1;
+        coords[offset + 4] = x2;
+        coords[offset + 5] = y2;
+        size++;
+    }
+
+    // add a triangle (only x and y are used)
+    public void add(DelaunayTriangle tri) {
+        add(tri.points[0].getXf(), tri.points[0].getYf(),
+                tri.points[1].getXf(), tri.points[1].getYf(),
+                tri.points[2].getXf(), tri.points[2].getYf());
+    }
+
+    // add triangles (only x and y are used)
+    public void addAll(Collection<DelaunayTriangle> tris) {
+        for (DelaunayTriangle tri : tris) {
+            add(tri);
+        }
+    }
+
+    // ---------------
+
+    public float getX(int triangle, int point) {
+        return coords[triangle * 6 + point * 2];
+    }
+
+    public float getY(int triangle, int point) {
+        return coords[triangle * 6 + point * 2 + 1];
+    }
+
+    // rounding is needed since the triangulation can result in non integers
+    // (casting to int is not sufficient as this might round down instead of up)
+    public int getRoundedX(int triangle, int point) {
+        return Math.round(getX(triangle, point));
+    }
+
+    public int getRoundedY(int triangle, int point) {
+        return Math.round(getY(triangle, point));
+    }
+
+    // the center of a triangle
+    public float getCentroidX(int triangle) {
+        int offset = triangle * 6;
+        return (float) (((double) coords[offset] + coords[offset + 2] + coords[offset + 4]) / 3);
+    }
+
+    public float getCentroidY(int triangle) {
+        int offset = triangle * 6;
+        return (float) (((double) coords[offset + 1] + coords[offset + 3] + coords[offset + 5]) / 3);
+    }
+}
@@ -5,6 +5,12 @@ package com.vitco.app.manager.async;
  */
 public abstract class AsyncAction implements Runnable {
 
+    // priorities (lower values are executed first)
+    public static final int PRIORITY_INTERACTIVE = 0; // input handling and repaints
+    public static final int PRIORITY_DEFAULT = 1;
+    public static final int PRIORITY_BACKGROUND = 2; // long running tasks (e.g. analysis, export)
+    public static final int PRIORITY_COUNT = 3;
+
     public abstract void performAction();
 
     @Override
@@ -20,21 +26,34 @@ public abstract class AsyncAction implements Runnable {
         return true;
     }
 
+    // priority of this AsyncAction
+    public final int priority;
+
     // giving a name to an async action guarantees that
-    // there are not a lot of delayed actions with the
-    // same name queueing up in the AsyncActionManager
-    // IMPORTANT: it doesn't enforce this for not delayed actions
-    public AsyncAction(String name) {
+    // there are not a lot of actions with the same name
+    // queueing up in the AsyncActionManager (a queued action
+    // is replaced by the newer action with the same name)
+    public AsyncAction(String name, int priority) {
         this.name = name;
+        this.priority = priority;
+    }
+
+    public AsyncAction(String name) {
+        this(name, PRIORITY_DEFAULT);
     }
 
     // once this reaches Integer.MAX_VALUE it will reset to Integer.MIN_VALUE
     private static int c = 0;
 
-    public AsyncAction() {
+    public AsyncAction(int priority) {
         synchronized (AsyncAction.class) {
             name = String.valueOf(c++);
         }
+        this.priority = priority;
+    }
+
+    public AsyncAction() {
+        this(PRIORITY_DEFAULT);
     }
 
 }
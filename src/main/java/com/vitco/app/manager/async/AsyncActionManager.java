@@ -5,13 +5,21 @@ import com.vitco.app.manager.thread.ThreadManagerInterface;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages Async Actions
+ *
+ * Actions are queued in one lane per priority and executed one at a time (higher
+ * priorities first). Queued actions with the same name are coalesced.
  */
 public class AsyncActionManager {
 
@@ -22,35 +30,150 @@ public class AsyncActionManager {
         this.threadManager = threadManager;
     }
 
-    // list of new action
-    private final ArrayList<AsyncAction> newActions = new ArrayList<AsyncAction>();
+    // a queued action, the entry keeps its position when the action is replaced
+    private static final class Entry {
+        private AsyncAction action;
+        private final int priority;
+        // when this entry was queued (nano time)
+        private final long queuedAt = System.nanoTime();
 
-    // list of actions
-    private final ArrayList<String> stack = new ArrayList<String>();
-    // retry to execute when the main stack is empty
-    private final ArrayList<String> idleStack = new ArrayList<String>();
+        private Entry(AsyncAction action, int priority) {
+            this.action = action;
+            this.priority = priority;
+        }
+    }
+
+    // guards all the data below
+    private final ReentrantLock lock = new ReentrantLock();
+    // signalled when actions are added or an action has finished
+    private final Condition changed = lock.newCondition();
+
+    // the queued actions (per priority)
+    private final ArrayList<ArrayDeque<Entry>> lanes = new ArrayList<ArrayDeque<Entry>>();
+    // actions that were not ready yet (per priority)
+    private final ArrayList<ArrayList<Entry>> idleLanes = new ArrayList<ArrayList<Entry>>();
+    {
+        for (int i = 0; i < AsyncAction.PRIORITY_COUNT; i++) {
+            lanes.add(new ArrayDeque<Entry>());
+            idleLanes.add(new ArrayList<Entry>());
+        }
+    }
+
+    // list of current action names (entries in the lanes that are not listed here are dropped)
+    private final HashMap<String, Entry> actionNames = new HashMap<String, Entry>();
+
+    // true while an action is executed
+    private boolean running = false;
 
-    // list of current action names
-    private final HashMap<String, AsyncAction> actionNames = new HashMap<String, AsyncAction>();
+    // statistics (per priority)
+    private final long[] executedCount = new long[AsyncAction.PRIORITY_COUNT];
+    private final long[] totalLatency = new long[AsyncAction.PRIORITY_COUNT];
+    private final long[] maxLatency = new long[AsyncAction.PRIORITY_COUNT];
+    private final long[] totalRunTime = new long[AsyncAction.PRIORITY_COUNT];
+    private int maxQueueDepth = 0;
 
     public final void removeAsyncAction(String actionName) {
-        if (null != actionNames.remove(actionName)) {
-            stack.remove(actionName);
-            idleStack.remove(actionName);
+        lock.lock();
+        try {
+            actionNames.remove(actionName);
+        } finally {
+            lock.unlock();
         }
     }
 
     // Note: re-adding an action does not ensure that the action
     // is at the end of the queue!
     public final void addAsyncAction(AsyncAction action) {
-        synchronized (newActions) {
-            newActions.add(action);
+        int priority = Math.max(0, Math.min(AsyncAction.PRIORITY_COUNT - 1, action.priority));
+        lock.lock();
+        try {
+            Entry entry = actionNames.get(action.name);
+            if (entry != null && entry.priority <= priority) {
+                // replace the queued action
+                entry.action = action;
+            } else {
+                // the previous entry (if any) is dropped
+                entry = new Entry(action, priority);
+                actionNames.put(action.name, entry);
+                lanes.get(priority).add(entry);
+                maxQueueDepth = Math.max(maxQueueDepth, actionNames.size());
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
         }
-        synchronized (workerThread) {
-            workerThread.notify();
+    }
+
+    // the amount of queued actions
+    public final int getQueueDepth() {
+        lock.lock();
+        try {
+            return actionNames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // get the statistics (one line per priority)
+    public final String[] getStatistics() {
+        lock.lock();
+        try {
+            String[] result = new String[AsyncAction.PRIORITY_COUNT + 1];
+            for (int i = 0; i < AsyncAction.PRIORITY_COUNT; i++) {
+                long count = Math.max(1, executedCount[i]);
+                result[i] = String.format("Priority %d: %d executed, %d queued, latency %.2f ms (max %.2f ms), run time %.2f ms",
+                        i, executedCount[i], lanes.get(i).size() + idleLanes.get(i).size(),
+                        totalLatency[i] / (count * 1000000.0), maxLatency[i] / 1000000.0,
+                        totalRunTime[i] / (count * 1000000.0));
+            }
+            result[AsyncAction.PRIORITY_COUNT] = "Queue depth: " + actionNames.size() + " (max " + maxQueueDepth + ")";
+            return result;
+        } finally {
+            lock.unlock();
         }
     }
 
+    // helper - true if the entry is still queued
+    private boolean isQueued(Entry entry) {
+        return actionNames.get(entry.action.name) == entry;
+    }
+
+    // helper - fetch the next ready action (highest priority first)
+    private Entry poll() {
+        for (int i = 0; i < AsyncAction.PRIORITY_COUNT; i++) {
+            ArrayDeque<Entry> lane = lanes.get(i);
+            ArrayList<Entry> idleLane = idleLanes.get(i);
+            for (Entry entry; (entry = lane.poll()) != null;) {
+                if (isQueued(entry)) {
+                    if (entry.action.ready()) {
+                        return entry;
+                    }
+                    idleLane.add(entry);
+                }
+            }
+            for (Iterator<Entry> it = idleLane.iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (!isQueued(entry)) {
+                    it.remove();
+                } else if (entry.action.ready()) {
+                    it.remove();
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    // helper - true if there are actions that are not ready yet
+    private boolean hasIdleActions() {
+        for (ArrayList<Entry> idleLane : idleLanes) {
+            if (!idleLane.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // needs to be one as those tasks can not be executed in parallel!
     // Note: ExecutorService is much faster than using a new thread to
     // execute each AsyncAction
@@ -62,62 +185,62 @@ public class AsyncActionManager {
         public void onAfterStop() {
             executor.shutdown();
             // Wait until all threads are finish
-            //noinspection StatementWithEmptyBody
-            while (!executor.isTerminated()) {}
+            try {
+                //noinspection StatementWithEmptyBody
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {}
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
         @Override
         public void loop() throws InterruptedException {
-            // add new tasks
-            synchronized (newActions) {
-                if (!newActions.isEmpty()) {
-                    for (AsyncAction action : newActions) {
-                        String actionName = action.name;
-                        if (null == actionNames.put(actionName, action)) {
-                            stack.add(actionName);
-                        }
+            final Entry entry;
+            final AsyncAction action;
+            lock.lock();
+            try {
+                // wait until the current action has finished and another action is ready
+                Entry next = running ? null : poll();
+                while (next == null) {
+                    if (running || !hasIdleActions()) {
+                        changed.await();
+                    } else {
+                        // the readiness of waiting actions can only be polled
+                        changed.await(50, TimeUnit.MILLISECONDS);
                     }
-                    newActions.clear();
+                    next = running ? null : poll();
                 }
+                entry = next;
+                action = entry.action;
+                // remove first in case the action adds
+                // itself to the cue again (e.g. for refreshWorld())
+                actionNames.remove(action.name);
+                running = true;
+                long latency = System.nanoTime() - entry.queuedAt;
+                executedCount[entry.priority]++;
+                totalLatency[entry.priority] += latency;
+                maxLatency[entry.priority] = Math.max(maxLatency[entry.priority], latency);
+            } finally {
+                lock.unlock();
             }
-            // handle stack execution
-            if (!stack.isEmpty()) {
-                // fetch action
-                String actionName = stack.remove(0);
-                final AsyncAction action = actionNames.get(actionName);
-                if (action.ready()) {
-                    // remove first in case the action adds
-                    // itself to the cue again (e.g. for refreshWorld())
-                    actionNames.remove(actionName);
-                    executor.execute(action);
-                } else {
-                    idleStack.add(actionName);
-                }
-            } else {
-                // -- the main stack is empty
-                // add <ready> idle stack back to main stack
-                if (!idleStack.isEmpty()) {
-                    for (String asyncAction : idleStack) {
-                        if (actionNames.get(asyncAction).ready()) {
-                            stack.add(asyncAction);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        action.run();
+                    } finally {
+                        lock.lock();
+                        try {
+                            totalRunTime[entry.priority] += System.nanoTime() - start;
+                            running = false;
+                            changed.signal();
+                        } finally {
+                            lock.unlock();
                         }
                     }
-                    idleStack.removeAll(stack);
                 }
-
-                if (stack.isEmpty()) {
-                    synchronized (workerThread) {
-                        // sometimes notify is "too early"/fails(?), so we need a timeout here
-                        if (idleStack.isEmpty()) {
-                            // no actions waiting, we can be "lazy"
-                            workerThread.wait(500);
-                        } else {
-                            // there are some actions not ready yet, so we should check often
-                            workerThread.wait(50);
-                        }
-                    }
-                }
-            }
+            });
         }
     };
 
@@ -87,8 +87,10 @@ public final class VitcoSettings {
 
     // cursor
     public static final Cursor CURSOR_DEFAULT = Cursor.getDefaultCursor();
-    public static final Cursor CURSOR_BLANK = Toolkit.getDefaultToolkit().createCustomCursor(
-            new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
+    // (no custom cursors without display, e.g. for batch conversion)
+    public static final Cursor CURSOR_BLANK = GraphicsEnvironment.isHeadless() ? CURSOR_DEFAULT :
+            Toolkit.getDefaultToolkit().createCustomCursor(
+                    new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
 
     // initial settings
     public static final Color INITIAL_CURRENT_COLOR = new Color(199, 89, 68);
@@ -205,6 +207,20 @@ public final class VitcoSettings {
             new Color(243, 243, 243), new Color(255, 255, 255)
     };
 
+    // memory budget per undo history (in bytes, estimated)
+    public static final long HISTORY_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    // maximum amount of changed positions that are logged for the data consumers
+    // (consumers that fall further behind do a complete refresh)
+    public static final int CHANGE_JOURNAL_CAPACITY = 1 << 22;
+
+    // amount of recently used planes that are buffered per axis (side views)
+    public static final int PLANE_BUFFER_SIZE = 64;
+
+    // amount of recently read planes per side view consumer that are notified incrementally
+    // (a side view shows the current and the previous plane)
+    public static final int SIDE_VIEW_CURSORS = 4;
+
     // maximum voxel count per layer (and for picture import)
     public static final int MAX_VOXEL_COUNT_PER_LAYER = 100000;
 
@@ -213,12 +229,22 @@ public final class VitcoSettings {
     //offset
     public static final int TRI_GRID_OFFSET = 6;
 
+    // amount of coarser detail levels in the main view (the voxel size doubles with every level)
+    public static final int LOD_LEVEL_COUNT = 3;
+    // a coarser level is shown once its voxels are smaller than this on screen (in pixel)
+    public static final float LOD_PIXEL_SIZE = 2f;
+    // a coarser level is shown if there are more triangles than this times the polygons that are
+    // drawn per frame (about half of the triangles face away and some are not on screen)
+    public static final int LOD_BUDGET_FACTOR = 4;
+
     // the corners of polygon triangulation are shifted into this direction
     // to reduce see through edges
     public static final float TRIANGLE_INTERPOLATION_VALUE = 0.002f;
     // interpolation to move textures away from the corners,
     // reduces showing of neighbouring pixels (interpolation errors)
     public static final float TEXTURE_INTERPOLATION_VALUE = 0.004f;
+    // memory that the generated textures can use before unused ones are removed (in bytes)
+    public static final long TEXTURE_POOL_BUDGET = 64L * 1024 * 1024;
     // interpolation to show black outline (moves textures towards the outside)
     public static final float BORDER_INSET_VALUE = 0.04f;
 
@@ -7,7 +7,8 @@ import com.vitco.app.layout.content.console.ConsoleInterface;
  * to report their status.
  */
 public abstract class ProgressReporter {
-    // reference to the dialog that should be used for reporting.
+    // reference to the dialog that should be used for reporting
+    // (null if there is no dialog, e.g. for batch conversion)
     private final ProgressDialog dialog;
     // grant access to console for any progress reporter
     protected final ConsoleInterface console;
@@ -31,17 +32,21 @@ public abstract class ProgressReporter {
     // set the current activity and whether the progress should
     // be automatically increased (for fast tasks only)
     public final void setActivity(String activity, boolean autoIncrease) {
-        dialog.setActivity(activity, autoIncrease);
+        if (dialog != null) {
+            dialog.setActivity(activity, autoIncrease);
+        }
     }
 
     // returns true if the task is canceled (this needs to be checked by the task doing the work)
     public final boolean isCancelled() {
-        return dialog.isCancelled();
+        return dialog != null && dialog.isCancelled();
     }
 
     // set the progress status
     public final void setProgress(float percent) {
-        dialog.setProgress(percent);
+        if (dialog != null) {
+            dialog.setProgress(percent);
+        }
     }
 
 }
@@ -0,0 +1,125 @@
+package com.vitco.app.util.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered text writer for large (mostly numeric) text files.
+ *
+ * Numbers are formatted directly into the output buffer, so no intermediate
+ * strings are created. The buffer is written to the channel when it is full.
+ */
+public class AsciiChannelWriter implements Closeable {
+
+    // the target channel
+    private final WritableByteChannel channel;
+
+    // the output buffer
+    private final ByteBuffer buffer;
+
+    // used to format floating point numbers (reused)
+    private final StringBuilder numberBuilder = new StringBuilder(32);
+
+    // used to format integers (reused)
+    private final byte[] digits = new byte[11];
+
+    // amount of bytes written to the channel
+    private long bytesWritten = 0;
+
+    // constructor
+    public AsciiChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    // constructor
+    public AsciiChannelWriter(WritableByteChannel channel) {
+        this(channel, 1 << 16);
+    }
+
+    // helper - make sure the buffer has space for this many bytes
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    // write a string (UTF-8 encoded)
+    public final AsciiChannelWriter write(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length;) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int len = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, len);
+            offset += len;
+        }
+        return this;
+    }
+
+    // write an ascii character
+    public final AsciiChannelWriter write(char c) throws IOException {
+        ensureSpace(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    // write an integer
+    public final AsciiChannelWriter write(int value) throws IOException {
+        ensureSpace(11);
+        if (value == Integer.MIN_VALUE) {
+            return write(Integer.toString(value));
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        buffer.put(digits, pos, digits.length - pos);
+        return this;
+    }
+
+    // write a float (same representation as Float.toString)
+    public final AsciiChannelWriter write(float value) throws IOException {
+        numberBuilder.setLength(0);
+        numberBuilder.append(value);
+        int len = numberBuilder.length();
+        ensureSpace(len);
+        for (int i = 0; i < len; i++) {
+            buffer.put((byte) numberBuilder.charAt(i));
+        }
+        return this;
+    }
+
+    // amount of bytes that were written (including buffered bytes)
+    public final long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    // write the buffered bytes to the channel
+    public final void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // flush and close the channel
+    @Override
+    public final void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
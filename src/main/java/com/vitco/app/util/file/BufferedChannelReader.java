@@ -0,0 +1,202 @@
+package com.vitco.app.util.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Buffered binary reader for a channel (little endian).
+ *
+ * Reading past the end of the channel throws an EOFException (like DataInputStream),
+ * except for the methods that document a different behaviour.
+ */
+public class BufferedChannelReader implements Closeable {
+
+    // the source channel
+    private final ReadableByteChannel channel;
+
+    // the buffer (between position and limit are the unread bytes)
+    private final ByteBuffer buffer;
+
+    // constructor
+    public BufferedChannelReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    // constructor
+    public BufferedChannelReader(ReadableByteChannel channel) {
+        this(channel, 1 << 16);
+    }
+
+    // helper - read more bytes into the buffer, returns false if eof is reached
+    private boolean fill() throws IOException {
+        buffer.compact();
+        try {
+            return channel.read(buffer) > 0;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    // helper - make sure that this many bytes are buffered
+    private void require(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (!fill()) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    // amount of buffered (unread) bytes
+    public final int buffered() {
+        return buffer.remaining();
+    }
+
+    // discard the buffered bytes (e.g. after the channel position was changed)
+    public final void discard() {
+        buffer.clear();
+        buffer.limit(0);
+    }
+
+    // ---------------
+
+    // returns -1 if eof is reached
+    public final int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    // returns the amount of bytes read or -1 if eof is reached
+    public final int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < length) {
+            if (!buffer.hasRemaining()) {
+                if (length - read >= buffer.capacity()) {
+                    // large reads bypass the buffer
+                    int count = channel.read(ByteBuffer.wrap(bytes, offset + read, length - read));
+                    if (count <= 0) {
+                        break;
+                    }
+                    read += count;
+                    continue;
+                }
+                if (!fill()) {
+                    break;
+                }
+            }
+            int len = Math.min(buffer.remaining(), length - read);
+            buffer.get(bytes, offset + read, len);
+            read += len;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    public final void readFully(byte[] bytes) throws IOException {
+        if (read(bytes, 0, bytes.length) != bytes.length && bytes.length > 0) {
+            throw new EOFException();
+        }
+    }
+
+    // returns the amount of bytes skipped
+    public final long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count) {
+            if (!buffer.hasRemaining() && !fill()) {
+                break;
+            }
+            int len = (int) Math.min(buffer.remaining(), count - skipped);
+            buffer.position(buffer.position() + len);
+            skipped += len;
+        }
+        return skipped;
+    }
+
+    public final byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    public final short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    public final int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    public final long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    public final float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    public final double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    public final void readShorts(short[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(2);
+            int len = Math.min(buffer.remaining() >> 1, length);
+            buffer.asShortBuffer().get(values, offset, len);
+            buffer.position(buffer.position() + (len << 1));
+            offset += len;
+            length -= len;
+        }
+    }
+
+    public final void readInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(4);
+            int len = Math.min(buffer.remaining() >> 2, length);
+            buffer.asIntBuffer().get(values, offset, len);
+            buffer.position(buffer.position() + (len << 2));
+            offset += len;
+            length -= len;
+        }
+    }
+
+    // read a line (terminated by \n, \r or \r\n), returns null if eof is reached
+    public final String readLine() throws IOException {
+        StringBuilder lineBuf = new StringBuilder();
+        while (true) {
+            int c = read();
+            switch (c) {
+                case '\n':
+                    return lineBuf.toString();
+                case -1:
+                    return null;
+                case '\r':
+                    if ((buffer.hasRemaining() || fill()) && buffer.get(buffer.position()) == '\n') {
+                        buffer.get();
+                    }
+                    return lineBuf.toString();
+                default:
+                    lineBuf.append((char) c);
+            }
+        }
+    }
+
+    // close the channel
+    @Override
+    public final void close() throws IOException {
+        channel.close();
+    }
+}
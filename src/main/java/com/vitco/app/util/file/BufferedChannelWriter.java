@@ -0,0 +1,207 @@
+package com.vitco.app.util.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.*;
+
+/**
+ * Buffered binary writer for a channel (little endian).
+ *
+ * Primitive arrays are copied in bulk into the buffer. If write behind is enabled
+ * a full buffer is written by a background thread while the next one is filled
+ * (double buffering), so encoding and disk access overlap.
+ */
+public class BufferedChannelWriter implements Closeable {
+
+    // the target channel
+    private final WritableByteChannel channel;
+
+    // the buffer that is currently filled
+    private ByteBuffer buffer;
+
+    // the buffer that is written in the background (null if write behind is disabled)
+    private ByteBuffer spare;
+
+    // the background writer and the pending write
+    private final ExecutorService executor;
+    private Future<?> pending = null;
+
+    // amount of bytes handed to the channel
+    private long bytesWritten = 0;
+
+    // constructor
+    public BufferedChannelWriter(WritableByteChannel channel, int bufferSize, boolean writeBehind) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        if (writeBehind) {
+            this.spare = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "BufferedChannelWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.spare = null;
+            this.executor = null;
+        }
+    }
+
+    // constructor
+    public BufferedChannelWriter(WritableByteChannel channel) {
+        this(channel, 1 << 16, false);
+    }
+
+    // helper - make sure the buffer has space for this many bytes
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    // ---------------
+
+    public final void writeByte(byte value) throws IOException {
+        ensureSpace(1);
+        buffer.put(value);
+    }
+
+    public final void writeShort(short value) throws IOException {
+        ensureSpace(2);
+        buffer.putShort(value);
+    }
+
+    public final void writeInt(int value) throws IOException {
+        ensureSpace(4);
+        buffer.putInt(value);
+    }
+
+    public final void writeLong(long value) throws IOException {
+        ensureSpace(8);
+        buffer.putLong(value);
+    }
+
+    public final void writeFloat(float value) throws IOException {
+        ensureSpace(4);
+        buffer.putFloat(value);
+    }
+
+    public final void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int len = Math.min(buffer.remaining(), length);
+            buffer.put(bytes, offset, len);
+            offset += len;
+            length -= len;
+        }
+    }
+
+    public final void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    public final void writeShorts(short[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < 2) {
+                flushBuffer();
+            }
+            int len = Math.min(buffer.remaining() >> 1, length);
+            buffer.asShortBuffer().put(values, offset, len);
+            buffer.position(buffer.position() + (len << 1));
+            offset += len;
+            length -= len;
+        }
+    }
+
+    public final void writeInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < 4) {
+                flushBuffer();
+            }
+            int len = Math.min(buffer.remaining() >> 2, length);
+            buffer.asIntBuffer().put(values, offset, len);
+            buffer.position(buffer.position() + (len << 2));
+            offset += len;
+            length -= len;
+        }
+    }
+
+    // ---------------
+
+    // amount of bytes that were written (including buffered bytes)
+    public final long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    // helper - wait for the pending background write
+    private void awaitPending() throws IOException {
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing.", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } finally {
+                pending = null;
+            }
+        }
+    }
+
+    // helper - write a buffer to the channel
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // hand the buffered bytes to the channel (in the background if write behind is enabled)
+    private void flushBuffer() throws IOException {
+        bytesWritten += buffer.position();
+        buffer.flip();
+        if (executor == null) {
+            writeFully(buffer);
+        } else {
+            awaitPending();
+            final ByteBuffer full = buffer;
+            buffer = spare;
+            spare = full;
+            pending = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    writeFully(full);
+                    return null;
+                }
+            });
+        }
+    }
+
+    // write all buffered bytes to the channel
+    public final void flush() throws IOException {
+        flushBuffer();
+        awaitPending();
+    }
+
+    // flush and close the channel
+    @Override
+    public final void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            channel.close();
+        }
+    }
+}
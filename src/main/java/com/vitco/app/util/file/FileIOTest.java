@@ -0,0 +1,164 @@
+package com.vitco.app.util.file;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test the buffered file reader and writer and their compatibility with
+ * unbuffered data streams (the previous implementation).
+ */
+public class FileIOTest {
+
+    // helper - write test data
+    private static void writeTestData(FileOut out, int[] ints, short[] shorts) throws IOException {
+        out.writeByte((byte) -3);
+        out.writeIntRev(0x12345678);
+        out.writeShortRev((short) -2);
+        out.writeFloatRev(1.5f);
+        out.writeASCIIString("ascii");
+        out.writeLine("line");
+        out.writeIntsRev(ints, 0, ints.length);
+        out.writeShortsRev(shorts, 0, shorts.length);
+        for (int value : ints) {
+            out.writeIntRev(value);
+        }
+        out.writeUTF8String("end");
+    }
+
+    // helper - check the test data
+    private static void checkTestData(FileIn in, int[] ints, short[] shorts) throws IOException {
+        byte b = in.readByte();
+        int i = in.readIntRev();
+        short s = in.readShortRev();
+        float f = in.readFloatRev();
+        String ascii = in.readASCIIString(5);
+        String line = in.readLine();
+        assert b == -3;
+        assert i == 0x12345678;
+        assert s == -2;
+        assert f == 1.5f;
+        assert "ascii".equals(ascii);
+        assert "line".equals(line);
+        int[] intsRead = new int[ints.length];
+        in.readIntsRev(intsRead, 0, intsRead.length);
+        short[] shortsRead = new short[shorts.length];
+        in.readShortsRev(shortsRead, 0, shortsRead.length);
+        assert Arrays.equals(ints, intsRead);
+        assert Arrays.equals(shorts, shortsRead);
+        for (int value : ints) {
+            int read = in.readIntRev();
+            assert read == value;
+        }
+        String end = in.readUTF8String(3);
+        int eof = in.readByteUnsigned();
+        assert "end".equals(end);
+        assert eof == -1;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random rand = new Random(1);
+        int[] ints = new int[100000];
+        short[] shorts = new short[50001];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = rand.nextInt();
+        }
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) rand.nextInt();
+        }
+        File file = File.createTempFile("test", ".bin");
+        try {
+            for (boolean writeBehind : new boolean[] {false, true}) {
+                FileOut out = new FileOut(file.getAbsolutePath(), writeBehind);
+                writeTestData(out, ints, shorts);
+                out.finish();
+
+                FileIn in = new FileIn(file);
+                checkTestData(in, ints, shorts);
+                in.finish();
+
+                // compare with the in memory version
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                FileOut memOut = new FileOut(baos);
+                writeTestData(memOut, ints, shorts);
+                memOut.finish();
+                MappedFileIn mapped = MappedFileIn.map(file);
+                byte[] bytes;
+                try {
+                    bytes = new byte[mapped.length()];
+                    mapped.readBytes(bytes);
+                } finally {
+                    // release the mapping, so the file can be written again and deleted
+                    mapped.close();
+                }
+                assert Arrays.equals(bytes, baos.toByteArray());
+
+                // random access
+                RandomAccessFileIn raf = new RandomAccessFileIn(file, "r");
+                try {
+                    byte b = raf.readByte();
+                    int i = raf.readIntRev();
+                    assert b == -3;
+                    assert i == 0x12345678;
+                    raf.seek(bytes.length - 3 - ints.length * 4);
+                    int first = raf.readIntRev();
+                    assert first == ints[0];
+                    raf.seek(1);
+                    int reversed = raf.readInt();
+                    assert reversed == Integer.reverseBytes(0x12345678);
+                    assert raf.getFilePointer() == 5;
+                    raf.seek(bytes.length - 3);
+                    String end = raf.readASCII(3);
+                    int eof = raf.read();
+                    assert "end".equals(end);
+                    assert eof == -1;
+                } finally {
+                    raf.close();
+                }
+            }
+        } finally {
+            boolean deleted = file.delete();
+            assert deleted;
+        }
+    }
+
+    @Test
+    public void testStreamCompatibility() throws IOException {
+        int count = 1 << 18;
+        File file = File.createTempFile("test", ".bin");
+        try {
+            // written by the data streams (previous implementation), read buffered
+            DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
+            for (int j = 0; j < count; j++) {
+                dos.writeInt(Integer.reverseBytes(j));
+            }
+            dos.close();
+            FileIn in = new FileIn(file);
+            for (int j = 0; j < count; j++) {
+                int read = in.readIntRev();
+                assert read == j;
+            }
+            in.finish();
+
+            // written buffered, read by the data streams
+            FileOut out = new FileOut(file.getAbsolutePath());
+            for (int j = 0; j < count; j++) {
+                out.writeIntRev(j);
+            }
+            out.finish();
+            assert file.length() == count * 4;
+            DataInputStream dis = new DataInputStream(new FileInputStream(file));
+            for (int j = 0; j < count; j++) {
+                int read = Integer.reverseBytes(dis.readInt());
+                assert read == j;
+            }
+            dis.close();
+        } finally {
+            boolean deleted = file.delete();
+            assert deleted;
+        }
+    }
+}
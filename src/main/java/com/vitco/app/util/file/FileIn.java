@@ -5,11 +5,11 @@ import java.awt.image.BufferedImage;
 import java.io.*;
 
 /**
- * To read a file (binary or not)
+ * To read a file (binary or not). Reading is buffered, the "Rev" methods read little endian.
  */
 public class FileIn  {
 
-    private final SaveDataInputStream in;
+    private final BufferedChannelReader in;
 
     private final File file;
     public final File getInternalFile() {
@@ -18,7 +18,7 @@ public class FileIn  {
 
     // constructor
     public FileIn(File file) throws FileNotFoundException {
-        in = new SaveDataInputStream(new FileInputStream(file));
+        in = new BufferedChannelReader(new FileInputStream(file).getChannel());
         this.file = file;
     }
 
@@ -28,7 +28,7 @@ public class FileIn  {
     }
 
     public String readLine() throws IOException {
-        return in.readLineSave();
+        return in.readLine();
     }
 
     public byte readByte() throws IOException {
@@ -36,34 +36,42 @@ public class FileIn  {
     }
 
     public int read(byte[] b) throws IOException {
-        return in.read(b);
+        return in.read(b, 0, b.length);
     }
 
     public int readInt() throws IOException {
-        return in.readInt();
+        return Integer.reverseBytes(in.readInt());
     }
 
     public int readIntRev() throws IOException {
-        return Integer.reverseBytes(in.readInt());
+        return in.readInt();
     }
 
     public float readFloat() throws IOException {
-        return in.readFloat();
+        return Float.intBitsToFloat(readInt());
     }
 
     public float readFloatRev() throws IOException {
-        return Float.intBitsToFloat(
-                Integer.reverseBytes(Float.floatToIntBits (in.readFloat()))
-        );
+        return in.readFloat();
     }
 
     public double readDouble() throws IOException {
-        return in.readDouble();
+        return Double.longBitsToDouble(readLong());
+    }
+
+    // read integers (little endian) in bulk
+    public void readIntsRev(int[] values, int offset, int length) throws IOException {
+        in.readInts(values, offset, length);
+    }
+
+    // read shorts (little endian) in bulk
+    public void readShortsRev(short[] values, int offset, int length) throws IOException {
+        in.readShorts(values, offset, length);
     }
 
     public String readUTF8String(int length) throws IOException {
         byte[] bytes = new byte[length];
-        if (length != in.read(bytes)) {
+        if (length != in.read(bytes, 0, length)) {
             return null;
         }
         return new String(bytes, "UTF-8");
@@ -71,7 +79,7 @@ public class FileIn  {
 
     public String readASCIIString(int length) throws IOException {
         byte[] bytes = new byte[length];
-        if (length != in.read(bytes)) {
+        if (length != in.read(bytes, 0, length)) {
             return null;
         }
         return new String(bytes, "ASCII");
@@ -90,11 +98,11 @@ public class FileIn  {
     }
 
     public long readLong() throws IOException {
-        return in.readLong();
+        return Long.reverseBytes(in.readLong());
     }
 
     public char readChar() throws IOException {
-        return in.readChar();
+        return (char) readShort();
     }
 
     public int readByteUnsigned() throws IOException {
@@ -102,11 +110,11 @@ public class FileIn  {
     }
 
     public short readShort() throws IOException {
-        return in.readShort();
+        return Short.reverseBytes(in.readShort());
     }
 
     public short readShortRev() throws IOException {
-        return Short.reverseBytes(in.readShort());
+        return in.readShort();
     }
 
     public int readShortUnsigned() throws IOException {
@@ -131,7 +139,7 @@ public class FileIn  {
     }
 
     public long readLongRev() throws IOException {
-        return Long.reverseBytes(readLong());
+        return in.readLong();
     }
 
     public boolean skipBytes(int mainContentSize) throws IOException {
@@ -141,7 +149,7 @@ public class FileIn  {
     public BufferedImage readImage() throws IOException {
         int length = readIntRev();
         byte[] bytes = new byte[length];
-        if (length != in.read(bytes)) {
+        if (length != in.read(bytes, 0, length)) {
             return null;
         }
         return ImageIO.read(new ByteArrayInputStream(bytes));
@@ -7,18 +7,35 @@ import com.googlecode.pngtastic.core.PngOptimizer;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
-
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * To write a (binary) file. Multi-byte values are written little endian by the "Rev" methods.
+ *
+ * Writing is buffered, so finish() needs to be called for the data to arrive.
+ */
 public class FileOut {
-    private final DataOutputStream p;
+    private final BufferedChannelWriter p;
 
     // constructor
-    public FileOut(String filename) throws FileNotFoundException {
-        p = new DataOutputStream(new FileOutputStream(filename));
+    public FileOut(String filename) throws IOException {
+        this(filename, false);
+    }
+
+    // constructor (write behind writes the file in a background thread)
+    public FileOut(String filename, boolean writeBehind) throws IOException {
+        p = new BufferedChannelWriter(FileChannel.open(new File(filename).toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
+                1 << 16, writeBehind);
     }
 
     // alternative constructor
     public FileOut(ByteArrayOutputStream b) {
-        this.p = new DataOutputStream(b);
+        this.p = new BufferedChannelWriter(Channels.newChannel(b));
     }
 
     // attach another ByteArrayOutputStream
@@ -26,40 +43,49 @@ public class FileOut {
         p.write(bytes);
     }
 
+    // write part of a byte array
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        p.write(bytes, offset, length);
+    }
+
+    // write integers reversed
+    public void writeIntsRev(int[] data, int offset, int length) throws IOException {
+        p.writeInts(data, offset, length);
+    }
+
+    // write shorts reversed
+    public void writeShortsRev(short[] data, int offset, int length) throws IOException {
+        p.writeShorts(data, offset, length);
+    }
+
     // write text
     public void writeASCIIString(String text) throws IOException {
-        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(p, "ASCII"));
-        bw.write(text);
-        bw.flush();
+        p.write(text.getBytes(StandardCharsets.US_ASCII));
     }
 
     // write text
     public void writeUTF8String(String text) throws IOException {
-        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(p, "UTF8"));
-        bw.write(text);
-        bw.flush();
+        p.write(text.getBytes(StandardCharsets.UTF_8));
     }
 
     // write a line of text
     public void writeLine(String text) throws IOException {
-        p.writeBytes(text + "\r\n");
+        writeBytes(text + "\r\n");
     }
 
     // write integer revered
     public void writeIntRev(int data) throws IOException {
-        p.writeInt(Integer.reverseBytes(data));
+        p.writeInt(data);
     }
 
     // write short reversed
     public void writeShortRev(short data) throws IOException {
-        p.writeShort(Short.reverseBytes(data));
+        p.writeShort(data);
     }
 
     // write float reversed
     public void writeFloatRev(float data) throws IOException {
-        p.writeFloat(Float.intBitsToFloat(
-                Integer.reverseBytes(Float.floatToIntBits (data))
-        ));
+        p.writeFloat(data);
     }
 
     // write byte
@@ -67,9 +93,12 @@ public class FileOut {
         p.writeByte(data);
     }
 
-    // write bytes
+    // write bytes (lower byte of every character)
     public void writeBytes(String bytes) throws IOException {
-        p.writeBytes(bytes);
+        int len = bytes.length();
+        for (int i = 0; i < len; i++) {
+            p.writeByte((byte) bytes.charAt(i));
+        }
     }
 
     // write an image file
@@ -90,9 +119,7 @@ public class FileOut {
     // todo: this method still needs testing!
     public void writeFile(File file) throws IOException {
         // get the bytes
-        RandomAccessFile f = new RandomAccessFile(file, "rw");
-        byte[] bytes = new byte[(int)f.length()];
-        f.read(bytes);
+        byte[] bytes = Files.readAllBytes(file.toPath());
 
         // get the size
         Integer contentLength = bytes.length;
@@ -0,0 +1,240 @@
+package com.vitco.app.util.file;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * To read a (binary) file that is mapped into memory.
+ *
+ * Multi-byte values are little endian unless the method name says otherwise
+ * (the "Rev" methods of FileIn). Slices share the mapped memory, but have their
+ * own position, so they can be decoded independently (e.g. in different threads).
+ *
+ * Close a mapped file when it is read, so the file is not locked until the next garbage
+ * collection (e.g. on Windows it can not be replaced or deleted while it is mapped). The
+ * slices must not be used after the file they were created from is closed.
+ */
+public class MappedFileIn implements Closeable {
+
+    // the underlying buffer (little endian, null when closed)
+    private ByteBuffer buffer;
+    // true if this reader owns the mapping (i.e. it was created by map())
+    private final boolean owner;
+
+    // constructor
+    private MappedFileIn(ByteBuffer buffer, boolean owner) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.owner = owner;
+    }
+
+    // map a file into memory
+    public static MappedFileIn map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be mapped: " + file.getName());
+            }
+            return new MappedFileIn(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), true);
+        }
+    }
+
+    // wrap a byte array
+    public static MappedFileIn wrap(byte[] bytes) {
+        return new MappedFileIn(ByteBuffer.wrap(bytes), false);
+    }
+
+    // create an independent reader for a part of this file (absolute offset)
+    public final MappedFileIn slice(int offset, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.limit(offset + length);
+        dup.position(offset);
+        return new MappedFileIn(dup.slice(), false);
+    }
+
+    // release the mapping (the reader can not be used afterwards)
+    @Override
+    public final void close() {
+        ByteBuffer buffer = this.buffer;
+        this.buffer = null;
+        if (owner && buffer != null && buffer.isDirect()) {
+            unmap(buffer);
+        }
+    }
+
+    // helper - unmap a mapped buffer now instead of waiting for the garbage collector
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            try {
+                // java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                invokeCleaner.invoke(field.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method clean = cleaner.getClass().getMethod("clean");
+                    clean.setAccessible(true);
+                    clean.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // not supported, the mapping is released by the garbage collector
+        }
+    }
+
+    // ---------------
+
+    public final int length() {
+        return buffer.limit();
+    }
+
+    public final int position() {
+        return buffer.position();
+    }
+
+    public final int remaining() {
+        return buffer.remaining();
+    }
+
+    public final void seek(int position) {
+        buffer.position(position);
+    }
+
+    public final boolean skipBytes(int count) {
+        if (count < 0 || count > buffer.remaining()) {
+            buffer.position(buffer.limit());
+            return false;
+        }
+        buffer.position(buffer.position() + count);
+        return true;
+    }
+
+    // ---------------
+
+    public final byte readByte() {
+        return buffer.get();
+    }
+
+    // returns -1 if the end of the file is reached
+    public final int readByteUnsigned() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    // read an unsigned byte at an absolute position
+    public final int getByteUnsigned(int position) {
+        return buffer.get(position) & 0xFF;
+    }
+
+    public final short readShortRev() {
+        return buffer.getShort();
+    }
+
+    public final int readShortRevUnsigned() {
+        return buffer.getShort() & 0xffff;
+    }
+
+    public final int readIntRev() {
+        return buffer.getInt();
+    }
+
+    public final int readIntRevUnsigned() {
+        return buffer.getInt() & 0xffffff;
+    }
+
+    // read big endian int
+    public final int readInt() {
+        return Integer.reverseBytes(buffer.getInt());
+    }
+
+    public final float readFloatRev() {
+        return buffer.getFloat();
+    }
+
+    // read big endian float
+    public final float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    // read big endian double
+    public final double readDouble() {
+        return Double.longBitsToDouble(Long.reverseBytes(buffer.getLong()));
+    }
+
+    public final void readBytes(byte[] bytes) {
+        buffer.get(bytes);
+    }
+
+    // returns null if there are not enough bytes left
+    public final String readASCIIString(int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    // returns null if there are not enough bytes left
+    public final String readUTF8String(int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // read a line (terminated by \n, \r or \r\n), returns null if eof is reached
+    public final String readLine() {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        StringBuilder lineBuf = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            int c = buffer.get() & 0xFF;
+            if (c == '\n') {
+                return lineBuf.toString();
+            } else if (c == '\r') {
+                if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+                return lineBuf.toString();
+            }
+            lineBuf.append((char) c);
+        }
+        // the file ended without line terminator
+        return null;
+    }
+
+    // read an image (prefixed by its length), returns null if it is not valid
+    public final BufferedImage readImage() throws IOException {
+        int length = readIntRev();
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        return readImage(length);
+    }
+
+    // read an image with known length, returns null if it is not valid
+    public final BufferedImage readImage(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+}
@@ -7,16 +7,92 @@ import java.io.RandomAccessFile;
 
 /**
  * RandomAccessFile with additional functionaly
+ *
+ * Reading is buffered (all inherited read methods use the buffer), the buffer
+ * is discarded when the file position changes or when writing.
  */
 public class RandomAccessFileIn extends RandomAccessFile {
+
+    // the read buffer
+    private final BufferedChannelReader reader;
+
     // constructor
     public RandomAccessFileIn(String name, String mode) throws FileNotFoundException {
-        super(name, mode);
+        this(new File(name), mode);
     }
 
     // constructor
     public RandomAccessFileIn(File file, String mode) throws FileNotFoundException {
         super(file, mode);
+        reader = new BufferedChannelReader(getChannel(), 1 << 13);
+    }
+
+    // helper - move the file position to the read position and discard the buffer
+    private void discardBuffer() throws IOException {
+        if (reader.buffered() > 0) {
+            getChannel().position(getFilePointer());
+            reader.discard();
+        }
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return getChannel().position() - reader.buffered();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        long current = getFilePointer();
+        if (pos >= current && pos - current <= reader.buffered()) {
+            reader.skip(pos - current);
+        } else {
+            reader.discard();
+            super.seek(pos);
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long pos = getFilePointer();
+        long newPos = Math.min(pos + n, length());
+        seek(newPos);
+        return (int) (newPos - pos);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return reader.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return reader.read(b, off, len);
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return reader.read(b, 0, b.length);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        discardBuffer();
+        super.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        discardBuffer();
+        super.write(b, off, len);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        discardBuffer();
+        super.write(b);
     }
 
     public int readIntRevUnsigned() throws IOException {
@@ -24,7 +100,7 @@ public class RandomAccessFileIn extends RandomAccessFile {
     }
 
     public int readIntRev() throws IOException {
-        return Integer.reverseBytes(this.readInt());
+        return reader.readInt();
     }
 
     public int readUInt8() throws IOException {
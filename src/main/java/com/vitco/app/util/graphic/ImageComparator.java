@@ -3,10 +3,8 @@ package com.vitco.app.util.graphic;
 import com.vitco.app.util.misc.ArrayUtil;
 import com.vitco.app.util.misc.IntegerTools;
 import gnu.trove.iterator.TIntIntIterator;
-import gnu.trove.iterator.TIntIterator;
 import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.set.hash.TIntHashSet;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -125,19 +123,17 @@ public class ImageComparator {
 
     // compute the Jaccard similarity coefficient (using the colors)
     public final float jaccard(ImageComparator other) {
-        TIntHashSet uniqueColors = new TIntHashSet(this.colors.keySet());
-        uniqueColors.addAll(other.colors.keySet());
+        // only the colors of the smaller map can contribute to the intersection
+        TIntIntHashMap small = this.colors.size() < other.colors.size() ? this.colors : other.colors;
+        TIntIntHashMap large = small == this.colors ? other.colors : this.colors;
 
         int intersection = 0;
-        int union = 0;
-
-        for (TIntIterator it = uniqueColors.iterator(); it.hasNext();) {
-            int color = it.next();
-            int count1 = this.colors.get(color);
-            int count2 = other.colors.get(color);
-            intersection += Math.min(count1, count2);
-            union += Math.max(count1, count2);
+        for (TIntIntIterator it = small.iterator(); it.hasNext();) {
+            it.advance();
+            intersection += Math.min(it.value(), large.get(it.key()));
         }
+        // the union is the sum of the maximum counts (i.e. all pixels minus the intersection)
+        int union = this.pixelCount + other.pixelCount - intersection;
 
         return intersection / (float)union;
     }
@@ -0,0 +1,118 @@
+package com.vitco.app.util.graphic;
+
+import java.util.ArrayList;
+
+/**
+ * Packs rectangles into a strip of fixed width (and unbounded height).
+ *
+ * The free space is described by the "skyline", i.e. the top outline of the
+ * rectangles that were already placed. Every new rectangle is placed at the lowest
+ * position where it fits onto the skyline (left most position on ties).
+ */
+public class SkylinePacker {
+
+    // the width of the strip
+    private final int width;
+
+    // the segments of the skyline (x, y, width), ordered by x
+    private final ArrayList<int[]> skyline = new ArrayList<int[]>();
+
+    // the height that is currently used
+    private int height = 0;
+
+    // the width that is currently used
+    private int usedWidth = 0;
+
+    // constructor
+    public SkylinePacker(int width) {
+        this.width = width;
+        skyline.add(new int[] {0, 0, width});
+    }
+
+    // get the width that is used by the placed rectangles
+    public final int getWidth() {
+        return usedWidth;
+    }
+
+    // get the height that is used by the placed rectangles
+    public final int getHeight() {
+        return height;
+    }
+
+    // helper - get the y position a rectangle would have when placed
+    // at the start of this segment (or -1 if it does not fit)
+    private int getPlacement(int index, int w) {
+        int x = skyline.get(index)[0];
+        if (x + w > width) {
+            return -1;
+        }
+        int y = 0;
+        for (int i = index, len = skyline.size(); i < len && skyline.get(i)[0] < x + w; i++) {
+            y = Math.max(y, skyline.get(i)[1]);
+        }
+        return y;
+    }
+
+    // place a rectangle and return its position (x, y)
+    // Note: rectangles that are wider than the strip are placed at the bottom
+    public final int[] insert(int w, int h) {
+        int bestIndex = -1;
+        int bestY = Integer.MAX_VALUE;
+        for (int i = 0, len = skyline.size(); i < len; i++) {
+            int y = getPlacement(i, w);
+            if (y == -1) {
+                break;
+            }
+            if (y < bestY) {
+                bestY = y;
+                bestIndex = i;
+            }
+        }
+        int x;
+        if (bestIndex == -1) {
+            // does not fit into the strip
+            x = 0;
+            bestY = height;
+            skyline.clear();
+            skyline.add(new int[] {0, bestY + h, Math.max(width, w)});
+        } else {
+            x = skyline.get(bestIndex)[0];
+            addSegment(bestIndex, x, bestY + h, w);
+        }
+        height = Math.max(height, bestY + h);
+        usedWidth = Math.max(usedWidth, x + w);
+        return new int[] {x, bestY};
+    }
+
+    // helper - add a segment to the skyline (replaces the covered parts)
+    private void addSegment(int index, int x, int y, int w) {
+        skyline.add(index, new int[] {x, y, w});
+        // shrink or remove the segments that are covered by the new segment
+        int right = x + w;
+        for (int i = index + 1; i < skyline.size();) {
+            int[] seg = skyline.get(i);
+            if (seg[0] >= right) {
+                break;
+            }
+            int segRight = seg[0] + seg[2];
+            if (segRight <= right) {
+                skyline.remove(i);
+            } else {
+                seg[2] = segRight - right;
+                seg[0] = right;
+                break;
+            }
+        }
+        // merge neighbouring segments of the same height
+        for (int i = Math.max(1, index); i < Math.min(skyline.size(), index + 2);) {
+            int[] prev = skyline.get(i - 1);
+            int[] seg = skyline.get(i);
+            if (prev[1] == seg[1]) {
+                prev[2] += seg[2];
+                skyline.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+}
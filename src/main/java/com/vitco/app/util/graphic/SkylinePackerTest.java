@@ -0,0 +1,65 @@
+package com.vitco.app.util.graphic;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the skyline packer implementation.
+ */
+public class SkylinePackerTest {
+
+    @Test
+    public final void testNoOverlap() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random rand = new Random(seed);
+            int width = rand.nextInt(40) + 20;
+            SkylinePacker packer = new SkylinePacker(width);
+            ArrayList<Rectangle> placed = new ArrayList<Rectangle>();
+            for (int i = 0; i < 200; i++) {
+                int w = rand.nextInt(width) + 1;
+                int h = rand.nextInt(15) + 1;
+                int[] pos = packer.insert(w, h);
+                Rectangle rect = new Rectangle(pos[0], pos[1], w, h);
+                // check that the rectangle is inside the strip
+                assertTrue(pos[0] >= 0 && pos[1] >= 0 && pos[0] + w <= width);
+                // check that the rectangle does not overlap any other rectangle
+                for (Rectangle other : placed) {
+                    assertFalse(rect.intersects(other));
+                }
+                placed.add(rect);
+            }
+            // check the used dimension
+            int maxX = 0;
+            int maxY = 0;
+            for (Rectangle rect : placed) {
+                maxX = Math.max(maxX, rect.x + rect.width);
+                maxY = Math.max(maxY, rect.y + rect.height);
+            }
+            assertEquals(maxX, packer.getWidth());
+            assertEquals(maxY, packer.getHeight());
+        }
+    }
+
+    @Test
+    public final void testFillsGaps() {
+        SkylinePacker packer = new SkylinePacker(10);
+        packer.insert(10, 5);
+        packer.insert(4, 5);
+        // the next rectangle is placed next to the previous one (not on top of it)
+        int[] pos = packer.insert(6, 3);
+        assertEquals(4, pos[0]);
+        assertEquals(5, pos[1]);
+        // this rectangle fits into the remaining gap
+        pos = packer.insert(6, 2);
+        assertEquals(4, pos[0]);
+        assertEquals(8, pos[1]);
+        assertEquals(10, packer.getHeight());
+    }
+}
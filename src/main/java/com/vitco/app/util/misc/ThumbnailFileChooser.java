@@ -1,5 +1,7 @@
 package com.vitco.app.util.misc;
 
+import com.vitco.app.convert.ThumbnailService;
+
 import javax.swing.*;
 import javax.swing.filechooser.FileView;
 import java.awt.*;
@@ -7,6 +9,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
@@ -26,6 +29,9 @@ public class ThumbnailFileChooser extends CFileDialog {
     /** Edit this to determine what file types will be previewed. */
     private final Pattern imageFilePattern = Pattern.compile(".+?\\.(png|jpe?g|gif|tiff?)$", Pattern.CASE_INSENSITIVE);
 
+    /** Renders the previews of voxel files (no previews if not set) */
+    private transient ThumbnailService thumbnailService = null;
+
     /** Use a weak hash map to cache images until the next garbage collection (saves memory) */
     private transient final Map<File, ImageIcon> imageCache = new WeakHashMap<File, ImageIcon>();
 
@@ -37,6 +43,11 @@ public class ThumbnailFileChooser extends CFileDialog {
         LOADING_IMAGE = new BufferedImage(ICON_SIZE_X, ICON_SIZE_Y, BufferedImage.TYPE_INT_ARGB);
     }
 
+    // show previews of voxel files (rendered by this service)
+    public final void setThumbnailService(ThumbnailService thumbnailService) {
+        this.thumbnailService = thumbnailService;
+    }
+
     // --- Override the other constructors as needed ---
 
     {
@@ -49,7 +60,8 @@ public class ThumbnailFileChooser extends CFileDialog {
         private final ExecutorService executor = Executors.newCachedThreadPool();
 
         public Icon getIcon(File file) {
-            if (!imageFilePattern.matcher(file.getName()).matches()) {
+            if (!imageFilePattern.matcher(file.getName()).matches()
+                    && (thumbnailService == null || !ThumbnailService.isSupported(file))) {
                 return null;
             }
 
@@ -85,9 +97,21 @@ public class ThumbnailFileChooser extends CFileDialog {
         public void run() {
             //System.out.println("Loading image: " + file);
 
-            // Load and scale the image down, then replace the icon's old image with the new one.
-            ImageIcon newIcon = new ImageIcon(file.getAbsolutePath());
-            Image img = newIcon.getImage().getScaledInstance(ICON_SIZE_X, ICON_SIZE_Y, Image.SCALE_SMOOTH);
+            Image img;
+            if (imageFilePattern.matcher(file.getName()).matches()) {
+                // Load and scale the image down, then replace the icon's old image with the new one.
+                ImageIcon newIcon = new ImageIcon(file.getAbsolutePath());
+                img = newIcon.getImage().getScaledInstance(ICON_SIZE_X, ICON_SIZE_Y, Image.SCALE_SMOOTH);
+            } else {
+                // render the voxel file (keep the blank icon if that fails)
+                try {
+                    img = thumbnailService.submit(file, "perspective", ICON_SIZE_X, ICON_SIZE_Y).get();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    return;
+                }
+            }
             icon.setImage(img);
 
             // Repaint the dialog so we see the new icon.
@@ -243,22 +243,33 @@ public class XmlFile {
         boolean result = false;
 
         try {
-            DOMSource domSource = new DOMSource(doc);
             Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF8");
+            result = writeToWriter(out, errorHandler);
+            out.close();
+        } catch (FileNotFoundException e) {
+            errorHandler.handle(e);
+        } catch (IOException e) {
+            errorHandler.handle(e);
+        }
+
+        return result;
+    }
+
+    // write this xml document to a writer
+    public boolean writeToWriter(Writer out, ErrorHandlerInterface errorHandler) {
+        boolean result = false;
+
+        try {
+            DOMSource domSource = new DOMSource(doc);
 
             Transformer transformer = TransformerFactory.newInstance().newTransformer();
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
             transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
             transformer.transform(domSource, new StreamResult(out));
 
-            out.close();
             result = true;
-        } catch (FileNotFoundException e) {
-            errorHandler.handle(e);
         } catch (TransformerException e) {
             errorHandler.handle(e);
-        } catch (IOException e) {
-            errorHandler.handle(e);
         }
 
         return result;
@@ -0,0 +1,34 @@
+package formats;
+
+import com.vitco.app.core.data.Data;
+import com.vitco.app.export.AbstractExporter;
+import com.vitco.app.export.QbExporter;
+import com.vitco.app.importer.AbstractImporter;
+import com.vitco.app.importer.QbImporter;
+import com.vitco.app.util.components.progressbar.ProgressDialog;
+
+import java.io.File;
+import java.io.IOException;
+
+
+public class QbFormatTest extends AbstractFormatTest {
+
+    public QbFormatTest() {
+        super("qb");
+    }
+
+    @Override
+    AbstractImporter initImporter(File file) throws IOException {
+        return new QbImporter(file, "Importer");
+    }
+
+    @Override
+    AbstractExporter initExporter(File file, Data data) throws IOException {
+        return new QbExporter(file, data, new ProgressDialog(null), null);
+    }
+
+    @Override
+    boolean shiftToCenter() {
+        return false;
+    }
+}